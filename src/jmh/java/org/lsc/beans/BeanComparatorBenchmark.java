@@ -0,0 +1,125 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.beans;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import org.lsc.LscModificationType;
+import org.lsc.LscModifications;
+import org.lsc.Task;
+import org.lsc.beans.syncoptions.ForceSyncOptions;
+import org.lsc.beans.syncoptions.SyncPlan;
+import org.lsc.exception.LscServiceException;
+import org.lsc.service.IWritableService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure the per entry comparison of a source and a destination bean, which
+ * runs once for every synchronized entry.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeanComparatorBenchmark {
+
+	/** Number of values of the membership attribute: a person or a large group */
+	@Param({"0", "10000"})
+	public int members;
+
+	/** Number of differing values between the source and the destination */
+	@Param({"0", "10"})
+	public int changed;
+
+	private Task task;
+
+	private IBean srcBean;
+
+	private IBean dstBean;
+
+	@Setup
+	public void setUp() {
+		IWritableService dstService = mock(IWritableService.class);
+		when(dstService.getWriteDatasetIds()).thenReturn(BenchmarkBeans.attributeNames());
+
+		task = mock(Task.class);
+		ForceSyncOptions syncOptions = new ForceSyncOptions();
+		when(task.getName()).thenReturn("benchmark");
+		when(task.getSyncOptions()).thenReturn(syncOptions);
+		when(task.getSyncPlan()).thenReturn(new SyncPlan(syncOptions, dstService.getWriteDatasetIds()));
+		when(task.getDestinationService()).thenReturn(dstService);
+		when(task.getExpression((String) any())).thenCallRealMethod();
+
+		srcBean = BenchmarkBeans.entry("uid=benchmark,ou=People,dc=lsc-project,dc=org", members, changed);
+		dstBean = BenchmarkBeans.entry("uid=benchmark,ou=People,dc=lsc-project,dc=org", members, 0);
+	}
+
+	@Benchmark
+	public LscModifications update() throws LscServiceException {
+		return BeanComparator.calculateModifications(task, srcBean, dstBean, LscModificationType.UPDATE_OBJECT);
+	}
+
+	@Benchmark
+	public LscModifications create() throws LscServiceException {
+		return BeanComparator.calculateModifications(task, srcBean, null, LscModificationType.CREATE_OBJECT);
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.beans;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shared fixtures for the micro benchmarks: entries shaped like the ones a
+ * typical directory synchronization handles, i.e. about thirty single or
+ * lightly valued attributes plus an optional large group membership.
+ */
+public final class BenchmarkBeans {
+
+	/** Number of plain attributes of a generated entry */
+	public static final int ATTRIBUTES = 30;
+
+	/** Name of the multi-valued membership attribute */
+	public static final String MEMBER = "member";
+
+	private BenchmarkBeans() {
+	}
+
+	/**
+	 * Names of the generated attributes, membership attribute included.
+	 * @return the attribute names
+	 */
+	public static List<String> attributeNames() {
+		List<String> names = new ArrayList<String>(ATTRIBUTES + 1);
+		for (int i = 0; i < ATTRIBUTES; i++) {
+			names.add("attribute" + i);
+		}
+		names.add(MEMBER);
+		return names;
+	}
+
+	/**
+	 * Generate member values.
+	 * @param count the number of values
+	 * @param offset the index of the first value, to generate shifted sets
+	 * @return the values
+	 */
+	public static Set<Object> members(int count, int offset) {
+		Set<Object> values = new HashSet<Object>(count * 2);
+		for (int i = offset; i < offset + count; i++) {
+			values.add("uid=user" + i + ",ou=People,dc=lsc-project,dc=org");
+		}
+		return values;
+	}
+
+	/**
+	 * Build an entry.
+	 * @param id the main identifier
+	 * @param members the number of values of the membership attribute
+	 * @param changed the number of plain attributes and member values whose value differ from the reference entry
+	 * @return the entry
+	 */
+	public static IBean entry(String id, int members, int changed) {
+		IBean bean = new SimpleBean();
+		bean.setMainIdentifier(id);
+		for (int i = 0; i < ATTRIBUTES; i++) {
+			Set<Object> values = new HashSet<Object>();
+			values.add((i < changed ? "changed value " : "value ") + i);
+			if (i % 5 == 0) {
+				values.add("second value " + i);
+			}
+			bean.setDataset("attribute" + i, values);
+		}
+		if (members > 0) {
+			bean.setDataset(MEMBER, members(members, Math.min(changed, members)));
+		}
+		return bean;
+	}
+}
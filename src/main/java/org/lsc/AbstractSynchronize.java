@@ -45,26 +45,41 @@
  */
 package org.lsc;
 
+import java.io.IOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import org.lsc.Task;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
+import org.lsc.beans.EntryTrace;
 import org.lsc.beans.IBean;
 import org.lsc.beans.InfoCounter;
 import org.lsc.configuration.LscConfiguration;
 import org.lsc.configuration.PivotTransformationType;
+import org.lsc.exception.LscConfigurationException;
 import org.lsc.exception.LscServiceException;
+import org.lsc.persistence.FingerprintStore;
 import org.lsc.runnable.AsynchronousRunner;
 import org.lsc.runnable.CleanEntryRunner;
+import org.lsc.runnable.SynchronizeBatchRunner;
 import org.lsc.runnable.SynchronizeEntryRunner;
+import org.lsc.service.AbstractJdbcService;
+import org.lsc.service.IBatchService;
+import org.lsc.service.IPipelinedWritableService;
 import org.lsc.service.IService;
+import org.lsc.service.IStreamingService;
 import org.lsc.utils.LSCStructuralLogger;
+import org.lsc.utils.PivotSet;
 import org.lsc.utils.ScriptingEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -87,6 +102,7 @@ public abstract class AbstractSynchronize {
 		options.addOption("nd", "nodelete", false, "Don't delete");
 		options.addOption("nr", "nomodrdn", false, "Don't rename (MODRDN)");
 		options.addOption("n", "dryrun", false, "Don't update the directory at all");
+		options.addOption("fv", "verify", false, "Compare all entries, even those unchanged since the last synchronization");
 	}
 
 	/**
@@ -113,6 +129,12 @@ public abstract class AbstractSynchronize {
 	 */
 	public boolean nomodrdn = false;
 
+	/**
+	 * This is the flag to compare all the entries, ignoring the fingerprints
+	 * of the entries unchanged since the last synchronization.
+	 */
+	public boolean verify = false;
+
 	/**
 	 * Number of parallel threads handling synchronization and cleaning
 	 * Default to 5
@@ -135,6 +157,19 @@ public abstract class AbstractSynchronize {
 	 */
 	private Map<String, AsynchronousRunner> mapSTasks;
 
+	/**
+	 * Map used to keep the last merge join synchronization of each task, so
+	 * that the clean phase does not read the source and the destination again
+	 */
+	private Map<String, MergeJoin> mergeJoins;
+
+	/**
+	 * Maps used to publish the counter and the thread pool of the current or
+	 * last run of each task
+	 */
+	private Map<String, InfoCounter> counters;
+	private Map<String, SynchronizeThreadPoolExecutor> threadPools;
+
 	/**
 	 * Default constructor.
 	 */
@@ -142,6 +177,9 @@ public abstract class AbstractSynchronize {
 		timeLimit = 3600;
 		asynchronousThreads = new HashMap<String, Thread>();
 		mapSTasks = new HashMap<String, AsynchronousRunner>();
+		mergeJoins = new HashMap<String, MergeJoin>();
+		counters = new ConcurrentHashMap<String, InfoCounter>();
+		threadPools = new ConcurrentHashMap<String, SynchronizeThreadPoolExecutor>();
 	}
 
 	/**
@@ -153,6 +191,10 @@ public abstract class AbstractSynchronize {
 	protected final boolean clean2Ldap(Task task) {
 
 		InfoCounter counter = new InfoCounter();
+		if (useMergeJoin(task)) {
+			return mergeClean2Ldap(task, counter);
+		}
+
 		// Get list of all entries from the destination
 		Set<Entry<String, LscDatasets>> ids = null;
 		SynchronizeThreadPoolExecutor threadPool = null;
@@ -174,24 +216,80 @@ public abstract class AbstractSynchronize {
 			LOGGER.error("Empty or non existant destination (no IDs found)");
 			return false;
 		}
+
+		PivotSet sourcePivots = null;
+		if (task.isCleanWithSourcePivots()) {
+			sourcePivots = getSourcePivots(task);
+			if (sourcePivots == null) {
+				return false;
+			}
+		}
 		
-		threadPool = new SynchronizeThreadPoolExecutor(getThreads());
+		threadPool = newThreadPool(task, counter);
 		for (Entry<String, LscDatasets> id : ids) {
+			if (sourcePivots != null && isInSourcePivots(task, sourcePivots, id)) {
+				// The entry still exists in the source, there is nothing to clean
+				counter.incrementCountAll();
+				continue;
+			}
 			threadPool.runTask(new CleanEntryRunner(task, counter, this, id));
 		}
-		
-		try {
-			threadPool.shutdown();
-			threadPool.awaitTermination(timeLimit, TimeUnit.SECONDS);
-		} catch (InterruptedException e) {
-			LOGGER.error("Tasks terminated according to time limit: " + e.toString(), e);
-			LOGGER.info("If you want to avoid this message, " + "increase the time limit by using dedicated parameter.");
-		}
+		awaitTermination(task, threadPool);
 
 		logStatus(task.getName(), Task.Mode.clean.toString(), counter);
 		return counter.getCountError() == 0;
 	}
 
+	/**
+	 * Read all the source pivots once, to clean the destination without
+	 * looking up in the source the entries that are still there.
+	 * 
+	 * @param task the task to perform
+	 * @return the source pivots, or null if they could not be read
+	 */
+	private PivotSet getSourcePivots(Task task) {
+		PivotSet sourcePivots = new PivotSet();
+		try {
+			if (task.getSourceService() instanceof IStreamingService) {
+				((IStreamingService) task.getSourceService()).streamPivots(task,
+								(pivotName, pivotAttributes) -> sourcePivots.add(pivotAttributes));
+			} else {
+				for (LscDatasets pivotAttributes : task.getSourceService().getListPivots(task).values()) {
+					sourcePivots.add(pivotAttributes);
+				}
+			}
+		} catch (Exception e) {
+			LOGGER.error("Error getting list of IDs in the source for task {}", task.getName());
+			LOGGER.debug(e.toString(), e);
+			return null;
+		}
+		if (sourcePivots.getSkippedCount() > 0) {
+			LOGGER.warn("{} IDs read in the source for task {} lack a pivot attribute, the matching entries will be looked up",
+							sourcePivots.getSkippedCount(), task.getName());
+		}
+		LOGGER.info("Cleaning task {} with the {} IDs read in the source", task.getName(), sourcePivots.size());
+		return sourcePivots;
+	}
+
+	/**
+	 * Tell if a destination entry is known in the source, the destination
+	 * pivot attributes being transformed as when looking the entry up.
+	 * 
+	 * @param task the task to perform
+	 * @param sourcePivots the source pivots
+	 * @param id the destination entry
+	 * @return true if the entry is in the source, false if it must be looked up
+	 */
+	private boolean isInSourcePivots(Task task, PivotSet sourcePivots, Entry<String, LscDatasets> id) {
+		try {
+			return sourcePivots.contains(transformPivots(task, id.getValue(), false, false));
+		} catch (LscServiceException e) {
+			// Let the entry be looked up, failing as usual
+			LOGGER.debug(e.toString(), e);
+			return false;
+		}
+	}
+
 	/**
 	 * Synchronize the destination LDAP directory (create and update objects
 	 * from source).
@@ -199,8 +297,53 @@ public abstract class AbstractSynchronize {
 	 * @param task the task to perform
 	 */
 	protected final boolean synchronize2Ldap(final Task task) {
+		if (task.getFingerprintStoreFile() == null) {
+			return synchronizeEntries(task);
+		}
+
+		FingerprintStore fingerprintStore;
+		try {
+			fingerprintStore = new FingerprintStore(task.getFingerprintStoreFile(), task.getSyncConfigurationFingerprint(), verify);
+		} catch (LscConfigurationException e) {
+			LOGGER.error("Error while computing the fingerprint of the settings of task {}: {}", task.getName(), e.toString());
+			LOGGER.debug(e.toString(), e);
+			return false;
+		} catch (IOException e) {
+			LOGGER.error("Error while reading the fingerprints of task {} from {}: {}", task.getName(), task.getFingerprintStoreFile(), e.toString());
+			LOGGER.debug(e.toString(), e);
+			return false;
+		}
+
+		task.setFingerprintStore(fingerprintStore);
+		try {
+			return synchronizeEntries(task);
+		} finally {
+			task.setFingerprintStore(null);
+			try {
+				fingerprintStore.save();
+			} catch (IOException e) {
+				LOGGER.error("Error while saving the fingerprints of task {} to {}: {}", task.getName(), task.getFingerprintStoreFile(), e.toString());
+				LOGGER.debug(e.toString(), e);
+			}
+		}
+	}
+
+	/**
+	 * Synchronize the source entries, using the fingerprints of the task if
+	 * any to skip the unchanged ones.
+	 * 
+	 * @param task the task to perform
+	 */
+	private boolean synchronizeEntries(final Task task) {
 		
 		InfoCounter counter = new InfoCounter();
+		if (useMergeJoin(task)) {
+			return mergeSynchronize2Ldap(task, counter);
+		}
+		if (task.getSourceService() instanceof IStreamingService) {
+			return streamSynchronize2Ldap(task, (IStreamingService) task.getSourceService(), counter);
+		}
+
 		// Get list of all entries from the source
 		Set<Entry<String, LscDatasets>> ids = null;
 		SynchronizeThreadPoolExecutor threadPool = null;
@@ -223,15 +366,235 @@ public abstract class AbstractSynchronize {
 			return false;
 		}
 
-		threadPool = new SynchronizeThreadPoolExecutor(getThreads());
+		threadPool = newThreadPool(task, counter);
 
 		/*
 		 * Loop on all entries in the source and add or update them in the
 		 * destination
 		 */
+		EntrySubmitter submitter = new EntrySubmitter(task, counter, threadPool);
 		for (Entry<String, LscDatasets> id : ids) {
-			threadPool.runTask(new SynchronizeEntryRunner(task, counter, this, id, true));
+			submitter.submit(id);
+		}
+		submitter.flush();
+		awaitTermination(task, threadPool);
+
+		logStatus(task.getName(), Task.Mode.sync.toString(), counter);
+		return counter.getCountError() == 0;
+	}
+
+	/**
+	 * Synchronize the destination while the list of entries is still being read
+	 * from the source. The thread pool queue is bounded, so the source reading
+	 * is throttled by the synchronization speed and the whole list of pivots is
+	 * never held in memory.
+	 * 
+	 * @param task the task to perform
+	 * @param sourceService the source service, able to stream its pivots
+	 * @param counter the counter to update
+	 */
+	private boolean streamSynchronize2Ldap(final Task task, IStreamingService sourceService, final InfoCounter counter) {
+		final SynchronizeThreadPoolExecutor threadPool = newThreadPool(task, counter);
+		final EntrySubmitter submitter = new EntrySubmitter(task, counter, threadPool);
+		long count;
+
+		try {
+			count = sourceService.streamPivots(task, (pivotName, pivotAttributes) ->
+				submitter.submit(new SimpleImmutableEntry<String, LscDatasets>(pivotName, pivotAttributes)));
+			submitter.flush();
+		} catch (Exception e) {
+			LOGGER.error("Error getting list of IDs in the source for task {}", task.getName());
+			LOGGER.debug(e.toString(), e);
+			// Let already read entries complete before leaving
+			submitter.flush();
+			awaitTermination(task, threadPool);
+			logStatus(task.getName(), Task.Mode.sync.toString(), counter);
+			return false;
+		}
+		awaitTermination(task, threadPool);
+
+		Boolean errorIfEmptySource = (task.getErrorIfEmptySource() != null) ?
+						task.getErrorIfEmptySource() :
+						true;
+
+		// Make sure we had at least one entry to work on
+		if (count == 0 && errorIfEmptySource) {
+			LOGGER.error("Empty or non existant source (no IDs found)");
+			return false;
+		}
+
+		logStatus(task.getName(), Task.Mode.sync.toString(), counter);
+		return counter.getCountError() == 0;
+	}
+
+	private boolean useMergeJoin(Task task) {
+		if (!task.isMergeJoin()) {
+			return false;
+		}
+		if (!MergeJoin.isSupported(task)) {
+			LOGGER.warn("Task {} can not be run as a merge join: the source and the destination must support scans "
+					+ "and share a single pivot attribute, without pivot transformation. Reading entries one by one.", task.getName());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Synchronize the destination by reading the source and the destination
+	 * once, side by side, sorted by pivot. Each source bean is synchronized
+	 * with the destination bean read along, without any further request.
+	 * 
+	 * @param task the task to perform
+	 * @param counter the counter to update
+	 */
+	private boolean mergeSynchronize2Ldap(final Task task, final InfoCounter counter) {
+		mergeJoins.remove(task.getName());
+		final SynchronizeThreadPoolExecutor threadPool = newThreadPool(task, counter);
+		MergeJoin mergeJoin;
+
+		try {
+			mergeJoin = new MergeJoin(task, counter);
+			mergeJoin.run((id, srcBean, dstBean) -> {
+				SynchronizeEntryRunner runner = new SynchronizeEntryRunner(task, counter, this, id, true);
+				runner.setSourceBean(srcBean);
+				runner.setDestinationBean(dstBean);
+				threadPool.runTask(runner);
+			});
+		} catch (LscServiceException e) {
+			LOGGER.error("Error while reading the source and the destination of task {}: {}", task.getName(), e.getMessage());
+			LOGGER.debug(e.toString(), e);
+			// Let already submitted entries complete before leaving
+			awaitTermination(task, threadPool);
+			logStatus(task.getName(), Task.Mode.sync.toString(), counter);
+			return false;
+		}
+		awaitTermination(task, threadPool);
+
+		Boolean errorIfEmptySource = (task.getErrorIfEmptySource() != null) ?
+						task.getErrorIfEmptySource() :
+						true;
+
+		// Make sure we had at least one entry to work on
+		if (mergeJoin.getSourceCount() == 0 && errorIfEmptySource) {
+			LOGGER.error("Empty or non existant source (no IDs found)");
+			return false;
+		}
+		// Keep the destination entries missing from the source only for a clean to come
+		if (isCleanedAfterSync(task)) {
+			mergeJoins.put(task.getName(), mergeJoin);
 		}
+
+		logStatus(task.getName(), Task.Mode.sync.toString(), counter);
+		return counter.getCountError() == 0;
+	}
+
+	/**
+	 * Tell if the task will be cleaned after its synchronization, so that the
+	 * clean can reuse the destination entries found missing from the source by
+	 * a merge join synchronization.
+	 * 
+	 * @param task the task
+	 * @return <code>true</code> if the task is cleaned after its synchronization, false by default
+	 */
+	protected boolean isCleanedAfterSync(Task task) {
+		return false;
+	}
+
+	/**
+	 * Clean the destination entries missing from the source, as found by the
+	 * last merge join synchronization of the task, or by a new merge join. The
+	 * source is still checked for each entry before deleting it.
+	 * 
+	 * @param task the task to perform
+	 * @param counter the counter to update
+	 */
+	private boolean mergeClean2Ldap(Task task, InfoCounter counter) {
+		MergeJoin mergeJoin = mergeJoins.remove(task.getName());
+		if (mergeJoin == null) {
+			try {
+				mergeJoin = new MergeJoin(task, counter);
+				mergeJoin.run(null);
+			} catch (LscServiceException e) {
+				LOGGER.error("Error while reading the source and the destination of task {}: {}", task.getName(), e.getMessage());
+				LOGGER.debug(e.toString(), e);
+				return false;
+			}
+		}
+
+		Boolean errorIfEmptyDestination = (task.getErrorIfEmptyDestination() != null) ?
+							task.getErrorIfEmptyDestination() :
+							true;
+
+		// Make sure we have at least one entry to work on
+		if (mergeJoin.getDestinationCount() == 0 && errorIfEmptyDestination) {
+			LOGGER.error("Empty or non existant destination (no IDs found)");
+			return false;
+		}
+
+		SynchronizeThreadPoolExecutor threadPool = newThreadPool(task, counter);
+		for (Entry<String, LscDatasets> id : mergeJoin.getDestinationOnly()) {
+			threadPool.runTask(new CleanEntryRunner(task, counter, this, id));
+		}
+		awaitTermination(task, threadPool);
+
+		logStatus(task.getName(), Task.Mode.clean.toString(), counter);
+		return counter.getCountError() == 0;
+	}
+
+	/**
+	 * Submit the source entries to the thread pool, grouped by batches when the
+	 * source or the destination is able to read several beans with a single
+	 * request
+	 */
+	private class EntrySubmitter {
+
+		private final Task task;
+		private final InfoCounter counter;
+		private final SynchronizeThreadPoolExecutor threadPool;
+		private final int batchSize;
+		private List<Entry<String, LscDatasets>> batch;
+
+		EntrySubmitter(Task task, InfoCounter counter, SynchronizeThreadPoolExecutor threadPool) {
+			this.task = task;
+			this.counter = counter;
+			this.threadPool = threadPool;
+			this.batchSize = Math.max(getBatchSize(task.getSourceService()), getBatchSize(task.getDestinationService()));
+		}
+
+		private int getBatchSize(IService service) {
+			return (service instanceof IBatchService) ? ((IBatchService) service).getBatchSize() : 1;
+		}
+
+		void submit(Entry<String, LscDatasets> id) {
+			if (batchSize < 2) {
+				threadPool.runTask(new SynchronizeEntryRunner(task, counter, AbstractSynchronize.this, id, true));
+				return;
+			}
+			if (batch == null) {
+				batch = new ArrayList<Entry<String, LscDatasets>>(batchSize);
+			}
+			batch.add(id);
+			if (batch.size() >= batchSize) {
+				flush();
+			}
+		}
+
+		void flush() {
+			if (batch != null) {
+				threadPool.runTask(new SynchronizeBatchRunner(task, counter, AbstractSynchronize.this, batch));
+				batch = null;
+			}
+		}
+	}
+
+	/**
+	 * Wait for the submitted tasks to complete, within the time limit, then for
+	 * the responses to the modifications still pending in the destination
+	 * 
+	 * @param task the task being run
+	 * @param threadPool the thread pool to shut down
+	 */
+	public void awaitTermination(Task task, SynchronizeThreadPoolExecutor threadPool) {
 		try {
 			threadPool.shutdown();
 			threadPool.awaitTermination(timeLimit, TimeUnit.SECONDS);
@@ -239,9 +602,80 @@ public abstract class AbstractSynchronize {
 			LOGGER.error("Tasks terminated according to time limit: " + e.toString(), e);
 			LOGGER.info("If you want to avoid this message, " + "increase the time limit by using dedicated parameter.");
 		}
+		LOGGER.debug("Thread pool statistics: {}", threadPool.getStatistics());
+		logPoolStatistics("source", task.getSourceService());
+		logPoolStatistics("destination", task.getDestinationService());
+		if (task.getDestinationService() instanceof IPipelinedWritableService) {
+			try {
+				((IPipelinedWritableService) task.getDestinationService()).flush();
+			} catch (LscServiceException e) {
+				LOGGER.error("Error while waiting for the pending modifications: " + e.toString());
+				LOGGER.debug(e.toString(), e);
+			}
+			((IPipelinedWritableService) task.getDestinationService()).setCallbackExecutor(null);
+		}
+	}
 
-		logStatus(task.getName(), Task.Mode.sync.toString(), counter);
-		return counter.getCountError() == 0;
+	/**
+	 * Create the thread pool of a task run, and publish it along with the
+	 * counter of the run
+	 * 
+	 * @param task the task to perform
+	 * @param counter the counter of the run
+	 * @return the thread pool
+	 */
+	public SynchronizeThreadPoolExecutor newThreadPool(Task task, InfoCounter counter) {
+		SynchronizeThreadPoolExecutor threadPool = new SynchronizeThreadPoolExecutor(getThreads(), task.getQueueCapacity(), task.getName());
+		if (task.getDestinationService() instanceof IPipelinedWritableService) {
+			// Run the outcome of the pipelined modifications on the pool, or right away when it is busy
+			((IPipelinedWritableService) task.getDestinationService()).setCallbackExecutor(callback -> {
+				if (!threadPool.tryExecute(callback)) {
+					callback.run();
+				}
+			});
+		}
+		counters.put(task.getName(), counter);
+		threadPools.put(task.getName(), threadPool);
+		return threadPool;
+	}
+
+	/**
+	 * @return the counters of the current or last run of each task, by task name
+	 */
+	public Map<String, InfoCounter> getCounters() {
+		return Collections.unmodifiableMap(counters);
+	}
+
+	/**
+	 * @param taskName the task name
+	 * @return the thread pool of the current or last run of the task, null if it never ran
+	 */
+	public SynchronizeThreadPoolExecutor getThreadPool(String taskName) {
+		return threadPools.get(taskName);
+	}
+
+	/**
+	 * Get the time elapsed since a running asynchronous task last polled its
+	 * service for changes: a growing value means the task is stalled
+	 * 
+	 * @param taskName the task name
+	 * @return the time in milliseconds, -1 if the task is not running
+	 */
+	public final long getAsynchronousTaskLag(final String taskName) {
+		AsynchronousRunner asyncRunner = mapSTasks.get(taskName);
+		if (asyncRunner == null || !isAsynchronousTaskRunning(taskName)) {
+			return -1;
+		}
+		return System.currentTimeMillis() - asyncRunner.getLastPollTime();
+	}
+
+	private void logPoolStatistics(String serviceDescription, IService service) {
+		if (service instanceof AbstractJdbcService && LOGGER.isDebugEnabled()) {
+			String statistics = ((AbstractJdbcService) service).getPoolStatistics();
+			if (statistics != null) {
+				LOGGER.debug("Database connection pool statistics of the {}: {}", serviceDescription, statistics);
+			}
+		}
 	}
 
 	public final synchronized void startAsynchronousSynchronize2Ldap(Task task) {
@@ -307,7 +741,7 @@ public abstract class AbstractSynchronize {
 		if(asyncThread != null && asyncThread.isAlive()) {
 			AsynchronousRunner asyncRunner = mapSTasks.get(syncName);
 			InfoCounter counter = asyncRunner.getCounter();
-			return getLogStatus(syncName, Task.Mode.async.toString(), counter);
+			return getLogStatus(syncName, Task.Mode.async.toString(), counter) + " - " + counter.getMetrics();
 		} else {
 			return null;
 		}
@@ -408,6 +842,15 @@ public abstract class AbstractSynchronize {
 		} else {
 			LOGGER.info(totalsLogMessage);
 		}
+		LOGGER.debug("{} - {} - {}", taskName, taskMode, counter.getMetrics());
+		List<EntryTrace> slowEntries = counter.getSlowEntries();
+		if (!slowEntries.isEmpty()) {
+			StringBuilder report = new StringBuilder();
+			for (EntryTrace trace : slowEntries) {
+				report.append(System.lineSeparator()).append("  ").append(trace);
+			}
+			LOGGER.info("{} - {} - Slowest entries:{}", taskName, taskMode, report);
+		}
 	}
 
 	protected String getLogStatus(String taskName, String taskMode, InfoCounter counter) {
@@ -417,11 +860,48 @@ public abstract class AbstractSynchronize {
 			" - All entries: "+ counter.getCountAll() +
 			", to modify entries: "+ counter.getCountModifiable() +
 			", successfully modified entries: "+counter.getCountCompleted()+
+			" ("+ getOperationsStatus(counter) +")"+
 			", errors: "+counter.getCountError();
 		return totalsLogMessage;
 	}
 
+	private String getOperationsStatus(InfoCounter counter) {
+		StringBuilder operations = new StringBuilder();
+		for (LscModificationType operation : LscModificationType.values()) {
+			if (operations.length() > 0) {
+				operations.append(", ");
+			}
+			operations.append(operation.getDescription()).append(": ").append(counter.getCountOperation(operation));
+		}
+		return operations.toString();
+	}
+
 	public IBean getBean(Task task, IService service, String pivotName, LscDatasets pivotAttributes, boolean fromSameService, boolean fromSource) throws LscServiceException {
+		return service.getBean(task, pivotName, transformPivots(task, pivotAttributes, fromSameService, fromSource), fromSameService);
+	}
+
+	/**
+	 * Get several beans with a single call to the service, the pivot
+	 * transformations being applied as in
+	 * {@link #getBean(Task, IService, String, LscDatasets, boolean, boolean)}
+	 * 
+	 * @param task the task
+	 * @param service the service able to read several beans at once
+	 * @param pivots the pivot names and attributes
+	 * @param fromSameService are the pivot attributes provided by the same service
+	 * @param fromSource are the pivot attributes provided by the source
+	 * @return the beans by pivot name, see {@link IBatchService#getBeans(Task, Map, boolean)}
+	 * @throws LscServiceException if the service fails
+	 */
+	public Map<String, IBean> getBeans(Task task, IBatchService service, List<Entry<String, LscDatasets>> pivots, boolean fromSameService, boolean fromSource) throws LscServiceException {
+		Map<String, LscDatasets> newPivots = new LinkedHashMap<String, LscDatasets>();
+		for (Entry<String, LscDatasets> pivot : pivots) {
+			newPivots.put(pivot.getKey(), transformPivots(task, pivot.getValue(), fromSameService, fromSource));
+		}
+		return service.getBeans(task, newPivots, fromSameService);
+	}
+
+	private LscDatasets transformPivots(Task task, LscDatasets pivotAttributes, boolean fromSameService, boolean fromSource) throws LscServiceException {
 		List<PivotTransformationType.Transformation> transformations = LscConfiguration.getPivotTransformation(task.getTaskType());
 		if (! fromSameService && transformations != null) {
 			LscDatasets newPivots = new LscDatasets(pivotAttributes.getDatasets());
@@ -432,9 +912,9 @@ public abstract class AbstractSynchronize {
 					}
 				}
 			}
-			return service.getBean(task, pivotName, newPivots, fromSameService);
+			return newPivots;
 		}
-		return service.getBean(task, pivotName, pivotAttributes, fromSameService);
+		return pivotAttributes;
 	}
 
 	protected Object transform(Task task, PivotTransformationType.Transformation transformation, Object value) throws LscServiceException{
@@ -477,6 +957,9 @@ public abstract class AbstractSynchronize {
 			nodelete = true;
 			nomodrdn = true;
 		}
+		if (cmdLine.hasOption("fv")) {
+			verify = true;
+		}
 		return true;
 	}
 
@@ -58,6 +58,7 @@ import org.apache.commons.cli.MissingArgumentException;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.lsc.configuration.LscConfiguration;
+import org.lsc.jmx.MetricsServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -92,6 +93,9 @@ public final class Launcher {
 	/** Time limit in seconds */
 	private int timeLimit;
 
+	/** Port to publish the metrics on, none if not positive */
+	private int metricsPort;
+
 	/** Available command line options definition */
 	private static Options options;
 
@@ -115,6 +119,7 @@ public final class Launcher {
 		options.addOption("f", "config", true, "Specify the configuration directory or file");
 		options.addOption("t", "threads", true, "Number of parallel threads to synchronize a task (default: 5)");
 		options.addOption("i", "time-limit", true, "Time limit in parallel server mode in seconds (default: 3600)");
+		options.addOption("m", "metrics-port", true, "Publish the tasks metrics over HTTP on this port, at /metrics");
 		options.addOption("h", "help", false, "Get this text");
 		options.addOption("V", "version", false, "Get project version");
 	}
@@ -205,7 +210,18 @@ public final class Launcher {
 			if (timeLimit > 0) {
 				sync.setTimeLimit(timeLimit);
 			}
-			sync.launch(asyncType, syncType, cleanType);
+			MetricsServer metricsServer = null;
+			if (metricsPort > 0) {
+				metricsServer = new MetricsServer(sync, metricsPort);
+			}
+			try {
+				sync.launch(asyncType, syncType, cleanType);
+			} finally {
+				// Asynchronous tasks keep running once launched
+				if (metricsServer != null && asyncType.isEmpty()) {
+					metricsServer.stop();
+				}
+			}
 		} catch (Exception e) {
 			if (!Configuration.isLoggingSetup()) {
 				System.err.println("Error: " + e.toString());
@@ -246,6 +262,9 @@ public final class Launcher {
 			if (cmdLine.hasOption("i")) {
 				timeLimit = Integer.parseInt(cmdLine.getOptionValue("i"));
 			}
+			if (cmdLine.hasOption("m")) {
+				metricsPort = Integer.parseInt(cmdLine.getOptionValue("m"));
+			}
 			if (cmdLine.hasOption("c")) {
 				cleanType = parseSyncType(cmdLine.getOptionValue("c"));
 			}
@@ -46,7 +46,9 @@
 package org.lsc;
 
 import java.io.Serializable;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -79,6 +81,22 @@ public class LscDatasets implements Serializable {
 		this.values = new CaseInsensitiveMap<>(values);
 	}
 
+	/**
+	 * Return a read-only view of datasets whose names are lower cased, as
+	 * kept by the beans. The view follows the changes of the map without
+	 * copying it.
+	 * 
+	 * @param values the datasets, indexed by lower cased name
+	 * @return the datasets, looked up regardless of the case of their name
+	 */
+	public static LscDatasets readOnlyView(Map<String, ?> values) {
+		return new LscDatasets(new LowerCaseKeysView(values));
+	}
+
+	private LscDatasets(LowerCaseKeysView values) {
+		this.values = values;
+	}
+
 	@SuppressWarnings("rawtypes")
 	public String getStringValueAttribute(String attribute) {
 		Object value = values.get(attribute);
@@ -156,4 +174,39 @@ public class LscDatasets implements Serializable {
 	public String toString() {
 		return values.toString();
 	}
+
+	/**
+	 * A read-only map looking its keys up in lower case
+	 */
+	private static final class LowerCaseKeysView extends AbstractMap<String, Object> implements Serializable {
+
+		private static final long serialVersionUID = -3208356716212598460L;
+
+		private final Map<String, ?> values;
+
+		LowerCaseKeysView(Map<String, ?> values) {
+			this.values = values;
+		}
+
+		@Override
+		public Object get(Object key) {
+			return (key != null ? values.get(key.toString().toLowerCase()) : null);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key != null && values.containsKey(key.toString().toLowerCase());
+		}
+
+		@Override
+		public int size() {
+			return values.size();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Set<Entry<String, Object>> entrySet() {
+			return Collections.unmodifiableMap((Map<String, Object>) values).entrySet();
+		}
+	}
 }
@@ -0,0 +1,290 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.lsc.beans.IBean;
+import org.lsc.beans.InfoCounter;
+import org.lsc.configuration.LscConfiguration;
+import org.lsc.configuration.PivotTransformationType;
+import org.lsc.exception.LscServiceException;
+import org.lsc.service.IScanService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sort-merge join of the source and the destination of a task.
+ * <p>
+ * Both services are scanned once, side by side, sorted by their common pivot
+ * attribute: each source bean is handed over with its destination bean, if
+ * any, and the destination entries missing from the source are collected as
+ * candidates for the clean phase. The order of both scans is checked while
+ * reading them, and the join is aborted as soon as an entry is out of order.
+ * </p>
+ */
+class MergeJoin {
+
+	static final Logger LOGGER = LoggerFactory.getLogger(MergeJoin.class);
+
+	/**
+	 * Receive the source beans, with their matching destination bean
+	 */
+	interface PairHandler {
+
+		/**
+		 * @param id the source bean identifier and its pivot attribute
+		 * @param srcBean the source bean
+		 * @param dstBean the matching destination bean, or null if there is none
+		 */
+		void handlePair(Entry<String, LscDatasets> id, IBean srcBean, IBean dstBean);
+	}
+
+	private final Task task;
+
+	private final IScanService source;
+
+	private final IScanService destination;
+
+	private final String pivotAttribute;
+
+	private final InfoCounter counter;
+
+	private long sourceCount;
+
+	private long destinationCount;
+
+	private final List<Entry<String, LscDatasets>> destinationOnly = new ArrayList<Entry<String, LscDatasets>>();
+
+	MergeJoin(Task task, InfoCounter counter) throws LscServiceException {
+		this.task = task;
+		this.counter = counter;
+		this.source = (IScanService) task.getSourceService();
+		this.destination = (IScanService) task.getDestinationService();
+		this.pivotAttribute = getPivotAttribute(task);
+		if (pivotAttribute == null) {
+			throw new LscServiceException("Task " + task.getName() + " can not be run as a merge join: "
+					+ "the source and the destination must share a single pivot attribute, without pivot transformation");
+		}
+	}
+
+	/**
+	 * Tell if a task can be run as a merge join
+	 * 
+	 * @param task the task
+	 * @return <code>true</code> if both services can be scanned and share a
+	 *         single pivot attribute, which values are compared as they are read
+	 */
+	static boolean isSupported(Task task) {
+		return getPivotAttribute(task) != null;
+	}
+
+	private static String getPivotAttribute(Task task) {
+		if (!(task.getSourceService() instanceof IScanService)
+				|| !(task.getDestinationService() instanceof IScanService)) {
+			return null;
+		}
+		// The join compares the raw pivot values of both sides
+		if (task.getTaskType() != null) {
+			List<PivotTransformationType.Transformation> transformations = LscConfiguration.getPivotTransformation(task.getTaskType());
+			if (transformations != null && !transformations.isEmpty()) {
+				return null;
+			}
+		}
+		List<String> sourcePivots = ((IScanService) task.getSourceService()).getPivotAttributes();
+		List<String> destinationPivots = ((IScanService) task.getDestinationService()).getPivotAttributes();
+		if (sourcePivots == null || destinationPivots == null
+				|| sourcePivots.size() != 1 || destinationPivots.size() != 1
+				|| !sourcePivots.get(0).equalsIgnoreCase(destinationPivots.get(0))) {
+			return null;
+		}
+		return sourcePivots.get(0);
+	}
+
+	/**
+	 * Scan both services and join them
+	 * 
+	 * @param handler the handler receiving the source beans, or null to only
+	 *            collect the destination entries missing from the source
+	 * @throws LscServiceException if a scan fails or is not sorted
+	 */
+	void run(PairHandler handler) throws LscServiceException {
+		IScanService.BeanScanner srcScanner = source.scanBeans(task);
+		try {
+			IScanService.BeanScanner dstScanner = destination.scanBeans(task);
+			try {
+				join(srcScanner, dstScanner, handler);
+			} finally {
+				dstScanner.close();
+			}
+		} finally {
+			srcScanner.close();
+		}
+	}
+
+	private void join(IScanService.BeanScanner srcScanner, IScanService.BeanScanner dstScanner, PairHandler handler)
+			throws LscServiceException {
+		Cursor src = new Cursor(srcScanner, "source");
+		Cursor dst = new Cursor(dstScanner, "destination");
+		src.next();
+		dst.next();
+
+		while (src.bean != null || dst.bean != null) {
+			int cmp;
+			if (src.bean == null) {
+				cmp = 1;
+			} else if (dst.bean == null) {
+				cmp = -1;
+			} else {
+				cmp = src.key.compareTo(dst.key);
+			}
+
+			if (cmp > 0) {
+				// Not in the source
+				destinationOnly.add(dst.getId());
+				dst.next();
+			} else {
+				if (handler != null) {
+					handler.handlePair(src.getId(), src.bean, (cmp == 0 ? dst.bean : null));
+				}
+				src.next();
+				if (cmp == 0) {
+					dst.next();
+				}
+			}
+		}
+		sourceCount = src.count;
+		destinationCount = dst.count;
+	}
+
+	/**
+	 * A scan and its current bean
+	 */
+	private class Cursor {
+
+		private final IScanService.BeanScanner scanner;
+
+		private final String side;
+
+		private IBean bean;
+
+		private String key;
+
+		private Object value;
+
+		private long count;
+
+		Cursor(IScanService.BeanScanner scanner, String side) {
+			this.scanner = scanner;
+			this.side = side;
+		}
+
+		/**
+		 * Move to the next bean having a pivot value, skipping duplicates
+		 */
+		void next() throws LscServiceException {
+			String previousKey = key;
+			while ((bean = scanner.next()) != null) {
+				count++;
+				Set<Object> values = bean.getDatasetById(pivotAttribute);
+				value = (values != null && !values.isEmpty() ? values.iterator().next() : null);
+				if (value == null || value instanceof byte[]) {
+					LOGGER.error("Skipping {} entry {}: no string value for pivot attribute {}",
+							side, bean.getMainIdentifier(), pivotAttribute);
+					counter.incrementCountError();
+					continue;
+				}
+				key = value.toString().toLowerCase();
+				if (previousKey != null) {
+					int cmp = key.compareTo(previousKey);
+					if (cmp < 0) {
+						throw new LscServiceException("The " + side + " entries are not sorted by " + pivotAttribute
+								+ " (" + previousKey + " read before " + key + "). Check the sortedBy setting of the connection.");
+					} else if (cmp == 0) {
+						LOGGER.error("Skipping {} entry {}: duplicate value {} for pivot attribute {}",
+								side, bean.getMainIdentifier(), value, pivotAttribute);
+						counter.incrementCountError();
+						continue;
+					}
+				}
+				return;
+			}
+			key = null;
+			value = null;
+		}
+
+		Entry<String, LscDatasets> getId() {
+			LscDatasets pivots = new LscDatasets();
+			pivots.put(pivotAttribute, value);
+			return new SimpleImmutableEntry<String, LscDatasets>(bean.getMainIdentifier(), pivots);
+		}
+	}
+
+	/**
+	 * @return the number of beans read in the source
+	 */
+	long getSourceCount() {
+		return sourceCount;
+	}
+
+	/**
+	 * @return the number of beans read in the destination
+	 */
+	long getDestinationCount() {
+		return destinationCount;
+	}
+
+	/**
+	 * @return the identifiers of the destination entries missing from the source
+	 */
+	List<Entry<String, LscDatasets>> getDestinationOnly() {
+		return destinationOnly;
+	}
+}
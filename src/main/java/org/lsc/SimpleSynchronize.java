@@ -91,6 +91,9 @@ public class SimpleSynchronize extends AbstractSynchronize {
 
 	Map<String, Task> cache;
 
+	/** The cleaning tasks of the current launch */
+	private List<String> cleanTasks = EMPTY_LIST;
+
 	/**
 	 * Default constructor
 	 */
@@ -301,8 +304,10 @@ public class SimpleSynchronize extends AbstractSynchronize {
 		// Process the three different type of tasks, and get the number of executed tasks.
 		// If this number is negative, it means there was a failure in the execution of
 		// at least one task.
+		this.cleanTasks = (cleanTasks != null ? cleanTasks : EMPTY_LIST);
 		int nbLaunchedSyncTasks = processTasks(syncTasks, Task.Mode.sync);
 		int nbLaunchedCleanTasks = processTasks(cleanTasks, Task.Mode.clean);
+		this.cleanTasks = EMPTY_LIST;
 
 		// Special case: if we have already launched async or cleanup tasks,
 		// we don't process any async task
@@ -333,6 +338,11 @@ public class SimpleSynchronize extends AbstractSynchronize {
 		return launchResult;
 	}
 
+	@Override
+	protected boolean isCleanedAfterSync(Task task) {
+		return cleanTasks.contains(ALL_TASKS_KEYWORD) || cleanTasks.contains(task.getName());
+	}
+
 	/**
 	 * Launch a task. Call this for once each task type and task mode.
 	 *
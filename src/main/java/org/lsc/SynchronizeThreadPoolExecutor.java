@@ -2,17 +2,25 @@ package org.lsc;
 
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.lsc.runnable.AbstractEntryRunner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This object is managing LSC tasks. It is now a wrapper for JDK 
  * ThreadPoolExecutor but may rely on a different implementation  
+ * 
+ * The queue is bounded: when it is full, the thread submitting the entries
+ * waits until a slot is available, so the source is never read much faster
+ * than the destination is updated.
  * @author Sebastien Bahloul &lt;seb@lsc-project.org&gt;
  *
  */
@@ -23,48 +31,162 @@ public class SynchronizeThreadPoolExecutor extends ThreadPoolExecutor {
 
 	BlockingQueue<Runnable> queue;
 
+	/** The policy blocking the submitter when the queue is full */
+	private final BlockingSubmitPolicy submitPolicy;
+
+	/** The number of entries submitted to this pool */
+	private final AtomicLong submittedCount = new AtomicLong();
+
 	/** Default logger */
 	final Logger LOGGER = LoggerFactory.getLogger(SynchronizeThreadPoolExecutor.class);
 
 	public SynchronizeThreadPoolExecutor(int threads) {
-		super(threads, threads, keepAliveTime, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity), new RejectedExecutionHandler() {
-			public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
-				// this will block if the queue is full
-				try {
-						executor.getQueue().put(r);
-					} catch (InterruptedException e) {
-						Thread.currentThread().interrupt();
-						throw new RuntimeException(e);
-					}
-				}
-			}
-		);
+		this(threads, queueCapacity, null);
+	}
+
+	/**
+	 * Create a pool for a task
+	 * @param threads the number of threads
+	 * @param capacity the maximum number of entries waiting in the queue,
+	 * 		the default one is used if <code>null</code> or not positive
+	 * @param name the prefix of the threads names, may be <code>null</code>
+	 */
+	public SynchronizeThreadPoolExecutor(int threads, Integer capacity, String name) {
+		this(threads, (capacity != null && capacity > 0 ? capacity : queueCapacity), name, new BlockingSubmitPolicy());
+	}
+
+	private SynchronizeThreadPoolExecutor(int threads, int capacity, String name, BlockingSubmitPolicy submitPolicy) {
+		super(threads, threads, keepAliveTime, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(capacity),
+				new NamedThreadFactory(name), submitPolicy);
+		this.submitPolicy = submitPolicy;
 		queue = getQueue(); 
 	}
 
 	/**
 	 * Run a task
 	 * In the threadpoolexecutor implementation, store it in the queue and let
-	 * the pool consume it as soon as it can, in a FIFO way without any priority
+	 * the pool consume it as soon as it can, in a FIFO way without any priority.
+	 * This call blocks while the queue is full.
 	 * @param task the runnable object
 	 */
-	public void runTask(AbstractEntryRunner task) {
-		this.beforeExecute(new Thread(task.getSyncName() + "-" + task.getId().getKey()), task);
+	public void runTask(Runnable task) {
+		submittedCount.incrementAndGet();
 		execute(task);
 	}
-	
+
+	/**
+	 * Run a task if the queue has a free slot, without waiting: this is meant
+	 * for the short tasks submitted by the threads the pool itself waits for.
+	 * @param task the runnable object
+	 * @return <code>false</code> if the queue is full or the pool is shut down
+	 */
+	public boolean tryExecute(Runnable task) {
+		if (isShutdown()) {
+			return false;
+		}
+		prestartAllCoreThreads();
+		if (!queue.offer(task)) {
+			return false;
+		}
+		// The pool may have been shut down meanwhile, without a thread left to run the task
+		return !isShutdown() || !queue.remove(task);
+	}
+
+	/**
+	 * @return the number of entries waiting in the queue
+	 */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * @return the maximum number of entries waiting in the queue
+	 */
+	public int getQueueCapacity() {
+		return queue.size() + queue.remainingCapacity();
+	}
+
+	/**
+	 * @return the number of entries submitted to this pool
+	 */
+	public long getSubmittedCount() {
+		return submittedCount.get();
+	}
+
+	/**
+	 * @return the number of submissions rejected because the queue was full,
+	 * 		i.e. the number of times the submitter had to wait
+	 */
+	public long getRejectedCount() {
+		return submitPolicy.rejectedCount.get();
+	}
+
+	/**
+	 * @return the total time, in milliseconds, spent by the submitter
+	 * 		waiting for a free slot in the queue
+	 */
+	public long getWaitTime() {
+		return TimeUnit.NANOSECONDS.toMillis(submitPolicy.waitTime.get());
+	}
+
 	/**
-	 * This method just rename the thread with the taskname as prefix 
-	 * suffixed by a threads counter
-	 * @param t the thread
-	 * @param r the runnable task
+	 * @return a one line summary of the queue statistics
 	 */
-	@Override
-	protected void beforeExecute(Thread t, Runnable r) {
-		if(r instanceof AbstractEntryRunner) {
-			AbstractEntryRunner task = (AbstractEntryRunner) r;
-			t.setName(task.getSyncName() + "-" + t.getId());
+	public String getStatistics() {
+		return "submitted: " + getSubmittedCount() + ", queue capacity: " + getQueueCapacity()
+				+ ", queue depth: " + getQueueDepth() + ", rejected (waited): " + getRejectedCount()
+				+ ", wait time: " + getWaitTime() + " ms";
+	}
+
+	/**
+	 * Put rejected tasks in the queue, waiting for a free slot
+	 */
+	private static class BlockingSubmitPolicy implements RejectedExecutionHandler {
+
+		private final AtomicLong rejectedCount = new AtomicLong();
+
+		private final AtomicLong waitTime = new AtomicLong();
+
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException("Thread pool is shut down");
+			}
+			rejectedCount.incrementAndGet();
+			long start = System.nanoTime();
+			// this will block if the queue is full
+			try {
+				executor.getQueue().put(r);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} finally {
+				waitTime.addAndGet(System.nanoTime() - start);
+			}
+		}
+	}
+
+	/**
+	 * Name the threads with the task name as prefix suffixed by a threads
+	 * counter, once at thread creation instead of for each entry
+	 */
+	private static class NamedThreadFactory implements ThreadFactory {
+
+		private final ThreadFactory delegate = Executors.defaultThreadFactory();
+
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		private final String prefix;
+
+		public NamedThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		public Thread newThread(Runnable r) {
+			Thread t = delegate.newThread(r);
+			if (prefix != null) {
+				t.setName(prefix + "-" + threadCount.incrementAndGet());
+			}
+			return t;
 		}
-		super.beforeExecute(t, r);
 	}
 }
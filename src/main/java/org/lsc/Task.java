@@ -48,6 +48,7 @@ import java.io.File;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -55,11 +56,17 @@ import java.util.Map;
 import org.lsc.beans.syncoptions.ForceSyncOptions;
 import org.lsc.beans.syncoptions.ISyncOptions;
 import org.lsc.beans.syncoptions.SyncOptionsFactory;
+import org.lsc.beans.syncoptions.SyncPlan;
+import org.lsc.configuration.JaxbXmlConfigurationHelper;
 import org.lsc.configuration.LscConfiguration;
+import org.lsc.configuration.SyncOptionsType;
 import org.lsc.configuration.TaskType;
 import org.lsc.exception.LscConfigurationException;
+import org.lsc.persistence.FingerprintStore;
 import org.lsc.service.IService;
 import org.lsc.service.IWritableService;
+import org.lsc.utils.ScriptExpression;
+import org.lsc.utils.ScriptingEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -100,6 +107,8 @@ public class Task {
 
 	private ISyncOptions syncOptions;
 
+	private SyncPlan syncPlan;
+
 	private Object[] customLibraries;
 
 	private List<File> scriptIncludes;
@@ -116,6 +125,18 @@ public class Task {
 
 	private Boolean errorIfEmptyDestination;
 
+	private Integer queueCapacity;
+
+	private boolean mergeJoin;
+
+	private boolean cleanWithSourcePivots;
+
+	private File fingerprintStoreFile;
+
+	private FingerprintStore fingerprintStore;
+
+	private Map<String, ScriptExpression> expressions;
+
 	/**
 	 * A constructor that create an instance for a give type
 	 *
@@ -131,6 +152,15 @@ public class Task {
 
 			errorIfEmptySource      = t.isErrorIfEmptySource();
 			errorIfEmptyDestination = t.isErrorIfEmptyDestination();
+			queueCapacity           = t.getQueueCapacity();
+			mergeJoin               = t.isMergeJoin() != null && t.isMergeJoin();
+			cleanWithSourcePivots   = t.isCleanWithSourcePivots() != null && t.isCleanWithSourcePivots();
+			if (t.getFingerprintStore() != null) {
+				fingerprintStoreFile = new File(t.getFingerprintStore());
+				if (!fingerprintStoreFile.isAbsolute()) {
+					fingerprintStoreFile = new File(Configuration.getConfigurationDirectory(), t.getFingerprintStore());
+				}
+			}
 
 			// Instantiate the destination service from properties
 			if (LscConfiguration.getSourceService(t) == null) {
@@ -174,6 +204,8 @@ public class Task {
 			sourceService = (IService) constrSrcService.newInstance(new Object[] { t });
 
 			initializeSyncOptions(t);
+			parseExpressions();
+			syncPlan = new SyncPlan(syncOptions, destinationService.getWriteDatasetIds());
 			// Manage exceptions
 		} catch (InvocationTargetException e) {
 			throw new LscConfigurationException(e.getCause());
@@ -205,6 +237,65 @@ public class Task {
 		}
 	}
 
+	/**
+	 * Parse the conditions, the main identifier and the dataset values of the
+	 * Sync options once, so that the entries are synchronized without any
+	 * scripting engine lookup.
+	 */
+	protected void parseExpressions() {
+		Map<String, ScriptExpression> parsed = new HashMap<String, ScriptExpression>();
+		for (LscModificationType operation : LscModificationType.values()) {
+			addExpression(parsed, syncOptions.getCondition(operation));
+		}
+		addExpression(parsed, syncOptions.getDeleteCondition());
+		addExpression(parsed, syncOptions.getDn());
+		if (syncOptions.getForceValuedAttributeNames() != null) {
+			for (String attributeName : syncOptions.getForceValuedAttributeNames()) {
+				addExpressions(parsed, syncOptions.getForceValues(null, attributeName));
+			}
+		}
+		if (syncOptions.getDefaultValuedAttributeNames() != null) {
+			for (String attributeName : syncOptions.getDefaultValuedAttributeNames()) {
+				addExpressions(parsed, syncOptions.getDefaultValues(null, attributeName));
+			}
+		}
+		if (syncOptions.getCreateAttributeNames() != null) {
+			for (String attributeName : syncOptions.getCreateAttributeNames()) {
+				addExpressions(parsed, syncOptions.getCreateValues(null, attributeName));
+			}
+		}
+		expressions = Collections.unmodifiableMap(parsed);
+	}
+
+	private static void addExpressions(Map<String, ScriptExpression> parsed, List<String> values) {
+		if (values != null) {
+			for (String value : values) {
+				addExpression(parsed, value);
+			}
+		}
+	}
+
+	private static void addExpression(Map<String, ScriptExpression> parsed, String expression) {
+		if (expression != null && !parsed.containsKey(expression)) {
+			parsed.put(expression, ScriptingEvaluator.parse(expression));
+		}
+	}
+
+	/**
+	 * Get the pre-parsed form of an expression of the Sync options
+	 *
+	 * @param expression The expression as returned by the Sync options
+	 * @return The pre-parsed expression, parsed on the fly if it was not known
+	 * when the task was built
+	 */
+	public ScriptExpression getExpression(String expression) {
+		ScriptExpression parsed = (expressions != null ? expressions.get(expression) : null);
+		if (parsed == null) {
+			parsed = ScriptingEvaluator.parse(expression);
+		}
+		return parsed;
+	}
+
 	/**
 	 * Get the clean hook
 	 *
@@ -241,6 +332,89 @@ public class Task {
 		return errorIfEmptyDestination;
 	}
 
+	/**
+	 * Get the maximum number of entries waiting in the thread pool queue
+	 *
+	 * @return the queue capacity, or <code>null</code> to use the default one
+	 */
+	public Integer getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Tells if the source and the destination are read side by side, sorted
+	 * by pivot, instead of one request per entry
+	 *
+	 * @return <code>true</code> to run the task as a merge join
+	 */
+	public boolean isMergeJoin() {
+		return mergeJoin;
+	}
+
+	/**
+	 * Tells if the source pivots are read once when cleaning, so that only
+	 * the destination entries missing from them are looked up in the source
+	 *
+	 * @return <code>true</code> to clean using the source pivots
+	 */
+	public boolean isCleanWithSourcePivots() {
+		return cleanWithSourcePivots;
+	}
+
+	/**
+	 * Get the file holding the fingerprints of the entries found in sync by
+	 * the last synchronization
+	 *
+	 * @return the file, or <code>null</code> to compare all the entries on each synchronization
+	 */
+	public File getFingerprintStoreFile() {
+		return fingerprintStoreFile;
+	}
+
+	/**
+	 * Get the fingerprint of the settings deciding how the entries are
+	 * synchronized: the sync options, the written attributes, the custom
+	 * libraries and the script includes with their modification time. The
+	 * entries found in sync by the last synchronization are compared again
+	 * when it changes.
+	 *
+	 * @return the fingerprint
+	 * @throws LscConfigurationException if the sync options can not be serialized
+	 */
+	public String getSyncConfigurationFingerprint() throws LscConfigurationException {
+		List<String> values = new ArrayList<String>();
+		SyncOptionsType syncOptionsType = LscConfiguration.getSyncOptions(taskType);
+		values.add(syncOptionsType != null ?
+						new JaxbXmlConfigurationHelper().toXml("syncOptions", SyncOptionsType.class, syncOptionsType) :
+						"");
+		values.add(String.valueOf(destinationService.getWriteDatasetIds()));
+		values.add(taskType.getCustomLibrary() != null ? String.valueOf(taskType.getCustomLibrary().getString()) : "");
+		if (scriptIncludes != null) {
+			for (File scriptInclude : scriptIncludes) {
+				values.add(scriptInclude.getAbsolutePath() + "@" + scriptInclude.lastModified());
+			}
+		}
+		return FingerprintStore.fingerprint(values);
+	}
+
+	/**
+	 * Get the fingerprints of the running synchronization
+	 *
+	 * @return the fingerprints, or <code>null</code> when no synchronization using them is running
+	 */
+	public FingerprintStore getFingerprintStore() {
+		return fingerprintStore;
+	}
+
+	/**
+	 * Set the fingerprints of the running synchronization
+	 *
+	 * @param fingerprintStore the fingerprints, or <code>null</code> once the synchronization is over
+	 */
+	public void setFingerprintStore(FingerprintStore fingerprintStore) {
+		this.fingerprintStore = fingerprintStore;
+	}
+
 	/**
 	 * Get the task's name
 	 *
@@ -277,6 +451,15 @@ public class Task {
 		return syncOptions;
 	}
 
+	/**
+	 * Get the Sync options resolved by attribute
+	 *
+	 * @return The Sync plan
+	 */
+	public SyncPlan getSyncPlan() {
+		return syncPlan;
+	}
+
 	/**
 	 * Get the list of custom librairies
 	 *
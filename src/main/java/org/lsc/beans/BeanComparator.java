@@ -60,7 +60,6 @@ import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.BasicAttribute;
 
-import org.apache.directory.api.ldap.model.constants.SchemaConstants;
 import org.apache.directory.api.util.Strings;
 import org.lsc.Configuration;
 import org.lsc.LscDatasetModification;
@@ -68,7 +67,8 @@ import org.lsc.LscDatasetModification.LscDatasetModificationType;
 import org.lsc.LscModificationType;
 import org.lsc.LscModifications;
 import org.lsc.Task;
-import org.lsc.configuration.LscConfiguration;
+import org.lsc.beans.syncoptions.SyncPlan;
+import org.lsc.beans.syncoptions.SyncPlan.AttributePlan;
 import org.lsc.configuration.PolicyType;
 import org.lsc.exception.LscServiceException;
 import org.lsc.jndi.JndiModificationType;
@@ -97,6 +97,12 @@ public final class BeanComparator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BeanComparator.class);
 
+    /**
+     * Above this number of values, an attribute is always updated by adding
+     * and deleting values rather than by replacing all of them
+     */
+    public static final int LARGE_ATTRIBUTE_VALUES = 1000;
+
     /**
      * Static method to return the kind of operation that would happen:
      *
@@ -297,14 +303,15 @@ public final class BeanComparator {
         javaScriptObjects.putAll(task.getScriptingVars());
 
         // We're going to iterate over the list of attributes we may write
-        Set<String> writeAttributes = getWriteAttributes(task, itmBean);
+        SyncPlan syncPlan = task.getSyncPlan();
+        Set<String> writeAttributes = syncPlan.getWriteAttributes(itmBean);
         LOGGER.debug("{} List of attributes considered for writing in destination: {}", logPrefix, writeAttributes);
 
         // Iterate over attributes we may write
         List<LscDatasetModification> modificationItems = new ArrayList<LscDatasetModification>();
         for (String attrName : writeAttributes) {
             // Get attribute status type
-            PolicyType attrStatus = task.getSyncOptions().getStatus(id, attrName);
+            PolicyType attrStatus = syncPlan.get(attrName).getPolicy();
             LOGGER.debug("{} Attribute \"{}\" is in {} status",
                             new Object[]{logPrefix, attrName, attrStatus});
 
@@ -375,7 +382,8 @@ public final class BeanComparator {
                         // check if there are any extra values to be removed
                         Set<Object> extraValues = SetUtils.findMissingNeedles(toSetAttrValues, dstAttrValues);
 
-                        if((missingValues.size() + extraValues.size()) >= toSetAttrValues.size()) {
+                        if(toSetAttrValues.size() <= LARGE_ATTRIBUTE_VALUES
+                                        && (missingValues.size() + extraValues.size()) >= toSetAttrValues.size()) {
                             // More things to add and delete than remaining in the final set
                             // so, replace with the final set directly.
                             LOGGER.debug("{} Replacing attribute \"{}\": source values are {}, old values were {}, new values are {}",
@@ -481,77 +489,6 @@ public final class BeanComparator {
         }
     }
 
-    /**
-     * <P>
-     * Return the set of attribute names that may be updated in the destination
-     * </P>
-     * <P>
-     * This list is read from the destination server configuration property
-     * "lsc.tasks.taskname.dstService.attrs", if it is defined. If it is not
-     * defined, then the list of attributes returned contains all source
-     * attributes, and all force valued/default valued/create valued attributes.
-     * </P>
-     *
-     * @param srcBean
-     *            The original bean read from the source
-     * @return Set of attribute names to be updated
-     */
-    private static Set<String> getWriteAttributes(Task task, IBean srcBean) {
-        Set<String> res = new HashSet<String>();
-
-        // Check if an explicit list was configured in destination service fetched attributes
-        List<String> syncOptionsWriteAttributes = task.getDestinationService().getWriteDatasetIds();
-
-        if (syncOptionsWriteAttributes != null) {
-            for (String attrName : syncOptionsWriteAttributes) {
-                res.add(attrName.toLowerCase());
-            }
-        }
-
-        // If no explicit list of attribute types to write is specified or if list contains *
-        // we build a list from all source attributes, all force and default values
-        if ( res.size() == 0 || res.contains(SchemaConstants.ALL_USER_ATTRIBUTES)) {
-
-            List<String> itmBeanAttrsList = srcBean.datasets().getAttributesNames();
-            Set<String> forceAttrsList = task.getSyncOptions().getForceValuedAttributeNames();
-            Set<String> defaultAttrsList = task.getSyncOptions().getDefaultValuedAttributeNames();
-            Set<String> createAttrsList = task.getSyncOptions().getCreateAttributeNames();
-
-            if (itmBeanAttrsList != null) {
-                for (String attr:itmBeanAttrsList) {
-                    res.add(attr.toLowerCase());
-                }
-            }
-
-            if (forceAttrsList != null) {
-                for (String attr:forceAttrsList) {
-                    res.add(attr.toLowerCase());
-                }
-            }
-
-            if (defaultAttrsList != null) {
-                for (String attr:defaultAttrsList) {
-                    res.add(attr.toLowerCase());
-                }
-            }
-
-            if (createAttrsList != null) {
-                for (String attr:createAttrsList) {
-                    res.add(attr.toLowerCase());
-                }
-            }
-        }
-
-        // Remove * from resulting list of attributes
-        if( !res.isEmpty() && res.contains(SchemaConstants.ALL_USER_ATTRIBUTES) )
-        {
-            res.remove(SchemaConstants.ALL_USER_ATTRIBUTES);
-        }
-
-        return res;
-    }
-
-
     /**
      * Check modifications across other directory objects - Never used at this time : implementation may be buggy
      *
@@ -628,7 +565,7 @@ public final class BeanComparator {
                     table.put("custom", task.getCustomLibraries());
                 }
 
-                cloneBean.setMainIdentifier(ScriptingEvaluator.evalToString(task, dn, table));
+                cloneBean.setMainIdentifier(ScriptingEvaluator.evalToString(task, task.getExpression(dn), table));
             }
         }
 
@@ -686,7 +623,8 @@ public final class BeanComparator {
         // Result
         Set<Object> attrValues = new LinkedHashSet<Object>();
 
-        PolicyType attrPolicy = task.getSyncOptions().getStatus(null, attrName);
+        AttributePlan attrPlan = task.getSyncPlan().get(attrName);
+        PolicyType attrPolicy = attrPlan.getPolicy();
 
         // Ignore the attribute if the policy is to keep values and that the destination already contains at least a single value
         if(attrPolicy == PolicyType.KEEP && dstAttrValues.size() > 0) {
@@ -694,16 +632,16 @@ public final class BeanComparator {
         }
 
         // If we have force values, they take precedence over anything else, just use them
-        List<String> forceValueDefs = task.getSyncOptions().getForceValues(null, attrName);
+        List<String> forceValueDefs = attrPlan.getForceValues();
         if (forceValueDefs != null) {
             for (String forceValueDef : forceValueDefs) {
-                List<? extends Object> forceValues = evaluateExpression(task, attrName, forceValueDef, javaScriptObjects);
+                List<? extends Object> forceValues = evaluateExpression(task, attrPlan, forceValueDef, javaScriptObjects);
                 if (forceValues != null) {
                     attrValues.addAll(forceValues);
                 }
             }
 
-            return splitValues(task, attrName, attrValues);
+            return splitValues(attrPlan, attrValues);
         }
 
         // No force values
@@ -718,13 +656,13 @@ public final class BeanComparator {
         if (attrValues.size() == 0 || attrPolicy == PolicyType.MERGE) {
             List<String> newValuesDefs;
             if (modType == LscModificationType.CREATE_OBJECT) {
-                newValuesDefs = task.getSyncOptions().getCreateValues(null, attrName);
+                newValuesDefs = attrPlan.getCreateValues();
             } else {
-                newValuesDefs = task.getSyncOptions().getDefaultValues(null, attrName);
+                newValuesDefs = attrPlan.getDefaultValues();
             }
             if (newValuesDefs != null) {
                 for (String defaultValueDef : newValuesDefs) {
-                    List<? extends Object> defaultValues = evaluateExpression(task, attrName, defaultValueDef, javaScriptObjects);
+                    List<? extends Object> defaultValues = evaluateExpression(task, attrPlan, defaultValueDef, javaScriptObjects);
                     if (defaultValues != null) {
                         attrValues.addAll(defaultValues);
                     }
@@ -738,26 +676,26 @@ public final class BeanComparator {
         // by convention, returning null ignores this attribute
         if (attrValues.size() == 0
                 && modType != LscModificationType.CREATE_OBJECT
-                && task.getSyncOptions().getCreateValues(null, attrName) != null) {
+                && attrPlan.getCreateValues() != null) {
             return null;
         }
 
-        return splitValues(task, attrName, attrValues);
+        return splitValues(attrPlan, attrValues);
     }
 
-    private static List<? extends Object> evaluateExpression(Task task, String attributeName, String expression, Map<String, Object> scriptingObjects) throws LscServiceException {
-        if (LscConfiguration.isLdapBinaryAttribute(attributeName)) {
-            return ScriptingEvaluator.evalToByteArrayList(task, expression, scriptingObjects);
+    private static List<? extends Object> evaluateExpression(Task task, AttributePlan attrPlan, String expression, Map<String, Object> scriptingObjects) throws LscServiceException {
+        if (attrPlan.isBinary()) {
+            return ScriptingEvaluator.evalToByteArrayList(task, task.getExpression(expression), scriptingObjects);
         } else {
-            return ScriptingEvaluator.evalToObjectList(task, expression, scriptingObjects);
+            return ScriptingEvaluator.evalToObjectList(task, task.getExpression(expression), scriptingObjects);
         }
     }
 
-    private static Set<Object> splitValues(Task task, String attrName, Set<Object> attrValues) {
+    private static Set<Object> splitValues(AttributePlan attrPlan, Set<Object> attrValues) {
         Set<Object> ret = new LinkedHashSet<Object>();
+        String delimiter = attrPlan.getDelimiter();
         for (Object value : attrValues) {
             if (value instanceof String) {
-                String delimiter = task.getSyncOptions().getDelimiter(attrName);
                 if (delimiter != null) {
                     StringTokenizer sTok = new StringTokenizer((String) value, delimiter);
                     while (sTok.hasMoreTokens()) {
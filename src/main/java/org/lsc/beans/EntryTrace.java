@@ -0,0 +1,92 @@
+package org.lsc.beans;
+
+import java.util.concurrent.TimeUnit;
+
+import org.lsc.beans.InfoCounter.Phase;
+
+/**
+ * The time spent in each phase of the synchronization of a single entry.
+ * The phases are timed one after the other: each recorded phase lasts from
+ * the previous mark. The latencies are added to the counter as they are
+ * recorded, and the whole trace is offered to the slowest entries report of
+ * the counter once finished.
+ */
+public class EntryTrace {
+
+	private final InfoCounter counter;
+	private final long[] phases = new long[Phase.values().length];
+	private String identifier;
+	private long total;
+	private long mark;
+
+	public EntryTrace(InfoCounter counter) {
+		this.counter = counter;
+		this.mark = System.nanoTime();
+	}
+
+	/**
+	 * Start timing a phase
+	 */
+	public void mark() {
+		mark = System.nanoTime();
+	}
+
+	/**
+	 * Record the time elapsed since the last mark as spent in a phase, and
+	 * start timing the next one
+	 * @param phase the phase
+	 */
+	public void record(Phase phase) {
+		long now = System.nanoTime();
+		long nanos = now - mark;
+		phases[phase.ordinal()] += nanos;
+		total += nanos;
+		counter.recordLatency(phase, nanos);
+		mark = now;
+	}
+
+	/**
+	 * End the trace of the entry
+	 * @param identifier the entry identifier, for the report
+	 */
+	public void finish(String identifier) {
+		this.identifier = identifier;
+		counter.offerSlowEntry(this);
+	}
+
+	public String getIdentifier() {
+		return identifier;
+	}
+
+	/**
+	 * @return the time spent in all the phases, in nanoseconds
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * @param phase the phase
+	 * @return the time spent in the phase, in nanoseconds
+	 */
+	public long getTime(Phase phase) {
+		return phases[phase.ordinal()];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(String.valueOf(identifier)).append(": ")
+			.append(TimeUnit.NANOSECONDS.toMillis(total)).append(" ms (");
+		boolean first = true;
+		for (Phase phase : Phase.values()) {
+			if (phases[phase.ordinal()] > 0) {
+				if (!first) {
+					sb.append(", ");
+				}
+				sb.append(phase.getDescription()).append(": ").append(TimeUnit.NANOSECONDS.toMillis(phases[phase.ordinal()])).append(" ms");
+				first = false;
+			}
+		}
+		return sb.append(')').toString();
+	}
+}
@@ -1,32 +1,162 @@
 package org.lsc.beans;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.lsc.LscModificationType;
+import org.lsc.utils.LatencyHistogram;
+
 /**
- * This object is storing counters across all tasks Update methods are specified
- * as synchronized to avoid loosing counts of operations
- * 
+ * This object is storing counters across all tasks. The counters are striped
+ * so that the synchronization threads updating them never block each other,
+ * nor the threads reading them.
+ * <p>
+ * Besides the totals, it counts the operations completed by type, the
+ * latencies of each phase of the synchronization of an entry, the
+ * throughput of entries over sliding windows, and the slowest entries.
+ * </p>
+ *
  * @author Sebastien Bahloul &lt;seb@lsc-project.org&gt;
  */
 public class InfoCounter {
 
-	private int countAll = 0;
-	private int countError = 0;
-	private int countModifiable = 0;
-	private int countCompleted = 0;
+	/**
+	 * The phases of the synchronization of an entry whose latencies are measured
+	 */
+	public enum Phase {
+		/** Reading the entry from the source */
+		SOURCE_GET("source get"),
+		/** Reading the entry from the destination */
+		DESTINATION_GET("destination get"),
+		/** Evaluating the condition of the operation */
+		CONDITION("condition"),
+		/** Computing the modifications to apply */
+		COMPARE("compare"),
+		/** Applying the modifications to the destination */
+		APPLY("apply"),
+		/** Running the post synchronization hook */
+		HOOK("hook");
+
+		private final String description;
+
+		private Phase(String description) {
+			this.description = description;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+	}
+
+	/** The throughput windows, in seconds */
+	public static final int[] THROUGHPUT_WINDOWS = { 10, 60, 300 };
+
+	/** The number of entries kept in the slowest entries report */
+	public static final int SLOW_ENTRIES = 10;
+
+	private final LongAdder countAll = new LongAdder();
+	private final LongAdder countError = new LongAdder();
+	private final LongAdder countModifiable = new LongAdder();
+	private final LongAdder countCompleted = new LongAdder();
+
+	private final Map<LscModificationType, LongAdder> countOperations;
+	private final Map<Phase, LatencyHistogram> latencies;
+	private final SlidingWindow throughput = new SlidingWindow(THROUGHPUT_WINDOWS[THROUGHPUT_WINDOWS.length - 1]);
+
+	/** The slowest entries, the fastest of them first */
+	private final PriorityQueue<EntryTrace> slowEntries =
+		new PriorityQueue<EntryTrace>(SLOW_ENTRIES, Comparator.comparingLong(EntryTrace::getTotal));
+	/** The time of the fastest of the slowest entries, once there are enough of them */
+	private volatile long slowEntriesThreshold;
+
+	public InfoCounter() {
+		countOperations = new EnumMap<LscModificationType, LongAdder>(LscModificationType.class);
+		for (LscModificationType operation : LscModificationType.values()) {
+			countOperations.put(operation, new LongAdder());
+		}
+		latencies = new EnumMap<Phase, LatencyHistogram>(Phase.class);
+		for (Phase phase : Phase.values()) {
+			latencies.put(phase, new LatencyHistogram());
+		}
+	}
+
+	public void incrementCountAll() {
+		countAll.increment();
+		throughput.increment(System.currentTimeMillis());
+	}
+
+	public void incrementCountError() {
+		countError.increment();
+	}
 
-	public synchronized void incrementCountAll() {
-		countAll++;
+	public void incrementCountModifiable() {
+		countModifiable.increment();
 	}
 
-	public synchronized void incrementCountError() {
-		countError++;
+	public void incrementCountCompleted() {
+		countCompleted.increment();
 	}
 
-	public synchronized void incrementCountModifiable() {
-		countModifiable++;
+	/**
+	 * Count a successful modification of the destination
+	 *
+	 * @param operation the type of the modification
+	 */
+	public void incrementCountCompleted(LscModificationType operation) {
+		countCompleted.increment();
+		countOperations.get(operation).increment();
 	}
 
-	public synchronized void incrementCountCompleted() {
-		countCompleted++;
+	/**
+	 * Record the time spent in a phase of the synchronization of an entry
+	 *
+	 * @param phase the phase
+	 * @param nanos the time spent, in nanoseconds
+	 */
+	public void recordLatency(Phase phase, long nanos) {
+		latencies.get(phase).record(nanos);
+	}
+
+	/**
+	 * Keep the trace of an entry if it is one of the slowest. Most entries
+	 * are discarded without any locking.
+	 *
+	 * @param trace the trace of the entry, finished
+	 */
+	void offerSlowEntry(EntryTrace trace) {
+		if (trace.getTotal() <= slowEntriesThreshold) {
+			return;
+		}
+		synchronized (slowEntries) {
+			slowEntries.add(trace);
+			if (slowEntries.size() > SLOW_ENTRIES) {
+				slowEntries.poll();
+			}
+			if (slowEntries.size() == SLOW_ENTRIES) {
+				slowEntriesThreshold = slowEntries.peek().getTotal();
+			}
+		}
+	}
+
+	/**
+	 * Return the traces of the slowest entries
+	 *
+	 * @return at most {@link #SLOW_ENTRIES} traces, the slowest first
+	 */
+	public List<EntryTrace> getSlowEntries() {
+		List<EntryTrace> traces;
+		synchronized (slowEntries) {
+			traces = new ArrayList<EntryTrace>(slowEntries);
+		}
+		traces.sort(Comparator.comparingLong(EntryTrace::getTotal).reversed());
+		return traces;
 	}
 
 	/**
@@ -34,39 +164,164 @@ public class InfoCounter {
 	 * include objects in data source that are not selected by requests or
 	 * filters, but it includes any of the objects retrieved from the data
 	 * source
-	 * 
+	 *
 	 * @return the count of all objects taken from the data source
 	 */
-	public synchronized int getCountAll() {
-		return countAll;
+	public int getCountAll() {
+		return countAll.intValue();
 	}
 
 	/**
 	 * Return the count of all objects that have encountered an error while
 	 * synchronizing, either for a technical or for a functional reason
-	 * 
+	 *
 	 * @return the number of objects in error
 	 */
-	public synchronized int getCountError() {
-		return countError;
+	public int getCountError() {
+		return countError.intValue();
 	}
 
 	/**
 	 * Return the count of all objects that should be modify
-	 * 
+	 *
 	 * @return the count of all updates to do
 	 */
-	public synchronized int getCountModifiable() {
-		return countModifiable;
+	public int getCountModifiable() {
+		return countModifiable.intValue();
 	}
 
 	/**
 	 * Return the count of all objects that have been embraced in a data
 	 * modification successfully
-	 * 
+	 *
 	 * @return the count of all successful updates
 	 */
-	public synchronized int getCountCompleted() {
-		return countCompleted;
+	public int getCountCompleted() {
+		return countCompleted.intValue();
+	}
+
+	/**
+	 * Return the count of the successful modifications of a type
+	 *
+	 * @param operation the type of the modification
+	 * @return the count of the successful modifications of this type
+	 */
+	public long getCountOperation(LscModificationType operation) {
+		return countOperations.get(operation).sum();
+	}
+
+	/**
+	 * Return the count of the latencies recorded for a phase
+	 *
+	 * @param phase the phase
+	 * @return the number of measures
+	 */
+	public long getLatencyCount(Phase phase) {
+		return latencies.get(phase).getCount();
+	}
+
+	/**
+	 * Return the mean latency of a phase
+	 *
+	 * @param phase the phase
+	 * @return the mean latency in microseconds, 0 if nothing was measured
+	 */
+	public long getLatencyMean(Phase phase) {
+		return latencies.get(phase).getMean();
+	}
+
+	/**
+	 * Return an upper bound of a latency percentile of a phase, see
+	 * {@link LatencyHistogram#getPercentile(double)}
+	 *
+	 * @param phase the phase
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the latency in microseconds, 0 if nothing was measured
+	 */
+	public long getLatencyPercentile(Phase phase, double percentile) {
+		return latencies.get(phase).getPercentile(percentile);
+	}
+
+	/**
+	 * Return the latencies recorded for a phase, to be published
+	 *
+	 * @param phase the phase
+	 * @return the histogram of the latencies
+	 */
+	public LatencyHistogram getLatencyHistogram(Phase phase) {
+		return latencies.get(phase);
+	}
+
+	/**
+	 * Return the number of entries taken per second over the last seconds
+	 *
+	 * @param seconds the window, at most the largest of {@link #THROUGHPUT_WINDOWS}
+	 * @return the mean throughput over the window, in entries per second
+	 */
+	public double getThroughput(int seconds) {
+		return throughput.getRate(System.currentTimeMillis(), seconds);
+	}
+
+	/**
+	 * Describe the operations, latencies and throughputs, for status reports
+	 *
+	 * @return a human readable summary of the metrics
+	 */
+	public String getMetrics() {
+		StringBuilder metrics = new StringBuilder("operations:");
+		for (LscModificationType operation : LscModificationType.values()) {
+			metrics.append(' ').append(operation.getDescription()).append('=').append(getCountOperation(operation));
+		}
+		metrics.append(" - latencies (count/mean/p99 in us):");
+		for (Phase phase : Phase.values()) {
+			metrics.append(' ').append(phase.getDescription()).append('=').append(getLatencyCount(phase))
+				.append('/').append(getLatencyMean(phase)).append('/').append(getLatencyPercentile(phase, 99));
+		}
+		metrics.append(" - throughput (entries/s):");
+		for (int window : THROUGHPUT_WINDOWS) {
+			metrics.append(' ').append(window).append("s=").append(String.format("%.1f", getThroughput(window)));
+		}
+		return metrics.toString();
+	}
+
+	/**
+	 * Events counted by second over a ring of seconds. A slot is reset when
+	 * the ring comes back to it, so concurrent updates at that instant may
+	 * be lost: the rates are an approximation.
+	 */
+	private static final class SlidingWindow {
+
+		private final int size;
+		private final AtomicLongArray seconds;
+		private final AtomicLongArray counts;
+
+		SlidingWindow(int size) {
+			this.size = size;
+			this.seconds = new AtomicLongArray(size);
+			this.counts = new AtomicLongArray(size);
+		}
+
+		void increment(long now) {
+			long second = TimeUnit.MILLISECONDS.toSeconds(now);
+			int slot = (int) (second % size);
+			long slotSecond = seconds.get(slot);
+			if (slotSecond != second && seconds.compareAndSet(slot, slotSecond, second)) {
+				counts.set(slot, 0);
+			}
+			counts.incrementAndGet(slot);
+		}
+
+		double getRate(long now, int window) {
+			window = Math.max(1, Math.min(window, size));
+			long second = TimeUnit.MILLISECONDS.toSeconds(now);
+			long events = 0;
+			for (int slot = 0; slot < size; slot++) {
+				long slotSecond = seconds.get(slot);
+				if (slotSecond > second - window && slotSecond <= second) {
+					events += counts.get(slot);
+				}
+			}
+			return (double) events / window;
+		}
 	}
 }
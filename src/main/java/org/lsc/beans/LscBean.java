@@ -48,11 +48,12 @@ package org.lsc.beans;
 import java.io.Serializable;
 import java.sql.ResultSetMetaData;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
@@ -62,6 +63,7 @@ import javax.naming.directory.SearchResult;
 
 import org.apache.commons.lang3.SerializationUtils;
 import org.lsc.LscDatasets;
+import org.lsc.utils.CompactSet;
 import org.lsc.utils.SetUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,6 +81,11 @@ import org.slf4j.LoggerFactory;
  * to store lists of values, so values must be unique and are unordered.
  * </P>
  * 
+ * <P>
+ * The lower cased attribute names are shared by all beans. A clone shares
+ * the attributes of its original until either of them sets an attribute.
+ * </P>
+ * 
  * @author Sebastien Bahloul &lt;seb@lsc-project.org&gt;
  * @author Jonathan Clarke &lt;jonathan@phillipoux.net&gt;
  */
@@ -88,12 +95,24 @@ public abstract class LscBean implements IBean, Serializable {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(LscBean.class);
 
+	/** The maximum number of attribute names shared by the beans */
+	private static final int MAX_NAMES = 10000;
+
+	/** The lower cased attribute names, shared by the beans */
+	private static final Map<String, String> NAMES = new ConcurrentHashMap<String, String>();
+
 	/** The distinguished name. */
 	private String mainIdentifier;
 
 	/** The attributes map. */
 	private Map<String, Set<Object>> datasets;
 
+	/** Whether the attributes map is shared with a clone */
+	private transient boolean datasetsShared;
+
+	/** The read-only view of the attributes map */
+	private transient LscDatasets datasetsView;
+
 	// /** Data schema related to this bean - must always be set just after
 	// initiating the bean */
 	// private DataSchemaProvider dataSchemaProvider;
@@ -249,7 +268,7 @@ public abstract class LscBean implements IBean, Serializable {
 	 * @return the attributes list
 	 */
 	public final Set<String> getDatasetsNames() {
-		return datasets.keySet();
+		return Collections.unmodifiableSet(datasets.keySet());
 	}
 
 	@Override
@@ -285,7 +304,35 @@ public abstract class LscBean implements IBean, Serializable {
 	@Override
 	public final void setDataset(String name, Set<Object> values) {
 		// use lower case since attribute names are case-insensitive
-		datasets.put(name.toLowerCase(), values);
+		writableDatasets().put(internName(name.toLowerCase()), values);
+	}
+
+	/**
+	 * Return the attributes map, copied first if it is shared with a clone.
+	 * 
+	 * @return the attributes map of this bean only
+	 */
+	private Map<String, Set<Object>> writableDatasets() {
+		if (datasetsShared) {
+			datasets = new HashMap<String, Set<Object>>(datasets);
+			datasetsShared = false;
+			datasetsView = null;
+		}
+		return datasets;
+	}
+
+	private static String internName(String name) {
+		String interned = NAMES.get(name);
+		if (interned == null) {
+			if (NAMES.size() >= MAX_NAMES) {
+				return name;
+			}
+			interned = NAMES.putIfAbsent(name, name);
+			if (interned == null) {
+				interned = name;
+			}
+		}
+		return interned;
 	}
 
 	@Override
@@ -378,27 +425,19 @@ public abstract class LscBean implements IBean, Serializable {
 	}
 
 	/**
-	 * Clone this Bean object.
+	 * Clone this Bean object. The attributes are copied only when either bean
+	 * sets one of them; as before, the sets of values are shared.
 	 * 
 	 * @return Object
 	 * @throws java.lang.CloneNotSupportedException can't clone
 	 */
 	@Override
 	public LscBean clone() throws CloneNotSupportedException {
-		try {
-			LscBean bean = this.getClass().newInstance();
-			bean.setMainIdentifier(this.getMainIdentifier());
-
-			for (String attributeName : this.getAttributesNames()) {
-				bean.setAttribute(attributeName,
-						this.getDatasetAsSetById(attributeName));
-			}
-			return bean;
-		} catch (InstantiationException ex) {
-			throw new CloneNotSupportedException(ex.getLocalizedMessage());
-		} catch (IllegalAccessException ex) {
-			throw new CloneNotSupportedException(ex.getLocalizedMessage());
-		}
+		LscBean bean = (LscBean) super.clone();
+		datasetsShared = true;
+		bean.datasetsShared = true;
+		bean.datasetsView = null;
+		return bean;
 	}
 
 	// public void setDataSchema(DataSchemaProvider dataSchema) {
@@ -483,9 +522,18 @@ public abstract class LscBean implements IBean, Serializable {
 		return null;
 	}
 
+	/**
+	 * Return a read-only view of the attributes, which follows the changes
+	 * of this bean.
+	 * 
+	 * @return the attributes
+	 */
 	@Override
 	public LscDatasets datasets() {
-		return new LscDatasets(datasets);
+		if (datasetsView == null) {
+			datasetsView = LscDatasets.readOnlyView(datasets);
+		}
+		return datasetsView;
 	}
 
 	@Override
@@ -497,19 +545,18 @@ public abstract class LscBean implements IBean, Serializable {
 			if (values instanceof Set<?>) {
 				tmp.put(name, (Set<Object>) values);
 			} else if (values instanceof List<?>) {
-				Set<Object> valuesAsSet = new LinkedHashSet<Object>();
-				valuesAsSet.addAll((List<?>) values);
+				Set<Object> valuesAsSet = new CompactSet<Object>((List<?>) values);
 				tmp.put(name, valuesAsSet);
 			} else if (values instanceof String) {
-				Set<Object> valuesAsSet = new LinkedHashSet<Object>();
+				Set<Object> valuesAsSet = new CompactSet<Object>(1);
 				valuesAsSet.add(values);
 				tmp.put(name, valuesAsSet);
 			} else if (values instanceof Boolean) {
-				Set<Object> valuesAsSet = new LinkedHashSet<Object>();
+				Set<Object> valuesAsSet = new CompactSet<Object>(1);
 				valuesAsSet.add(values.toString());
 				tmp.put(name, valuesAsSet);
 			} else if (values instanceof Integer) {
-				Set<Object> valuesAsSet = new LinkedHashSet<Object>();
+				Set<Object> valuesAsSet = new CompactSet<Object>(1);
 				valuesAsSet.add("" + values);
 				tmp.put(name, valuesAsSet);
 			} else {
@@ -519,6 +566,8 @@ public abstract class LscBean implements IBean, Serializable {
 			}
 		}
 		this.datasets = tmp;
+		datasetsShared = false;
+		datasetsView = null;
 	}
 
 	public byte[] getDatasetsBytes() {
@@ -0,0 +1,231 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.beans.syncoptions;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.lsc.beans.IBean;
+import org.lsc.configuration.ConnectionType;
+import org.lsc.configuration.LdapConnectionType;
+import org.lsc.configuration.LscConfiguration;
+import org.lsc.configuration.PolicyType;
+
+/**
+ * The synchronization options of a task, resolved once per attribute.
+ *
+ * The policy, the values, the delimiter and the binary flag of an attribute
+ * are looked up by its lower cased name, so that comparing an entry does not
+ * scan the configured datasets again for each of its attributes. The
+ * attributes named by the configuration are resolved when the plan is built,
+ * the others the first time they are met.
+ */
+public class SyncPlan {
+
+	/**
+	 * The resolved options of an attribute
+	 */
+	public static final class AttributePlan {
+
+		private final PolicyType policy;
+		private final List<String> forceValues;
+		private final List<String> defaultValues;
+		private final List<String> createValues;
+		private final String delimiter;
+		private final boolean binary;
+
+		private AttributePlan(ISyncOptions syncOptions, String name, boolean binary) {
+			this.policy = syncOptions.getStatus(null, name);
+			this.forceValues = unmodifiable(syncOptions.getForceValues(null, name));
+			this.defaultValues = unmodifiable(syncOptions.getDefaultValues(null, name));
+			this.createValues = unmodifiable(syncOptions.getCreateValues(null, name));
+			this.delimiter = syncOptions.getDelimiter(name);
+			this.binary = binary;
+		}
+
+		public PolicyType getPolicy() {
+			return policy;
+		}
+
+		/**
+		 * @return the force values, or null if there are none
+		 */
+		public List<String> getForceValues() {
+			return forceValues;
+		}
+
+		/**
+		 * @return the default values, or null if there are none
+		 */
+		public List<String> getDefaultValues() {
+			return defaultValues;
+		}
+
+		/**
+		 * @return the create values, or null if there are none
+		 */
+		public List<String> getCreateValues() {
+			return createValues;
+		}
+
+		/**
+		 * @return the delimiter to split the values on, or null
+		 */
+		public String getDelimiter() {
+			return delimiter;
+		}
+
+		/**
+		 * @return true if the values are binary LDAP values
+		 */
+		public boolean isBinary() {
+			return binary;
+		}
+
+		private static List<String> unmodifiable(List<String> values) {
+			return (values != null ? Collections.unmodifiableList(values) : null);
+		}
+	}
+
+	private final ISyncOptions syncOptions;
+
+	private final Set<String> binaryAttributes;
+
+	private final Map<String, AttributePlan> attributes;
+
+	/** The attributes to write, whatever the source entry */
+	private final Set<String> writeAttributes;
+
+	/** Whether the attributes of the source entry are written too */
+	private final boolean writeSourceAttributes;
+
+	/**
+	 * Build the plan of a task
+	 *
+	 * @param syncOptions the synchronization options of the task
+	 * @param writeDatasetIds the attributes the destination service writes, may be null
+	 */
+	public SyncPlan(ISyncOptions syncOptions, List<String> writeDatasetIds) {
+		this.syncOptions = syncOptions;
+		this.binaryAttributes = getBinaryAttributes();
+
+		Set<String> names = new HashSet<String>();
+		addLowerCase(names, writeDatasetIds);
+		writeSourceAttributes = names.isEmpty() || names.contains(SchemaConstants.ALL_USER_ATTRIBUTES);
+		if (writeSourceAttributes) {
+			addLowerCase(names, syncOptions.getForceValuedAttributeNames());
+			addLowerCase(names, syncOptions.getDefaultValuedAttributeNames());
+			addLowerCase(names, syncOptions.getCreateAttributeNames());
+			names.remove(SchemaConstants.ALL_USER_ATTRIBUTES);
+		}
+		writeAttributes = Collections.unmodifiableSet(names);
+
+		attributes = new ConcurrentHashMap<String, AttributePlan>();
+		for (String name : writeAttributes) {
+			get(name);
+		}
+	}
+
+	/**
+	 * Return the options of an attribute
+	 *
+	 * @param attributeName the attribute name, in any case
+	 * @return the options of the attribute
+	 */
+	public AttributePlan get(String attributeName) {
+		String name = attributeName.toLowerCase();
+		AttributePlan plan = attributes.get(name);
+		if (plan == null) {
+			plan = attributes.computeIfAbsent(name,
+							key -> new AttributePlan(syncOptions, key, binaryAttributes.contains(key)));
+		}
+		return plan;
+	}
+
+	/**
+	 * Return the lower cased names of the attributes to write in the
+	 * destination: the attributes the destination service writes, or if they
+	 * are not listed or include "*", the attributes of the source entry and
+	 * all the force, default or create valued attributes.
+	 *
+	 * @param srcBean the entry read from the source
+	 * @return the attributes to write
+	 */
+	public Set<String> getWriteAttributes(IBean srcBean) {
+		if (!writeSourceAttributes) {
+			return writeAttributes;
+		}
+		Set<String> res = new HashSet<String>(writeAttributes);
+		addLowerCase(res, srcBean.datasets().getAttributesNames());
+		res.remove(SchemaConstants.ALL_USER_ATTRIBUTES);
+		return res;
+	}
+
+	private static void addLowerCase(Set<String> names, Collection<String> values) {
+		if (values != null) {
+			for (String value : values) {
+				names.add(value.toLowerCase());
+			}
+		}
+	}
+
+	private static Set<String> getBinaryAttributes() {
+		Set<String> names = new HashSet<String>();
+		for (ConnectionType connection : LscConfiguration.getConnections()) {
+			if (connection instanceof LdapConnectionType
+							&& ((LdapConnectionType) connection).getBinaryAttributes() != null) {
+				addLowerCase(names, ((LdapConnectionType) connection).getBinaryAttributes().getString());
+			}
+		}
+		return names;
+	}
+}
@@ -62,7 +62,9 @@ import java.util.Set;
 import java.util.regex.Pattern;
 
 import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
 import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBElement;
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Marshaller;
 import jakarta.xml.bind.Unmarshaller;
@@ -236,4 +238,24 @@ public class JaxbXmlConfigurationHelper {
 			LOGGER.error("Cannot save configuration file: " + e.toString(), e);
 		}
 	}
+
+	/**
+	 * Serialize a part of the configuration, for instance to detect its changes
+	 * 
+	 * @param name the element name
+	 * @param type the declared type of the element
+	 * @param value the element
+	 * @return the XML serialization of the element
+	 * @throws LscConfigurationException If the element can not be serialized
+	 */
+	public <T> String toXml(String name, Class<T> type, T value) throws LscConfigurationException {
+		StringWriter writer = new StringWriter();
+		try {
+			Marshaller marshaller = jaxbc.createMarshaller();
+			marshaller.marshal(new JAXBElement<T>(new QName(LSC_NAMESPACE, name), type, value), writer);
+		} catch (JAXBException e) {
+			throw new LscConfigurationException(e);
+		}
+		return writer.toString();
+	}
 }
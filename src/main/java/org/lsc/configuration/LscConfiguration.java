@@ -121,6 +121,7 @@ public class LscConfiguration {
 		instance.lscObject.setId(lscInstance.getId());
 		instance.lscObject.setRevision(lscInstance.getRevision());
 		instance.lscObject.setSecurity(lscInstance.getSecurity());
+		instance.lscObject.setSequences(lscInstance.getSequences());
 		instance.lscObject.setTasks(lscInstance.getTasks());
 		finalizeInitialization();
 	}
@@ -277,6 +278,10 @@ public class LscConfiguration {
 		getLsc().setSecurity(sec);
 	}
 
+	public static SequencesType getSequences() {
+		return getInstance().getLsc().getSequences();
+	}
+
 	public void validate() throws LscException {
 		// Tasks will check used connections
 		for(TaskType task: getTasks()) {
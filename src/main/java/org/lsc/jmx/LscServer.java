@@ -140,7 +140,8 @@ public interface LscServer {
 	public void launchCleanTask(String taskName) throws Exception;
 	
 	/**
-	 * Get status line of a task
+	 * Get status line of a task, followed by the count of each operation,
+	 * the latency of each phase and the throughput of the running task
 	 */
 	public String getTaskStatus(String taskName);
 	
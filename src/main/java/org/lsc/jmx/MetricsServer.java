@@ -0,0 +1,290 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.jmx;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.lsc.AbstractSynchronize;
+import org.lsc.LscModificationType;
+import org.lsc.SynchronizeThreadPoolExecutor;
+import org.lsc.Task;
+import org.lsc.beans.InfoCounter;
+import org.lsc.beans.InfoCounter.Phase;
+import org.lsc.utils.LatencyHistogram;
+import org.lsc.utils.ScriptingEvaluator;
+import org.lsc.utils.SequencesFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Publish the metrics of the tasks over HTTP, in the Prometheus text
+ * exposition format, at <code>/metrics</code>.
+ * <p>
+ * The counters, the thread pool queue and the latencies are those of the
+ * current or last run of each task. The latency of the source get,
+ * destination get and apply phases is the latency of the calls to the
+ * source and destination services (LDAP, JDBC, ...).
+ * </p>
+ */
+public class MetricsServer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MetricsServer.class);
+
+	/** Highest bucket published for latency histograms, about 17 minutes */
+	private static final int MAX_PUBLISHED_BUCKET = 30;
+
+	private final AbstractSynchronize synchronize;
+
+	private final HttpServer server;
+
+	private final ExecutorService executor;
+
+	/**
+	 * Start publishing the metrics
+	 * @param synchronize the synchronization engine running the tasks
+	 * @param port the TCP port to listen to
+	 * @throws IOException if the port cannot be bound
+	 */
+	public MetricsServer(AbstractSynchronize synchronize, int port) throws IOException {
+		this.synchronize = synchronize;
+		executor = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "metrics");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.createContext("/metrics", this::handle);
+		server.setExecutor(executor);
+		server.start();
+		LOGGER.info("Publishing metrics on port {}", port);
+	}
+
+	/**
+	 * Stop publishing the metrics
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdown();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			byte[] body = getMetrics().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} catch (RuntimeException e) {
+			LOGGER.error("Error while publishing the metrics: {}", e.toString());
+			LOGGER.debug(e.toString(), e);
+			exchange.sendResponseHeaders(500, -1);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * @return the metrics of all tasks, in the Prometheus text format
+	 */
+	public String getMetrics() {
+		StringBuilder metrics = new StringBuilder();
+		Map<String, InfoCounter> counters = synchronize.getCounters();
+
+		header(metrics, "lsc_entries_total", "counter", "Entries taken from the source or the destination");
+		for (Map.Entry<String, InfoCounter> counter : counters.entrySet()) {
+			sample(metrics, "lsc_entries_total", labels(counter.getKey()), counter.getValue().getCountAll());
+		}
+		header(metrics, "lsc_entries_modifiable_total", "counter", "Entries to modify in the destination");
+		for (Map.Entry<String, InfoCounter> counter : counters.entrySet()) {
+			sample(metrics, "lsc_entries_modifiable_total", labels(counter.getKey()), counter.getValue().getCountModifiable());
+		}
+		header(metrics, "lsc_entries_errors_total", "counter", "Entries in error");
+		for (Map.Entry<String, InfoCounter> counter : counters.entrySet()) {
+			sample(metrics, "lsc_entries_errors_total", labels(counter.getKey()), counter.getValue().getCountError());
+		}
+		header(metrics, "lsc_operations_total", "counter", "Modifications successfully applied to the destination");
+		for (Map.Entry<String, InfoCounter> counter : counters.entrySet()) {
+			for (LscModificationType operation : LscModificationType.values()) {
+				sample(metrics, "lsc_operations_total", labels(counter.getKey(), "operation", operation.getDescription()),
+								counter.getValue().getCountOperation(operation));
+			}
+		}
+		header(metrics, "lsc_entries_per_second", "gauge", "Entries taken per second over a sliding window");
+		for (Map.Entry<String, InfoCounter> counter : counters.entrySet()) {
+			for (int window : InfoCounter.THROUGHPUT_WINDOWS) {
+				sample(metrics, "lsc_entries_per_second", labels(counter.getKey(), "window", window + "s"),
+								counter.getValue().getThroughput(window));
+			}
+		}
+
+		header(metrics, "lsc_queue_depth", "gauge", "Entries waiting in the thread pool queue");
+		for (String taskName : counters.keySet()) {
+			SynchronizeThreadPoolExecutor threadPool = synchronize.getThreadPool(taskName);
+			if (threadPool != null) {
+				sample(metrics, "lsc_queue_depth", labels(taskName), threadPool.getQueueDepth());
+			}
+		}
+		header(metrics, "lsc_queue_capacity", "gauge", "Capacity of the thread pool queue");
+		for (String taskName : counters.keySet()) {
+			SynchronizeThreadPoolExecutor threadPool = synchronize.getThreadPool(taskName);
+			if (threadPool != null) {
+				sample(metrics, "lsc_queue_capacity", labels(taskName), threadPool.getQueueCapacity());
+			}
+		}
+		header(metrics, "lsc_queue_wait_seconds_total", "counter", "Time spent waiting for a free slot in the thread pool queue");
+		for (String taskName : counters.keySet()) {
+			SynchronizeThreadPoolExecutor threadPool = synchronize.getThreadPool(taskName);
+			if (threadPool != null) {
+				sample(metrics, "lsc_queue_wait_seconds_total", labels(taskName), threadPool.getWaitTime() / 1000d);
+			}
+		}
+
+		header(metrics, "lsc_phase_latency_seconds", "histogram", "Latency of each phase of the synchronization of an entry");
+		for (Map.Entry<String, InfoCounter> counter : counters.entrySet()) {
+			for (Phase phase : Phase.values()) {
+				histogram(metrics, "lsc_phase_latency_seconds", labels(counter.getKey(), "phase", phase.getDescription()),
+								counter.getValue().getLatencyHistogram(phase));
+			}
+		}
+		header(metrics, "lsc_script_evaluation_seconds", "histogram", "Latency of the script evaluations, all tasks together");
+		histogram(metrics, "lsc_script_evaluation_seconds", "", ScriptingEvaluator.getEvaluationLatency());
+
+		SequencesFactory sequences = SequencesFactory.getCreatedInstance();
+		if (sequences != null) {
+			header(metrics, "lsc_sequence_values_total", "counter", "Values handed out by each sequence");
+			for (Map.Entry<String, Long> allocatedCount : sequences.getAllocatedCounts().entrySet()) {
+				sample(metrics, "lsc_sequence_values_total", sequenceLabel(allocatedCount.getKey()), allocatedCount.getValue());
+			}
+			header(metrics, "lsc_sequence_update_seconds", "histogram", "Latency of the directory updates reserving sequence values");
+			for (Map.Entry<String, LatencyHistogram> updateLatency : sequences.getUpdateLatencies().entrySet()) {
+				histogram(metrics, "lsc_sequence_update_seconds", sequenceLabel(updateLatency.getKey()), updateLatency.getValue());
+			}
+		}
+
+		header(metrics, "lsc_async_lag_seconds", "gauge", "Time elapsed since a running asynchronous task last polled for changes");
+		for (Task task : synchronize.getTasks()) {
+			long lag = synchronize.getAsynchronousTaskLag(task.getName());
+			if (lag >= 0) {
+				sample(metrics, "lsc_async_lag_seconds", labels(task.getName()), lag / 1000d);
+			}
+		}
+		return metrics.toString();
+	}
+
+	private static void header(StringBuilder metrics, String name, String type, String help) {
+		metrics.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		metrics.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void sample(StringBuilder metrics, String name, String labels, long value) {
+		metrics.append(name);
+		if (!labels.isEmpty()) {
+			metrics.append('{').append(labels).append('}');
+		}
+		metrics.append(' ').append(value).append('\n');
+	}
+
+	private static void sample(StringBuilder metrics, String name, String labels, double value) {
+		metrics.append(name);
+		if (!labels.isEmpty()) {
+			metrics.append('{').append(labels).append('}');
+		}
+		metrics.append(' ').append(String.format(Locale.ROOT, "%.6f", value)).append('\n');
+	}
+
+	private static void histogram(StringBuilder metrics, String name, String labels, LatencyHistogram histogram) {
+		String separator = labels.isEmpty() ? "" : ",";
+		long cumulated = 0;
+		for (int i = 0; i <= MAX_PUBLISHED_BUCKET; i++) {
+			cumulated += histogram.getBucketCount(i);
+			double upperBound = (LatencyHistogram.getBucketUpperBound(i) + 1) / (double) TimeUnit.SECONDS.toMicros(1);
+			metrics.append(name).append("_bucket{").append(labels).append(separator)
+				.append("le=\"").append(String.format(Locale.ROOT, "%.6f", upperBound)).append("\"} ")
+				.append(cumulated).append('\n');
+		}
+		// Count from the buckets rather than the total count, both being
+		// updated concurrently, so that the published buckets stay consistent
+		long count = cumulated;
+		for (int i = MAX_PUBLISHED_BUCKET + 1; i < LatencyHistogram.BUCKETS; i++) {
+			count += histogram.getBucketCount(i);
+		}
+		metrics.append(name).append("_bucket{").append(labels).append(separator).append("le=\"+Inf\"} ").append(count).append('\n');
+		sample(metrics, name + "_sum", labels, histogram.getTotal() / (double) TimeUnit.SECONDS.toMicros(1));
+		sample(metrics, name + "_count", labels, count);
+	}
+
+	private static String labels(String taskName, String... labels) {
+		StringBuilder result = new StringBuilder("task=\"").append(escape(taskName)).append('"');
+		for (int i = 0; i + 1 < labels.length; i += 2) {
+			result.append(',').append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+		}
+		return result.toString();
+	}
+
+	private static String sequenceLabel(String sequenceName) {
+		return "sequence=\"" + escape(sequenceName) + '"';
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
@@ -75,6 +75,8 @@ import org.lsc.configuration.LdapServiceType;
 import org.lsc.exception.LscException;
 import org.lsc.exception.LscConfigurationException;
 import org.lsc.exception.LscServiceConfigurationException;
+import org.lsc.exception.LscServiceException;
+import org.lsc.service.IScanService;
 import org.lsc.utils.ScriptingEvaluator;
 import org.lsc.utils.SetUtils;
 import org.slf4j.Logger;
@@ -335,6 +337,93 @@ public abstract class AbstractSimpleJndiService implements Closeable {
 		return searchString;
 	}
 
+	/**
+	 * Compute the filter used to list all the entries
+	 * 
+	 * @param task the task being run
+	 * @return the filter, evaluated if it is a script
+	 * @throws LscServiceException if the filter script fails
+	 */
+	protected String getListFilter(Task task) throws LscServiceException {
+		String filterAll = getFilterAll();
+		String allEntriesFilter = allEntriesFilter();
+
+		if( allEntriesFilter != null  && !allEntriesFilter.isEmpty() )
+		{
+			// Evaluate the filter as a script
+			filterAll = ScriptingEvaluator.evalFilter(task, allEntriesFilter, null);
+		}
+		return filterAll;
+	}
+
+	/**
+	 * Open a scan of all the entries, page by page, reading the fetched and
+	 * the pivot attributes.
+	 * 
+	 * @param filter the filter used to list all the entries
+	 * @return the opened scanner
+	 * @throws NamingException thrown if the search can not be opened
+	 */
+	protected PagedSearchScanner openScan(String filter) throws NamingException {
+		List<String> scanAttrs = (attrs != null ? new ArrayList<String>(attrs) : new ArrayList<String>());
+		for (String attrId : attrsId) {
+			if (!scanAttrs.contains(attrId)) {
+				scanAttrs.add(attrId);
+			}
+		}
+		SearchControls sc = new SearchControls();
+		sc.setDerefLinkFlag(false);
+		sc.setReturningAttributes(scanAttrs.toArray(new String[scanAttrs.size()]));
+		sc.setSearchScope(SearchControls.SUBTREE_SCOPE);
+		return jndiServices.scanEntries(baseDn, filter, sc);
+	}
+
+	/**
+	 * Scan of the entries, each one being converted to a bean
+	 */
+	protected abstract static class EntryBeanScanner implements IScanService.BeanScanner {
+
+		private final PagedSearchScanner scanner;
+
+		protected EntryBeanScanner(PagedSearchScanner scanner) {
+			this.scanner = scanner;
+		}
+
+		/**
+		 * Convert an entry to a bean
+		 * 
+		 * @param entry the entry read in the directory
+		 * @return the bean
+		 * @throws NamingException thrown if the entry can not be read
+		 * @throws LscServiceException thrown if the bean can not be built
+		 */
+		protected abstract IBean toBean(SearchResult entry) throws NamingException, LscServiceException;
+
+		public IBean next() throws LscServiceException {
+			try {
+				SearchResult entry = scanner.next();
+				return (entry != null ? toBean(entry) : null);
+			} catch (NamingException e) {
+				throw new LscServiceException(e);
+			}
+		}
+
+		public void close() throws LscServiceException {
+			try {
+				scanner.close();
+			} catch (NamingException e) {
+				throw new LscServiceException(e);
+			}
+		}
+	}
+
+	/**
+	 * @see org.lsc.service.IScanService#getPivotAttributes()
+	 */
+	public List<String> getPivotAttributes() {
+		return getAttrsId();
+	}
+
 	/**
 	 * Get the ldap search result according the specified identifier.
 	 * 
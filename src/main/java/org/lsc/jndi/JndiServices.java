@@ -56,6 +56,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.function.BooleanSupplier;
 
 import javax.naming.CannotProceedException;
 import javax.naming.CommunicationException;
@@ -67,6 +68,7 @@ import javax.naming.ServiceUnavailableException;
 import javax.naming.SizeLimitExceededException;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttribute;
 import javax.naming.directory.BasicAttributes;
 import javax.naming.directory.DirContext;
 import javax.naming.directory.InitialDirContext;
@@ -95,7 +97,9 @@ import org.apache.directory.api.ldap.codec.api.ControlFactory;
 import org.apache.directory.api.ldap.codec.api.LdapApiService;
 import org.apache.directory.api.ldap.codec.api.LdapApiServiceFactory;
 import org.apache.directory.api.ldap.codec.controls.search.persistentSearch.PersistentSearchFactory;
+import org.apache.directory.api.ldap.extras.controls.syncrepl_impl.SyncDoneValueFactory;
 import org.apache.directory.api.ldap.extras.controls.syncrepl_impl.SyncStateValueFactory;
+import org.apache.directory.api.ldap.extras.intermediate.syncrepl_impl.SyncInfoValueFactory;
 import org.apache.directory.api.ldap.model.constants.SchemaConstants;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
 import org.apache.directory.api.ldap.model.exception.LdapURLEncodingException;
@@ -107,6 +111,7 @@ import org.lsc.LscDatasets;
 import org.lsc.configuration.*;
 import org.lsc.exception.LscConfigurationException;
 import org.lsc.exception.LscServiceException;
+import org.lsc.service.IStreamingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -127,13 +132,16 @@ public final class JndiServices {
 	/** Default LDAP filter. */
 	public static final String DEFAULT_FILTER = "objectClass=*";
 
-	private static final Logger LOGGER = LoggerFactory.getLogger(JndiServices.class);
+	/** Default maximum number of values sent in a single modify request */
+	public static final int DEFAULT_MAX_VALUES_PER_MODIFICATION = 5000;
+
+	/** The option of an attribute returned in part, as in member;range=0-1499 */
+	private static final String RANGE_OPTION = ";range=";
 
-	/** the ldap ctx. */
-	private LdapContext ctx;
+	private static final Logger LOGGER = LoggerFactory.getLogger(JndiServices.class);
 
-	/** TLSResponse in case we use StartTLS */
-	private StartTlsResponse tlsResponse;
+	/** The pool of connections to the directory. */
+	private LdapConnectionPool pool;
 
 	/** The context base dn. */
 	private Dn contextDn;
@@ -152,12 +160,24 @@ public final class JndiServices {
 	/** Send relax rules control when writing in directory (default to false) */
 	private boolean relaxRules;
 
+	/** Maximum number of values sent in a single modify request */
+	private int maxValuesPerModification;
+
 	/** Remember connection properties to reconnect */
 	private Properties connProps;
 
 	/** Remember default resquest controls */
 	private Control[] defaultRequestControls;
 
+	/**
+	 * An operation run against a pooled connection
+	 *
+	 * @param <T> the operation result type
+	 */
+	private interface Operation<T> {
+		T execute(LdapContext ctx) throws NamingException;
+	}
+
 	/**
 	 * Initiate the object and the connection according to the properties.
 	 *
@@ -175,6 +195,78 @@ public final class JndiServices {
 		// log new connection with it's details
 		logConnectingTo(connProps);
 
+		pool = new LdapConnectionPool(this::openConnection,
+				getIntProperty("java.naming.ldap.pool.minSize", LdapConnectionPool.DEFAULT_MIN_SIZE),
+				getIntProperty("java.naming.ldap.pool.maxSize", LdapConnectionPool.DEFAULT_MAX_SIZE),
+				getIntProperty("java.naming.ldap.pool.idleTimeout", LdapConnectionPool.DEFAULT_IDLE_TIMEOUT),
+				Boolean.parseBoolean(connProps.getProperty("java.naming.ldap.pool.validateOnBorrow")));
+		maxValuesPerModification = getIntProperty("java.naming.ldap.maxValuesPerModification",
+				DEFAULT_MAX_VALUES_PER_MODIFICATION);
+
+		LdapConnectionPool.Connection connection = pool.borrow();
+		try {
+			LdapContext ctx = connection.getContext();
+
+			/* get LDAP naming context */
+			try {
+				namingContext = new LdapUrl((String) ctx.getEnvironment().get(Context.PROVIDER_URL));
+			} catch (LdapURLEncodingException e) {
+				LOGGER.error(e.toString());
+				LOGGER.debug(e.toString(), e);
+				throw new NamingException(e.getMessage());
+			}
+
+			/* handle options */
+			try {
+				contextDn = namingContext.getDn() != null ? namingContext.getDn() : new Dn("");
+			} catch (LdapInvalidDnException e) {
+				LOGGER.error(e.toString());
+				LOGGER.debug(e.toString(), e);
+				throw new NamingException(e.getMessage());
+			}
+
+			String recursiveDeleteStr = (String) ctx.getEnvironment().get("java.naming.recursivedelete");
+			if (recursiveDeleteStr != null) {
+				recursiveDelete = Boolean.parseBoolean(recursiveDeleteStr);
+			} else {
+				recursiveDelete = false;
+			}
+
+			String relaxRulesStr = (String) ctx.getEnvironment().get("java.naming.relaxRules");
+			if (relaxRulesStr != null) {
+				relaxRules = Boolean.parseBoolean(relaxRulesStr);
+			} else {
+				relaxRules = false;
+			}
+		} finally {
+			pool.release(connection);
+		}
+		pool.fill();
+
+		/* Load SyncRepl response controls and intermediate response */
+		LdapApiService ldapApiService = LdapApiServiceFactory.getSingleton();
+		ControlFactory<?> factory = new SyncStateValueFactory(ldapApiService);
+		ldapApiService.registerResponseControl(factory);
+		factory = new SyncDoneValueFactory(ldapApiService);
+		ldapApiService.registerResponseControl(factory);
+		ldapApiService.registerIntermediateResponse(new SyncInfoValueFactory(ldapApiService));
+		/* Load Persistent Search response control */
+		factory = new PersistentSearchFactory(ldapApiService);
+		ldapApiService.registerResponseControl(factory);
+	}
+
+	/**
+	 * Open a new connection to the directory, to be added to the pool.
+	 *
+	 * @return the opened connection
+	 * @throws NamingException thrown if a directory error is encountered
+	 * @throws IOException     thrown if an error occurs negotiating StartTLS
+	 *                         operation
+	 */
+	private LdapConnectionPool.Connection openConnection() throws NamingException, IOException {
+		LdapContext ctx;
+		StartTlsResponse tlsResponse = null;
+
 		/* should we negotiate TLS? */
 		if (connProps.get(TLS_CONFIGURATION) != null && (Boolean) connProps.get(TLS_CONFIGURATION)) {
 			/*
@@ -227,45 +319,12 @@ public final class JndiServices {
 			ctx = new InitialLdapContext(connProps, null);
 		}
 
-		/* get LDAP naming context */
-		try {
-			namingContext = new LdapUrl((String) ctx.getEnvironment().get(Context.PROVIDER_URL));
-		} catch (LdapURLEncodingException e) {
-			LOGGER.error(e.toString());
-			LOGGER.debug(e.toString(), e);
-			throw new NamingException(e.getMessage());
-		}
-
-		/* handle options */
-		try {
-			contextDn = namingContext.getDn() != null ? namingContext.getDn() : new Dn("");
-		} catch (LdapInvalidDnException e) {
-			LOGGER.error(e.toString());
-			LOGGER.debug(e.toString(), e);
-			throw new NamingException(e.getMessage());
-		}
-
-		String recursiveDeleteStr = (String) ctx.getEnvironment().get("java.naming.recursivedelete");
-		if (recursiveDeleteStr != null) {
-			recursiveDelete = Boolean.parseBoolean(recursiveDeleteStr);
-		} else {
-			recursiveDelete = false;
-		}
-
-		String relaxRulesStr = (String) ctx.getEnvironment().get("java.naming.relaxRules");
-		if (relaxRulesStr != null) {
-			relaxRules = Boolean.parseBoolean(relaxRulesStr);
-		} else {
-			relaxRules = false;
-		}
+		return new LdapConnectionPool.Connection(ctx, tlsResponse);
+	}
 
-		/* Load SyncRepl response control */
-		LdapApiService ldapApiService = LdapApiServiceFactory.getSingleton();
-		ControlFactory<?> factory = new SyncStateValueFactory(ldapApiService);
-		ldapApiService.registerResponseControl(factory);
-		/* Load Persistent Search response control */
-		factory = new PersistentSearchFactory(ldapApiService);
-		ldapApiService.registerResponseControl(factory);
+	private int getIntProperty(String name, int defaultValue) {
+		String value = connProps.getProperty(name);
+		return value != null ? Integer.parseInt(value) : defaultValue;
 	}
 
 	private void logConnectingTo(Properties connProps) {
@@ -313,7 +372,7 @@ public final class JndiServices {
 				cache.put(props, new JndiServices(props));
 			}
 			JndiServices instance = cache.get(props);
-			if (instance.ctx == null) {
+			if (instance.pool.isClosed()) {
 				instance.initConnection();
 			}
 			return instance;
@@ -411,6 +470,21 @@ public final class JndiServices {
 		if (connection.isRelaxRules() != null) {
 			props.setProperty("java.naming.relaxRules", Boolean.toString(connection.isRelaxRules()));
 		}
+		if (connection.getPoolMinSize() != null) {
+			props.setProperty("java.naming.ldap.pool.minSize", "" + connection.getPoolMinSize());
+		}
+		if (connection.getPoolMaxSize() != null) {
+			props.setProperty("java.naming.ldap.pool.maxSize", "" + connection.getPoolMaxSize());
+		}
+		if (connection.getPoolIdleTimeout() != null) {
+			props.setProperty("java.naming.ldap.pool.idleTimeout", "" + connection.getPoolIdleTimeout());
+		}
+		if (connection.isPoolValidateOnBorrow() != null) {
+			props.setProperty("java.naming.ldap.pool.validateOnBorrow", Boolean.toString(connection.isPoolValidateOnBorrow()));
+		}
+		if (connection.getMaxValuesPerModification() != null) {
+			props.setProperty("java.naming.ldap.maxValuesPerModification", "" + connection.getMaxValuesPerModification());
+		}
 		return props;
 	}
 
@@ -518,28 +592,10 @@ public final class JndiServices {
 	 */
 	public SearchResult getEntry(final String base, final String filter, final SearchControls sc, final int scope)
 			throws NamingException {
-		try {
-			return doGetEntry(base, filter, sc, scope);
-		} catch (NamingException nex) {
-			if (nex instanceof CommunicationException || nex instanceof ServiceUnavailableException) {
-				LOGGER.warn("Communication error, retrying: " + nex.getMessage());
-				LOGGER.debug(nex.getMessage(), nex);
-				try {
-					initConnection();
-				} catch (IOException ioex) {
-					LOGGER.error("I/O error: " + ioex.getMessage());
-					LOGGER.debug(ioex.getMessage(), ioex);
-					// throw the initial communication exception
-					throw nex;
-				}
-				return doGetEntry(base, filter, sc, scope);
-			} else {
-				throw nex;
-			}
-		}
+		return execute(ctx -> doGetEntry(ctx, base, filter, sc, scope));
 	}
 
-	private SearchResult doGetEntry(final String base, final String filter, final SearchControls sc, final int scope)
+	private SearchResult doGetEntry(final LdapContext ctx, final String base, final String filter, final SearchControls sc, final int scope)
 			throws NamingException {
 		// sanity checks
 		String searchBase = base == null ? "" : base;
@@ -579,7 +635,7 @@ public final class JndiServices {
 						"Too many entries returned (base: \"" + searchBase + "\", filter: \"" + searchFilter + "\")");
 			} else {
 				namingEnumeration.close();
-				return sr;
+				return readRanges(ctx, sr);
 			}
 		} else {
 			// try hasMore method to throw exceptions if there are any and we didn't get our
@@ -592,6 +648,53 @@ public final class JndiServices {
 		return sr;
 	}
 
+	/**
+	 * Search for all the entries matching a filter.
+	 *
+	 * Unlike {@link #getEntry(String, String, SearchControls, int)}, more than one
+	 * entry may be returned, so this is used to read several entries at once with
+	 * a single search, i.e. with an OR filter.
+	 *
+	 * @param base   the base of the search operation
+	 * @param filter the filter of the search operation
+	 * @param sc     the search controls
+	 * @param scope  the search scope to use
+	 * @return the entries, empty if none is found (never null)
+	 * @throws NamingException thrown if something goes wrong
+	 */
+	public List<SearchResult> getEntries(final String base, final String filter, final SearchControls sc, final int scope)
+			throws NamingException {
+		return execute(ctx -> doGetEntries(ctx, base, filter, sc, scope));
+	}
+
+	private List<SearchResult> doGetEntries(final LdapContext ctx, final String base, final String filter, final SearchControls sc, final int scope)
+			throws NamingException {
+		// sanity checks
+		String searchBase = base == null ? "" : base;
+		String searchFilter = filter == null ? DEFAULT_FILTER : filter;
+
+		List<SearchResult> entries = new ArrayList<SearchResult>();
+		NamingEnumeration<SearchResult> namingEnumeration = null;
+		try {
+			sc.setSearchScope(scope);
+			namingEnumeration = ctx.search(rewriteBase(searchBase), searchFilter, sc);
+			while (namingEnumeration.hasMore()) {
+				entries.add(namingEnumeration.next());
+			}
+			for (SearchResult entry : entries) {
+				readRanges(ctx, entry);
+			}
+		} catch (NamingException nex) {
+			LOGGER.error("Error while looking for {} in {}: {}", new Object[] { searchFilter, searchBase, nex });
+			throw nex;
+		} finally {
+			if (namingEnumeration != null) {
+				namingEnumeration.close();
+			}
+		}
+		return entries;
+	}
+
 	/**
 	 * Check if the entry with the specified distinguish name exists (or not).
 	 *
@@ -660,28 +763,10 @@ public final class JndiServices {
 
 	public SearchResult readEntry(final String base, final String filter, final boolean allowError,
 			final SearchControls sc) throws NamingException {
-		try {
-			return doReadEntry(base, filter, allowError, sc);
-		} catch (NamingException nex) {
-			if (nex instanceof CommunicationException || nex instanceof ServiceUnavailableException) {
-				LOGGER.info("Communication error, retrying: " + nex.getMessage());
-				LOGGER.debug(nex.getMessage(), nex);
-				try {
-					initConnection();
-				} catch (IOException ioex) {
-					LOGGER.error("I/O error: " + ioex.getMessage());
-					LOGGER.debug(ioex.getMessage(), ioex);
-					// throw the initial communication exception
-					throw nex;
-				}
-				return doReadEntry(base, filter, allowError, sc);
-			} else {
-				throw nex;
-			}
-		}
+		return execute(ctx -> doReadEntry(ctx, base, filter, allowError, sc));
 	}
 
-	private SearchResult doReadEntry(final String base, final String filter, final boolean allowError,
+	private SearchResult doReadEntry(final LdapContext ctx, final String base, final String filter, final boolean allowError,
 			final SearchControls sc) throws NamingException {
 		NamingEnumeration<SearchResult> namingEnumeration = null;
 		sc.setSearchScope(SearchControls.OBJECT_SCOPE);
@@ -710,7 +795,7 @@ public final class JndiServices {
 			} else {
 				namingEnumeration.close();
 
-				return sr;
+				return readRanges(ctx, sr);
 			}
 		}
 
@@ -732,28 +817,10 @@ public final class JndiServices {
 	 * @throws NamingException thrown if something goes wrong
 	 */
 	public List<String> getDnList(final String base, final String filter, final int scope) throws NamingException {
-		try {
-			return doGetDnList(base, filter, scope);
-		} catch (NamingException nex) {
-			if (nex instanceof CommunicationException || nex instanceof ServiceUnavailableException) {
-				LOGGER.warn("Communication error, retrying: " + nex.getMessage());
-				LOGGER.debug(nex.getMessage(), nex);
-				try {
-					initConnection();
-				} catch (IOException ioex) {
-					LOGGER.error("I/O error: " + ioex.getMessage());
-					LOGGER.debug(ioex.getMessage(), ioex);
-					// throw the initial communication exception
-					throw nex;
-				}
-				return doGetDnList(base, filter, scope);
-			} else {
-				throw nex;
-			}
-		}
+		return execute(ctx -> doGetDnList(ctx, base, filter, scope));
 	}
 
-	private List<String> doGetDnList(final String base, final String filter, final int scope) throws NamingException {
+	private List<String> doGetDnList(final LdapContext ctx, final String base, final String filter, final int scope) throws NamingException {
 		NamingEnumeration<SearchResult> namingEnumeration = null;
 		List<String> list = new ArrayList<String>();
 
@@ -812,28 +879,18 @@ public final class JndiServices {
 	 */
 	public boolean apply(final JndiModifications jm) throws CommunicationException {
 		try {
-			return doApply(jm);
+			return execute(ctx -> doApply(ctx, jm));
 		} catch (CommunicationException cex) {
-			LOGGER.warn("Communication error, retrying: " + cex.getMessage());
-			LOGGER.debug(cex.getMessage(), cex);
-			try {
-				initConnection();
-			} catch (IOException ioex) {
-				LOGGER.error("I/O error: " + ioex.getMessage());
-				LOGGER.debug(ioex.getMessage(), ioex);
-				// throw the initial communication exception
-				throw cex;
-			} catch (NamingException nex) {
-				LOGGER.error("Naming error: " + nex.getMessage());
-				LOGGER.debug(nex.getMessage(), nex);
-				// throw the initial communication exception
-				throw cex;
-			}
-			return doApply(jm);
+			throw cex;
+		} catch (NamingException nex) {
+			// we could not get a connection to the source or destination
+			CommunicationException ce = new CommunicationException(nex.getExplanation());
+			ce.setRootCause(nex);
+			throw ce;
 		}
 	}
 
-	private boolean doApply(final JndiModifications jm) throws CommunicationException {
+	private boolean doApply(final LdapContext ctx, final JndiModifications jm) throws CommunicationException {
 		if (jm == null) {
 			return true;
 		}
@@ -841,7 +898,7 @@ public final class JndiServices {
 		try {
 			// Get a derived context to be able to use controls without impacting/being
 			// impacted by other thread sharing this context
-			LdapContext updateCtx = getContext(true);
+			LdapContext updateCtx = getContext(ctx, true);
 
 			switch (jm.getOperation()) {
 
@@ -852,17 +909,17 @@ public final class JndiServices {
 
 			case DELETE_ENTRY:
 				if (recursiveDelete) {
-					deleteChildrenRecursively(updateCtx, rewriteBase(jm.getDistinguishName()));
+					deleteChildrenRecursively(ctx, updateCtx, rewriteBase(jm.getDistinguishName()));
 				} else {
 					updateCtx.destroySubcontext(new LdapName(rewriteBase(jm.getDistinguishName())));
 				}
 				break;
 
 			case MODIFY_ENTRY:
-				Object[] table = jm.getModificationItems().toArray();
-				ModificationItem[] mis = new ModificationItem[table.length];
-				System.arraycopy(table, 0, mis, 0, table.length);
-				updateCtx.modifyAttributes(new LdapName(rewriteBase(jm.getDistinguishName())), mis);
+				LdapName name = new LdapName(rewriteBase(jm.getDistinguishName()));
+				for (ModificationItem[] mis : splitModifications(jm.getModificationItems(), maxValuesPerModification)) {
+					updateCtx.modifyAttributes(name, mis);
+				}
 				break;
 
 			case MODRDN_ENTRY:
@@ -928,43 +985,154 @@ public final class JndiServices {
 	}
 
 	/**
-	 * Delete children recursively
-	 * 
-	 * @param distinguishName the tree head to delete
-	 * @throws NamingException thrown if an error is encountered
+	 * Split modifications into requests holding at most a number of values,
+	 * so that the values of a large attribute are added or removed in several
+	 * requests. The values replaced in a single modification are never split.
+	 *
+	 * @param modificationItems the modifications, in order
+	 * @param maxValues         the maximum number of values of a request, 0 for no limit
+	 * @return the modifications of each request, in order
+	 * @throws NamingException thrown if a value cannot be read
 	 */
-	private void deleteChildrenRecursively(LdapContext updateCtx, String distinguishName) throws NamingException {
-		try {
-			doDeleteChildrenRecursively(updateCtx, distinguishName);
-			return;
-		} catch (NamingException nex) {
-			if (nex instanceof CommunicationException || nex instanceof ServiceUnavailableException) {
-				LOGGER.warn("Communication error, retrying: " + nex.getMessage());
-				LOGGER.debug(nex.getMessage(), nex);
+	static List<ModificationItem[]> splitModifications(final List<ModificationItem> modificationItems, final int maxValues)
+			throws NamingException {
+		List<ModificationItem[]> requests = new ArrayList<ModificationItem[]>();
+		List<ModificationItem> request = new ArrayList<ModificationItem>();
+		int values = 0;
+		for (ModificationItem mi : modificationItems) {
+			Attribute attribute = mi.getAttribute();
+			if (maxValues <= 0 || mi.getModificationOp() == DirContext.REPLACE_ATTRIBUTE
+					|| attribute.size() <= maxValues - values) {
+				request.add(mi);
+				values += attribute.size();
+				continue;
+			}
+			// Fill the current request, then send the other values by chunks
+			Attribute chunk = new BasicAttribute(attribute.getID(), attribute.isOrdered());
+			for (NamingEnumeration<?> ne = attribute.getAll(); ne.hasMore();) {
+				if (values >= maxValues) {
+					if (chunk.size() > 0) {
+						request.add(new ModificationItem(mi.getModificationOp(), chunk));
+						chunk = new BasicAttribute(attribute.getID(), attribute.isOrdered());
+					}
+					requests.add(request.toArray(new ModificationItem[request.size()]));
+					request = new ArrayList<ModificationItem>();
+					values = 0;
+				}
+				chunk.add(ne.next());
+				values++;
+			}
+			if (chunk.size() > 0) {
+				request.add(new ModificationItem(mi.getModificationOp(), chunk));
+			}
+		}
+		if (!request.isEmpty() || requests.isEmpty()) {
+			requests.add(request.toArray(new ModificationItem[request.size()]));
+		}
+		return requests;
+	}
+
+	/**
+	 * Complete the attributes the directory returned in part, such as the
+	 * members of a large Active Directory group, by reading the following
+	 * ranges of their values up to the last one.
+	 *
+	 * @param ctx the context to read the ranges with
+	 * @param sr  the entry read, may be null
+	 * @return the entry, with its attributes complete
+	 * @throws NamingException thrown if something goes wrong
+	 */
+	SearchResult readRanges(final LdapContext ctx, final SearchResult sr) throws NamingException {
+		if (sr == null) {
+			return sr;
+		}
+
+		Attributes attributes = sr.getAttributes();
+		List<String> rangedIds = new ArrayList<String>();
+		for (NamingEnumeration<String> ids = attributes.getIDs(); ids.hasMore();) {
+			String id = ids.next();
+			if (id.toLowerCase().contains(RANGE_OPTION)) {
+				rangedIds.add(id);
+			}
+		}
+
+		for (String rangedId : rangedIds) {
+			Attribute ranged = attributes.remove(rangedId);
+			String name = rangedId.substring(0, rangedId.toLowerCase().indexOf(RANGE_OPTION));
+			Attribute complete = new BasicAttribute(name);
+			addValues(complete, ranged);
+
+			String range = getRange(rangedId);
+			while (!range.endsWith("*")) {
+				int next;
 				try {
-					initConnection();
-				} catch (IOException ioex) {
-					LOGGER.error("I/O error: " + ioex.getMessage());
-					LOGGER.debug(ioex.getMessage(), ioex);
-					// throw the initial communication exception
-					throw nex;
+					next = Integer.parseInt(range.substring(range.indexOf('-') + 1)) + 1;
+				} catch (NumberFormatException e) {
+					LOGGER.warn("Unexpected range of attribute {} in entry {}: {}", name, sr.getNameInNamespace(), range);
+					break;
+				}
+				Attribute part = readRange(ctx, sr.getNameInNamespace(), name, next);
+				if (part == null) {
+					break;
+				}
+				addValues(complete, part);
+				range = getRange(part.getID());
+			}
+			LOGGER.debug("Read {} values of attribute {} in entry {} by ranges", complete.size(), name, sr.getNameInNamespace());
+			attributes.put(complete);
+		}
+		return sr;
+	}
+
+	private Attribute readRange(final LdapContext ctx, final String dn, final String name, final int first)
+			throws NamingException {
+		SearchControls sc = new SearchControls();
+		sc.setSearchScope(SearchControls.OBJECT_SCOPE);
+		sc.setReturningAttributes(new String[] { name + RANGE_OPTION + first + "-*" });
+
+		NamingEnumeration<SearchResult> namingEnumeration = ctx.search(rewriteBase(dn), DEFAULT_FILTER, sc);
+		try {
+			if (namingEnumeration.hasMore()) {
+				String prefix = name.toLowerCase() + RANGE_OPTION;
+				for (NamingEnumeration<? extends Attribute> ne = namingEnumeration.next().getAttributes().getAll(); ne.hasMore();) {
+					Attribute attribute = ne.next();
+					if (attribute.getID().toLowerCase().startsWith(prefix)) {
+						return attribute;
+					}
 				}
-				doDeleteChildrenRecursively(getContext(true), distinguishName);
-				return;
-			} else {
-				throw nex;
 			}
+			return null;
+		} finally {
+			namingEnumeration.close();
+		}
+	}
+
+	private static String getRange(String rangedId) {
+		return rangedId.substring(rangedId.toLowerCase().indexOf(RANGE_OPTION) + RANGE_OPTION.length());
+	}
+
+	private static void addValues(Attribute attribute, Attribute values) throws NamingException {
+		for (NamingEnumeration<?> ne = values.getAll(); ne.hasMore();) {
+			attribute.add(ne.next());
 		}
 	}
 
-	private void doDeleteChildrenRecursively(LdapContext updateCtx, String distinguishName) throws NamingException {
+	/**
+	 * Delete children recursively
+	 * 
+	 * @param ctx             the context to search the children with
+	 * @param updateCtx       the context to delete the entries with
+	 * @param distinguishName the tree head to delete
+	 * @throws NamingException thrown if an error is encountered
+	 */
+	private void deleteChildrenRecursively(LdapContext ctx, LdapContext updateCtx, String distinguishName) throws NamingException {
 		SearchControls sc = new SearchControls();
 		sc.setSearchScope(SearchControls.ONELEVEL_SCOPE);
 		NamingEnumeration<SearchResult> namingEnumeration = ctx.search(distinguishName, DEFAULT_FILTER, sc);
 		while (namingEnumeration.hasMore()) {
 			SearchResult sr = (SearchResult) namingEnumeration.next();
 			String childrenDn = rewriteBase(sr.getName() + "," + distinguishName);
-			deleteChildrenRecursively(updateCtx, childrenDn);
+			deleteChildrenRecursively(ctx, updateCtx, childrenDn);
 		}
 
 		namingEnumeration.close();
@@ -1002,7 +1170,7 @@ public final class JndiServices {
 		Map<String, List<String>> attrsResult = new HashMap<String, List<String>>();
 
 		// connect to directory
-		Hashtable<String, String> props = (Hashtable<String, String>) ctx.getEnvironment();
+		Hashtable<String, String> props = (Hashtable<String, String>) execute(ctx -> ctx.getEnvironment());
 		String baseUrl = (String) props.get(Context.PROVIDER_URL);
 		baseUrl = baseUrl.substring(0, baseUrl.lastIndexOf('/'));
 		props.put(Context.PROVIDER_URL, baseUrl);
@@ -1092,25 +1260,7 @@ public final class JndiServices {
 	 */
 	public Map<String, LscDatasets> getAttrsList(final String base, final String filter, final int scope,
 			final List<String> attrsNames) throws NamingException {
-		try {
-			return doGetAttrsList(base, filter, scope, attrsNames);
-		} catch (NamingException nex) {
-			if (nex instanceof CommunicationException || nex instanceof ServiceUnavailableException) {
-				LOGGER.warn("Communication error, retrying: " + nex.getMessage());
-				LOGGER.debug(nex.getMessage(), nex);
-				try {
-					initConnection();
-				} catch (IOException ioex) {
-					LOGGER.error("I/O error: " + ioex.getMessage());
-					LOGGER.debug(ioex.getMessage(), ioex);
-					// throw the initial communication exception
-					throw nex;
-				}
-				return doGetAttrsList(base, filter, scope, attrsNames);
-			} else {
-				throw nex;
-			}
-		}
+		return execute(ctx -> doGetAttrsList(ctx, base, filter, scope, attrsNames));
 	}
 
 	/**
@@ -1153,16 +1303,53 @@ public final class JndiServices {
 
 	public Map<String, LscDatasets> doGetAttrsList(final String base, final String filter, final int scope,
 			final List<String> attrsNames) throws NamingException {
+		return execute(ctx -> doGetAttrsList(ctx, base, filter, scope, attrsNames), () -> false);
+	}
+
+	private Map<String, LscDatasets> doGetAttrsList(final LdapContext ctx, final String base, final String filter,
+			final int scope, final List<String> attrsNames) throws NamingException {
+		Map<String, LscDatasets> res = new LinkedHashMap<String, LscDatasets>();
+		doSearchAttrs(ctx, base, filter, scope, attrsNames, res::put);
+		return res;
+	}
+
+	/**
+	 * Search for a list of attribute values, handing each entry over as soon as
+	 * it is read.
+	 *
+	 * This is the streaming counterpart of
+	 * {@link #getAttrsList(String, String, int, List)}: entries are not kept in
+	 * memory, so the handler may process the first page while the next one is
+	 * still to be fetched from the directory. The search is only retried on a
+	 * communication error if no entry has been handed over yet.
+	 *
+	 * @param base       the base of the search operation
+	 * @param filter     the filter of the search operation
+	 * @param scope      the scope of the search operation
+	 * @param attrsNames table of attribute names to get
+	 * @param handler    the handler receiving each entry DN and its attributes
+	 * @return the number of entries handed over
+	 * @throws NamingException thrown if something goes wrong
+	 */
+	public long streamAttrsList(final String base, final String filter, final int scope,
+			final List<String> attrsNames, final IStreamingService.PivotHandler handler) throws NamingException {
+		CountingPivotHandler countingHandler = new CountingPivotHandler(handler);
+		return execute(ctx -> doSearchAttrs(ctx, base, filter, scope, attrsNames, countingHandler),
+				() -> countingHandler.count == 0);
+	}
+
+	private long doSearchAttrs(final LdapContext ctx, final String base, final String filter, final int scope,
+			final List<String> attrsNames, final IStreamingService.PivotHandler handler) throws NamingException {
 
 		// sanity checks
 		String searchBase = base == null ? "" : rewriteBase(base);
 		String searchFilter = filter == null ? DEFAULT_FILTER : filter;
 
-		Map<String, LscDatasets> res = new LinkedHashMap<String, LscDatasets>();
+		long count = 0;
 
 		if (attrsNames == null || attrsNames.size() == 0) {
 			LOGGER.error("No attribute names to read! Check configuration.");
-			return res;
+			return count;
 		}
 
 		String[] attributes = new String[attrsNames.size()];
@@ -1220,7 +1407,8 @@ public final class JndiServices {
 								}
 							}
 
-							res.put(ldapResult.getNameInNamespace(), new LscDatasets(attrsValues));
+							handler.handlePivot(ldapResult.getNameInNamespace(), new LscDatasets(attrsValues));
+							count++;
 						}
 					}
 
@@ -1229,7 +1417,7 @@ public final class JndiServices {
 					pagedResultsResponse = pagination(searchContext);
 				} while (pagedResultsResponse != null);
 
-				return res;
+				return count;
 			} catch (IOException ioe) {
 				LOGGER.error("Error while encoding the Paged control, {}", ioe.getMessage());
 
@@ -1256,7 +1444,108 @@ public final class JndiServices {
 		} finally {
 			ctx.setRequestControls(defaultRequestControls);
 		}
-		return res;
+		return count;
+	}
+
+	/**
+	 * Open a search read page by page, in the order requested by the sortedBy
+	 * connection setting.
+	 *
+	 * Unlike {@link #streamAttrsList(String, String, int, List, IStreamingService.PivotHandler)},
+	 * the caller pulls the entries one by one, so that several searches can be
+	 * read side by side. The scanner must be closed after use.
+	 *
+	 * @param base   the base of the search operation
+	 * @param filter the filter of the search operation
+	 * @param sc     the search controls, including the scope and the attributes to return
+	 * @return the opened scanner
+	 * @throws NamingException thrown if something goes wrong
+	 */
+	public PagedSearchScanner scanEntries(final String base, final String filter, final SearchControls sc)
+			throws NamingException {
+		String searchBase = base == null ? "" : rewriteBase(base);
+		String searchFilter = filter == null ? DEFAULT_FILTER : filter;
+		LdapConnectionPool.Connection connection = borrowConnection();
+		try {
+			return new PagedSearchScanner(this, connection, searchBase, searchFilter, sc);
+		} catch (NamingException | RuntimeException e) {
+			pool.release(connection);
+			throw e;
+		}
+	}
+
+	/**
+	 * Give back a connection held by a scanner
+	 *
+	 * @param connection the connection borrowed by {@link #scanEntries(String, String, SearchControls)}
+	 */
+	void releaseConnection(LdapConnectionPool.Connection connection) {
+		pool.release(connection);
+	}
+
+	/**
+	 * Run an operation on a pooled connection, retrying once on another
+	 * connection if the directory could not be reached.
+	 *
+	 * @param operation the operation
+	 * @return the operation result
+	 * @throws NamingException thrown if something goes wrong
+	 */
+	private <T> T execute(Operation<T> operation) throws NamingException {
+		return execute(operation, () -> true);
+	}
+
+	/**
+	 * Run an operation on a pooled connection. On a communication error, the
+	 * connection is dropped from the pool and the operation is run again on
+	 * another connection if it can be replayed.
+	 *
+	 * @param operation the operation
+	 * @param replayable tells, once the operation failed, if it can be run again
+	 * @return the operation result
+	 * @throws NamingException thrown if something goes wrong
+	 */
+	private <T> T execute(Operation<T> operation, BooleanSupplier replayable) throws NamingException {
+		LdapConnectionPool.Connection connection = borrowConnection();
+		try {
+			return operation.execute(connection.getContext());
+		} catch (CommunicationException | ServiceUnavailableException nex) {
+			pool.invalidate(connection);
+			connection = null;
+			if (!replayable.getAsBoolean()) {
+				throw nex;
+			}
+			LOGGER.warn("Communication error, retrying: " + nex.getMessage());
+			LOGGER.debug(nex.getMessage(), nex);
+			try {
+				connection = pool.borrow();
+			} catch (IOException ioex) {
+				LOGGER.error("I/O error: " + ioex.getMessage());
+				LOGGER.debug(ioex.getMessage(), ioex);
+				// throw the initial communication exception
+				throw nex;
+			} catch (NamingException cex) {
+				LOGGER.error("Naming error: " + cex.getMessage());
+				LOGGER.debug(cex.getMessage(), cex);
+				// throw the initial communication exception
+				throw nex;
+			}
+			return operation.execute(connection.getContext());
+		} finally {
+			if (connection != null) {
+				pool.release(connection);
+			}
+		}
+	}
+
+	private LdapConnectionPool.Connection borrowConnection() throws NamingException {
+		try {
+			return pool.borrow();
+		} catch (IOException e) {
+			CommunicationException ce = new CommunicationException(e.getMessage());
+			ce.setRootCause(e);
+			throw ce;
+		}
 	}
 
 	/**
@@ -1276,8 +1565,16 @@ public final class JndiServices {
 			}
 		}
 		if (pagedResultsResponse != null) {
-			ldapContext.setRequestControls(new Control[]{
-					new PagedResultsControl(pageSize, pagedResultsResponse, Control.CRITICAL)});
+			// The sort control must be sent again with each page
+			String sortedBy = (String) ldapContext.getEnvironment().get("java.naming.ldap.sortedBy");
+			if (sortedBy != null) {
+				ldapContext.setRequestControls(new Control[]{
+						new PagedResultsControl(pageSize, pagedResultsResponse, Control.CRITICAL),
+						new SortControl(sortedBy, Control.CRITICAL)});
+			} else {
+				ldapContext.setRequestControls(new Control[]{
+						new PagedResultsControl(pageSize, pagedResultsResponse, Control.CRITICAL)});
+			}
 		}
 		return pagedResultsResponse;
 	}
@@ -1314,6 +1611,27 @@ public final class JndiServices {
 		}
 	}
 
+	/**
+	 * @return true if entries are deleted with their children
+	 */
+	boolean isRecursiveDelete() {
+		return recursiveDelete;
+	}
+
+	/**
+	 * @return true if the relax rules control is sent with modifications
+	 */
+	boolean isRelaxRules() {
+		return relaxRules;
+	}
+
+	/**
+	 * @return the maximum number of values added or removed by a single request, 0 for no limit
+	 */
+	int getMaxValuesPerModification() {
+		return maxValuesPerModification;
+	}
+
 	/**
 	 * @return the contextDn
 	 */
@@ -1329,27 +1647,27 @@ public final class JndiServices {
      * {@link #initConnection()}.</p>
 	 */
 	protected void close() throws IOException {
-		// Close the TLS connection (revert back to the underlying LDAP association)
-		if (tlsResponse != null) {
-			tlsResponse.close();
-	        tlsResponse = null;
+		if (!pool.isClosed()) {
+			LOGGER.debug("LDAP connection pool statistics: {}", pool.getStatistics());
+			pool.close();
 		}
+	}
 
-	    if (ctx != null) {
-            try {
-                ctx.close();
-            } catch (NamingException e) {
-                throw new IOException(e);
-            }
-        
-            ctx = null;
-	    }
+	/**
+	 * Get the statistics of the connection pool: its size, the number of
+	 * connections in use, how often a connection had to be shared between
+	 * threads and the time spent getting connections.
+	 *
+	 * @return the statistics, as a human readable string
+	 */
+	public String getPoolStatistics() {
+		return pool.getStatistics();
 	}
 
 	/**
 	 * Get the JNDI context.
 	 * 
-	 * @return The LDAP context object in use by this class.
+	 * @return The LDAP context object of a pooled connection, or null once closed
 	 * @throws NamingException
 	 */
 	public LdapContext getContext() throws NamingException {
@@ -1362,10 +1680,22 @@ public final class JndiServices {
 	 * context
 	 * 
 	 * @param forUpdates if this derived context is for updates
-	 * @return {@link LdapContext} object for LDAPv3 connection
+	 * @return {@link LdapContext} object for LDAPv3 connection, or null once closed
 	 * @throws NamingException
 	 */
 	public LdapContext getContext(boolean forUpdates) throws NamingException {
+		if (pool.isClosed()) {
+			return null;
+		}
+		LdapConnectionPool.Connection connection = borrowConnection();
+		try {
+			return getContext(connection.getContext(), forUpdates);
+		} finally {
+			pool.release(connection);
+		}
+	}
+
+	private LdapContext getContext(LdapContext ctx, boolean forUpdates) throws NamingException {
 		if (forUpdates && relaxRules) {
 			LOGGER.debug("Using relax rules control to apply modifications");
 			LdapContext newCtx = ctx.newInstance(null);
@@ -1399,6 +1729,26 @@ public final class JndiServices {
 	}
 }
 
+/**
+ * Keep track of the number of entries handed over, to know whether a search can
+ * safely be replayed
+ */
+class CountingPivotHandler implements IStreamingService.PivotHandler {
+
+	private final IStreamingService.PivotHandler handler;
+
+	long count;
+
+	CountingPivotHandler(IStreamingService.PivotHandler handler) {
+		this.handler = handler;
+	}
+
+	public void handlePivot(String pivotName, LscDatasets pivotAttributes) {
+		handler.handlePivot(pivotName, pivotAttributes);
+		count++;
+	}
+}
+
 class KerberosCallbackHandler implements CallbackHandler {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(KerberosCallbackHandler.class);
@@ -0,0 +1,465 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ * Copyright (c) 2008 - 2011 LSC Project
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.jndi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.naming.CommunicationException;
+import javax.naming.InterruptedNamingException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.StartTlsResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of connections to the same directory.
+ * <p>
+ * A thread gets back the connection it used last if it is free, then any free
+ * connection, and a new connection is opened as long as the maximum size is not
+ * reached. Once it is, the least busy connection is shared between several
+ * threads, as JNDI contexts allow it, instead of making the thread wait: a
+ * thread reading a long paged search may hold a connection while the entries
+ * are synchronized by other threads.
+ * </p>
+ * <p>
+ * Connections left unused for longer than the idle timeout are closed, down to
+ * the minimum size. A connection that failed with a communication error is
+ * dropped from the pool by the caller and a new one is opened on the next
+ * borrow. A connection dropped from the pool while other threads still use it
+ * is only closed once the last of them gives it back.
+ * </p>
+ */
+class LdapConnectionPool {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LdapConnectionPool.class);
+
+	/** Default minimum number of opened connections */
+	static final int DEFAULT_MIN_SIZE = 1;
+
+	/** Default maximum number of opened connections */
+	static final int DEFAULT_MAX_SIZE = 1;
+
+	/** Default time after which an unused connection is closed, in seconds */
+	static final int DEFAULT_IDLE_TIMEOUT = 300;
+
+	/**
+	 * Open a new connection
+	 */
+	interface Connector {
+		Connection connect() throws NamingException, IOException;
+	}
+
+	/**
+	 * A connection of the pool, possibly borrowed by several threads at once
+	 */
+	static class Connection {
+
+		private final LdapContext context;
+
+		/** TLSResponse in case we use StartTLS */
+		private final StartTlsResponse tlsResponse;
+
+		/** Number of threads currently using the connection */
+		private int borrowers;
+
+		private long lastUsed;
+
+		/** Out of the pool, closed once the last borrower gives it back */
+		private boolean retired;
+
+		private boolean closed;
+
+		Connection(LdapContext context, StartTlsResponse tlsResponse) {
+			this.context = context;
+			this.tlsResponse = tlsResponse;
+			this.lastUsed = System.currentTimeMillis();
+		}
+
+		LdapContext getContext() {
+			return context;
+		}
+
+		private void close() {
+			closed = true;
+			try {
+				// Close the TLS connection (revert back to the underlying LDAP association)
+				if (tlsResponse != null) {
+					tlsResponse.close();
+				}
+				context.close();
+			} catch (IOException | NamingException e) {
+				LOGGER.debug("Error while closing LDAP connection: " + e.toString(), e);
+			}
+		}
+	}
+
+	private final Connector connector;
+
+	private final int minSize;
+
+	private final int maxSize;
+
+	private final long idleTimeout;
+
+	private final boolean validateOnBorrow;
+
+	private final List<Connection> connections = new ArrayList<Connection>();
+
+	/** The connection last used by each thread */
+	private final ThreadLocal<Connection> affinity = new ThreadLocal<Connection>();
+
+	/** Number of connections being opened */
+	private int opening;
+
+	private boolean closed;
+
+	private long borrowedCount;
+
+	private long sharedCount;
+
+	private long createdCount;
+
+	private long invalidatedCount;
+
+	private long evictedCount;
+
+	private long waitTime;
+
+	/**
+	 * Create a pool, without opening any connection yet
+	 *
+	 * @param connector        the connection factory
+	 * @param minSize          the number of connections kept opened, even if unused
+	 * @param maxSize          the maximum number of opened connections
+	 * @param idleTimeout      the time after which an unused connection is closed, in seconds
+	 * @param validateOnBorrow check that a free connection still works before handing it over
+	 */
+	LdapConnectionPool(Connector connector, int minSize, int maxSize, int idleTimeout, boolean validateOnBorrow) {
+		this.connector = connector;
+		this.maxSize = Math.max(maxSize, 1);
+		this.minSize = Math.min(Math.max(minSize, 0), this.maxSize);
+		this.idleTimeout = idleTimeout * 1000L;
+		this.validateOnBorrow = validateOnBorrow;
+	}
+
+	/**
+	 * Open connections up to the minimum size
+	 *
+	 * @throws NamingException thrown if a directory error is encountered
+	 * @throws IOException     thrown if an error occurs negotiating StartTLS
+	 */
+	void fill() throws NamingException, IOException {
+		while (reserve(minSize)) {
+			release(open());
+		}
+	}
+
+	/**
+	 * Get a connection for the current thread. It must be given back with
+	 * {@link #release(Connection)} or {@link #invalidate(Connection)}.
+	 *
+	 * @return the connection
+	 * @throws NamingException thrown if a directory error is encountered
+	 * @throws IOException     thrown if an error occurs negotiating StartTLS
+	 */
+	Connection borrow() throws NamingException, IOException {
+		long start = System.nanoTime();
+		try {
+			while (true) {
+				Connection connection = select();
+				if (connection == null) {
+					return open();
+				} else if (!validateOnBorrow || connection.borrowers > 1 || isValid(connection)) {
+					return connection;
+				}
+				LOGGER.info("Dropping LDAP connection that failed validation");
+				invalidate(connection);
+			}
+		} finally {
+			synchronized (this) {
+				waitTime += System.nanoTime() - start;
+			}
+		}
+	}
+
+	/**
+	 * Give a connection back to the pool
+	 *
+	 * @param connection the borrowed connection
+	 */
+	synchronized void release(Connection connection) {
+		connection.borrowers--;
+		connection.lastUsed = System.currentTimeMillis();
+		if (connection.retired && connection.borrowers == 0 && !connection.closed) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Drop a connection that failed, so that it is not handed over anymore. It
+	 * is closed once the other threads using it have given it back.
+	 *
+	 * @param connection the borrowed connection
+	 */
+	void invalidate(Connection connection) {
+		synchronized (this) {
+			connection.borrowers--;
+			if (connections.remove(connection)) {
+				connection.retired = true;
+				invalidatedCount++;
+			}
+			if (connection.borrowers > 0 || connection.closed) {
+				return;
+			}
+			connection.closed = true;
+		}
+		connection.close();
+	}
+
+	/**
+	 * Close all the connections, the ones still used once they are given back.
+	 * The pool can not be used anymore.
+	 */
+	void close() {
+		List<Connection> closing = new ArrayList<Connection>();
+		synchronized (this) {
+			closed = true;
+			for (Connection connection : connections) {
+				connection.retired = true;
+				if (connection.borrowers == 0) {
+					connection.closed = true;
+					closing.add(connection);
+				}
+			}
+			connections.clear();
+		}
+		for (Connection connection : closing) {
+			connection.close();
+		}
+	}
+
+	synchronized boolean isClosed() {
+		return closed;
+	}
+
+	synchronized int getSize() {
+		return connections.size();
+	}
+
+	/**
+	 * @return the number of connections currently used by at least one thread
+	 */
+	synchronized int getBusyCount() {
+		int busy = 0;
+		for (Connection connection : connections) {
+			if (connection.borrowers > 0) {
+				busy++;
+			}
+		}
+		return busy;
+	}
+
+	synchronized long getBorrowedCount() {
+		return borrowedCount;
+	}
+
+	/**
+	 * @return the number of times a connection was shared because the pool was full
+	 */
+	synchronized long getSharedCount() {
+		return sharedCount;
+	}
+
+	synchronized long getCreatedCount() {
+		return createdCount;
+	}
+
+	/**
+	 * @return the total time spent getting connections, including opening and
+	 *         validating them, in milliseconds
+	 */
+	synchronized long getWaitTime() {
+		return waitTime / 1000000;
+	}
+
+	synchronized String getStatistics() {
+		return String.format("size=%d/%d, busy=%d, borrowed=%d, shared=%d, created=%d, invalidated=%d, evicted=%d, waitTime=%dms",
+				connections.size(), maxSize, getBusyCount(), borrowedCount, sharedCount, createdCount,
+				invalidatedCount, evictedCount, getWaitTime());
+	}
+
+	/**
+	 * Pick a connection for the current thread
+	 *
+	 * @return the borrowed connection, or null if a new one has to be opened
+	 * @throws NamingException if the pool is closed or the thread interrupted
+	 */
+	private synchronized Connection select() throws NamingException {
+		while (true) {
+			if (closed) {
+				throw new ServiceUnavailableException("The LDAP connection pool is closed");
+			}
+			evictIdle();
+
+			Connection selected = affinity.get();
+			if (selected == null || selected.retired || selected.borrowers > 0) {
+				selected = null;
+				for (Connection connection : connections) {
+					if (selected == null || connection.borrowers < selected.borrowers) {
+						selected = connection;
+					}
+				}
+				if (selected == null || selected.borrowers > 0) {
+					if (reserve(maxSize)) {
+						return null;
+					} else if (selected == null) {
+						// All the connections are being opened by other threads
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new InterruptedNamingException(e.toString());
+						}
+						continue;
+					}
+					sharedCount++;
+				}
+			}
+			selected.borrowers++;
+			borrowedCount++;
+			affinity.set(selected);
+			return selected;
+		}
+	}
+
+	/**
+	 * Book the opening of a new connection if the pool is below a size
+	 *
+	 * @param size the size limit
+	 * @return true if a connection has to be opened
+	 */
+	private synchronized boolean reserve(int size) {
+		if (closed || connections.size() + opening >= size) {
+			return false;
+		}
+		opening++;
+		return true;
+	}
+
+	/**
+	 * Open a connection booked by {@link #reserve(int)} and borrow it
+	 */
+	private Connection open() throws NamingException, IOException {
+		Connection connection;
+		try {
+			connection = connector.connect();
+		} finally {
+			synchronized (this) {
+				opening--;
+				notifyAll();
+			}
+		}
+		synchronized (this) {
+			connection.borrowers = 1;
+			if (closed) {
+				connection.retired = true;
+			} else {
+				connections.add(connection);
+			}
+			createdCount++;
+			borrowedCount++;
+			affinity.set(connection);
+		}
+		LOGGER.debug("Opened LDAP connection, pool size is now {}", getSize());
+		return connection;
+	}
+
+	/**
+	 * Close the connections unused for too long, down to the minimum size
+	 */
+	private void evictIdle() {
+		long limit = System.currentTimeMillis() - idleTimeout;
+		Iterator<Connection> iterator = connections.iterator();
+		while (iterator.hasNext() && connections.size() > minSize) {
+			Connection connection = iterator.next();
+			if (connection.borrowers == 0 && connection.lastUsed < limit) {
+				iterator.remove();
+				evictedCount++;
+				connection.retired = true;
+				connection.close();
+			}
+		}
+	}
+
+	/**
+	 * Check that a connection still answers, with a base search on the naming context
+	 */
+	private boolean isValid(Connection connection) {
+		SearchControls sc = new SearchControls();
+		sc.setSearchScope(SearchControls.OBJECT_SCOPE);
+		sc.setReturningAttributes(new String[] { "1.1" });
+		try {
+			NamingEnumeration<SearchResult> results = connection.getContext().search("", "(objectClass=*)", sc);
+			results.close();
+			return true;
+		} catch (CommunicationException | ServiceUnavailableException e) {
+			LOGGER.debug(e.toString(), e);
+			return false;
+		} catch (NamingException e) {
+			// The connection works, even if the naming context can not be read
+			return true;
+		}
+	}
+}
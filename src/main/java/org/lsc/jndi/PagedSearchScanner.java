@@ -0,0 +1,142 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ * Copyright (c) 2008 - 2011 LSC Project
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.jndi;
+
+import java.io.IOException;
+
+import javax.naming.CannotProceedException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.LdapContext;
+
+/**
+ * A search read page by page, the entries being pulled one at a time by the
+ * caller.
+ *
+ * @see JndiServices#scanEntries(String, String, SearchControls)
+ */
+public class PagedSearchScanner {
+
+	private final JndiServices jndiServices;
+
+	/** The pooled connection held until the scanner is closed */
+	private final LdapConnectionPool.Connection connection;
+
+	private final LdapContext searchContext;
+
+	private final String base;
+
+	private final String filter;
+
+	private final SearchControls sc;
+
+	/** The results of the current page, null when the search is over */
+	private NamingEnumeration<SearchResult> results;
+
+	PagedSearchScanner(JndiServices jndiServices, LdapConnectionPool.Connection connection, String base,
+			String filter, SearchControls sc) throws NamingException {
+		this.jndiServices = jndiServices;
+		this.connection = connection;
+		this.searchContext = (LdapContext) connection.getContext().lookup("");
+		this.base = base;
+		this.filter = filter;
+		this.sc = sc;
+		try {
+			jndiServices.setRequestControls(searchContext);
+			results = searchContext.search(base, filter, sc);
+		} catch (NamingException e) {
+			searchContext.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Read the next entry, fetching the next page if needed
+	 *
+	 * @return the next entry, or null at the end of the search
+	 * @throws NamingException thrown if something goes wrong
+	 */
+	public SearchResult next() throws NamingException {
+		while (results != null) {
+			if (results.hasMore()) {
+				return jndiServices.readRanges(connection.getContext(), results.next());
+			}
+			results.close();
+			results = null;
+			try {
+				if (jndiServices.pagination(searchContext) != null) {
+					results = searchContext.search(base, filter, sc);
+				}
+			} catch (IOException ioe) {
+				// There was an error encoding the Paged Search control, get out
+				throw new CannotProceedException(ioe.getMessage());
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Release the search, even if all the entries have not been read
+	 *
+	 * @throws NamingException thrown if something goes wrong
+	 */
+	public void close() throws NamingException {
+		try {
+			if (results != null) {
+				results.close();
+				results = null;
+			}
+		} finally {
+			try {
+				searchContext.close();
+			} finally {
+				jndiServices.releaseConnection(connection);
+			}
+		}
+	}
+}
@@ -0,0 +1,617 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ * Copyright (c) 2008 - 2011 LSC Project
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.jndi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.ModificationItem;
+
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.DefaultAttribute;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.ModificationOperation;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.AddRequest;
+import org.apache.directory.api.ldap.model.message.AddRequestImpl;
+import org.apache.directory.api.ldap.model.message.DeleteRequest;
+import org.apache.directory.api.ldap.model.message.DeleteRequestImpl;
+import org.apache.directory.api.ldap.model.message.ModifyDnRequest;
+import org.apache.directory.api.ldap.model.message.ModifyDnRequestImpl;
+import org.apache.directory.api.ldap.model.message.ModifyRequest;
+import org.apache.directory.api.ldap.model.message.ModifyRequestImpl;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.ldap.client.api.LdapAsyncConnection;
+import org.apache.directory.ldap.client.api.LdapConnectionConfig;
+import org.lsc.configuration.LdapConnectionType;
+import org.lsc.exception.LscServiceException;
+import org.lsc.service.IPipelinedWritableService.ApplyCallback;
+import org.lsc.service.SyncReplSourceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Send directory modifications through an asynchronous connection, keeping up
+ * to a given number of them waiting for their response.
+ * <p>
+ * The responses are read in the order the modifications were sent by a
+ * dedicated thread, which hands the outcome over to the callback executor, if
+ * any, so that a slow callback does not delay the reading of the next
+ * responses. A modification on an entry which still has a modification
+ * pending waits for its response before being sent, so that the modifications
+ * of a same entry are applied in order.
+ * A modification adding or removing more values than the maxValuesPerModification
+ * setting of the connection is split in several requests, each one sent once
+ * the previous one succeeded.
+ * </p>
+ * <p>
+ * When no response is received within the timeout while flushing, the
+ * modifications still waiting are reported as failed and the connection is
+ * closed, to be opened again by the next modification.
+ * </p>
+ */
+class PipelinedLdapWriter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PipelinedLdapWriter.class);
+
+	/**
+	 * Open a new asynchronous connection
+	 */
+	interface Connector {
+		LdapAsyncConnection connect() throws LscServiceException;
+	}
+
+	/**
+	 * A modification waiting for its response
+	 */
+	private static class PendingWrite {
+
+		private final JndiModifications jm;
+
+		private final ApplyCallback callback;
+
+		/** The normalized names of the entries changed by the modification */
+		private final List<String> names;
+
+		/** The modifications of each request of an entry modification, in order */
+		private final List<ModificationItem[]> requests;
+
+		/** The index of the request sent */
+		private int request;
+
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		/** Set once the outcome is known, either from the response or because the wait was aborted */
+		private final AtomicBoolean handled = new AtomicBoolean();
+
+		private volatile Future<? extends ResultResponse> future;
+
+		PendingWrite(JndiModifications jm, ApplyCallback callback, List<String> names, List<ModificationItem[]> requests) {
+			this.jm = jm;
+			this.callback = callback;
+			this.names = names;
+			this.requests = requests;
+		}
+	}
+
+	private final Connector connector;
+
+	/** The destination URL, for the logs */
+	private final String url;
+
+	private final JndiServices jndiServices;
+
+	/** The time to wait for a response, in milliseconds */
+	private final long timeout;
+
+	private LdapAsyncConnection connection;
+
+	/** Permits for the modifications that can be waiting for their response */
+	private final Semaphore outstanding;
+
+	/** The modifications sent, in order */
+	private final BlockingQueue<PendingWrite> pending = new LinkedBlockingQueue<PendingWrite>();
+
+	/** The last modification sent for each entry name, until it is acknowledged */
+	private final Map<String, PendingWrite> pendingByName = new HashMap<String, PendingWrite>();
+
+	/** The modifications sent and not acknowledged yet */
+	private final Set<PendingWrite> unanswered = new LinkedHashSet<PendingWrite>();
+
+	/** Number of modifications submitted and whose outcome has not been handled yet */
+	private int inFlight;
+
+	/** The executor running the callbacks, null to run them on the response reader thread */
+	private volatile Executor callbackExecutor;
+
+	private final Thread responseReader;
+
+	/**
+	 * Open the asynchronous connection and start reading the responses
+	 *
+	 * @param connectionType  the destination connection
+	 * @param jndiServices    the services used to complete the entry names
+	 * @param maxOutstanding  the maximum number of modifications waiting for their response
+	 * @param name            the name of the response reader thread
+	 * @throws LscServiceException if the connection can not be opened
+	 */
+	PipelinedLdapWriter(LdapConnectionType connectionType, JndiServices jndiServices, int maxOutstanding,
+			String name) throws LscServiceException {
+		this(() -> connect(connectionType), connectionType.getUrl(), jndiServices, maxOutstanding,
+				LdapConnectionConfig.DEFAULT_TIMEOUT, name);
+	}
+
+	/**
+	 * Open the asynchronous connection and start reading the responses
+	 *
+	 * @param connector       the connection factory
+	 * @param url             the destination URL, for the logs
+	 * @param jndiServices    the services used to complete the entry names
+	 * @param maxOutstanding  the maximum number of modifications waiting for their response
+	 * @param timeout         the time to wait for a response, in milliseconds
+	 * @param name            the name of the response reader thread
+	 * @throws LscServiceException if the connection can not be opened
+	 */
+	PipelinedLdapWriter(Connector connector, String url, JndiServices jndiServices, int maxOutstanding,
+			long timeout, String name) throws LscServiceException {
+		this.connector = connector;
+		this.url = url;
+		this.jndiServices = jndiServices;
+		this.outstanding = new Semaphore(maxOutstanding);
+		this.timeout = timeout;
+		this.connection = connector.connect();
+		responseReader = new Thread(this::readResponses, name + "-responses");
+		responseReader.setDaemon(true);
+		responseReader.start();
+	}
+
+	private static LdapAsyncConnection connect(LdapConnectionType connectionType) throws LscServiceException {
+		LdapAsyncConnection newConnection = SyncReplSourceService.getConnection(connectionType);
+		if (newConnection == null) {
+			throw new LscServiceException("Unable to connect to " + connectionType.getUrl());
+		}
+		return newConnection;
+	}
+
+	/**
+	 * Set the executor running the callbacks. When it is not set, or when it
+	 * rejects a callback, the callback runs on the response reader thread.
+	 *
+	 * @param callbackExecutor the executor, null to run the callbacks on the response reader thread
+	 */
+	void setCallbackExecutor(Executor callbackExecutor) {
+		this.callbackExecutor = callbackExecutor;
+	}
+
+	/**
+	 * Send a modification, waiting first for the pending ones on the same
+	 * entries and for a free slot.
+	 *
+	 * @param jm       the modification
+	 * @param callback called with the outcome once the response is received
+	 * @throws LscServiceException if the modification could not be sent
+	 */
+	void write(JndiModifications jm, ApplyCallback callback) throws LscServiceException {
+		List<String> names = new ArrayList<String>();
+		names.add(normalize(jm.getDistinguishName()));
+		if (jm.getNewDistinguishName() != null) {
+			names.add(normalize(jm.getNewDistinguishName()));
+		}
+		List<ModificationItem[]> requests = null;
+		if (jm.getOperation() == JndiModificationType.MODIFY_ENTRY) {
+			try {
+				requests = JndiServices.splitModifications(jm.getModificationItems(), jndiServices.getMaxValuesPerModification());
+			} catch (NamingException e) {
+				throw new LscServiceException("Error while reading modifications of " + jm.getDistinguishName(), e);
+			}
+		}
+		PendingWrite write = new PendingWrite(jm, callback, names, requests);
+
+		try {
+			register(write);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LscServiceException(e);
+		}
+
+		try {
+			outstanding.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			unregister(write);
+			completed();
+			throw new LscServiceException(e);
+		}
+
+		try {
+			write.future = send(write);
+		} catch (LdapException | NamingException | RuntimeException e) {
+			outstanding.release();
+			unregister(write);
+			completed();
+			throw new LscServiceException("Error while sending modifications of " + jm.getDistinguishName(), e);
+		}
+		synchronized (this) {
+			unanswered.add(write);
+		}
+		pending.add(write);
+	}
+
+	/**
+	 * Wait until all the modifications sent have been acknowledged. If no
+	 * response is received within the timeout, the modifications still
+	 * waiting are reported as failed.
+	 *
+	 * @throws LscServiceException if the wait is interrupted, or if the
+	 *             callbacks of the failed modifications do not complete either
+	 */
+	void flush() throws LscServiceException {
+		try {
+			if (awaitInFlight()) {
+				return;
+			}
+			abort();
+			if (!awaitInFlight()) {
+				throw new LscServiceException("Modifications still pending on " + url + " after " + timeout + " ms");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LscServiceException(e);
+		}
+	}
+
+	/**
+	 * Wait until no modification is in flight, as long as one is handled
+	 * within each timeout
+	 *
+	 * @return <code>false</code> if no modification was handled within the timeout
+	 */
+	private synchronized boolean awaitInFlight() throws InterruptedException {
+		int last = inFlight;
+		long deadline = System.currentTimeMillis() + timeout;
+		while (inFlight > 0) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				return false;
+			}
+			wait(remaining);
+			if (inFlight != last) {
+				last = inFlight;
+				deadline = System.currentTimeMillis() + timeout;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Report the modifications waiting for their response as failed, and
+	 * close the connection so that the next modification opens a new one
+	 */
+	private void abort() {
+		List<PendingWrite> writes;
+		synchronized (this) {
+			writes = new ArrayList<PendingWrite>(unanswered);
+		}
+		LOGGER.error("No response from {} within {} ms, failing the {} pending modifications", url, timeout,
+				writes.size());
+		closeConnection();
+		for (PendingWrite write : writes) {
+			pending.remove(write);
+			handle(write, false);
+		}
+	}
+
+	/**
+	 * Wait for the pending modifications and close the connection
+	 *
+	 * @throws LscServiceException if the wait is interrupted
+	 */
+	void close() throws LscServiceException {
+		try {
+			flush();
+		} finally {
+			responseReader.interrupt();
+			closeConnection();
+		}
+	}
+
+	private void closeConnection() {
+		LdapAsyncConnection current;
+		synchronized (this) {
+			current = connection;
+		}
+		try {
+			current.close();
+		} catch (IOException e) {
+			LOGGER.debug(e.toString(), e);
+		}
+	}
+
+	/**
+	 * Record a modification as the last one of its entries, once the pending
+	 * modifications on these entries have been acknowledged
+	 */
+	private void register(PendingWrite write) throws InterruptedException {
+		while (true) {
+			PendingWrite previous = null;
+			synchronized (this) {
+				for (String name : write.names) {
+					previous = pendingByName.get(name);
+					if (previous != null) {
+						break;
+					}
+				}
+				if (previous == null) {
+					for (String name : write.names) {
+						pendingByName.put(name, write);
+					}
+					inFlight++;
+					return;
+				}
+			}
+			previous.done.await();
+		}
+	}
+
+	private void unregister(PendingWrite write) {
+		synchronized (this) {
+			for (String name : write.names) {
+				if (pendingByName.get(name) == write) {
+					pendingByName.remove(name);
+				}
+			}
+		}
+		write.done.countDown();
+	}
+
+	/**
+	 * Account for a modification whose outcome has been handled
+	 */
+	private synchronized void completed() {
+		inFlight--;
+		notifyAll();
+	}
+
+	/**
+	 * Free the slot and the entries of a modification whose outcome is known,
+	 * then call back its submitter. Nothing is done if the outcome has
+	 * already been handled.
+	 */
+	private void handle(PendingWrite write, boolean success) {
+		if (!write.handled.compareAndSet(false, true)) {
+			return;
+		}
+		synchronized (this) {
+			unanswered.remove(write);
+		}
+		outstanding.release();
+		unregister(write);
+		Runnable callback = () -> {
+			try {
+				write.callback.applied(success);
+			} catch (RuntimeException e) {
+				LOGGER.error("Error while handling the result of {}: {}", write.jm.getDistinguishName(), e.toString());
+				LOGGER.debug(e.toString(), e);
+			} finally {
+				completed();
+			}
+		};
+		Executor executor = callbackExecutor;
+		if (executor != null) {
+			try {
+				executor.execute(callback);
+				return;
+			} catch (RejectedExecutionException e) {
+				// The executor is shutting down: run it here
+			}
+		}
+		callback.run();
+	}
+
+	/**
+	 * Send the next request of a modification split in several requests
+	 *
+	 * @return <code>true</code> if a request was sent, <code>false</code> if the last one was acknowledged
+	 */
+	private boolean sendNext(PendingWrite write) throws LdapException, NamingException {
+		if (write.requests == null || write.request + 1 >= write.requests.size()) {
+			return false;
+		}
+		write.request++;
+		write.future = send(write);
+		pending.add(write);
+		return true;
+	}
+
+	private Future<? extends ResultResponse> send(PendingWrite write) throws LdapException, NamingException {
+		JndiModifications jm = write.jm;
+		LdapAsyncConnection current;
+		synchronized (this) {
+			if (!connection.isConnected()) {
+				LOGGER.warn("Connection lost, reconnecting to {}", url);
+				try {
+					connection = connector.connect();
+				} catch (LscServiceException e) {
+					throw new LdapException(e.getMessage(), e);
+				}
+			}
+			current = connection;
+		}
+
+		Dn dn = new Dn(jndiServices.completeDn(jm.getDistinguishName()));
+		switch (jm.getOperation()) {
+		case ADD_ENTRY:
+			Entry entry = new DefaultEntry(dn);
+			for (ModificationItem mi : jm.getModificationItems()) {
+				if (mi.getAttribute().size() > 0) {
+					entry.add(toAttribute(mi.getAttribute()));
+				}
+			}
+			AddRequest addRequest = new AddRequestImpl();
+			addRequest.setEntry(entry);
+			return current.addAsync(addRequest);
+
+		case MODIFY_ENTRY:
+			ModifyRequest modifyRequest = new ModifyRequestImpl();
+			modifyRequest.setName(dn);
+			for (ModificationItem mi : write.requests.get(write.request)) {
+				modifyRequest.addModification(toAttribute(mi.getAttribute()), toOperation(mi.getModificationOp()));
+			}
+			return current.modifyAsync(modifyRequest);
+
+		case DELETE_ENTRY:
+			DeleteRequest deleteRequest = new DeleteRequestImpl();
+			deleteRequest.setName(dn);
+			return current.deleteAsync(deleteRequest);
+
+		case MODRDN_ENTRY:
+			LOGGER.warn(
+					"WARNING: updating the RDN of the entry will cancel other modifications! Relaunch synchronization to complete update.");
+			Dn newDn = new Dn(jndiServices.completeDn(jm.getNewDistinguishName()));
+			ModifyDnRequest modifyDnRequest = new ModifyDnRequestImpl();
+			modifyDnRequest.setName(dn);
+			modifyDnRequest.setNewRdn(newDn.getRdn());
+			modifyDnRequest.setNewSuperior(newDn.getParent());
+			modifyDnRequest.setDeleteOldRdn(true);
+			return current.modifyDnAsync(modifyDnRequest);
+
+		default:
+			throw new LdapException("Unable to identify the right modification type: " + jm.getOperation());
+		}
+	}
+
+	private static Attribute toAttribute(javax.naming.directory.Attribute attribute) throws LdapException, NamingException {
+		Attribute converted = new DefaultAttribute(attribute.getID());
+		NamingEnumeration<?> values = attribute.getAll();
+		while (values.hasMore()) {
+			Object value = values.next();
+			if (value instanceof byte[]) {
+				converted.add((byte[]) value);
+			} else {
+				converted.add(value.toString());
+			}
+		}
+		return converted;
+	}
+
+	private static ModificationOperation toOperation(int modificationOp) {
+		switch (modificationOp) {
+		case DirContext.ADD_ATTRIBUTE:
+			return ModificationOperation.ADD_ATTRIBUTE;
+		case DirContext.REMOVE_ATTRIBUTE:
+			return ModificationOperation.REMOVE_ATTRIBUTE;
+		default:
+			return ModificationOperation.REPLACE_ATTRIBUTE;
+		}
+	}
+
+	private static String normalize(String name) {
+		return name.replaceAll("\\s*([,=+])\\s*", "$1").toLowerCase();
+	}
+
+	/**
+	 * Read the responses in the order the modifications were sent, and hand
+	 * their outcome over
+	 */
+	private void readResponses() {
+		while (true) {
+			PendingWrite write;
+			try {
+				write = pending.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (write.handled.get()) {
+				// Already reported as failed while flushing
+				continue;
+			}
+			boolean success = false;
+			try {
+				ResultResponse response = write.future.get(timeout, TimeUnit.MILLISECONDS);
+				if (response == null) {
+					LOGGER.error("No response while applying modifications of {}", write.jm.getDistinguishName());
+				} else if (response.getLdapResult().getResultCode() != ResultCodeEnum.SUCCESS) {
+					LOGGER.error("Error while applying {} on entry {} in directory: {} {}", write.jm.getOperation(),
+							write.jm.getDistinguishName(), response.getLdapResult().getResultCode(),
+							response.getLdapResult().getDiagnosticMessage());
+				} else if (sendNext(write)) {
+					// The entry keeps its slot until its last request is acknowledged
+					continue;
+				} else {
+					success = true;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException | TimeoutException | LdapException | NamingException | RuntimeException e) {
+				LOGGER.error("Error while applying modifications of {}: {}", write.jm.getDistinguishName(), e.toString());
+				LOGGER.debug(e.toString(), e);
+			}
+			handle(write, success);
+		}
+	}
+}
@@ -45,10 +45,21 @@
  */
 package org.lsc.jndi;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.naming.CommunicationException;
 import javax.naming.NamingException;
@@ -59,13 +70,17 @@ import org.lsc.LscDatasets;
 import org.lsc.LscModifications;
 import org.lsc.Task;
 import org.lsc.beans.IBean;
+import org.lsc.configuration.LdapAuthenticationType;
+import org.lsc.configuration.LdapConnectionType;
+import org.lsc.configuration.LdapDestinationServiceType;
 import org.lsc.configuration.LdapServiceType;
 import org.lsc.configuration.TaskType;
 import org.lsc.exception.LscServiceCommunicationException;
 import org.lsc.exception.LscServiceConfigurationException;
 import org.lsc.exception.LscServiceException;
-import org.lsc.service.IWritableService;
-import org.lsc.utils.ScriptingEvaluator;
+import org.lsc.service.IBatchService;
+import org.lsc.service.IScanService;
+import org.lsc.service.IPipelinedWritableService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -77,7 +92,10 @@ import org.slf4j.LoggerFactory;
  * 
  * @author Sebastien Bahloul &lt;seb@lsc-project.org&gt;
  */
-public class SimpleJndiDstService extends AbstractSimpleJndiService implements IWritableService {
+public class SimpleJndiDstService extends AbstractSimpleJndiService implements IPipelinedWritableService, IBatchService, IScanService {
+
+	/** Default maximum length of the filter used to read a batch of entries */
+	public static final int DEFAULT_MAX_FILTER_LENGTH = 4096;
 
 	/**
 	 * Preceding the object feeding, it will be instantiated from this class.
@@ -88,6 +106,24 @@ public class SimpleJndiDstService extends AbstractSimpleJndiService implements I
 
 	private List<String> writableDatasetIds;
 
+	/** The number of entries read with a single search */
+	private int batchSize = 1;
+
+	/** The maximum length of the filter used to read a batch of entries */
+	private int maxFilterLength = DEFAULT_MAX_FILTER_LENGTH;
+
+	/**
+	 * The attributes tested for equality with their own pivot value by the
+	 * filter of one entry, or null if this filter can not be used by batches
+	 */
+	private Set<String> filterIdSyncAttributes;
+
+	/** An equality assertion between an attribute and a placeholder, such as cn={cn} */
+	private static final Pattern EQUALITY_ASSERTION = Pattern.compile("\\s*([\\w;.-]+)\\s*=\\s*\\{([\\w;.-]+)\\}\\s*");
+
+	/** The writer sending modifications without waiting for the responses, if enabled */
+	private PipelinedLdapWriter pipelinedWriter;
+
 	/**
 	 * Constructor adapted to the context properties and the bean class name to
 	 * instantiate.
@@ -100,6 +136,9 @@ public class SimpleJndiDstService extends AbstractSimpleJndiService implements I
 	public SimpleJndiDstService(final TaskType task) throws LscServiceConfigurationException {
 		super(task.getLdapDestinationService());
 		writableDatasetIds = task.getLdapDestinationService().getFetchedAttributes().getString();
+		filterIdSyncAttributes = getEqualityAttributes(filterIdSync);
+		setBatchSettings(task.getLdapDestinationService());
+		setPipelineSettings(task.getLdapDestinationService());
 		try {
 			this.beanClass = (Class<IBean>) Class.forName(task.getBean());
 		} catch (ClassNotFoundException e) {
@@ -121,6 +160,48 @@ public class SimpleJndiDstService extends AbstractSimpleJndiService implements I
 		super(ldapService);
 		this.writableDatasetIds = writableDatasetIds;
 		this.beanClass = beanClass;
+		filterIdSyncAttributes = getEqualityAttributes(filterIdSync);
+		if (ldapService instanceof LdapDestinationServiceType) {
+			setBatchSettings((LdapDestinationServiceType) ldapService);
+			setPipelineSettings((LdapDestinationServiceType) ldapService);
+		}
+	}
+
+	private void setBatchSettings(LdapDestinationServiceType ldapService) {
+		if (ldapService.getBatchSize() != null) {
+			batchSize = ldapService.getBatchSize();
+		}
+		if (ldapService.getMaxFilterLength() != null) {
+			maxFilterLength = ldapService.getMaxFilterLength();
+		}
+		if (batchSize > 1 && (oneEntryFilter == null || oneEntryFilter.isEmpty()) && filterIdSyncAttributes == null) {
+			LOGGER.warn("Entries of {} are read one by one: the filter {} is not an equality, or an AND of equalities, on the pivot attributes",
+					ldapService.getName(), filterIdSync);
+		}
+	}
+
+	private void setPipelineSettings(LdapDestinationServiceType ldapService) throws LscServiceConfigurationException {
+		if (ldapService.getMaxOutstandingWrites() == null || ldapService.getMaxOutstandingWrites() <= 0) {
+			return;
+		}
+		if (jndiServices.isRelaxRules()) {
+			LOGGER.warn("Modifications of {} are not pipelined, as the relax rules control is requested", ldapService.getName());
+			return;
+		}
+		LdapConnectionType connection = (LdapConnectionType) ldapService.getConnection().getReference();
+		// The pipelined connection only binds with the user name and password
+		if (connection.getUsername() != null && connection.getAuthentication() != null
+				&& connection.getAuthentication() != LdapAuthenticationType.SIMPLE) {
+			LOGGER.warn("Modifications of {} are not pipelined, as the {} authentication is requested",
+					ldapService.getName(), connection.getAuthentication().value());
+			return;
+		}
+		try {
+			pipelinedWriter = new PipelinedLdapWriter(connection,
+					jndiServices, ldapService.getMaxOutstandingWrites(), ldapService.getName());
+		} catch (LscServiceException e) {
+			throw new LscServiceConfigurationException(e);
+		}
 	}
 
 	/**
@@ -182,6 +263,249 @@ public class SimpleJndiDstService extends AbstractSimpleJndiService implements I
 		return null;
 	}
 
+	/**
+	 * Get the number of entries read with a single search.
+	 * Scripted filters (oneEntryFilter) can not be grouped, nor the filters
+	 * that can not be matched back to the pivots, so batches are disabled in
+	 * these cases.
+	 * 
+	 * @return the batch size
+	 */
+	public int getBatchSize() {
+		if ((oneEntryFilter != null && !oneEntryFilter.isEmpty()) || filterIdSyncAttributes == null) {
+			return 1;
+		}
+		return batchSize;
+	}
+
+	/**
+	 * The objects getter according to their identifiers.
+	 * 
+	 * The filters of the pivots are grouped in OR filters no longer than
+	 * maxFilterLength, each one being a single search. Each entry returned is
+	 * then matched back to its pivot through the pivot attributes values, so
+	 * the filter must be an equality, or an AND of equalities, between each
+	 * pivot attribute and its value, and these attributes must be fetched from
+	 * the destination: other pivots are left to
+	 * {@link #getBean(Task, String, LscDatasets, boolean)}, as are pivots
+	 * matching more than one entry. A pivot is only reported as not found when
+	 * every entry returned by its search was matched back to a pivot.
+	 * 
+	 * @param pivots Map of pivot names and attributes
+	 * @param fromSameService are the pivot attributes provided by the same service
+	 * @return Map of pivot names and beans, null if not found
+	 * @throws LscServiceException May throw a {@link NamingException} if an
+	 *             error occurs while searching the directory.
+	 */
+	public Map<String, IBean> getBeans(Task task, Map<String, LscDatasets> pivots, boolean fromSameService) throws LscServiceException {
+		Map<String, IBean> beans = new HashMap<String, IBean>();
+		Map<String, LscDatasets> batch = new LinkedHashMap<String, LscDatasets>();
+		StringBuilder filter = new StringBuilder("(|");
+		try {
+			for (Entry<String, LscDatasets> pivot : pivots.entrySet()) {
+				if (!isBatchable(pivot.getValue())) {
+					continue;
+				}
+				String pivotFilter = replacePlaceholdersInFilter(filterIdSync, pivot.getValue(), pivot.getKey());
+				if (!pivotFilter.startsWith("(")) {
+					pivotFilter = "(" + pivotFilter + ")";
+				}
+				if (!batch.isEmpty() && filter.length() + pivotFilter.length() + 1 > maxFilterLength) {
+					getBeans(filter.append(')').toString(), batch, beans);
+					batch.clear();
+					filter.setLength(2);
+				}
+				filter.append(pivotFilter);
+				batch.put(pivot.getKey(), pivot.getValue());
+			}
+			if (!batch.isEmpty()) {
+				getBeans(filter.append(')').toString(), batch, beans);
+			}
+		} catch (NamingException e) {
+			throw new LscServiceException(e);
+		}
+		return beans;
+	}
+
+	/**
+	 * Search the entries matching the filter and match them back to the pivots.
+	 */
+	private void getBeans(String filter, Map<String, LscDatasets> batch, Map<String, IBean> beans) throws NamingException, LscServiceException {
+		List<SearchResult> entries = jndiServices.getEntries(getBaseDn(), filter, _filteredSc, SearchControls.SUBTREE_SCOPE);
+		String baseDn = jndiServices.completeDn(getBaseDn());
+		IBean[] entryBeans = new IBean[entries.size()];
+		for (int i = 0; i < entryBeans.length; i++) {
+			entryBeans[i] = newBean(entries.get(i), baseDn);
+		}
+		boolean[] matched = new boolean[entryBeans.length];
+		List<String> notFound = new ArrayList<String>();
+		for (Entry<String, LscDatasets> pivot : batch.entrySet()) {
+			int match = -1;
+			boolean ambiguous = false;
+			for (int i = 0; i < entryBeans.length; i++) {
+				if (matches(entryBeans[i], pivot.getValue())) {
+					matched[i] = true;
+					ambiguous |= (match >= 0);
+					match = i;
+				}
+			}
+			// Ambiguous pivots are read again alone to report the error as usual
+			if (match < 0) {
+				notFound.add(pivot.getKey());
+			} else if (!ambiguous) {
+				beans.put(pivot.getKey(), entryBeans[match]);
+			}
+		}
+		// An entry matching none of the pivots shows that the directory compares
+		// the values differently: the pivots without entry are then read alone
+		for (int i = 0; i < matched.length; i++) {
+			if (!matched[i]) {
+				LOGGER.debug("Entry {} does not match any pivot of its batch, reading {} pivots one by one",
+						entryBeans[i].getMainIdentifier(), notFound.size());
+				return;
+			}
+		}
+		for (String pivotName : notFound) {
+			beans.put(pivotName, null);
+		}
+	}
+
+	/**
+	 * Tell if a pivot can be matched back to the entry returned by a batch search:
+	 * the filter must test the equality of each of its attributes and no other
+	 * pivot value, and all its values must be strings and be fetched from the
+	 * destination.
+	 */
+	private boolean isBatchable(LscDatasets pivotAttributes) {
+		if (filterIdSyncAttributes == null || pivotAttributes == null || pivotAttributes.getDatasets().isEmpty()
+				|| pivotAttributes.getAttributesNames().size() != filterIdSyncAttributes.size()) {
+			return false;
+		}
+		for (String attributeName : pivotAttributes.getAttributesNames()) {
+			if (!filterIdSyncAttributes.contains(attributeName.toLowerCase())
+					|| pivotAttributes.getDatasets().get(attributeName) instanceof byte[]
+					|| pivotAttributes.getStringValueAttribute(attributeName) == null
+					|| !isFetched(attributeName)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the attributes tested by a filter of one entry such as (uid={uid}) or
+	 * (&amp;(objectClass=person)(uid={uid})(ou={ou})): an equality between an
+	 * attribute and its own placeholder, or an AND of such equalities and of
+	 * assertions without placeholder.
+	 * 
+	 * @param filter the filter of one entry
+	 * @return the lower cased attribute names, or null if the filter has another form
+	 */
+	static Set<String> getEqualityAttributes(String filter) {
+		if (filter == null) {
+			return null;
+		}
+		String trimmedFilter = filter.trim();
+		if (!trimmedFilter.startsWith("(")) {
+			trimmedFilter = "(" + trimmedFilter + ")";
+		}
+		List<String> components = splitFilter(trimmedFilter);
+		if (components == null || components.size() != 1) {
+			return null;
+		}
+		String component = components.get(0).trim();
+		if (component.startsWith("&")) {
+			components = splitFilter(component.substring(1));
+			if (components == null || components.isEmpty()) {
+				return null;
+			}
+		}
+		Set<String> attributes = new HashSet<String>();
+		for (String assertion : components) {
+			if (assertion.indexOf('{') < 0) {
+				// The same for all the pivots
+				continue;
+			}
+			Matcher matcher = EQUALITY_ASSERTION.matcher(assertion);
+			if (!matcher.matches() || !matcher.group(1).equalsIgnoreCase(matcher.group(2))
+					|| "id".equalsIgnoreCase(matcher.group(2))) {
+				return null;
+			}
+			attributes.add(matcher.group(1).toLowerCase());
+		}
+		return attributes.isEmpty() ? null : Collections.unmodifiableSet(attributes);
+	}
+
+	/**
+	 * Split a list of filters such as (a=1)(b=2) into their content.
+	 * 
+	 * @return the content of each filter, or null if the list is malformed
+	 */
+	private static List<String> splitFilter(String filters) {
+		List<String> components = new ArrayList<String>();
+		int depth = 0;
+		int start = 0;
+		for (int i = 0; i < filters.length(); i++) {
+			char c = filters.charAt(i);
+			if (c == '(') {
+				if (depth++ == 0) {
+					start = i + 1;
+				}
+			} else if (c == ')') {
+				if (depth == 0) {
+					return null;
+				}
+				if (--depth == 0) {
+					components.add(filters.substring(start, i));
+				}
+			} else if (depth == 0 && !Character.isWhitespace(c)) {
+				return null;
+			}
+		}
+		return (depth == 0 ? components : null);
+	}
+
+	private boolean isFetched(String attributeName) {
+		for (String fetchedAttribute : writableDatasetIds) {
+			if (fetchedAttribute.equalsIgnoreCase(attributeName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean matches(IBean bean, LscDatasets pivotAttributes) {
+		for (String attributeName : pivotAttributes.getAttributesNames()) {
+			String pivotValue = pivotAttributes.getStringValueAttribute(attributeName);
+			Set<Object> values = bean.getDatasetById(attributeName);
+			boolean found = false;
+			if (values != null) {
+				for (Object value : values) {
+					if (!(value instanceof byte[]) && pivotValue.equalsIgnoreCase(value.toString())) {
+						found = true;
+						break;
+					}
+				}
+			}
+			if (!found) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private IBean newBean(SearchResult entry, String baseDn) throws LscServiceException {
+		try {
+			Method method = beanClass.getMethod("getInstance",
+							new Class[] { SearchResult.class, String.class, Class.class });
+			return (IBean) method.invoke(null, new Object[] { entry, baseDn, beanClass });
+		} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+			LOGGER.error("Unable to get static method getInstance on {} ! This is probably a programmer's error ({})",
+							beanClass.getName(), e.toString());
+			throw new LscServiceException(e);
+		}
+	}
+
 	/**
 	 * Returns a list of all the objects' identifiers.
 	 * 
@@ -192,14 +516,26 @@ public class SimpleJndiDstService extends AbstractSimpleJndiService implements I
 	 */
 	public Map<String, LscDatasets> getListPivots(Task task) throws LscServiceException {
 		try {
-			String filterAll = getFilterAll();
-			String allEntriesFilter = allEntriesFilter();
-			if( allEntriesFilter != null && !allEntriesFilter.isEmpty() )
-			{
-				// Evaluate the filter as a script
-				filterAll = ScriptingEvaluator.evalFilter(task, allEntriesFilter, null);
-			}
-			return jndiServices.getAttrsList(getBaseDn(), filterAll, SearchControls.SUBTREE_SCOPE, getAttrsId());
+			return jndiServices.getAttrsList(getBaseDn(), getListFilter(task), SearchControls.SUBTREE_SCOPE, getAttrsId());
+		} catch (NamingException e) {
+			throw new LscServiceException(e);
+		}
+	}
+
+	/**
+	 * Read all the entries page by page, in the order set by the sortedBy
+	 * setting of the connection.
+	 * 
+	 * @see org.lsc.service.IScanService#scanBeans(Task)
+	 */
+	public BeanScanner scanBeans(Task task) throws LscServiceException {
+		final String baseDn = jndiServices.completeDn(getBaseDn());
+		try {
+			return new EntryBeanScanner(openScan(getListFilter(task))) {
+				protected IBean toBean(SearchResult entry) throws LscServiceException {
+					return newBean(entry, baseDn);
+				}
+			};
 		} catch (NamingException e) {
 			throw new LscServiceException(e);
 		}
@@ -229,16 +565,70 @@ public class SimpleJndiDstService extends AbstractSimpleJndiService implements I
 	 * @throws LscServiceException If the execution fails.
 	 */
 	public boolean apply(LscModifications lm) throws LscServiceException {
-		JndiModifications jm = new JndiModifications(JndiModificationType.getFromLscModificationType(lm.getOperation()), lm.getTaskName());
-		jm.setDistinguishName(lm.getMainIdentifier());
-		jm.setNewDistinguishName(lm.getNewMainIdentifier());
-		jm.setModificationItems(JndiModifications.fromLscAttributeModifications(lm.getLscAttributeModifications()));
 		try {
-			return jndiServices.apply(jm);
+			return jndiServices.apply(toJndiModifications(lm));
 		} catch (CommunicationException e) {
 			throw new LscServiceException(e);
 		}
 	}
+
+	public boolean isPipelined() {
+		return pipelinedWriter != null;
+	}
+
+	/**
+	 * Send directory modifications without waiting for the response. Recursive
+	 * deletions are still applied synchronously.
+	 *
+	 * @param lm       Modifications to apply
+	 * @param callback the callback called once the response is received
+	 * @throws LscServiceException If the modifications could not be sent.
+	 */
+	public void applyPipelined(LscModifications lm, ApplyCallback callback) throws LscServiceException {
+		JndiModifications jm = toJndiModifications(lm);
+		if (pipelinedWriter == null
+				|| (jm.getOperation() == JndiModificationType.DELETE_ENTRY && jndiServices.isRecursiveDelete())) {
+			try {
+				callback.applied(jndiServices.apply(jm));
+			} catch (CommunicationException e) {
+				throw new LscServiceException(e);
+			}
+		} else {
+			pipelinedWriter.write(jm, callback);
+		}
+	}
+
+	public void setCallbackExecutor(Executor executor) {
+		if (pipelinedWriter != null) {
+			pipelinedWriter.setCallbackExecutor(executor);
+		}
+	}
+
+	public void flush() throws LscServiceException {
+		if (pipelinedWriter != null) {
+			pipelinedWriter.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (pipelinedWriter != null) {
+			try {
+				pipelinedWriter.close();
+			} catch (LscServiceException e) {
+				throw new IOException(e);
+			}
+		}
+		super.close();
+	}
+
+	private JndiModifications toJndiModifications(LscModifications lm) {
+		JndiModifications jm = new JndiModifications(JndiModificationType.getFromLscModificationType(lm.getOperation()), lm.getTaskName());
+		jm.setDistinguishName(lm.getMainIdentifier());
+		jm.setNewDistinguishName(lm.getNewMainIdentifier());
+		jm.setModificationItems(JndiModifications.fromLscAttributeModifications(lm.getLscAttributeModifications()));
+		return jm;
+	}
 	
 	public List<String> getWriteDatasetIds() {
 		return writableDatasetIds;
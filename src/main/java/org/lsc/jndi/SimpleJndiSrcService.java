@@ -51,6 +51,7 @@ import java.util.Properties;
 
 import javax.naming.NamingException;
 import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
 
 import org.lsc.LscDatasets;
 import org.lsc.beans.IBean;
@@ -60,9 +61,9 @@ import org.lsc.configuration.LscConfiguration;
 import org.lsc.configuration.TaskType;
 import org.lsc.exception.LscServiceConfigurationException;
 import org.lsc.exception.LscServiceException;
-import org.lsc.service.IService;
+import org.lsc.service.IScanService;
+import org.lsc.service.IStreamingService;
 import org.lsc.Task;
-import org.lsc.utils.ScriptingEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -74,7 +75,7 @@ import org.slf4j.LoggerFactory;
  *
  * @author Sebastien Bahloul &lt;seb@lsc-project.org&gt;
  */
-public class SimpleJndiSrcService extends AbstractSimpleJndiService implements IService {
+public class SimpleJndiSrcService extends AbstractSimpleJndiService implements IStreamingService, IScanService {
 
 	protected static final Logger LOGGER = LoggerFactory.getLogger(SimpleJndiSrcService.class);
 	/**
@@ -220,29 +221,58 @@ public class SimpleJndiSrcService extends AbstractSimpleJndiService implements I
 	 */
 	public Map<String, LscDatasets> getListPivots(Task task) throws LscServiceException {
 		try {
-			// Get the pivot attributes
-			List<String> requestedAttrs = getAttrsId();
-			String filterAll = getFilterAll();
-			String allEntriesFilter = allEntriesFilter();
-
-			if( allEntriesFilter != null  && !allEntriesFilter.isEmpty() )
-			{
-				// Evaluate the filter as a script
-				filterAll = ScriptingEvaluator.evalFilter(task, allEntriesFilter, null);
-			}
+			return jndiServices.getAttrsList(getBaseDn(), getListFilter(task), SearchControls.SUBTREE_SCOPE, getListAttrs());
+		} catch (NamingException e) {
+			throw new LscServiceException(e);
+		}
+	}
 
-			if( bypassOneEntry )
-			{
-				// get all attributes directly at pivot step
-				requestedAttrs = getAttrs();
-			}
+	/**
+	 * Read all the objects' identifiers page by page, handing them over as soon as they are received.
+	 * 
+	 * @see org.lsc.service.IStreamingService#streamPivots(Task, PivotHandler)
+	 */
+	public long streamPivots(Task task, PivotHandler handler) throws LscServiceException {
+		try {
+			return jndiServices.streamAttrsList(getBaseDn(), getListFilter(task), SearchControls.SUBTREE_SCOPE, getListAttrs(), handler);
+		} catch (NamingException e) {
+			throw new LscServiceException(e);
+		}
+	}
 
-			return jndiServices.getAttrsList(getBaseDn(), filterAll, SearchControls.SUBTREE_SCOPE, requestedAttrs);
+	/**
+	 * Read all the entries page by page, in the order set by the sortedBy
+	 * setting of the connection.
+	 * 
+	 * @see org.lsc.service.IScanService#scanBeans(Task)
+	 */
+	public BeanScanner scanBeans(Task task) throws LscServiceException {
+		try {
+			return new EntryBeanScanner(openScan(getListFilter(task))) {
+				protected IBean toBean(SearchResult entry) throws NamingException, LscServiceException {
+					try {
+						return getBeanFromSR(entry, beanClass.newInstance());
+					} catch (InstantiationException | IllegalAccessException e) {
+						LOGGER.error("Bad class name: " + beanClass.getName() + "(" + e + ")");
+						throw new LscServiceException(e);
+					}
+				}
+			};
 		} catch (NamingException e) {
 			throw new LscServiceException(e);
 		}
 	}
 
+	private List<String> getListAttrs() {
+		if( bypassOneEntry )
+		{
+			// get all attributes directly at pivot step
+			return getAttrs();
+		}
+		// Get the pivot attributes
+		return getAttrsId();
+	}
+
 	/*
 	 * Default filter getter, for one corresponding entry.
 	 * @return the attrId value
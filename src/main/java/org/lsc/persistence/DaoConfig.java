@@ -51,6 +51,7 @@ import java.io.Reader;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.lsc.Configuration;
 import org.lsc.configuration.DatabaseConnectionType;
@@ -58,9 +59,12 @@ import org.lsc.exception.LscServiceConfigurationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ibatis.common.jdbc.SimpleDataSource;
 import com.ibatis.common.resources.Resources;
 import com.ibatis.sqlmap.client.SqlMapClient;
 import com.ibatis.sqlmap.client.SqlMapClientBuilder;
+import com.ibatis.sqlmap.engine.impl.SqlMapClientImpl;
+import com.ibatis.sqlmap.engine.impl.SqlMapExecutorDelegate;
 
 /**
  * This class is used to interface IBatis Direct Access Object engine.
@@ -82,12 +86,21 @@ public final class DaoConfig {
 	/** iBatis sqlMap configuration file directory for sqlMap files */
 	public static final String IBATIS_SQLMAP_FILES_DIRNAME = "sql-map-config.d";
 
+	/** Properties holding the connection pool settings, also usable in the iBatis configuration file */
+	public static final String POOL_MAX_SIZE = "poolMaxSize";
+	public static final String POOL_MAX_IDLE = "poolMaxIdle";
+	public static final String POOL_MAX_WAIT = "poolMaxWait";
+	public static final String POOL_VALIDATION_QUERY = "poolValidationQuery";
+	public static final String STATEMENT_CACHING = "statementCaching";
+
+	private static final String[] POOL_SETTINGS = { POOL_MAX_SIZE, POOL_MAX_IDLE, POOL_MAX_WAIT, POOL_VALIDATION_QUERY };
+
 	/**
 	 * SqlMapClient instances are thread safe, so you only need one. In this
 	 * case, we'll use a static singleton. So sue me. ;-)
 	 * Fix: use a map instead, allowing to have multiple mappers at the same time
 	 */
-	private static Map<String, SqlMapClient> sqlMappers = new HashMap<String, SqlMapClient>();
+	private static Map<String, SqlMapClient> sqlMappers = new ConcurrentHashMap<String, SqlMapClient>();
 
 	/** Tool class. */
 	private DaoConfig() {
@@ -101,57 +114,165 @@ public final class DaoConfig {
 	 * @throws LscServiceConfigurationException 
 	 */
 	public static SqlMapClient getSqlMapClient(Properties databaseProps) throws LscServiceConfigurationException {
-		String mapperKey = new StringBuffer()
+		StringBuilder mapperKeyBuilder = new StringBuilder()
 				.append(databaseProps.get("username"))
 				.append("|")
 				.append(databaseProps.get("password"))
 				.append("|")
 				.append(databaseProps.get("url"))
 				.append("|")
-				.append(databaseProps.get("driver"))
-				.toString();
+				.append(databaseProps.get("driver"));
+		for (String setting : POOL_SETTINGS) {
+			mapperKeyBuilder.append("|").append(databaseProps.getProperty(setting, ""));
+		}
+		String mapperKey = mapperKeyBuilder.append("|").append(databaseProps.getProperty(STATEMENT_CACHING, "")).toString();
+
 		SqlMapClient sqlMapper = sqlMappers.get(mapperKey);
-		if(sqlMapper == null) {
+		if (sqlMapper != null) {
+			return sqlMapper;
+		}
+		// Build each mapper once, even when several tasks start at the same time
+		synchronized (sqlMappers) {
+			sqlMapper = sqlMappers.get(mapperKey);
+			if (sqlMapper == null) {
+				sqlMapper = buildSqlMapClient(databaseProps);
+				sqlMappers.put(mapperKey, sqlMapper);
+			}
+		}
+		return sqlMapper;
+	}
+
+	private static SqlMapClient buildSqlMapClient(Properties databaseProps) throws LscServiceConfigurationException {
+		SqlMapClient sqlMapper;
+		try {
+			Reader reader = null;
+
+			// Test if we have a IBATIS_SQLMAP_CONFIGURATION_FILENAME file in the global config dir.
+			// This test is for backwards compatibility since the IBATIS_SQLMAP_CONFIGURATION_FILENAME
+			// file always used to be in a JAR file. It should be removed in the future.
+			File configFile = new File(Configuration.getConfigurationDirectory(), IBATIS_SQLMAP_CONFIGURATION_FILENAME);
+			if (configFile.exists()) {
+				// read the file from the configuration directory
+				String pathToFile = configFile.toURI().toURL().toString();
+				LOGGER.debug("Reading {} from {}", IBATIS_SQLMAP_CONFIGURATION_FILENAME, pathToFile);
+				reader = Resources.getUrlAsReader(pathToFile);
+			} else {
+				throw new LscServiceConfigurationException("Unable to find iBatis SQL map file in " + Configuration.getConfigurationDirectory());
+			}
+
+			// add the configuration directory to properties so that sql-map-config can use relative paths
+			databaseProps.put("lsc.config", new File(Configuration.getConfigurationDirectory()).toURI().toURL().getFile());
 			try {
-				Reader reader = null;
-
-				// Test if we have a IBATIS_SQLMAP_CONFIGURATION_FILENAME file in the global config dir.
-				// This test is for backwards compatibility since the IBATIS_SQLMAP_CONFIGURATION_FILENAME
-				// file always used to be in a JAR file. It should be removed in the future.
-				File configFile = new File(Configuration.getConfigurationDirectory(), IBATIS_SQLMAP_CONFIGURATION_FILENAME);
-				if (configFile.exists()) {
-					// read the file from the configuration directory
-					String pathToFile = configFile.toURI().toURL().toString();
-					LOGGER.debug("Reading {} from {}", IBATIS_SQLMAP_CONFIGURATION_FILENAME, pathToFile);
-					reader = Resources.getUrlAsReader(pathToFile);
-				} else {
-					throw new LscServiceConfigurationException("Unable to find iBatis SQL map file in " + Configuration.getConfigurationDirectory());
-				}
-
-				// add the configuration directory to properties so that sql-map-config can use relative paths
-				databaseProps.put("lsc.config", new File(Configuration.getConfigurationDirectory()).toURI().toURL().getFile());
-				try {
-					sqlMapper = SqlMapClientBuilder.buildSqlMapClient(reader, databaseProps);
-				} catch(RuntimeException re) {
-					throw new LscServiceConfigurationException("Something bad happened while building the SqlMapClient instance." + re, re);
-				}
-
-				// clean up
-				reader.close();
-			} catch (IOException e) {
-				throw new LscServiceConfigurationException("Something bad happened while building the SqlMapClient instance." + e, e);
+				sqlMapper = SqlMapClientBuilder.buildSqlMapClient(reader, databaseProps);
+			} catch(RuntimeException re) {
+				throw new LscServiceConfigurationException("Something bad happened while building the SqlMapClient instance." + re, re);
 			}
-			sqlMappers.put(mapperKey, sqlMapper);
+
+			// clean up
+			reader.close();
+		} catch (IOException e) {
+			throw new LscServiceConfigurationException("Something bad happened while building the SqlMapClient instance." + e, e);
 		}
+		configurePool(sqlMapper, databaseProps);
 		return sqlMapper;
 	}
 
+	/**
+	 * Replace the data source defined in the iBatis configuration file by a
+	 * pooled data source using the settings of the connection, if any.
+	 * 
+	 * @param sqlMapper the mapper
+	 * @param databaseProps the connection properties
+	 * @throws LscServiceConfigurationException if the mapper can not be configured
+	 */
+	private static void configurePool(SqlMapClient sqlMapper, Properties databaseProps) throws LscServiceConfigurationException {
+		boolean poolSettings = false;
+		for (String setting : POOL_SETTINGS) {
+			poolSettings |= databaseProps.getProperty(setting) != null;
+		}
+		String statementCaching = databaseProps.getProperty(STATEMENT_CACHING);
+		if (!poolSettings && statementCaching == null) {
+			return;
+		}
+		if (!(sqlMapper instanceof SqlMapClientImpl)) {
+			throw new LscServiceConfigurationException("Unable to set the pool settings on an unknown SQLMap Client type : "
+					+ sqlMapper.getClass().getName());
+		}
+		SqlMapExecutorDelegate delegate = ((SqlMapClientImpl) sqlMapper).getDelegate();
+		if (statementCaching != null) {
+			delegate.setStatementCacheEnabled(Boolean.parseBoolean(statementCaching));
+		}
+		if (!poolSettings) {
+			return;
+		}
+
+		Map<String, String> dataSourceProps = new HashMap<String, String>();
+		dataSourceProps.put("JDBC.Driver", databaseProps.getProperty("driver"));
+		dataSourceProps.put("JDBC.ConnectionURL", databaseProps.getProperty("url"));
+		dataSourceProps.put("JDBC.Username", databaseProps.getProperty("username"));
+		dataSourceProps.put("JDBC.Password", databaseProps.getProperty("password"));
+		putIfSet(dataSourceProps, "Pool.MaximumActiveConnections", databaseProps.getProperty(POOL_MAX_SIZE));
+		putIfSet(dataSourceProps, "Pool.MaximumIdleConnections", databaseProps.getProperty(POOL_MAX_IDLE));
+		putIfSet(dataSourceProps, "Pool.TimeToWait", databaseProps.getProperty(POOL_MAX_WAIT));
+		if (databaseProps.getProperty(POOL_VALIDATION_QUERY) != null) {
+			// Validate each connection before handing it over
+			dataSourceProps.put("Pool.PingEnabled", "true");
+			dataSourceProps.put("Pool.PingQuery", databaseProps.getProperty(POOL_VALIDATION_QUERY));
+			dataSourceProps.put("Pool.PingConnectionsNotUsedFor", "0");
+		}
+		try {
+			delegate.getTxManager().getConfig().setDataSource(new SimpleDataSource(dataSourceProps));
+		} catch (RuntimeException e) {
+			throw new LscServiceConfigurationException("Unable to build the connection pool to " + databaseProps.getProperty("url") + ": " + e, e);
+		}
+	}
+
+	private static void putIfSet(Map<String, String> props, String name, String value) {
+		if (value != null) {
+			props.put(name, value);
+		}
+	}
+
 	public static SqlMapClient getSqlMapClient(DatabaseConnectionType connection) throws LscServiceConfigurationException {
 		Properties databaseProps = new Properties();
 		databaseProps.put("username", connection.getUsername());
 		databaseProps.put("password", connection.getPassword());
 		databaseProps.put("url", connection.getUrl());
 		databaseProps.put("driver", connection.getDriver());
+		putIfSet(databaseProps, POOL_MAX_SIZE, connection.getPoolMaxSize());
+		putIfSet(databaseProps, POOL_MAX_IDLE, connection.getPoolMaxIdle());
+		putIfSet(databaseProps, POOL_MAX_WAIT, connection.getPoolMaxWait());
+		putIfSet(databaseProps, POOL_VALIDATION_QUERY, connection.getPoolValidationQuery());
+		putIfSet(databaseProps, STATEMENT_CACHING, connection.isStatementCaching());
 		return getSqlMapClient(databaseProps);
 	}
+
+	private static void putIfSet(Properties props, String name, Object value) {
+		if (value != null) {
+			props.put(name, value.toString());
+		}
+	}
+
+	/**
+	 * Get the statistics of the connection pool of a mapper: the connections
+	 * in use, the requests count and how often and how long they had to wait
+	 * for a connection.
+	 * 
+	 * @param sqlMapper the mapper
+	 * @return the statistics, as a human readable string, or null if the data source is not a pool
+	 */
+	public static String getPoolStatistics(SqlMapClient sqlMapper) {
+		if (!(sqlMapper.getDataSource() instanceof SimpleDataSource)) {
+			return null;
+		}
+		SimpleDataSource dataSource = (SimpleDataSource) sqlMapper.getDataSource();
+		return "max active=" + dataSource.getPoolMaximumActiveConnections()
+				+ ", max idle=" + dataSource.getPoolMaximumIdleConnections()
+				+ ", requests=" + dataSource.getRequestCount()
+				+ ", average request time=" + dataSource.getAverageRequestTime() + "ms"
+				+ ", had to wait=" + dataSource.getHadToWaitCount()
+				+ ", average wait time=" + dataSource.getAverageWaitTime() + "ms"
+				+ ", bad connections=" + dataSource.getBadConnectionCount()
+				+ ", overdue connections=" + dataSource.getClaimedOverdueConnectionCount();
+	}
 }
@@ -0,0 +1,270 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.lsc.beans.IBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fingerprints of the source entries found in sync with the destination by
+ * the last synchronization of a task, kept in a local file.
+ * <p>
+ * A source entry whose fingerprint did not change since then does not need
+ * to be searched in the destination nor compared again. Only the
+ * fingerprints of the entries seen during a synchronization are saved, so
+ * that an entry removed from the source, then added back, is compared again.
+ * Changes done directly in the destination are not detected: a verification
+ * run, loading no fingerprint, compares all the entries again. The
+ * fingerprint of the synchronization settings is saved along, and the
+ * saved fingerprints are ignored as soon as these settings change.
+ * </p>
+ */
+public class FingerprintStore {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FingerprintStore.class);
+
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	/** The key of the settings fingerprint, escaped in the file so that it can not be read as an entry */
+	static final String CONFIGURATION_KEY = "#configuration";
+
+	private final File file;
+
+	/** Fingerprint of the synchronization settings */
+	private final String configuration;
+
+	/** Fingerprints saved by the last synchronization */
+	private final Map<String, String> previous;
+
+	/** Fingerprints of the entries found in sync by this synchronization */
+	private final Map<String, String> current;
+
+	/**
+	 * Load the fingerprints saved in a file.
+	 *
+	 * @param file the file holding the fingerprints, which may not exist yet
+	 * @param configuration the fingerprint of the synchronization settings,
+	 *            see {@link #fingerprint(List)}: the saved fingerprints are
+	 *            ignored if it differs from the saved one
+	 * @param verify <code>true</code> to ignore the saved fingerprints, so that all entries are compared
+	 * @throws IOException if the file can not be read
+	 */
+	public FingerprintStore(File file, String configuration, boolean verify) throws IOException {
+		this.file = file;
+		this.configuration = configuration;
+		this.previous = new ConcurrentHashMap<String, String>();
+		this.current = new ConcurrentHashMap<String, String>();
+		if (!verify && file.exists()) {
+			Properties properties = new Properties();
+			try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			}
+			if (!configuration.equals(properties.getProperty(CONFIGURATION_KEY))) {
+				LOGGER.info("The synchronization settings changed since the fingerprints were saved to {}, comparing all the entries", file);
+				return;
+			}
+			for (String key : properties.stringPropertyNames()) {
+				if (!CONFIGURATION_KEY.equals(key)) {
+					previous.put(key, properties.getProperty(key));
+				}
+			}
+			LOGGER.debug("Loaded {} fingerprints from {}", previous.size(), file);
+		}
+	}
+
+	/**
+	 * Compute the fingerprint of a list of values, such as the synchronization
+	 * settings.
+	 *
+	 * @param values the values, in a stable order
+	 * @return the fingerprint
+	 */
+	public static String fingerprint(List<String> values) {
+		MessageDigest digest = newDigest();
+		update(digest, Integer.toString(values.size()));
+		for (String value : values) {
+			update(digest, value);
+		}
+		return Base64.getEncoder().withoutPadding().encodeToString(digest.digest());
+	}
+
+	/**
+	 * Compute the fingerprint of a bean, which does not depend on the order
+	 * of its datasets and values.
+	 *
+	 * @param bean the bean
+	 * @return the fingerprint
+	 */
+	public static String fingerprint(IBean bean) {
+		MessageDigest digest = newDigest();
+		update(digest, bean.getMainIdentifier());
+		Map<String, Object> datasets = bean.datasets().getDatasets();
+		for (String name : new TreeSet<String>(datasets.keySet())) {
+			update(digest, name);
+			Object values = datasets.get(name);
+			if (values == null) {
+				continue;
+			}
+			Collection<?> valuesCollection = (values instanceof Collection<?> ?
+							(Collection<?>) values :
+							Collections.singleton(values));
+			List<String> encodedValues = new ArrayList<String>(valuesCollection.size());
+			for (Object value : valuesCollection) {
+				encodedValues.add(value instanceof byte[] ?
+								"b:" + Base64.getEncoder().encodeToString((byte[]) value) :
+								"s:" + value);
+			}
+			Collections.sort(encodedValues);
+			update(digest, Integer.toString(encodedValues.size()));
+			for (String encodedValue : encodedValues) {
+				update(digest, encodedValue);
+			}
+		}
+		return Base64.getEncoder().withoutPadding().encodeToString(digest.digest());
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		if (value != null) {
+			digest.update(value.getBytes(StandardCharsets.UTF_8));
+		}
+		// Separate the values, so that moving characters from one to the next changes the digest
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * Tell if an entry is unchanged since the last synchronization. An
+	 * unchanged entry is kept in sync.
+	 *
+	 * @param key the entry identifier
+	 * @param fingerprint the current fingerprint of the source entry
+	 * @return <code>true</code> if the entry was found in sync with the same fingerprint
+	 */
+	public boolean isUnchanged(String key, String fingerprint) {
+		if (fingerprint.equals(previous.get(key))) {
+			current.put(key, fingerprint);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Record that an entry is in sync with the destination.
+	 *
+	 * @param key the entry identifier
+	 * @param fingerprint the fingerprint of the source entry
+	 */
+	public void store(String key, String fingerprint) {
+		current.put(key, fingerprint);
+	}
+
+	/**
+	 * Record that an entry may not be in sync with the destination, so that
+	 * it is compared again by the next synchronization.
+	 *
+	 * @param key the entry identifier
+	 */
+	public void remove(String key) {
+		current.remove(key);
+	}
+
+	/**
+	 * @return the number of entries found in sync by this synchronization
+	 */
+	public int size() {
+		return current.size();
+	}
+
+	/**
+	 * Replace the file content by the fingerprints of the entries found in
+	 * sync by this synchronization. The file is replaced at once, so that an
+	 * interrupted save leaves the previous content.
+	 *
+	 * @throws IOException if the file can not be written
+	 */
+	public void save() throws IOException {
+		Properties properties = new Properties();
+		properties.putAll(current);
+		properties.put(CONFIGURATION_KEY, configuration);
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (directory != null && !directory.exists()) {
+			directory.mkdirs();
+		}
+		File tmpFile = new File(directory, file.getName() + ".tmp");
+		try (Writer writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+			properties.store(writer, null);
+		}
+		Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		LOGGER.debug("Saved {} fingerprints to {}", current.size(), file);
+	}
+}
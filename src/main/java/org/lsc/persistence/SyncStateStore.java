@@ -0,0 +1,219 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The state of a stream of changes read from a directory, kept in a local
+ * file so that the stream is resumed where it stopped instead of being
+ * replayed from the beginning.
+ * <p>
+ * The state received with some changes is only saved once these changes,
+ * and all the ones handed over before them, have been synchronized: after a
+ * crash, the changes still being synchronized are replayed rather than lost.
+ * </p>
+ */
+public class SyncStateStore {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SyncStateStore.class);
+
+	private static final String COOKIE = "cookie";
+
+	/**
+	 * The cookie received with changes handed over, waiting for them to be
+	 * synchronized
+	 */
+	private static class HandOver {
+
+		private final byte[] cookie;
+
+		private boolean done;
+
+		HandOver(byte[] cookie) {
+			this.cookie = cookie;
+		}
+	}
+
+	private final File file;
+
+	/** The cookie saved in the file, to resume from */
+	private byte[] savedCookie;
+
+	/** The cookie whose changes, and all the previous ones, have been synchronized */
+	private byte[] completedCookie;
+
+	/** The cookie received with the last changes */
+	private byte[] lastCookie;
+
+	/** The changes handed over and not synchronized yet, in order */
+	private final Deque<HandOver> handOvers = new ArrayDeque<HandOver>();
+
+	/**
+	 * Load the state saved in a file.
+	 *
+	 * @param file the file holding the state, which may not exist yet
+	 * @throws IOException if the file can not be read
+	 */
+	public SyncStateStore(File file) throws IOException {
+		this.file = file;
+		if (file.exists()) {
+			Properties properties = new Properties();
+			try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			}
+			String cookie = properties.getProperty(COOKIE);
+			if (cookie != null && !cookie.isEmpty()) {
+				savedCookie = Base64.getDecoder().decode(cookie);
+				LOGGER.debug("Loaded the synchronization cookie from {}", file);
+			}
+		}
+		completedCookie = savedCookie;
+		lastCookie = savedCookie;
+	}
+
+	/**
+	 * @return the cookie to resume the stream of changes from, null to read it from the beginning
+	 */
+	public synchronized byte[] getCookie() {
+		return lastCookie;
+	}
+
+	/**
+	 * Record the cookie received with the last changes.
+	 *
+	 * @param cookie the cookie, ignored if null
+	 */
+	public synchronized void update(byte[] cookie) {
+		if (cookie != null) {
+			lastCookie = cookie;
+		}
+	}
+
+	/**
+	 * Record that the changes received so far have been handed over. The
+	 * last cookie can be saved once the returned callback has been run, as
+	 * well as the ones of the previous hand overs.
+	 *
+	 * @return the callback to run once the changes are synchronized
+	 */
+	public synchronized Runnable handOver() {
+		HandOver handOver = new HandOver(lastCookie);
+		handOvers.add(handOver);
+		return () -> completed(handOver);
+	}
+
+	private synchronized void completed(HandOver handOver) {
+		handOver.done = true;
+		while (!handOvers.isEmpty() && handOvers.peek().done) {
+			byte[] cookie = handOvers.poll().cookie;
+			if (cookie != null) {
+				completedCookie = cookie;
+			}
+		}
+	}
+
+	/**
+	 * Forget the cookie, when the directory can not resume from it anymore,
+	 * so that the stream of changes is read from the beginning.
+	 *
+	 * @throws IOException if the file can not be written
+	 */
+	public synchronized void reset() throws IOException {
+		lastCookie = null;
+		completedCookie = null;
+		handOvers.clear();
+		save(null);
+	}
+
+	/**
+	 * Save the cookie of the last changes synchronized, along with all the
+	 * changes handed over before them.
+	 *
+	 * @throws IOException if the file can not be written
+	 */
+	public synchronized void checkpoint() throws IOException {
+		if (!Arrays.equals(completedCookie, savedCookie)) {
+			save(completedCookie);
+		}
+	}
+
+	/**
+	 * Replace the file content. The file is replaced at once, so that an
+	 * interrupted save leaves the previous content.
+	 */
+	private void save(byte[] cookie) throws IOException {
+		Properties properties = new Properties();
+		if (cookie != null) {
+			properties.setProperty(COOKIE, Base64.getEncoder().encodeToString(cookie));
+		}
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (directory != null && !directory.exists()) {
+			directory.mkdirs();
+		}
+		File tmpFile = new File(directory, file.getName() + ".tmp");
+		try (Writer writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+			properties.store(writer, null);
+		}
+		Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		savedCookie = cookie;
+		LOGGER.debug("Saved the synchronization cookie to {}", file);
+	}
+}
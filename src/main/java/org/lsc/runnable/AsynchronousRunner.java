@@ -1,15 +1,21 @@
 package org.lsc.runnable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map.Entry;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.lsc.AbstractSynchronize;
 import org.lsc.LscDatasets;
 import org.lsc.SynchronizeThreadPoolExecutor;
 import org.lsc.Task;
 import org.lsc.beans.InfoCounter;
+import org.lsc.exception.LscServiceCommunicationException;
 import org.lsc.exception.LscServiceException;
 import org.lsc.service.IAsynchronousService;
+import org.lsc.service.IBatchService;
+import org.lsc.service.IPushAsynchronousService;
+import org.lsc.service.IService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,6 +26,7 @@ public class AsynchronousRunner implements Runnable {
 	private AbstractSynchronize abstractSynchronize;
 	private Task task;
 	private InfoCounter counter;
+	private volatile long lastPollTime;
 
 	public AsynchronousRunner(Task task, AbstractSynchronize abstractSynchronize) {
 		this.task = task;
@@ -29,7 +36,9 @@ public class AsynchronousRunner implements Runnable {
 	public void run() {
 		counter = new InfoCounter();
 
-		SynchronizeThreadPoolExecutor threadPool = new SynchronizeThreadPoolExecutor(abstractSynchronize.getThreads());
+		lastPollTime = System.currentTimeMillis();
+
+		SynchronizeThreadPoolExecutor threadPool = abstractSynchronize.newThreadPool(task, counter);
 
 		Entry<String, LscDatasets> nextId = null;
 		try {
@@ -48,8 +57,14 @@ public class AsynchronousRunner implements Runnable {
 			LOGGER.debug("Asynchronous synchronize {}", task.getName());
 
 			boolean interrupted = false;
+			if (aService instanceof IPushAsynchronousService) {
+				listen((IPushAsynchronousService) aService, threadPool, fromSource);
+				interrupted = true;
+			}
+
 			while (!interrupted) {
 				nextId = aService.getNextId(task);
+				lastPollTime = System.currentTimeMillis();
 				if (nextId != null) {
 					threadPool.runTask(new SynchronizeEntryRunner(task, counter, abstractSynchronize, nextId, fromSource));
 				} else {
@@ -66,17 +81,92 @@ public class AsynchronousRunner implements Runnable {
 			abstractSynchronize.logActionError(null, nextId, e);
 		}
 
-		try {
-			threadPool.shutdown();
-			threadPool.awaitTermination(abstractSynchronize.getTimeLimit(), TimeUnit.SECONDS);
-		} catch (InterruptedException e) {
-			LOGGER.error("Tasks terminated according to time limit: " + e.toString(), e);
-			LOGGER.info("If you want to avoid this message, " + "increase the time limit by using dedicated parameter.");
+		abstractSynchronize.awaitTermination(task, threadPool);
+	}
+
+	/**
+	 * Hand the changes over to the thread pool as soon as the service pushes
+	 * them, until this thread is interrupted. When the service ends the stream
+	 * of changes or loses the connection, listen again after the service
+	 * interval.
+	 */
+	private void listen(IPushAsynchronousService aService, SynchronizeThreadPoolExecutor threadPool, boolean fromSource)
+					throws LscServiceException {
+		int batchSize = (fromSource ? Math.max(getBatchSize(task.getSourceService()), getBatchSize(task.getDestinationService())) : 1);
+		while (true) {
+			try {
+				aService.listen(task, (changes, done) -> {
+					lastPollTime = System.currentTimeMillis();
+					submit(changes, done, threadPool, fromSource, batchSize);
+				});
+			} catch (LscServiceCommunicationException e) {
+				LOGGER.error("Lost the changes of task {}, listening again in {} ms: {}", task.getName(), aService.getInterval(), e.toString());
+				LOGGER.debug(e.toString(), e);
+			}
+			// Clear the interruption, to wait for the submitted entries afterwards
+			if (Thread.interrupted()) {
+				LOGGER.debug("Synchronization thread interrupted !");
+				return;
+			}
+			try {
+				Thread.sleep(aService.getInterval());
+			} catch (InterruptedException e) {
+				LOGGER.debug("Synchronization thread interrupted !");
+				return;
+			}
 		}
+	}
 
+	private void submit(List<Entry<String, LscDatasets>> changes, Runnable done,
+					SynchronizeThreadPoolExecutor threadPool, boolean fromSource, int batchSize) {
+		if (changes.isEmpty()) {
+			done.run();
+			return;
+		}
+		if (batchSize < 2 || changes.size() < 2) {
+			Runnable entryDone = countDown(changes.size(), done);
+			for (Entry<String, LscDatasets> change : changes) {
+				SynchronizeEntryRunner runner = new SynchronizeEntryRunner(task, counter, abstractSynchronize, change, fromSource);
+				runner.setCompletion(entryDone);
+				threadPool.runTask(runner);
+			}
+			return;
+		}
+		Runnable batchDone = countDown((changes.size() + batchSize - 1) / batchSize, done);
+		for (int i = 0; i < changes.size(); i += batchSize) {
+			List<Entry<String, LscDatasets>> batch = new ArrayList<Entry<String, LscDatasets>>(
+							changes.subList(i, Math.min(i + batchSize, changes.size())));
+			SynchronizeBatchRunner runner = new SynchronizeBatchRunner(task, counter, abstractSynchronize, batch);
+			runner.setCompletion(batchDone);
+			threadPool.runTask(runner);
+		}
+	}
+
+	/**
+	 * @return a callback running done the last of the given number of times it is run
+	 */
+	private static Runnable countDown(int count, Runnable done) {
+		AtomicInteger remaining = new AtomicInteger(count);
+		return () -> {
+			if (remaining.decrementAndGet() == 0) {
+				done.run();
+			}
+		};
+	}
+
+	private static int getBatchSize(IService service) {
+		return (service instanceof IBatchService) ? ((IBatchService) service).getBatchSize() : 1;
 	}
 
 	public InfoCounter getCounter() {
 		return counter;
 	}
+
+	/**
+	 * @return the time, in milliseconds since the epoch, at which the service
+	 * 		last answered a request for changes
+	 */
+	public long getLastPollTime() {
+		return lastPollTime;
+	}
 }
@@ -18,9 +18,12 @@ import org.lsc.LscModifications;
 import org.lsc.Task;
 import org.lsc.LscDatasetModification.LscDatasetModificationType;
 import org.lsc.beans.IBean;
+import org.lsc.beans.EntryTrace;
 import org.lsc.beans.InfoCounter;
+import org.lsc.beans.InfoCounter.Phase;
 import org.lsc.beans.syncoptions.ISyncOptions;
 import org.lsc.exception.LscServiceException;
+import org.lsc.utils.ScriptExpression;
 import org.lsc.utils.ScriptingEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,13 +37,13 @@ public class CleanEntryRunner extends AbstractEntryRunner {
 
 	static final Logger LOGGER = LoggerFactory.getLogger(CleanEntryRunner.class);
 
-	private Hooks hooks;
+	/** Hooks are stateless, so one instance is shared by all the entries */
+	private static final Hooks hooks = new Hooks();
 
 	public CleanEntryRunner(final Task task, InfoCounter counter,
 			AbstractSynchronize abstractSynchronize,
 			Entry<String, LscDatasets> id) {
 		super(task, counter, abstractSynchronize, id);
-		this.hooks = new Hooks();
 	}
 
 	@Override
@@ -48,25 +51,26 @@ public class CleanEntryRunner extends AbstractEntryRunner {
 		counter.incrementCountAll();
 		ISyncOptions syncOptions = task.getSyncOptions();
 		LscModifications lm = null;
+		EntryTrace trace = new EntryTrace(counter);
 		
 		try {
 			// Search for the corresponding object in the source
 			IBean taskBean = abstractSynchronize.getBean(task, task.getSourceService(), id.getKey(), id.getValue(), false, false);
+			trace.record(Phase.SOURCE_GET);
 
 			// If we didn't find the object in the source, delete it in the
 			// destination
 			if (taskBean == null) {
 				// Retrieve condition to evaluate before deleting
 				Boolean doDelete = null;
-				String conditionString = syncOptions.getDeleteCondition();
+				ScriptExpression condition = task.getExpression(syncOptions.getDeleteCondition());
 
 				// Don't use JavaScript evaluator for primitive cases
-				if (conditionString.matches("true")) {
-					doDelete = true;
-				} else if (conditionString.matches("false")) {
-					doDelete = false;
+				if (condition.isConstant()) {
+					doDelete = condition.getConstant();
 				} else {
 					IBean dstBean = abstractSynchronize.getBean(task, task.getDestinationService(), id.getKey(), id.getValue(), true, false);
+					trace.record(Phase.DESTINATION_GET);
 					// Log an error if the bean could not be retrieved!
 					// This shouldn't happen.
 					if (dstBean == null) {
@@ -85,7 +89,8 @@ public class CleanEntryRunner extends AbstractEntryRunner {
 					}
 
 					// Evaluate if we have to do something
-					doDelete = ScriptingEvaluator.evalToBoolean(task, conditionString, conditionObjects);
+					doDelete = ScriptingEvaluator.evalToBoolean(task, condition, conditionObjects);
+					trace.record(Phase.CONDITION);
 				}
 				
 				if (doDelete) {
@@ -112,12 +117,16 @@ public class CleanEntryRunner extends AbstractEntryRunner {
 
 				// if we got here, we have a modification to apply - let's
 				// do it!
-				if (task.getDestinationService().apply(lm)) {
+				trace.mark();
+				boolean success = task.getDestinationService().apply(lm);
+				trace.record(Phase.APPLY);
+				if (success) {
 					// Retrieve posthook for the current operation
 					hooks.postSyncHook(	syncOptions.getDeletePostHook(),
 								syncOptions.getPostHookOutputFormat(),
 								lm);
-					counter.incrementCountCompleted();
+					trace.record(Phase.HOOK);
+					counter.incrementCountCompleted(LscModificationType.DELETE_OBJECT);
 					abstractSynchronize.logAction(lm, id, task.getName());
 				} else {
 					counter.incrementCountError();
@@ -136,6 +145,8 @@ public class CleanEntryRunner extends AbstractEntryRunner {
 				LOGGER.error("Unable to delete object {} ({})", id.getKey(), e.toString());
 				return;
 			}
+		} finally {
+			trace.finish(id.getKey());
 		}
 	}
 }
@@ -0,0 +1,114 @@
+package org.lsc.runnable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.lsc.AbstractSynchronize;
+import org.lsc.LscDatasets;
+import org.lsc.Task;
+import org.lsc.beans.IBean;
+import org.lsc.beans.InfoCounter;
+import org.lsc.exception.LscServiceException;
+import org.lsc.service.IBatchService;
+import org.lsc.service.IService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Synchronize a batch of source entries: the source beans and the matching
+ * destination beans are read with a single request on each service able to
+ * do so, then each entry is synchronized in turn.
+ */
+public class SynchronizeBatchRunner implements Runnable {
+
+	static final Logger LOGGER = LoggerFactory.getLogger(SynchronizeBatchRunner.class);
+
+	private Task task;
+	private InfoCounter counter;
+	private AbstractSynchronize abstractSynchronize;
+	private List<Entry<String, LscDatasets>> ids;
+	private Runnable completion;
+
+	public SynchronizeBatchRunner(final Task task, InfoCounter counter,
+			AbstractSynchronize abstractSynchronize,
+			List<Entry<String, LscDatasets>> ids) {
+		this.task = task;
+		this.counter = counter;
+		this.abstractSynchronize = abstractSynchronize;
+		this.ids = ids;
+	}
+
+	/**
+	 * Set the callback run once all the entries of the batch are synchronized,
+	 * successfully or not
+	 * @param completion the callback
+	 */
+	public void setCompletion(Runnable completion) {
+		this.completion = completion;
+	}
+
+	@Override
+	public void run() {
+		if (ids.isEmpty()) {
+			if (completion != null) {
+				completion.run();
+			}
+			return;
+		}
+		AtomicInteger remaining = new AtomicInteger(ids.size());
+		Map<String, IBean> srcBeans = getBeans(task.getSourceService(), true, "source");
+		Map<String, IBean> dstBeans = getBeans(task.getDestinationService(), false, "destination");
+
+		for (Entry<String, LscDatasets> id : ids) {
+			SynchronizeEntryRunner runner = newEntryRunner(id);
+			if (srcBeans != null && srcBeans.containsKey(id.getKey())) {
+				runner.setSourceBean(srcBeans.get(id.getKey()));
+			}
+			if (dstBeans != null && dstBeans.containsKey(id.getKey())) {
+				runner.setDestinationBean(dstBeans.get(id.getKey()));
+			}
+			if (completion != null) {
+				runner.setCompletion(() -> {
+					if (remaining.decrementAndGet() == 0) {
+						completion.run();
+					}
+				});
+			}
+			runner.run();
+		}
+	}
+
+	/**
+	 * Create the runner synchronizing one entry of the batch
+	 * 
+	 * @param id the pivot of the entry
+	 * @return the runner
+	 */
+	protected SynchronizeEntryRunner newEntryRunner(Entry<String, LscDatasets> id) {
+		return new SynchronizeEntryRunner(task, counter, abstractSynchronize, id, true);
+	}
+
+	/**
+	 * Read the beans of the batch with a single request
+	 * 
+	 * @param service the service to read
+	 * @param fromSameService are the pivots provided by this service
+	 * @param serviceDescription the service description, for logging purposes
+	 * @return the beans by pivot name, or null if the service reads beans one by one
+	 */
+	private Map<String, IBean> getBeans(IService service, boolean fromSameService, String serviceDescription) {
+		if (!(service instanceof IBatchService) || ((IBatchService) service).getBatchSize() < 2) {
+			return null;
+		}
+		try {
+			return abstractSynchronize.getBeans(task, (IBatchService) service, ids, fromSameService, true);
+		} catch (LscServiceException e) {
+			// Each entry will search the service by itself
+			LOGGER.warn("Error while reading {} entries in the {}, reading them one by one: {}", ids.size(), serviceDescription, e.toString());
+			LOGGER.debug(e.toString(), e);
+			return null;
+		}
+	}
+}
@@ -4,9 +4,12 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.lsc.AbstractSynchronize;
+import org.lsc.beans.EntryTrace;
 import org.lsc.beans.InfoCounter;
+import org.lsc.beans.InfoCounter.Phase;
 import org.lsc.LscDatasets;
 import org.lsc.LscModificationType;
 import org.lsc.LscModifications;
@@ -14,6 +17,10 @@ import org.lsc.Task;
 import org.lsc.beans.BeanComparator;
 import org.lsc.beans.IBean;
 import org.lsc.exception.LscServiceCommunicationException;
+import org.lsc.exception.LscServiceException;
+import org.lsc.persistence.FingerprintStore;
+import org.lsc.service.IPipelinedWritableService;
+import org.lsc.utils.ScriptExpression;
 import org.lsc.utils.ScriptingEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,7 +34,17 @@ public class SynchronizeEntryRunner extends AbstractEntryRunner {
 
 	static final Logger LOGGER = LoggerFactory.getLogger(SynchronizeEntryRunner.class);
 	private boolean fromSource;
-	private Hooks hooks;
+	private static final Hooks hooks = new Hooks();
+	/** The source bean, when it has already been read with other entries */
+	private IBean sourceBean;
+	private boolean sourceBeanRead;
+	/** The destination bean, when it has already been read with other entries */
+	private IBean destinationBean;
+	private boolean destinationBeanRead;
+	/** The time spent in each phase of the synchronization of this entry */
+	private EntryTrace trace;
+	/** Run once the entry is synchronized, including the response to a pipelined modification */
+	private final AtomicReference<Runnable> completion = new AtomicReference<Runnable>();
 
 	public SynchronizeEntryRunner(final Task task, InfoCounter counter,
 			AbstractSynchronize abstractSynchronize,
@@ -35,14 +52,49 @@ public class SynchronizeEntryRunner extends AbstractEntryRunner {
 			boolean fromSource) {
 		super(task, counter, abstractSynchronize, id);
 		this.fromSource = fromSource;
-		this.hooks = new Hooks();
+	}
+
+	/**
+	 * Provide the source bean read beforehand, so that it is not searched
+	 * again while synchronizing this entry
+	 * @param sourceBean the source bean, null if there is none
+	 */
+	public void setSourceBean(IBean sourceBean) {
+		this.sourceBean = sourceBean;
+		this.sourceBeanRead = true;
+	}
+
+	/**
+	 * Provide the destination bean read beforehand, so that it is not searched
+	 * again while synchronizing this entry
+	 * @param destinationBean the destination bean, null if there is none
+	 */
+	public void setDestinationBean(IBean destinationBean) {
+		this.destinationBean = destinationBean;
+		this.destinationBeanRead = true;
 	}
 	
+	/**
+	 * Set the callback run once the entry is synchronized, successfully or
+	 * not, which is after the response to a pipelined modification
+	 * @param completion the callback
+	 */
+	public void setCompletion(Runnable completion) {
+		this.completion.set(completion);
+	}
+
 	@Override
 	public void run() {
 		counter.incrementCountAll();
 		try {
-			run(abstractSynchronize.getBean(task, fromSource ? task.getSourceService() : task.getDestinationService(), id.getKey(), id.getValue(), true, fromSource));
+			if (sourceBeanRead) {
+				run(sourceBean);
+			} else {
+				trace = new EntryTrace(counter);
+				IBean bean = abstractSynchronize.getBean(task, fromSource ? task.getSourceService() : task.getDestinationService(), id.getKey(), id.getValue(), true, fromSource);
+				trace.record(Phase.SOURCE_GET);
+				run(bean);
+			}
 		} catch (RuntimeException e) {
 			counter.incrementCountError();
 			abstractSynchronize.logActionError(null, id.getValue(), e);
@@ -50,9 +102,11 @@ public class SynchronizeEntryRunner extends AbstractEntryRunner {
 			if (e.getCause() instanceof LscServiceCommunicationException) {
 				LOGGER.error("Connection lost! Aborting.");
 			}
+			completed();
 		} catch (Exception e) {
 			counter.incrementCountError();
 			abstractSynchronize.logActionError(null, id.getValue(), e);
+			completed();
 		}
 	}
 
@@ -62,6 +116,11 @@ public class SynchronizeEntryRunner extends AbstractEntryRunner {
 		IBean dstBean = null;
 		/** Hash table to pass objects into JavaScript condition */
 		Map<String, Object> conditionObjects = null;
+		if (trace == null) {
+			trace = new EntryTrace(counter);
+		}
+		/** The trace is finished once the destination has answered when pipelined */
+		boolean pipelined = false;
 
 		try {
 			/*
@@ -82,8 +141,23 @@ public class SynchronizeEntryRunner extends AbstractEntryRunner {
 				return false;
 			}
 
+			// Skip the entries found in sync by the last synchronization and unchanged since
+			FingerprintStore fingerprintStore = task.getFingerprintStore();
+			String fingerprintKey = (id != null ? id.getKey() : entry.getMainIdentifier());
+			String fingerprint = null;
+			if (fingerprintStore != null && fingerprintKey != null) {
+				fingerprint = FingerprintStore.fingerprint(entry);
+				if (fingerprintStore.isUnchanged(fingerprintKey, fingerprint)) {
+					LOGGER.debug("Entry {} unchanged since the last synchronization, skipping it", fingerprintKey);
+					return true;
+				}
+			}
+
 			// Search destination for matching object
-			if(id != null) {
+			trace.mark();
+			if(destinationBeanRead) {
+				dstBean = destinationBean;
+			} else if(id != null) {
 				dstBean = abstractSynchronize.getBean(task, task.getDestinationService(), id.getKey(), id.getValue(), ! fromSource, fromSource);
 			} else {
 				LscDatasets entryDatasets = new LscDatasets();
@@ -93,18 +167,20 @@ public class SynchronizeEntryRunner extends AbstractEntryRunner {
 				dstBean = abstractSynchronize.getBean(task, task.getDestinationService(), entry.getMainIdentifier(), entryDatasets, ! fromSource, fromSource);
 			}
 
+			if (!destinationBeanRead) {
+				trace.record(Phase.DESTINATION_GET);
+			}
+
 			// Calculate operation that would be performed
-			LscModificationType modificationType = BeanComparator.calculateModificationType(task, entry, dstBean);
+			final LscModificationType modificationType = BeanComparator.calculateModificationType(task, entry, dstBean);
 
 			// Retrieve condition to evaluate before creating/updating
 			Boolean applyCondition = null;
-			String conditionString = task.getSyncOptions().getCondition(modificationType);
+			ScriptExpression condition = task.getExpression(task.getSyncOptions().getCondition(modificationType));
 
 			// Don't use JavaScript evaluator for primitive cases
-			if (conditionString.matches("true")) {
-				applyCondition = true;
-			} else if (conditionString.matches("false")) {
-				applyCondition = false;
+			if (condition.isConstant()) {
+				applyCondition = condition.getConstant();
 			} else {
 				conditionObjects = new HashMap<String, Object>();
 				conditionObjects.put("dstBean", dstBean);
@@ -115,14 +191,20 @@ public class SynchronizeEntryRunner extends AbstractEntryRunner {
 				}
 
 				// Evaluate if we have to do something
-				applyCondition = ScriptingEvaluator.evalToBoolean(task, conditionString, conditionObjects);
+				applyCondition = ScriptingEvaluator.evalToBoolean(task, condition, conditionObjects);
 			}
 
+			trace.record(Phase.CONDITION);
+
 			if (applyCondition) {
 				lm = BeanComparator.calculateModifications(task, entry, dstBean);
+				trace.record(Phase.COMPARE);
 
 				// if there's nothing to do, skip to the next object
 				if (lm == null) {
+					if (fingerprint != null) {
+						fingerprintStore.store(fingerprintKey, fingerprint);
+					}
 					return true;
 				}
 
@@ -141,19 +223,37 @@ public class SynchronizeEntryRunner extends AbstractEntryRunner {
 			}
 
 			// if we got here, we have a modification to apply - let's do it!
-			if (task.getDestinationService().apply(lm)) {
-				// Retrieve posthook for the current operation
-				hooks.postSyncHook(	task.getSyncOptions().getPostHook(modificationType),
-							task.getSyncOptions().getPostHookOutputFormat(),
-							lm);
-				counter.incrementCountCompleted();
-				abstractSynchronize.logAction(lm, id, syncName);
+			final Object identifier = (id != null ? id.getValue() : entry.getMainIdentifier());
+			if (task.getDestinationService() instanceof IPipelinedWritableService
+					&& ((IPipelinedWritableService) task.getDestinationService()).isPipelined()) {
+				// The outcome is handled once the destination has answered
+				final LscModifications sentModifications = lm;
+				final String sentFingerprint = fingerprint;
+				pipelined = true;
+				trace.mark();
+				try {
+					((IPipelinedWritableService) task.getDestinationService()).applyPipelined(lm,
+							success -> {
+								trace.record(Phase.APPLY);
+								try {
+									applied(sentModifications, modificationType, identifier, fingerprintStore,
+													fingerprintKey, sentFingerprint, success);
+								} finally {
+									trace.finish(String.valueOf(identifier));
+									completed();
+								}
+							});
+				} catch (LscServiceException | RuntimeException e) {
+					// Not sent: the callback will not be called
+					pipelined = false;
+					throw e;
+				}
 				return true;
-			} else {
-				counter.incrementCountError();
-				abstractSynchronize.logActionError(lm, (id != null ? id.getValue() : entry.getMainIdentifier()), new Exception("Technical problem while applying modifications to the destination"));
-				return false;
 			}
+			trace.mark();
+			boolean success = task.getDestinationService().apply(lm);
+			trace.record(Phase.APPLY);
+			return applied(lm, modificationType, identifier, fingerprintStore, fingerprintKey, fingerprint, success);
 		} catch (RuntimeException e) {
 			counter.incrementCountError();
 			abstractSynchronize.logActionError(lm, (id != null ? id.getValue() : ( entry != null ? entry.getMainIdentifier() : e.toString())), e);
@@ -166,8 +266,44 @@ public class SynchronizeEntryRunner extends AbstractEntryRunner {
 			counter.incrementCountError();
 			abstractSynchronize.logActionError(lm, (id != null ? id.getValue() : entry.getMainIdentifier()), e);
 			return false;
+		} finally {
+			if (!pipelined) {
+				trace.finish(id != null ? id.getKey() : (entry != null ? entry.getMainIdentifier() : null));
+				completed();
+			}
 		}
 	}
 
-}
+	private void completed() {
+		Runnable callback = completion.getAndSet(null);
+		if (callback != null) {
+			callback.run();
+		}
+	}
 
+	private boolean applied(LscModifications lm, LscModificationType modificationType, Object identifier,
+					FingerprintStore fingerprintStore, String fingerprintKey, String fingerprint, boolean success) {
+		if (fingerprint != null) {
+			if (success) {
+				fingerprintStore.store(fingerprintKey, fingerprint);
+			} else {
+				fingerprintStore.remove(fingerprintKey);
+			}
+		}
+		if (success) {
+			// Retrieve posthook for the current operation
+			trace.mark();
+			hooks.postSyncHook(	task.getSyncOptions().getPostHook(modificationType),
+						task.getSyncOptions().getPostHookOutputFormat(),
+						lm);
+			trace.record(Phase.HOOK);
+			counter.incrementCountCompleted(modificationType);
+			abstractSynchronize.logAction(lm, id, syncName);
+			return true;
+		} else {
+			counter.incrementCountError();
+			abstractSynchronize.logActionError(lm, identifier, new Exception("Technical problem while applying modifications to the destination"));
+			return false;
+		}
+	}
+}
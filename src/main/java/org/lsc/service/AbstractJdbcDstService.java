@@ -50,6 +50,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.lsc.LscModifications;
 import org.lsc.exception.LscServiceConfigurationException;
@@ -61,48 +62,107 @@ import com.ibatis.sqlmap.engine.mapping.parameter.ParameterMapping;
 
 /**
  * This class is a Database abstraction layour for a destination service
+ * <p>
+ * When a write batch size is set, the modifications are grouped and executed
+ * as a single JDBC batch in a single transaction. A batch is executed once
+ * full, or once its oldest modification has waited for the write batch
+ * interval. If the batch fails, its modifications are applied again one by
+ * one, each in its own transaction, so that the failing ones are identified.
+ * </p>
+ * <p>
+ * The modifications of a batch are executed in the order they were submitted,
+ * including one by one after a failure. Batches run concurrently, except that
+ * a batch modifying an entry waits for the earlier batches modifying the same
+ * entry, so that the modifications of an entry are applied in order.
+ * </p>
  * 
  * @author Sebastien Bahloul &lt;seb@lsc-project.org&gt;
  */
-public abstract class AbstractJdbcDstService extends AbstractJdbcService implements IWritableService {
+public abstract class AbstractJdbcDstService extends AbstractJdbcService implements IPipelinedWritableService {
+
+	/** Default maximum time a modification waits for its batch to be full, in milliseconds */
+	public static final int DEFAULT_WRITE_BATCH_INTERVAL = 1000;
 
 	private String serviceName;
 
+	/** Number of modifications executed in a single batch, 1 or less to disable batching */
+	private int writeBatchSize;
+
+	/** Maximum time a modification waits for its batch to be full, in milliseconds */
+	private int writeBatchInterval = DEFAULT_WRITE_BATCH_INTERVAL;
+
+	/** Lock protecting the pending batch, the executing batches and the flusher */
+	private final Object batchLock = new Object();
+
+	private List<PendingModification> batch;
+
+	private long batchDeadline;
+
+	private int executingBatches;
+
+	/** The last batch taken modifying each entry, until it is executed */
+	private final Map<String, Batch> lastBatches = new HashMap<String, Batch>();
+
+	private Thread batchFlusher;
+
+	/**
+	 * A modification waiting for its batch to be executed
+	 */
+	private static class PendingModification {
+
+		private final LscModifications lm;
+
+		private final ApplyCallback callback;
+
+		PendingModification(LscModifications lm, ApplyCallback callback) {
+			this.lm = lm;
+			this.callback = callback;
+		}
+	}
+
+	/**
+	 * A batch taken to be executed, once the earlier batches modifying the
+	 * same entries are executed
+	 */
+	private static class Batch {
+
+		private final List<PendingModification> modifications;
+
+		/** The earlier batches modifying the same entries */
+		private final List<Batch> predecessors = new ArrayList<Batch>();
+
+		private boolean executed;
+
+		Batch(List<PendingModification> modifications) {
+			this.modifications = modifications;
+		}
+	}
+
 	public AbstractJdbcDstService(String serviceName, SqlMapClient sqlMapClient, String bean)
 			throws LscServiceConfigurationException {
 		super(sqlMapClient, bean);
 		this.serviceName = serviceName;
 	}
 
+	/**
+	 * Group the modifications in batches
+	 * 
+	 * @param writeBatchSize the number of modifications executed in a single batch, 1 or less to disable batching
+	 * @param writeBatchInterval the maximum time a modification waits for its batch to be full, in milliseconds
+	 */
+	protected void setWriteBatch(int writeBatchSize, int writeBatchInterval) {
+		this.writeBatchSize = writeBatchSize;
+		if (writeBatchInterval > 0) {
+			this.writeBatchInterval = writeBatchInterval;
+		}
+	}
+
 	@Override
 	public boolean apply(LscModifications lm) throws LscServiceException {
 		Map<String, Object> attributeMap = getAttributesMap(lm.getLscAttributeModifications());
 		try {
 			sqlMapper.startTransaction();
-			switch (lm.getOperation()) {
-				case CHANGE_ID:
-					// Silently return without doing anything
-					break;
-				case CREATE_OBJECT:
-					for (String request : getRequestsNameForInsert()) {
-						LOGGER.debug("Executing " + request + "(" + attributeMap + ")");
-						sqlMapper.insert(request, attributeMap);
-					}
-					break;
-				case DELETE_OBJECT:
-					for (String request : getRequestsNameForDelete()) {
-						LOGGER.debug("Executing " + request + "(" + attributeMap + ")");
-						sqlMapper.delete(request, attributeMap);
-					}
-					break;
-				case UPDATE_OBJECT:
-					// Push the destination value
-					attributeMap = fillAttributesMap(attributeMap, lm.getDestinationBean());
-					for (String request : getRequestsNameForUpdate()) {
-						LOGGER.debug("Executing " + request + "(" + attributeMap + ")");
-						sqlMapper.update(request, attributeMap);
-					}
-			}
+			execute(lm, attributeMap);
 			sqlMapper.commitTransaction();
 		} catch (SQLException e) {
 			LOGGER.error(e.toString(), e);
@@ -120,6 +180,234 @@ public abstract class AbstractJdbcDstService extends AbstractJdbcService impleme
 		return true;
 	}
 
+	private void execute(LscModifications lm, Map<String, Object> attributeMap) throws SQLException {
+		switch (lm.getOperation()) {
+			case CHANGE_ID:
+				// Silently return without doing anything
+				break;
+			case CREATE_OBJECT:
+				for (String request : getRequestsNameForInsert()) {
+					LOGGER.debug("Executing " + request + "(" + attributeMap + ")");
+					sqlMapper.insert(request, attributeMap);
+				}
+				break;
+			case DELETE_OBJECT:
+				for (String request : getRequestsNameForDelete()) {
+					LOGGER.debug("Executing " + request + "(" + attributeMap + ")");
+					sqlMapper.delete(request, attributeMap);
+				}
+				break;
+			case UPDATE_OBJECT:
+				// Push the destination value
+				fillAttributesMap(attributeMap, lm.getDestinationBean());
+				for (String request : getRequestsNameForUpdate()) {
+					LOGGER.debug("Executing " + request + "(" + attributeMap + ")");
+					sqlMapper.update(request, attributeMap);
+				}
+		}
+	}
+
+	@Override
+	public boolean isPipelined() {
+		return writeBatchSize > 1;
+	}
+
+	@Override
+	public void applyPipelined(LscModifications lm, ApplyCallback callback) throws LscServiceException {
+		if (!isPipelined()) {
+			callback.applied(apply(lm));
+			return;
+		}
+		Batch fullBatch = null;
+		synchronized (batchLock) {
+			if (batch == null) {
+				batch = new ArrayList<PendingModification>(writeBatchSize);
+				batchDeadline = System.currentTimeMillis() + writeBatchInterval;
+				if (batchFlusher == null) {
+					batchFlusher = new Thread(this::flushExpiredBatches, serviceName + "-batch-flusher");
+					batchFlusher.setDaemon(true);
+					batchFlusher.start();
+				}
+			}
+			batch.add(new PendingModification(lm, callback));
+			if (batch.size() >= writeBatchSize) {
+				fullBatch = takeBatch();
+			}
+		}
+		if (fullBatch != null) {
+			executeBatch(fullBatch);
+		}
+	}
+
+	/**
+	 * The callbacks are run by the thread executing the batch, which is the
+	 * submitting thread unless the batch expired: the executor is not used.
+	 */
+	@Override
+	public void setCallbackExecutor(Executor executor) {
+	}
+
+	@Override
+	public void flush() throws LscServiceException {
+		Batch lastBatch = null;
+		synchronized (batchLock) {
+			if (batch != null) {
+				lastBatch = takeBatch();
+			}
+		}
+		if (lastBatch != null) {
+			executeBatch(lastBatch);
+		}
+		synchronized (batchLock) {
+			try {
+				while (executingBatches > 0) {
+					batchLock.wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new LscServiceException("Interrupted while waiting for the batches of " + serviceName, e);
+			}
+		}
+	}
+
+	/**
+	 * Take the pending batch to execute it, the caller must hold the batch lock
+	 * 
+	 * @return the pending batch, after the batches it has to wait for
+	 */
+	private Batch takeBatch() {
+		Batch takenBatch = new Batch(batch);
+		batch = null;
+		executingBatches++;
+		for (PendingModification modification : takenBatch.modifications) {
+			String mainIdentifier = modification.lm.getMainIdentifier();
+			if (mainIdentifier == null) {
+				continue;
+			}
+			Batch predecessor = lastBatches.put(mainIdentifier, takenBatch);
+			if (predecessor != null && predecessor != takenBatch && !takenBatch.predecessors.contains(predecessor)) {
+				takenBatch.predecessors.add(predecessor);
+			}
+		}
+		return takenBatch;
+	}
+
+	/**
+	 * Wait for the earlier batches modifying the same entries as a batch
+	 * 
+	 * @param takenBatch the batch about to be executed
+	 */
+	private void awaitPredecessors(Batch takenBatch) {
+		boolean interrupted = false;
+		synchronized (batchLock) {
+			for (Batch predecessor : takenBatch.predecessors) {
+				while (!predecessor.executed) {
+					try {
+						batchLock.wait();
+					} catch (InterruptedException e) {
+						// The modifications have to be applied anyway
+						interrupted = true;
+					}
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Execute the batches whose oldest modification has waited too long, until
+	 * no batch is pending
+	 */
+	private void flushExpiredBatches() {
+		while (true) {
+			Batch expiredBatch = null;
+			synchronized (batchLock) {
+				try {
+					while (expiredBatch == null) {
+						if (batch == null) {
+							batchFlusher = null;
+							return;
+						}
+						long remaining = batchDeadline - System.currentTimeMillis();
+						if (remaining > 0) {
+							batchLock.wait(remaining);
+						} else {
+							expiredBatch = takeBatch();
+						}
+					}
+				} catch (InterruptedException e) {
+					batchFlusher = null;
+					return;
+				}
+			}
+			executeBatch(expiredBatch);
+		}
+	}
+
+	/**
+	 * Execute modifications as a single batch in a single transaction, or one
+	 * by one if the batch fails, and tell each callback about the outcome
+	 * 
+	 * @param takenBatch the modifications to execute
+	 */
+	private void executeBatch(Batch takenBatch) {
+		List<PendingModification> modifications = takenBatch.modifications;
+		try {
+			awaitPredecessors(takenBatch);
+			boolean batchApplied = false;
+			try {
+				sqlMapper.startTransaction();
+				sqlMapper.startBatch();
+				for (PendingModification modification : modifications) {
+					execute(modification.lm, getAttributesMap(modification.lm.getLscAttributeModifications()));
+				}
+				sqlMapper.executeBatch();
+				sqlMapper.commitTransaction();
+				batchApplied = true;
+			} catch (SQLException e) {
+				LOGGER.warn("Error while applying a batch of {} modifications, applying them one by one: {}",
+						modifications.size(), e.toString());
+				LOGGER.debug(e.toString(), e);
+			} finally {
+				try {
+					sqlMapper.endTransaction();
+				} catch (SQLException e) {
+					LOGGER.error(e.toString(), e);
+				}
+			}
+
+			for (PendingModification modification : modifications) {
+				boolean applied = batchApplied;
+				if (!applied) {
+					try {
+						applied = apply(modification.lm);
+					} catch (LscServiceException e) {
+						LOGGER.error(e.toString(), e);
+					}
+				}
+				try {
+					modification.callback.applied(applied);
+				} catch (RuntimeException e) {
+					// Keep telling the other callbacks
+					LOGGER.error(e.toString(), e);
+				}
+			}
+		} finally {
+			synchronized (batchLock) {
+				executingBatches--;
+				takenBatch.executed = true;
+				for (PendingModification modification : modifications) {
+					if (modification.lm.getMainIdentifier() != null) {
+						lastBatches.remove(modification.lm.getMainIdentifier(), takenBatch);
+					}
+				}
+				batchLock.notifyAll();
+			}
+		}
+	}
+
 	/** Fetched attributes name cache */
 	private static Map<String, List<String>> attributesNameCache = new HashMap<String, List<String>>();
 
@@ -49,6 +49,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -60,7 +61,6 @@ import javax.naming.NamingException;
 import javax.naming.directory.BasicAttribute;
 
 import org.apache.commons.collections4.map.ListOrderedMap;
-import org.apache.commons.lang3.StringUtils;
 import org.lsc.LscDatasetModification;
 import org.lsc.LscDatasets;
 import org.lsc.Task;
@@ -75,6 +75,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ibatis.sqlmap.client.SqlMapClient;
+import com.ibatis.sqlmap.client.SqlMapException;
+import com.ibatis.sqlmap.client.event.RowHandler;
+import com.ibatis.sqlmap.engine.impl.SqlMapClientImpl;
+import com.ibatis.sqlmap.engine.mapping.statement.MappedStatement;
 
 /**
  * Generic JDBC iBatis Service Manage retrieving of list and object according t
@@ -83,7 +87,7 @@ import com.ibatis.sqlmap.client.SqlMapClient;
  * 
  * @author Sebastien Bahloul &lt;seb@lsc-project.org&gt;
  */
-public abstract class AbstractJdbcService implements IService {
+public abstract class AbstractJdbcService implements IStreamingService {
 
 	protected static final Logger LOGGER = LoggerFactory.getLogger(AbstractJdbcService.class);
 	protected SqlMapClient sqlMapper;
@@ -167,18 +171,11 @@ public abstract class AbstractJdbcService implements IService {
 		 * list returned, since it may be important when coming from a database. This is
 		 * really an API bug, getListPivots() should return a List, not a Map.
 		 */
-		Map<String, LscDatasets> ret = new ListOrderedMap();
+		final Map<String, LscDatasets> ret = new ListOrderedMap();
 
 		try {
-			List<HashMap<String, Object>> ids = (List<HashMap<String, Object>>) sqlMapper
-					.queryForList(getRequestNameForList());
-			Iterator<HashMap<String, Object>> idsIter = ids.iterator();
-			Map<String, Object> idMap;
-
-			for (int count = 1; idsIter.hasNext(); count++) {
-				idMap = idsIter.next();
-				ret.put(getMapKey(idMap, count), new LscDatasets(idMap));
-			}
+			// Convert the rows as they are read, without an intermediate list of rows
+			sqlMapper.queryWithRowHandler(getRequestNameForList(), new PivotRowHandler(ret::put));
 		} catch (SQLException e) {
 			LOGGER.warn("Error while looking for the entries list: {}", e.toString());
 			LOGGER.debug(e.toString(), e);
@@ -187,20 +184,109 @@ public abstract class AbstractJdbcService implements IService {
 		return ret;
 	}
 
+	/**
+	 * Execute the list request and hand each row over as soon as it is read from
+	 * the database, instead of building the whole list in memory.
+	 * 
+	 * @see org.lsc.service.IStreamingService#streamPivots(Task, PivotHandler)
+	 */
+	public long streamPivots(Task task, final PivotHandler handler) throws LscServiceException {
+		PivotRowHandler rowHandler = new PivotRowHandler(handler);
+		try {
+			sqlMapper.queryWithRowHandler(getRequestNameForList(), rowHandler);
+		} catch (SQLException e) {
+			LOGGER.warn("Error while looking for the entries list: {}", e.toString());
+			LOGGER.debug(e.toString(), e);
+			throw new LscServiceException(new CommunicationException(e.getMessage()));
+		}
+		return rowHandler.count;
+	}
+
+	/**
+	 * Convert each row of the list request to a pivot, keyed as in {@link #getListPivots(Task)}
+	 */
+	private class PivotRowHandler implements RowHandler {
+
+		private final PivotHandler handler;
+
+		private int count;
+
+		PivotRowHandler(PivotHandler handler) {
+			this.handler = handler;
+		}
+
+		@SuppressWarnings("unchecked")
+		public void handleRow(Object row) {
+			Map<String, Object> idMap = (Map<String, Object>) row;
+			handler.handlePivot(getMapKey(idMap, ++count), new LscDatasets(idMap));
+		}
+	}
+
 	protected String getMapKey(Map<String, Object> idMap, int count) {
 
-		String key;
 		// the key of the result Map is usually the DN
 		// since we don't have a DN from a database, we use a concatenation of:
 		// - all pivot attributes
 		// - a count of all objects (to make sure the key is unique)
 		// unless there's only one pivot, to be backwards compatible
-		if (idMap.values().size() == 1) {
-			key = idMap.values().iterator().next().toString();
-		} else {
-			key = StringUtils.join(idMap.values().iterator(), ", ") + " (" + count + ")";
+		Iterator<Object> values = idMap.values().iterator();
+		if (idMap.size() == 1) {
+			return values.next().toString();
+		}
+		StringBuilder key = new StringBuilder(16 * idMap.size() + 12);
+		while (values.hasNext()) {
+			Object value = values.next();
+			if (value != null) {
+				key.append(value);
+			}
+			if (values.hasNext()) {
+				key.append(", ");
+			}
+		}
+		return key.append(" (").append(count).append(')').toString();
+	}
+
+	/**
+	 * Set the number of rows fetched from the database at once while reading
+	 * the list request, so that the driver does not read the whole result
+	 * before the first row is handled.
+	 * <p>
+	 * iBatis only supports a fetch size per mapped statement: it is global to
+	 * the SQL map, which is shared by all the services using the same database
+	 * connection. Every query of the list request then uses the last fetch
+	 * size set, including the ones of other tasks, and a fetch size declared
+	 * on the statement in the SQL map file is overridden.
+	 * </p>
+	 * 
+	 * @param fetchSize the number of rows, or 0 to use the driver default
+	 * @throws LscServiceConfigurationException if the list request is not found
+	 */
+	protected void setListFetchSize(int fetchSize) throws LscServiceConfigurationException {
+		if (!(sqlMapper instanceof SqlMapClientImpl)) {
+			LOGGER.warn("Unable to set the fetch size on an unknown SQLMap Client type : " + sqlMapper.getClass().getName());
+			return;
+		}
+		try {
+			MappedStatement statement = ((SqlMapClientImpl) sqlMapper).getDelegate().getMappedStatement(getRequestNameForList());
+			Integer previousFetchSize = statement.getFetchSize();
+			if (previousFetchSize != null && previousFetchSize.intValue() != fetchSize) {
+				LOGGER.warn("The fetch size of the request {} is changed from {} to {} for all the tasks using it",
+						getRequestNameForList(), previousFetchSize, fetchSize);
+			}
+			statement.setFetchSize(fetchSize);
+		} catch (SqlMapException e) {
+			throw new LscServiceConfigurationException(e);
 		}
-		return key;
+	}
+
+	/**
+	 * Get the statistics of the database connection pool
+	 * 
+	 * @return the statistics, as a human readable string, or null if the data source is not a pool
+	 * @see DaoConfig#getPoolStatistics(SqlMapClient)
+	 */
+	public String getPoolStatistics() {
+		return DaoConfig.getPoolStatistics(sqlMapper);
 	}
 
 	/**
@@ -222,16 +308,7 @@ public abstract class AbstractJdbcService implements IService {
 			} else if (records.size() == 0) {
 				return null;
 			}
-			Map<String, Object> record = (Map<String, Object>) records.get(0);
-			for (Entry<String, Object> entry : record.entrySet()) {
-				if (entry.getValue() != null) {
-					srcBean.setDataset(entry.getKey(),
-							SetUtils.attributeToSet(new BasicAttribute(entry.getKey(), entry.getValue())));
-				} else {
-					srcBean.setDataset(entry.getKey(), SetUtils.attributeToSet(new BasicAttribute(entry.getKey())));
-				}
-			}
-			srcBean.setMainIdentifier(id);
+			fillBean(srcBean, (Map<String, Object>) records.get(0), id);
 			return srcBean;
 		} catch (InstantiationException e) {
 			LOGGER.error("Unable to get static method getInstance on {} ! This is probably a programmer's error ({})",
@@ -255,6 +332,116 @@ public abstract class AbstractJdbcService implements IService {
 		return null;
 	}
 
+	private void fillBean(IBean bean, Map<String, Object> record, String id) throws NamingException {
+		for (Entry<String, Object> entry : record.entrySet()) {
+			if (entry.getValue() != null) {
+				bean.setDataset(entry.getKey(),
+						SetUtils.attributeToSet(new BasicAttribute(entry.getKey(), entry.getValue())));
+			} else {
+				bean.setDataset(entry.getKey(), SetUtils.attributeToSet(new BasicAttribute(entry.getKey())));
+			}
+		}
+		bean.setMainIdentifier(id);
+	}
+
+	/**
+	 * Get the name of the request reading the objects of several pivots at
+	 * once, see {@link #getBeans(Task, Map, boolean)}
+	 * 
+	 * @return the request name, or null to read the objects one by one
+	 */
+	public String getRequestNameForObjectBatch() {
+		return null;
+	}
+
+	/**
+	 * Read the objects of several pivots with a single request. The request
+	 * receives a map holding, for each pivot attribute name, the list of the
+	 * values of the pivots, e.g. to be used in an IN list through an
+	 * <code>iterate</code> element, and under the <code>pivots</code> key,
+	 * the list of the pivot attribute maps. Each returned record must contain
+	 * the pivot attributes, so that it is matched back to its pivot. The pivots
+	 * matching no record, including the records which values are formatted
+	 * differently from the list request, are left to the single object request.
+	 * 
+	 * @see org.lsc.service.IBatchService#getBeans(Task, Map, boolean)
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, IBean> getBeans(Task task, Map<String, LscDatasets> pivots, boolean fromSameService) throws LscServiceException {
+		Map<String, IBean> beans = new HashMap<String, IBean>();
+		// The pivots provided by another service are read one by one by the clean request
+		if (!fromSameService || getRequestNameForObjectBatch() == null || pivots.isEmpty()) {
+			return beans;
+		}
+
+		List<String> attributeNames = null;
+		List<Map<String, String>> pivotsAttributes = new ArrayList<Map<String, String>>(pivots.size());
+		Map<String, Object> parameters = new HashMap<String, Object>();
+		Map<String, String> pivotNames = new HashMap<String, String>(pivots.size() * 2);
+		for (Entry<String, LscDatasets> pivot : pivots.entrySet()) {
+			Map<String, String> pivotAttributes = getAttributesMap(pivot.getValue());
+			if (attributeNames == null) {
+				attributeNames = new ArrayList<String>(pivotAttributes.keySet());
+				for (String attributeName : attributeNames) {
+					parameters.put(attributeName, new ArrayList<String>(pivots.size()));
+				}
+			}
+			String[] values = new String[attributeNames.size()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = pivotAttributes.get(attributeNames.get(i));
+				((List<String>) parameters.get(attributeNames.get(i))).add(values[i]);
+			}
+			pivotsAttributes.add(pivotAttributes);
+			pivotNames.put(getPivotKey(values), pivot.getKey());
+		}
+		parameters.put("pivots", pivotsAttributes);
+
+		try {
+			List<?> records = sqlMapper.queryForList(getRequestNameForObjectBatch(), parameters);
+			Set<String> ambiguousPivotNames = new HashSet<String>();
+			for (Object row : records) {
+				Map<String, Object> record = (Map<String, Object>) row;
+				String[] values = new String[attributeNames.size()];
+				for (Entry<String, Object> entry : record.entrySet()) {
+					for (int i = 0; i < values.length; i++) {
+						if (entry.getValue() != null && attributeNames.get(i).equalsIgnoreCase(entry.getKey())) {
+							values[i] = getValue(entry.getValue());
+						}
+					}
+				}
+				String pivotName = pivotNames.get(getPivotKey(values));
+				if (pivotName == null) {
+					LOGGER.debug("Ignoring a record not matching any requested pivot: {}", record);
+				} else if (beans.containsKey(pivotName)) {
+					ambiguousPivotNames.add(pivotName);
+				} else {
+					IBean bean = beanClass.newInstance();
+					fillBean(bean, record, pivotName);
+					beans.put(pivotName, bean);
+				}
+			}
+			// Let the single object request report the pivots matching several records
+			beans.keySet().removeAll(ambiguousPivotNames);
+		} catch (SQLException e) {
+			LOGGER.debug(e.toString(), e);
+			throw new LscServiceException(new CommunicationException(e.getMessage()));
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new LscServiceException("Unable to instantiate " + beanClass.getName(), e);
+		} catch (NamingException e) {
+			throw new LscServiceException(e);
+		}
+		return beans;
+	}
+
+	private static String getPivotKey(String[] values) {
+		StringBuilder key = new StringBuilder();
+		for (String value : values) {
+			// Distinguish a missing value from an empty one
+			key.append(value != null ? "=" + value : "").append('\0');
+		}
+		return key.toString();
+	}
+
 	public static Map<String, Object> fillAttributesMap(Map<String, Object> datasets, IBean destinationBean) {
 		for (String attributeName : destinationBean.datasets().getAttributesNames()) {
 			if (!datasets.containsKey(attributeName)) {
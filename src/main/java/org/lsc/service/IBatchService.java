@@ -0,0 +1,86 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.service;
+
+import java.util.Map;
+
+import org.lsc.LscDatasets;
+import org.lsc.Task;
+import org.lsc.beans.IBean;
+import org.lsc.exception.LscServiceException;
+
+/**
+ * Interface used by services able to read several beans with a single request.
+ * <p>
+ * The synchronization groups the pivots read from the source and asks such a
+ * source or destination service for all the matching beans at once, instead
+ * of one request per entry.
+ * </p>
+ */
+public interface IBatchService extends IService {
+
+	/**
+	 * Get the number of pivots to group in a single {@link #getBeans(Task, Map, boolean)} call.
+	 * 
+	 * @return the batch size, batches are not used if it is lower than 2
+	 */
+	int getBatchSize();
+
+	/**
+	 * The objects getter according to their identifiers.
+	 * 
+	 * @param pivots Map of pivot names and attributes, such as provided to
+	 *            {@link IService#getBean(Task, String, LscDatasets, boolean)}
+	 * @param fromSameService are the pivot attributes provided by the same service
+	 * @return Map of pivot names and beans. A pivot mapped to null has no
+	 *         matching object, a pivot missing from the map could not be resolved
+	 *         by the batch and must be read with
+	 *         {@link IService#getBean(Task, String, LscDatasets, boolean)}
+	 * @throws LscServiceException May throw a {@link LscServiceException} if an
+	 *             error occurs while searching the directory.
+	 */
+	Map<String, IBean> getBeans(Task task, Map<String, LscDatasets> pivots, boolean fromSameService) throws LscServiceException;
+}
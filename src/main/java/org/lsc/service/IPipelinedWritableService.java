@@ -0,0 +1,114 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.service;
+
+import java.util.concurrent.Executor;
+
+import org.lsc.LscModifications;
+import org.lsc.exception.LscServiceException;
+
+/**
+ * Interface used by destination services able to send modifications without
+ * waiting for the previous ones to be acknowledged, or to group them in
+ * batches.
+ * <p>
+ * The caller is told of the outcome of each modification through a callback,
+ * possibly called from another thread, once the response is received.
+ * Modifications on the same entry are still applied in the order they were
+ * submitted.
+ * </p>
+ */
+public interface IPipelinedWritableService extends IWritableService {
+
+	/**
+	 * Receive the outcome of a pipelined modification
+	 */
+	interface ApplyCallback {
+
+		/**
+		 * Called once the response to the modification has been received
+		 *
+		 * @param success <code>true</code> if the modification has been applied
+		 */
+		void applied(boolean success);
+	}
+
+	/**
+	 * Tells if modifications must be sent through {@link #applyPipelined(LscModifications, ApplyCallback)}
+	 *
+	 * @return <code>true</code> if pipelining is enabled for this service
+	 */
+	boolean isPipelined();
+
+	/**
+	 * Send lsc modifications, without waiting for the response. This blocks
+	 * only while too many modifications are waiting for their response, or
+	 * while a modification on the same entry is still pending.
+	 *
+	 * @param lm       Modifications to apply
+	 * @param callback the callback called once the response is received
+	 * @throws LscServiceException thrown if the modifications could not be sent
+	 */
+	void applyPipelined(LscModifications lm, ApplyCallback callback) throws LscServiceException;
+
+	/**
+	 * Set the executor on which the callbacks are run, so that a slow callback
+	 * does not delay the handling of the next responses. A service calling
+	 * back from the submitting thread may ignore it.
+	 *
+	 * @param executor the executor, null to run the callbacks where the responses are read
+	 */
+	void setCallbackExecutor(Executor executor);
+
+	/**
+	 * Wait for the responses to all the modifications sent so far. The
+	 * modifications whose response does not come in time are reported as
+	 * failed to their callback.
+	 *
+	 * @throws LscServiceException thrown if the wait is interrupted
+	 */
+	void flush() throws LscServiceException;
+}
@@ -0,0 +1,97 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.service;
+
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.lsc.LscDatasets;
+import org.lsc.Task;
+import org.lsc.exception.LscServiceException;
+
+/**
+ * Extend IAsynchronousService for services receiving the changes from the
+ * data source as they happen, instead of being polled for them.
+ * <p>
+ * The changes are handed over to a {@link ChangeHandler} as soon as they
+ * arrive, grouped when several of them are already available. The handler may
+ * block (for instance when the synchronization thread pool queue is full),
+ * which throttles the reading.
+ * </p>
+ */
+public interface IPushAsynchronousService extends IAsynchronousService {
+
+	/**
+	 * Callback receiving the changes while listening to the data source
+	 */
+	interface ChangeHandler {
+
+		/**
+		 * Handle the changes received together. While the service is idle,
+		 * this is called with no change at least every
+		 * {@link IAsynchronousService#getInterval()} milliseconds, to tell
+		 * that the service is still listening.
+		 * 
+		 * @param changes the identifiers of the changed objects, as {@link IAsynchronousService#getNextId(Task)} would return them
+		 * @param done to run once all the changes have been synchronized, successfully or not, so that the
+		 *             service can record the point from which to resume the stream. It is not run for changes
+		 *             dropped before being synchronized.
+		 */
+		void handleChanges(List<Entry<String, LscDatasets>> changes, Runnable done);
+	}
+
+	/**
+	 * Listen to the changes of the data source and hand them over. This
+	 * blocks until the thread is interrupted or the data source ends the
+	 * stream of changes.
+	 * 
+	 * @param task the task being run
+	 * @param handler the handler receiving the changes
+	 * @throws LscServiceException if the changes cannot be read. Changes read before the error have
+	 *             already been handed over.
+	 */
+	void listen(Task task, ChangeHandler handler) throws LscServiceException;
+}
@@ -0,0 +1,102 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.service;
+
+import java.util.List;
+
+import org.lsc.Task;
+import org.lsc.beans.IBean;
+import org.lsc.exception.LscServiceException;
+
+/**
+ * Interface used by services able to read all their beans in a single scan,
+ * sorted by their pivot attribute.
+ * <p>
+ * When both the source and the destination of a task implement it, the task
+ * may be run as a merge join: both sides are read once, side by side, instead
+ * of one request per entry.
+ * </p>
+ */
+public interface IScanService extends IService {
+
+	/**
+	 * The beans of a scan, read one by one.
+	 */
+	interface BeanScanner {
+
+		/**
+		 * Read the next bean
+		 * 
+		 * @return the next bean, or null at the end of the scan
+		 * @throws LscServiceException if the bean can not be read
+		 */
+		IBean next() throws LscServiceException;
+
+		/**
+		 * Release the scan, even if all the beans have not been read
+		 * 
+		 * @throws LscServiceException if the scan can not be released
+		 */
+		void close() throws LscServiceException;
+	}
+
+	/**
+	 * Get the names of the pivot attributes, whose values identify the beans.
+	 * 
+	 * @return the pivot attributes names
+	 */
+	List<String> getPivotAttributes();
+
+	/**
+	 * Open a scan of all the beans, which must be sorted by increasing value of
+	 * the first pivot attribute, ignoring case.
+	 * 
+	 * @param task the task being run
+	 * @return the opened scan
+	 * @throws LscServiceException if the scan can not be opened
+	 */
+	BeanScanner scanBeans(Task task) throws LscServiceException;
+}
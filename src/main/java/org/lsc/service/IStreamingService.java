@@ -0,0 +1,91 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.service;
+
+import org.lsc.LscDatasets;
+import org.lsc.Task;
+import org.lsc.exception.LscServiceException;
+
+/**
+ * Extend default IService interface to enumerate the objects' identifiers
+ * without holding all of them in memory.
+ * <p>
+ * Identifiers are handed over to a {@link PivotHandler} as soon as they are
+ * read from the service. The handler may block (for instance when the
+ * synchronization thread pool queue is full), which throttles the reading.
+ * </p>
+ * <p>
+ * Implementations must return the same identifiers as
+ * {@link IService#getListPivots(Task)} would.
+ * </p>
+ */
+public interface IStreamingService extends IService {
+
+	/**
+	 * Callback receiving each object identifier while the list is being read
+	 */
+	interface PivotHandler {
+
+		/**
+		 * Handle one object identifier
+		 * 
+		 * @param pivotName Name of the entry, as it would be a key of {@link IService#getListPivots(Task)}
+		 * @param pivotAttributes Map of attribute names and values identifying the entry
+		 */
+		void handlePivot(String pivotName, LscDatasets pivotAttributes);
+	}
+
+	/**
+	 * Read all the objects' identifiers and hand them over one by one.
+	 * 
+	 * @param task the task being run
+	 * @param handler the handler receiving the identifiers
+	 * @return the number of identifiers handed over
+	 * @throws LscServiceException May throw a {@link LscServiceException} if an error occurs while
+	 *             searching the directory. Identifiers read before the error have already been handed over.
+	 */
+	long streamPivots(Task task, PivotHandler handler) throws LscServiceException;
+}
@@ -94,6 +94,10 @@ public class SimpleJdbcDstService extends AbstractJdbcDstService {
 						(DatabaseConnectionType) task.getDatabaseDestinationService().getConnection().getReference()),
 				task.getBean());
 		serviceConf = task.getDatabaseDestinationService();
+		if (serviceConf.getWriteBatchSize() != null) {
+			setWriteBatch(serviceConf.getWriteBatchSize(),
+					serviceConf.getWriteBatchInterval() != null ? serviceConf.getWriteBatchInterval() : DEFAULT_WRITE_BATCH_INTERVAL);
+		}
 	}
 
 	/*
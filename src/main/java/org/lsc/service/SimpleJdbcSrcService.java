@@ -63,12 +63,16 @@ import org.lsc.exception.LscServiceInitializationException;
  * @author Jonathan Clarke &lt;jonathan@phillipoux.net&gt;
  *
  */
-public class SimpleJdbcSrcService extends AbstractJdbcService implements IAsynchronousService {
+public class SimpleJdbcSrcService extends AbstractJdbcService implements IAsynchronousService, IBatchService {
 
 	private final String requestNameForList;
 	private final String requestNameForNextId;
 	private final String requestNameForObject;
 	private final String requestNameForClean;
+	private final String requestNameForObjectBatch;
+
+	/** Number of pivots read by a single batch request */
+	private final int batchSize;
 
 	/** Period in (milliseconds) */
 	private int interval;
@@ -88,12 +92,17 @@ public class SimpleJdbcSrcService extends AbstractJdbcService implements IAsynch
 		requestNameForObject = serviceConf.getRequestNameForObject();
 		requestNameForNextId = serviceConf.getRequestNameForNextId();
 		requestNameForClean = serviceConf.getRequestNameForClean();
+		requestNameForObjectBatch = serviceConf.getRequestNameForObjectBatch();
+		batchSize = (requestNameForObjectBatch != null && serviceConf.getBatchSize() != null ? serviceConf.getBatchSize() : 1);
 		if (requestNameForClean == null) {
 			LOGGER.warn("No clean request has been specified for task=" + task.getName()
 					+ ". During the clean phase, LSC wouldn't be able to get the right entries and may delete all destination entries !");
 		}
 
 		interval = (serviceConf.getInterval() != null ? serviceConf.getInterval().intValue() : 5) * 1000;
+		if (requestNameForList != null && serviceConf.getFetchSize() != null && serviceConf.getFetchSize() > 0) {
+			setListFetchSize(serviceConf.getFetchSize());
+		}
 	}
 
 	/*
@@ -136,6 +145,16 @@ public class SimpleJdbcSrcService extends AbstractJdbcService implements IAsynch
 		return requestNameForClean;
 	}
 
+	@Override
+	public String getRequestNameForObjectBatch() {
+		return requestNameForObjectBatch;
+	}
+
+	@Override
+	public int getBatchSize() {
+		return batchSize;
+	}
+
 	@Override
 	public String getRequestNameForObjectOrClean(boolean fromSameService) {
 		if (fromSameService) {
@@ -46,10 +46,12 @@
 package org.lsc.service;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -66,10 +68,12 @@ import javax.net.ssl.TrustManagerFactory;
 
 import org.apache.directory.api.ldap.codec.api.DefaultConfigurableBinaryAttributeDetector;
 import org.apache.directory.api.ldap.extras.controls.SynchronizationModeEnum;
+import org.apache.directory.api.ldap.extras.controls.syncrepl.syncDone.SyncDoneValue;
 import org.apache.directory.api.ldap.extras.controls.syncrepl.syncRequest.SyncRequestValue;
 import org.apache.directory.api.ldap.extras.controls.syncrepl.syncRequest.SyncRequestValueImpl;
 import org.apache.directory.api.ldap.extras.controls.syncrepl.syncState.SyncStateTypeEnum;
 import org.apache.directory.api.ldap.extras.controls.syncrepl.syncState.SyncStateValue;
+import org.apache.directory.api.ldap.extras.intermediate.syncrepl.SyncInfoValue;
 import org.apache.directory.api.ldap.model.cursor.EntryCursor;
 import org.apache.directory.api.ldap.model.entry.Attribute;
 import org.apache.directory.api.ldap.model.entry.Entry;
@@ -86,6 +90,7 @@ import org.apache.directory.ldap.client.api.LdapAsyncConnection;
 import org.apache.directory.ldap.client.api.LdapConnectionConfig;
 import org.apache.directory.ldap.client.api.LdapNetworkConnection;
 import org.apache.directory.ldap.client.api.future.SearchFuture;
+import org.lsc.Configuration;
 import org.lsc.LscDatasets;
 import org.lsc.Task;
 import org.lsc.beans.IBean;
@@ -94,6 +99,7 @@ import org.lsc.exception.LscServiceCommunicationException;
 import org.lsc.exception.LscServiceConfigurationException;
 import org.lsc.exception.LscServiceException;
 import org.lsc.jndi.SimpleJndiSrcService;
+import org.lsc.persistence.SyncStateStore;
 import org.lsc.utils.ScriptingEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -103,7 +109,7 @@ import org.slf4j.LoggerFactory;
  * to a compatible directory to get updates on the fly.
  * @author Sebastien Bahloul &lt;seb@lsc-project.org&gt;
  */
-public class SyncReplSourceService extends SimpleJndiSrcService implements IAsynchronousService, Closeable {
+public class SyncReplSourceService extends SimpleJndiSrcService implements IPushAsynchronousService, Closeable {
 
 	protected static final Logger LOGGER = LoggerFactory.getLogger(SyncReplSourceService.class);
 
@@ -118,6 +124,17 @@ public class SyncReplSourceService extends SimpleJndiSrcService implements IAsyn
 	
 	private SearchFuture sf;
 
+	/** The connection of the search continued with the changes, closed once the search ends */
+	private LdapAsyncConnection searchConnection;
+
+	/** The maximum number of changes handed over together */
+	private static final int MAX_CHANGES_HANDED_OVER = 1000;
+
+	/** The syncrepl cookie saved to resume the changes, null if not configured */
+	private SyncStateStore syncStateStore;
+
+	private long lastCheckpoint;
+
 	public SyncReplSourceService(final TaskType task)
 			throws LscServiceConfigurationException {
 		super(task);
@@ -128,6 +145,18 @@ public class SyncReplSourceService extends SimpleJndiSrcService implements IAsyn
 		ldapConn = (LdapConnectionType) srsc.getConnection().getReference();
 		
 		connection = getConnection(ldapConn);
+
+		if (srsc.getSyncStateFile() != null) {
+			File syncStateFile = new File(srsc.getSyncStateFile());
+			if (!syncStateFile.isAbsolute()) {
+				syncStateFile = new File(Configuration.getConfigurationDirectory(), srsc.getSyncStateFile());
+			}
+			try {
+				syncStateStore = new SyncStateStore(syncStateFile);
+			} catch (IOException e) {
+				throw new LscServiceConfigurationException("Unable to read the synchronization state from " + syncStateFile, e);
+			}
+		}
 	}
 
 	public static LdapAsyncConnection getConnection(LdapConnectionType ldapConn) throws LscServiceConfigurationException {
@@ -173,6 +202,10 @@ public class SyncReplSourceService extends SimpleJndiSrcService implements IAsyn
 	
 	@Override
 	public void close() throws IOException {
+		if (syncStateStore != null) {
+			syncStateStore.checkpoint();
+		}
+		closeSearchConnection();
 		connection.close();
 	}
 	
@@ -183,22 +216,44 @@ public class SyncReplSourceService extends SimpleJndiSrcService implements IAsyn
 				connection = getConnection(ldapConn);
 			}
 
-                        String filterAll = getFilterAll();
-                        String allEntriesFilter = allEntriesFilter();
+			return convertSearchEntries(connection.search(getBaseDn(), getListFilter(task), SearchScope.SUBTREE,
+					getAttrsId().toArray(new String[getAttrsId().size()])));
+		} catch (RuntimeException e) {
+			throw new LscServiceException(e.toString(), e);
+		} catch (LdapException e) {
+			throw new LscServiceException(e.toString(), e);
+		}
+	}
 
-                        if( allEntriesFilter != null  && !allEntriesFilter.isEmpty() )
-                        {
-                                // Evaluate the filter as a script
-                                filterAll = ScriptingEvaluator.evalFilter(task, allEntriesFilter, null);
-                        }
+	@Override
+	public long streamPivots(Task task, PivotHandler handler) throws LscServiceException {
+		EntryCursor entryCursor;
+		try {
+			if (!connection.isConnected()) {
+				connection = getConnection(ldapConn);
+			}
 
-			return convertSearchEntries(connection.search(getBaseDn(), filterAll, SearchScope.SUBTREE,
-					getAttrsId().toArray(new String[getAttrsId().size()])));
+			entryCursor = connection.search(getBaseDn(), getListFilter(task), SearchScope.SUBTREE,
+					getAttrsId().toArray(new String[getAttrsId().size()]));
 		} catch (RuntimeException e) {
 			throw new LscServiceException(e.toString(), e);
 		} catch (LdapException e) {
 			throw new LscServiceException(e.toString(), e);
 		}
+
+		long count = 0;
+		try {
+			while (entryCursor.next()) {
+				Entry entry = entryCursor.get();
+				handler.handlePivot(entry.getDn().getName(), convertEntry(entry));
+				count++;
+			}
+			entryCursor.getSearchResultDone();
+			entryCursor.close();
+		} catch (Exception e) {
+			throw new LscServiceException("Error while performing search. Results may be incomplete." + e, e);
+		}
+		return count;
 	}
 
 	/**
@@ -282,30 +337,7 @@ public class SyncReplSourceService extends SimpleJndiSrcService implements IAsyn
 	public java.util.Map.Entry<String, LscDatasets> getNextId(Task task) throws LscServiceException {
 		Map<String, LscDatasets> temporaryMap = new HashMap<String, LscDatasets>(1);
 		if(sf == null || sf.isCancelled()) {
-
-                        String filterAll = getFilterAll();
-                        String allEntriesFilter = allEntriesFilter();
-
-                        if( allEntriesFilter != null  && !allEntriesFilter.isEmpty() )
-                        {
-                                // Evaluate the filter as a script
-                                filterAll = ScriptingEvaluator.evalFilter(task, allEntriesFilter, null);
-                        }
-
-			try {
-				SearchRequest searchRequest = new SearchRequestImpl();
-				searchRequest.addControl(getSearchContinuationControl(srsc.getServerType()));
-				searchRequest.setBase(new Dn(getBaseDn()));
-				searchRequest.setFilter(filterAll);
-				searchRequest.setDerefAliases(getAlias(ldapConn.getDerefAliases()));
-				searchRequest.setScope(SearchScope.SUBTREE);
-				searchRequest.addAttributes(getAttrsId().toArray(new String[getAttrsId().size()]));
-				sf = getConnection(ldapConn).searchAsync(searchRequest);
-			} catch (LdapInvalidDnException e) {
-				throw new LscServiceException(e.toString(), e);
-			} catch (LdapException e) {
-				throw new LscServiceException(e.toString(), e);
-			}
+			sf = startSearch(task);
 		}
 		Response searchResponse = null;
 		try {
@@ -313,20 +345,189 @@ public class SyncReplSourceService extends SimpleJndiSrcService implements IAsyn
 		} catch (InterruptedException e) {
 			LOGGER.warn("Interrupted search !");
 		}
+		// The synchronization of the entry returned is not known: the cookie is only saved by listen()
+		updateSyncState(searchResponse);
 		if(checkSearchResponse(searchResponse)) {
 			SearchResultEntry sre = ((SearchResultEntry) searchResponse);
 			temporaryMap.put(sre.getObjectName().toString(), convertEntry(sre.getEntry(), true));
 			return temporaryMap.entrySet().iterator().next();
 		} else if(searchResponse != null && searchResponse.getType() == MessageTypeEnum.SEARCH_RESULT_DONE){
-			LdapResult result = ((SearchResultDone)searchResponse).getLdapResult();
-			if(result.getResultCode() != ResultCodeEnum.SUCCESS) {
-				throw new LscServiceCommunicationException(result.getDiagnosticMessage(), null);
-			}
 			sf = null;
+			closeSearchConnection();
+			checkSearchResultDone((SearchResultDone) searchResponse);
 		}
 		return null;
 	}
 
+	@Override
+	public void listen(Task task, ChangeHandler handler) throws LscServiceException {
+		SearchFuture future = startSearch(task);
+		List<java.util.Map.Entry<String, LscDatasets>> changes = new ArrayList<java.util.Map.Entry<String, LscDatasets>>();
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				// Wait for the next change, then take the ones already received along
+				Response searchResponse = future.get(interval, TimeUnit.MILLISECONDS);
+				if (searchResponse == null && future.isCancelled()) {
+					throw new LscServiceCommunicationException("The search listening to the changes has been abandoned", null);
+				}
+				while (searchResponse != null) {
+					updateSyncState(searchResponse);
+					if (checkSearchResponse(searchResponse)) {
+						SearchResultEntry sre = ((SearchResultEntry) searchResponse);
+						changes.add(new SimpleImmutableEntry<String, LscDatasets>(sre.getObjectName().toString(), convertEntry(sre.getEntry(), true)));
+					} else if (searchResponse.getType() == MessageTypeEnum.SEARCH_RESULT_DONE) {
+						handOver(handler, changes);
+						checkSearchResultDone((SearchResultDone) searchResponse);
+						return;
+					}
+					if (changes.size() >= MAX_CHANGES_HANDED_OVER) {
+						break;
+					}
+					searchResponse = future.get(1, TimeUnit.NANOSECONDS);
+				}
+				handOver(handler, changes);
+				changes = new ArrayList<java.util.Map.Entry<String, LscDatasets>>();
+				checkpoint();
+			}
+		} catch (InterruptedException e) {
+			LOGGER.debug("Listening to the changes interrupted");
+			Thread.currentThread().interrupt();
+		} finally {
+			future.cancel(true);
+			closeSearchConnection();
+		}
+	}
+
+	/**
+	 * Hand the changes over, along with the cookie received with them to
+	 * save once they are synchronized
+	 */
+	private void handOver(ChangeHandler handler, List<java.util.Map.Entry<String, LscDatasets>> changes) {
+		Runnable done = (syncStateStore != null ? syncStateStore.handOver() : () -> { });
+		handler.handleChanges(changes, done);
+	}
+
+	/**
+	 * Send the search request continued by the server with the changes, on a
+	 * new connection replacing the one of the previous search, so that the
+	 * search is resumed from the saved cookie after a connection loss
+	 * 
+	 * @param task the task being run
+	 * @return the future receiving the responses
+	 * @throws LscServiceCommunicationException if the directory cannot be reached
+	 * @throws LscServiceException if the search cannot be sent
+	 */
+	SearchFuture startSearch(Task task) throws LscServiceException {
+		String filterAll = getListFilter(task);
+
+		closeSearchConnection();
+		try {
+			// The configuration has been checked by the first connection: this is a connection failure
+			searchConnection = getConnection(ldapConn);
+		} catch (LscServiceConfigurationException e) {
+			throw new LscServiceCommunicationException(e.getMessage(), e);
+		}
+		if (searchConnection == null) {
+			throw new LscServiceCommunicationException("Unable to connect to " + ldapConn.getUrl(), null);
+		}
+
+		try {
+			SearchRequest searchRequest = new SearchRequestImpl();
+			Control continuationControl = getSearchContinuationControl(srsc.getServerType());
+			if (continuationControl instanceof SyncRequestValue && syncStateStore != null && syncStateStore.getCookie() != null) {
+				LOGGER.info("Resuming the changes from the saved synchronization cookie");
+				((SyncRequestValue) continuationControl).setCookie(syncStateStore.getCookie());
+			}
+			searchRequest.addControl(continuationControl);
+			searchRequest.setBase(new Dn(getBaseDn()));
+			searchRequest.setFilter(filterAll);
+			searchRequest.setDerefAliases(getAlias(ldapConn.getDerefAliases()));
+			searchRequest.setScope(SearchScope.SUBTREE);
+			searchRequest.addAttributes(getAttrsId().toArray(new String[getAttrsId().size()]));
+			return searchConnection.searchAsync(searchRequest);
+		} catch (LdapInvalidDnException e) {
+			throw new LscServiceException(e.toString(), e);
+		} catch (LdapException e) {
+			throw new LscServiceCommunicationException(e.toString(), e);
+		}
+	}
+
+	private void closeSearchConnection() {
+		if (searchConnection == null) {
+			return;
+		}
+		try {
+			searchConnection.close();
+		} catch (IOException e) {
+			LOGGER.debug("Error while closing the LDAP connection: " + e.toString(), e);
+		}
+		searchConnection = null;
+	}
+
+	/**
+	 * Record the syncrepl cookie received with a response, if any: the
+	 * syncState control of an entry, the syncDone control ending the search,
+	 * or the syncInfo intermediate response sent when the directory moves
+	 * from the refresh to the persist stage or has a new cookie
+	 */
+	private void updateSyncState(Response searchResponse) {
+		if (syncStateStore == null || searchResponse == null) {
+			return;
+		}
+		if (searchResponse.getType() == MessageTypeEnum.SEARCH_RESULT_ENTRY) {
+			SyncStateValue syncStateCtrl = ( SyncStateValue ) searchResponse.getControl( SyncStateValue.OID );
+			if (syncStateCtrl != null) {
+				syncStateStore.update(syncStateCtrl.getCookie());
+			}
+		} else if (searchResponse.getType() == MessageTypeEnum.SEARCH_RESULT_DONE) {
+			SyncDoneValue syncDoneCtrl = ( SyncDoneValue ) searchResponse.getControl( SyncDoneValue.OID );
+			if (syncDoneCtrl != null) {
+				syncStateStore.update(syncDoneCtrl.getCookie());
+			}
+		} else if (searchResponse instanceof SyncInfoValue) {
+			syncStateStore.update(((SyncInfoValue) searchResponse).getCookie());
+		}
+	}
+
+	/**
+	 * Save the syncrepl cookie of the changes synchronized, at most once per interval
+	 */
+	private void checkpoint() {
+		if (syncStateStore == null || System.currentTimeMillis() - lastCheckpoint < interval) {
+			return;
+		}
+		lastCheckpoint = System.currentTimeMillis();
+		try {
+			syncStateStore.checkpoint();
+		} catch (IOException e) {
+			LOGGER.error("Unable to save the synchronization state: {}", e.toString());
+			LOGGER.debug(e.toString(), e);
+		}
+	}
+
+	/**
+	 * Check the end of the search continued with the changes. When the
+	 * directory can not resume from the saved cookie, forget it so that the
+	 * next search reads all the entries again.
+	 */
+	private void checkSearchResultDone(SearchResultDone searchResultDone) throws LscServiceException {
+		LdapResult result = searchResultDone.getLdapResult();
+		if (result.getResultCode() == ResultCodeEnum.E_SYNC_REFRESH_REQUIRED && syncStateStore != null) {
+			LOGGER.warn("The directory can not resume from the synchronization cookie, all the entries will be read again");
+			try {
+				syncStateStore.reset();
+			} catch (IOException e) {
+				LOGGER.error("Unable to save the synchronization state: {}", e.toString());
+				LOGGER.debug(e.toString(), e);
+			}
+			return;
+		}
+		if(result.getResultCode() != ResultCodeEnum.SUCCESS) {
+			throw new LscServiceCommunicationException(result.getDiagnosticMessage(), null);
+		}
+		checkpoint();
+	}
+
 	private boolean checkSearchResponse(Response searchResponse) {
 		if (searchResponse == null || searchResponse.getType() != MessageTypeEnum.SEARCH_RESULT_ENTRY) {
 			return false;
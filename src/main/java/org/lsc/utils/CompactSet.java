@@ -0,0 +1,221 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.utils;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A set keeping its values in insertion order in an array.
+ * 
+ * <P>
+ * Most datasets hold a single value or a few of them: an array sized to the
+ * values takes a fraction of the memory of a {@link java.util.LinkedHashSet},
+ * which allocates a table and an entry per value. The values of large sets
+ * are indexed by their hash code as well, so that looking them up does not
+ * take longer as the set grows.
+ * </P>
+ * 
+ * @param <E> the type of the values
+ */
+public class CompactSet<E> extends AbstractSet<E> implements Serializable {
+
+	private static final long serialVersionUID = 2465917324859062451L;
+
+	/** The size above which the values are indexed */
+	static final int INDEX_THRESHOLD = 16;
+
+	private static final Object[] EMPTY = new Object[0];
+
+	private Object[] elements;
+
+	private int size;
+
+	/** The values of a large set, built when first needed */
+	private transient HashSet<Object> index;
+
+	private transient int modCount;
+
+	public CompactSet() {
+		elements = EMPTY;
+	}
+
+	/**
+	 * @param capacity the number of values expected
+	 */
+	public CompactSet(int capacity) {
+		elements = (capacity > 0 ? new Object[capacity] : EMPTY);
+	}
+
+	public CompactSet(Collection<? extends E> values) {
+		this(values.size());
+		addAll(values);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (size > INDEX_THRESHOLD) {
+			return index().contains(o);
+		}
+		return indexOf(o) >= 0;
+	}
+
+	@Override
+	public boolean add(E e) {
+		if (contains(e)) {
+			return false;
+		}
+		if (size == elements.length) {
+			elements = Arrays.copyOf(elements, size + (size >> 1) + 1);
+		}
+		elements[size++] = e;
+		if (index != null) {
+			index.add(e);
+		}
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (size > INDEX_THRESHOLD && !index().contains(o)) {
+			return false;
+		}
+		int i = indexOf(o);
+		if (i < 0) {
+			return false;
+		}
+		removeAt(i);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(elements, 0, size, null);
+		size = 0;
+		index = null;
+		modCount++;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+
+			private int cursor;
+			private int last = -1;
+			private int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return cursor < size;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public E next() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (cursor >= size) {
+					throw new NoSuchElementException();
+				}
+				last = cursor++;
+				return (E) elements[last];
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0) {
+					throw new IllegalStateException();
+				}
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				removeAt(last);
+				cursor = last;
+				last = -1;
+				expectedModCount = modCount;
+			}
+		};
+	}
+
+	private int indexOf(Object o) {
+		for (int i = 0; i < size; i++) {
+			if (Objects.equals(o, elements[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void removeAt(int i) {
+		Object removed = elements[i];
+		System.arraycopy(elements, i + 1, elements, i, size - i - 1);
+		elements[--size] = null;
+		if (size <= INDEX_THRESHOLD) {
+			index = null;
+		} else if (index != null) {
+			index.remove(removed);
+		}
+		modCount++;
+	}
+
+	private HashSet<Object> index() {
+		if (index == null) {
+			index = new HashSet<Object>(Arrays.asList(elements).subList(0, size));
+		}
+		return index;
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ * Copyright (c) 2008 - 2011 LSC Project
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.utils;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A bounded cache of compiled scripts.
+ * <p>
+ * Expressions are cached by their text, the least recently used ones being
+ * dropped when the cache is full. Included files are cached by their path and
+ * compiled again as soon as their modification time changes.
+ * </p>
+ *
+ * @param <T> the type of the compiled scripts
+ */
+class CompiledScriptCache<T> {
+
+	/** Default maximum number of cached expressions */
+	static final int DEFAULT_SIZE = 1000;
+
+	/**
+	 * Compile a script
+	 *
+	 * @param <T> the type of the compiled script
+	 * @param <S> the type of the script source
+	 */
+	interface Compiler<T, S> {
+		T compile(S source) throws Exception;
+	}
+
+	/** A compiled include file and the modification time it was compiled at */
+	private static class CompiledInclude<T> {
+		private final long lastModified;
+		private final T script;
+
+		CompiledInclude(long lastModified, T script) {
+			this.lastModified = lastModified;
+			this.script = script;
+		}
+	}
+
+	private final Map<String, T> expressions;
+
+	private final Map<String, CompiledInclude<T>> includes = new ConcurrentHashMap<String, CompiledInclude<T>>();
+
+	CompiledScriptCache() {
+		this(DEFAULT_SIZE);
+	}
+
+	CompiledScriptCache(final int size) {
+		expressions = new LinkedHashMap<String, T>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+				return size() > size;
+			}
+		};
+	}
+
+	/**
+	 * Get the compiled expression, compiling it if it is not cached yet
+	 *
+	 * @param expression the expression text
+	 * @param compiler the compiler used on a cache miss
+	 * @return the compiled expression
+	 * @throws Exception thrown by the compiler
+	 */
+	T getExpression(String expression, Compiler<T, String> compiler) throws Exception {
+		T script;
+		synchronized (expressions) {
+			script = expressions.get(expression);
+		}
+		if (script == null) {
+			// Compiled outside of the lock: the same expression may be compiled twice at worst
+			script = compiler.compile(expression);
+			synchronized (expressions) {
+				expressions.put(expression, script);
+			}
+		}
+		return script;
+	}
+
+	/**
+	 * Get the compiled include file, compiling it if it is not cached yet or if
+	 * it has been modified since
+	 *
+	 * @param include the included file
+	 * @param compiler the compiler used on a cache miss
+	 * @return the compiled file
+	 * @throws Exception thrown by the compiler
+	 */
+	T getInclude(File include, Compiler<T, File> compiler) throws Exception {
+		String path = include.getAbsolutePath();
+		long lastModified = include.lastModified();
+		CompiledInclude<T> cached = includes.get(path);
+		if (cached == null || cached.lastModified != lastModified) {
+			cached = new CompiledInclude<T>(lastModified, compiler.compile(include));
+			includes.put(path, cached);
+		}
+		return cached.script;
+	}
+}
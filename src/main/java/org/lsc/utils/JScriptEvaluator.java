@@ -47,12 +47,15 @@ package org.lsc.utils;
 
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 
@@ -77,21 +80,19 @@ public final class JScriptEvaluator extends AbstractJSEvaluator {
 	// Logger
 	private static final Logger LOGGER = LoggerFactory.getLogger(JScriptEvaluator.class);
 
-//	/** The precompiled Javascript cache. */
-//	private Map<String, Script> cache;
+	/** The precompiled Javascript cache, null if the engine can not compile. */
+	private CompiledScriptCache<CompiledScript> cache;
 
 	private ScriptEngine engine;
 
-	/** The local Rhino context. */
-//	private ScriptContext cx;
-
 	/**
 	 * Default public constructor.
 	 */
 	public JScriptEvaluator(ScriptEngine se) {
-//		cache = new HashMap<String, Script>();
 		this.engine = se;
-//		cx = se.getContext();//new ContextFactory().enterContext();
+		if (se instanceof Compilable) {
+			cache = new CompiledScriptCache<CompiledScript>();
+		}
 	}
 
 //		return (String) Context.jsToJava(result, String.class);
@@ -149,16 +150,24 @@ public final class JScriptEvaluator extends AbstractJSEvaluator {
 			if (task.getScriptIncludes() != null) {
 				for (File scriptInclude : task.getScriptIncludes()) {
 					if ("js".equals(FilenameUtils.getExtension(scriptInclude.getAbsolutePath()))) {
-						FileReader reader = new FileReader(scriptInclude);
-						try {
-							engine.eval(reader, bindings);
-						} finally {
-							reader.close();
+						if (cache != null) {
+							cache.getInclude(scriptInclude, this::compileInclude).eval(bindings);
+						} else {
+							FileReader reader = new FileReader(scriptInclude);
+							try {
+								engine.eval(reader, bindings);
+							} finally {
+								reader.close();
+							}
 						}
 					}
 				}
 			}
-			ret = engine.eval(expressionImport, bindings);
+			if (cache != null) {
+				ret = cache.getExpression(expressionImport, ((Compilable) engine)::compile).eval(bindings);
+			} else {
+				ret = engine.eval(expressionImport, bindings);
+			}
 		} catch (ScriptException e) {
 			LOGGER.error("Fail to compute JS expression: " + expression + " on " +
 					mainIdentifier + "\nReason: " + e.toString());
@@ -177,6 +186,15 @@ public final class JScriptEvaluator extends AbstractJSEvaluator {
 		return ret;
 	}
 
+	private CompiledScript compileInclude(File scriptInclude) throws IOException, ScriptException {
+		FileReader reader = new FileReader(scriptInclude);
+		try {
+			return ((Compilable) engine).compile(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
     /** {@inheritDoc} */
 	protected Object convertJsToJava(Object src) {
 		if (src == null) {
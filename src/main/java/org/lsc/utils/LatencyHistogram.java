@@ -0,0 +1,148 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ * Copyright (c) 2008 - 2011 LSC Project
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies gathered in buckets of powers of two microseconds: the bucket
+ * <code>i</code> holds the latencies lower than <code>2^i</code> microseconds
+ * and not lower than <code>2^(i-1)</code>. Recording never blocks, so that
+ * it can be done by all the synchronization threads while being read.
+ */
+public class LatencyHistogram {
+
+	/** The number of buckets, the last one holding all the latencies above 2^(BUCKETS-2) us */
+	public static final int BUCKETS = 40;
+
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+	public LatencyHistogram() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Record a latency
+	 * @param nanos the latency, in nanoseconds
+	 */
+	public void record(long nanos) {
+		long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0));
+		count.increment();
+		total.add(micros);
+		buckets[Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1)].increment();
+	}
+
+	/**
+	 * @return the number of latencies recorded
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return the sum of the latencies recorded, in microseconds
+	 */
+	public long getTotal() {
+		return total.sum();
+	}
+
+	/**
+	 * @return the mean latency in microseconds, 0 if nothing was recorded
+	 */
+	public long getMean() {
+		long measures = count.sum();
+		return measures > 0 ? total.sum() / measures : 0;
+	}
+
+	/**
+	 * @param bucket the bucket index, lower than {@link #BUCKETS}
+	 * @return the number of latencies recorded in this bucket
+	 */
+	public long getBucketCount(int bucket) {
+		return buckets[bucket].sum();
+	}
+
+	/**
+	 * @param bucket the bucket index, lower than {@link #BUCKETS}
+	 * @return the highest latency of the bucket, in microseconds
+	 */
+	public static long getBucketUpperBound(int bucket) {
+		return bucket == 0 ? 0 : (1L << bucket) - 1;
+	}
+
+	/**
+	 * Return an upper bound of a latency percentile: the result is within a
+	 * factor of two of the exact percentile.
+	 *
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the latency in microseconds, 0 if nothing was recorded
+	 */
+	public long getPercentile(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long measures = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = buckets[i].sum();
+			measures += snapshot[i];
+		}
+		if (measures == 0) {
+			return 0;
+		}
+		long rank = Math.max((long) Math.ceil(measures * Math.min(Math.max(percentile, 0), 100) / 100), 1);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return getBucketUpperBound(i);
+			}
+		}
+		return getBucketUpperBound(BUCKETS - 1);
+	}
+}
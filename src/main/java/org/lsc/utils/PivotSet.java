@@ -0,0 +1,220 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.lsc.LscDatasets;
+
+/**
+ * A compact set of entry identifiers, to tell quickly whether an entry is
+ * known without requesting it.
+ * 
+ * <P>
+ * Each identifier is reduced to a 64 bits hash of its pivot attributes, kept
+ * in a sorted array: a few millions of identifiers take a few tens of
+ * megabytes. Two different identifiers may share a hash, with a probability
+ * negligible below billions of entries, so a positive answer must only be
+ * used where a mistake is harmless.
+ * </P>
+ * 
+ * <P>
+ * The attributes hashed are those of the first identifier added, so that
+ * identifiers from another service are looked up by the same attributes.
+ * An identifier lacking one of these attributes is never added nor found.
+ * Values are compared exactly, a String never matching a byte[]. The set is
+ * filled, then read, by a single thread.
+ * </P>
+ */
+public class PivotSet {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/** The lower cased names of the attributes hashed, sorted */
+	private List<String> names;
+
+	private long[] hashes = new long[1024];
+
+	private int size;
+
+	private boolean sorted = true;
+
+	/** The number of identifiers not added, lacking one of the attributes hashed */
+	private int skipped;
+
+	/**
+	 * Add an identifier
+	 * 
+	 * @param pivotAttributes the pivot attributes of the entry
+	 * @return false if the identifier lacks one of the attributes hashed and was not added
+	 */
+	public boolean add(LscDatasets pivotAttributes) {
+		if (names == null) {
+			names = new ArrayList<String>();
+			for (Map.Entry<String, Object> value : pivotAttributes.getDatasets().entrySet()) {
+				if (value.getValue() != null) {
+					names.add(value.getKey().toLowerCase());
+				}
+			}
+			Collections.sort(names);
+			if (names.isEmpty()) {
+				// Nothing to hash: wait for an identifier with attributes
+				names = null;
+				skipped++;
+				return false;
+			}
+		}
+		if (!hasAllNames(pivotAttributes)) {
+			skipped++;
+			return false;
+		}
+		if (size == hashes.length) {
+			hashes = Arrays.copyOf(hashes, size * 2);
+		}
+		hashes[size++] = hash(pivotAttributes);
+		sorted = false;
+		return true;
+	}
+
+	/**
+	 * Tell if an identifier may have been added
+	 * 
+	 * @param pivotAttributes the pivot attributes of the entry
+	 * @return false if it was not added, true if it was or if another
+	 *         identifier has the same hash
+	 */
+	public boolean contains(LscDatasets pivotAttributes) {
+		if (size == 0 || !hasAllNames(pivotAttributes)) {
+			return false;
+		}
+		sort();
+		return Arrays.binarySearch(hashes, 0, size, hash(pivotAttributes)) >= 0;
+	}
+
+	/**
+	 * @return the number of distinct identifiers hashes
+	 */
+	public int size() {
+		sort();
+		return size;
+	}
+
+	/**
+	 * @return the number of identifiers not added, lacking one of the attributes hashed
+	 */
+	public int getSkippedCount() {
+		return skipped;
+	}
+
+	private boolean hasAllNames(LscDatasets pivotAttributes) {
+		Map<String, Object> values = pivotAttributes.getDatasets();
+		for (String name : names) {
+			if (values.get(name) == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void sort() {
+		if (sorted) {
+			return;
+		}
+		Arrays.sort(hashes, 0, size);
+		int distinct = 0;
+		for (int i = 0; i < size; i++) {
+			if (distinct == 0 || hashes[i] != hashes[distinct - 1]) {
+				hashes[distinct++] = hashes[i];
+			}
+		}
+		size = distinct;
+		sorted = true;
+	}
+
+	private long hash(LscDatasets pivotAttributes) {
+		Map<String, Object> values = pivotAttributes.getDatasets();
+		long hash = FNV_OFFSET_BASIS;
+		for (String name : names) {
+			hash = hash(hash, name);
+			Object value = values.get(name);
+			if (value instanceof byte[]) {
+				hash = hash(hash, 'b');
+				for (byte b : (byte[]) value) {
+					hash = hash(hash, (char) (b & 0xff));
+				}
+			} else {
+				hash = hash(hash, 's');
+				hash = hash(hash, value.toString());
+			}
+			hash = hash(hash, '\u0000');
+		}
+		return mix(hash);
+	}
+
+	private static long hash(long hash, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			hash = hash(hash, value.charAt(i));
+		}
+		return hash;
+	}
+
+	private static long hash(long hash, char c) {
+		hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+		return (hash ^ (c >>> 8)) * FNV_PRIME;
+	}
+
+	/** The finalizer of MurmurHash3, spreading the bits of the hash */
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
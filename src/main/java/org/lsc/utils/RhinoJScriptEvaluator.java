@@ -47,9 +47,11 @@ package org.lsc.utils;
 
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -63,6 +65,7 @@ import org.lsc.jndi.ScriptableJndiServices;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ContextFactory;
 import org.mozilla.javascript.EcmaError;
+import org.mozilla.javascript.NativeJavaPackage;
 import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
@@ -80,6 +83,37 @@ public final class RhinoJScriptEvaluator extends AbstractJSEvaluator {
 	// Logger
 	private static final Logger LOGGER = LoggerFactory.getLogger(RhinoJScriptEvaluator.class);
 
+	/** The compiled expressions and includes, shared by all the threads. */
+	private static final CompiledScriptCache<Script> SCRIPTS = new CompiledScriptCache<Script>();
+
+	/**
+	 * The factory of the contexts used without debugger. The scope is dynamic
+	 * so that the functions of the includes, defined in the shared scope, see
+	 * the variables of the evaluation calling them.
+	 */
+	private static final ContextFactory CONTEXT_FACTORY = new ContextFactory() {
+		@Override
+		protected boolean hasFeature(Context cx, int featureIndex) {
+			if (featureIndex == Context.FEATURE_DYNAMIC_SCOPE) {
+				return true;
+			}
+			return super.hasFeature(cx, featureIndex);
+		}
+	};
+
+	/** The maximum number of shared scopes kept, one per set of includes. */
+	private static final int MAX_SHARED_SCOPES = 16;
+
+	/** The standard objects and the includes, sealed to be shared by all the evaluations of a set of includes. */
+	private static final Map<List<Script>, ScriptableObject> SHARED_SCOPES = new LinkedHashMap<List<Script>, ScriptableObject>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<Script>, ScriptableObject> eldest) {
+			return size() > MAX_SHARED_SCOPES;
+		}
+	};
+
 	/** The local Rhino context. */
 	private Context cx;
 
@@ -121,52 +155,66 @@ public final class RhinoJScriptEvaluator extends AbstractJSEvaluator {
 		String expressionImport = "with (new JavaImporter(Packages.org.lsc.utils.directory)) {"
 				+ "with (new JavaImporter(Packages.org.lsc.utils)) {\n" + expression + "\n}}";
 
-		ContextFactory factory = new ContextFactory();
+		ContextFactory factory = CONTEXT_FACTORY;
 
 		if (debug) {
+			factory = new ContextFactory();
 			rhinoDebugger = new RhinoDebugger(expressionImport, factory);
 		}
 
 		cx = factory.enterContext();
 
-		Scriptable scope = cx.initStandardObjects();
-
-		// add LDAP interface for destination
-		if (!localParams.containsKey("ldap") && task.getDestinationService() instanceof AbstractSimpleJndiService) {
-			ScriptableJndiServices dstSjs = new ScriptableJndiServices();
-			dstSjs.setJndiServices(((AbstractSimpleJndiService) task.getDestinationService()).getJndiServices());
-			localParams.put("ldap", dstSjs);
-		}
-
-		// add LDAP interface for source
-		if (!localParams.containsKey("srcLdap") && task.getSourceService() instanceof AbstractSimpleJndiService) {
-			ScriptableJndiServices srcSjs = new ScriptableJndiServices();
-			srcSjs.setJndiServices(((AbstractSimpleJndiService) task.getSourceService()).getJndiServices());
-			localParams.put("srcLdap", srcSjs);
-		}
-
-		for (Entry<String, Object> entry : localParams.entrySet()) {
-			Object jsObj = Context.javaToJS(entry.getValue(), scope);
-			ScriptableObject.putProperty(scope, entry.getKey(), jsObj);
-		}
-
 		Object ret = null;
 		try {
 			List<Script> includes = new ArrayList<Script>();
 			if (task.getScriptIncludes() != null) {
 				for (File scriptInclude : task.getScriptIncludes()) {
 					if ("js".equals(FilenameUtils.getExtension(scriptInclude.getAbsolutePath()))) {
-						FileReader reader = new FileReader(scriptInclude);
-						try {
-							Script include = cx.compileReader(reader, scriptInclude.getAbsolutePath(), 1, null);
-							includes.add(include);
-						} finally {
-							reader.close();
+						if (debug) {
+							includes.add(compileInclude(scriptInclude));
+						} else {
+							includes.add(SCRIPTS.getInclude(scriptInclude, this::compileInclude));
 						}
 					}
 				}
 			}
-			Script script = cx.compileString(expressionImport, "<cmd>", 1, null);
+
+			Scriptable scope;
+			if (debug) {
+				scope = cx.initStandardObjects();
+			} else {
+				// Only a lightweight scope is created for each evaluation
+				Scriptable sharedScope = getSharedScope(cx, includes);
+				scope = cx.newObject(sharedScope);
+				scope.setPrototype(sharedScope);
+				scope.setParentScope(null);
+			}
+
+			// add LDAP interface for destination
+			if (!localParams.containsKey("ldap") && task.getDestinationService() instanceof AbstractSimpleJndiService) {
+				ScriptableJndiServices dstSjs = new ScriptableJndiServices();
+				dstSjs.setJndiServices(((AbstractSimpleJndiService) task.getDestinationService()).getJndiServices());
+				localParams.put("ldap", dstSjs);
+			}
+
+			// add LDAP interface for source
+			if (!localParams.containsKey("srcLdap") && task.getSourceService() instanceof AbstractSimpleJndiService) {
+				ScriptableJndiServices srcSjs = new ScriptableJndiServices();
+				srcSjs.setJndiServices(((AbstractSimpleJndiService) task.getSourceService()).getJndiServices());
+				localParams.put("srcLdap", srcSjs);
+			}
+
+			for (Entry<String, Object> entry : localParams.entrySet()) {
+				Object jsObj = Context.javaToJS(entry.getValue(), scope);
+				ScriptableObject.putProperty(scope, entry.getKey(), jsObj);
+			}
+
+			Script script;
+			if (debug) {
+				script = cx.compileString(expressionImport, "<cmd>", 1, null);
+			} else {
+				script = SCRIPTS.getExpression(expressionImport, source -> cx.compileString(source, "<cmd>", 1, null));
+			}
 			if (debug) {
 				rhinoDebugger.initContext(cx, scope, script);
 				Object jsObj = Context.javaToJS(rhinoDebugger, scope);
@@ -176,9 +224,7 @@ public final class RhinoJScriptEvaluator extends AbstractJSEvaluator {
 				}
 				ret = rhinoDebugger.exec();
 			} else {
-				for (Script include : includes) {
-					include.exec(cx, scope);
-				}
+				// The includes have already been run in the shared scope
 				ret = script.exec(cx, scope);
 			}
 		} catch (EcmaError e) {
@@ -205,6 +251,67 @@ public final class RhinoJScriptEvaluator extends AbstractJSEvaluator {
 		return ret;
 	}
 
+	private Script compileInclude(File scriptInclude) throws IOException {
+		FileReader reader = new FileReader(scriptInclude);
+		try {
+			return cx.compileReader(reader, scriptInclude.getAbsolutePath(), 1, null);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Get the standard objects and the includes shared by all the evaluations,
+	 * running the includes on first use. The scope is only sealed once the
+	 * includes have run, so that they may extend the standard objects. The top
+	 * level code of the includes therefore runs once, without the variables of
+	 * the evaluations: the includes are expected to define functions and
+	 * constants. The objects they define can not be modified afterwards, while
+	 * assigning one of their variables only changes it for the current
+	 * evaluation.
+	 *
+	 * @param cx the current context
+	 * @param includes the compiled includes of the task
+	 * @return the sealed shared scope
+	 */
+	private static synchronized ScriptableObject getSharedScope(Context cx, List<Script> includes) {
+		ScriptableObject sharedScope = SHARED_SCOPES.get(includes);
+		if (sharedScope == null) {
+			sharedScope = cx.initStandardObjects();
+			for (Script include : includes) {
+				include.exec(cx, sharedScope);
+			}
+			seal(sharedScope);
+			SHARED_SCOPES.put(includes, sharedScope);
+		}
+		return sharedScope;
+	}
+
+	/**
+	 * Seal the scope, its objects and their prototypes. The Java packages are
+	 * left unsealed since they cache the packages and classes looked up.
+	 *
+	 * @param scope the scope to seal
+	 */
+	private static void seal(ScriptableObject scope) {
+		for (Object id : scope.getAllIds()) {
+			if (!(id instanceof String)) {
+				continue;
+			}
+			// Getting the value initializes the lazily loaded standard objects
+			Object value = scope.get((String) id, scope);
+			if (value instanceof ScriptableObject && !(value instanceof NativeJavaPackage)) {
+				ScriptableObject object = (ScriptableObject) value;
+				Object prototype = object.get("prototype", object);
+				if (prototype instanceof ScriptableObject) {
+					((ScriptableObject) prototype).sealObject();
+				}
+				object.sealObject();
+			}
+		}
+		scope.sealObject();
+	}
+
     /** {@inheritDoc} */
 	protected Object convertJsToJava(Object src) {
 		if (src == null) {
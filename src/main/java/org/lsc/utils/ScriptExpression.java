@@ -0,0 +1,131 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ * Copyright (c) 2008 - 2011 LSC Project
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.utils;
+
+/**
+ * A scripting expression resolved once, before any entry is synchronized.
+ * <p>
+ * The scripting engine prefix is identified and stripped, and the
+ * <code>true</code> and <code>false</code> literals are recognized, so that
+ * evaluating the expression against an entry does not involve any parsing.
+ * Instances are immutable and can be shared between threads: the engine is
+ * only referenced by its name and resolved against the evaluator of the
+ * calling thread.
+ * </p>
+ */
+public final class ScriptExpression {
+
+	private final String expression;
+
+	private final String engine;
+
+	private final String script;
+
+	private final Boolean constant;
+
+	ScriptExpression(String expression, String engine, String script) {
+		this.expression = expression;
+		this.engine = engine;
+		this.script = script;
+		if ("true".equals(expression)) {
+			constant = Boolean.TRUE;
+		} else if ("false".equals(expression)) {
+			constant = Boolean.FALSE;
+		} else {
+			constant = null;
+		}
+	}
+
+	/**
+	 * Get the expression as configured
+	 *
+	 * @return the original expression
+	 */
+	public String getExpression() {
+		return expression;
+	}
+
+	/**
+	 * Get the name of the scripting engine selected by the prefix
+	 *
+	 * @return the engine name, or an empty string for the default engine
+	 */
+	public String getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Get the script to hand to the scripting engine
+	 *
+	 * @return the expression without its engine prefix
+	 */
+	public String getScript() {
+		return script;
+	}
+
+	/**
+	 * Tells if the expression is the <code>true</code> or <code>false</code> literal
+	 *
+	 * @return <code>true</code> if the expression does not need to be evaluated
+	 */
+	public boolean isConstant() {
+		return constant != null;
+	}
+
+	/**
+	 * Get the value of a constant expression
+	 *
+	 * @return the boolean value, or <code>null</code> if the expression is not constant
+	 */
+	public Boolean getConstant() {
+		return constant;
+	}
+
+	@Override
+	public String toString() {
+		return expression;
+	}
+}
@@ -34,6 +34,9 @@ public class ScriptingEvaluator {
 
 	private static Map<String, Class<? extends ScriptableEvaluator>> implementationsCache;
 
+	/** The time spent evaluating scripts, all tasks together */
+	private static final LatencyHistogram evaluationLatency = new LatencyHistogram();
+
 	public static ScriptEngineManager mgr;
 
 	private Map<String, ScriptableEvaluator> instancesTypeCache;
@@ -127,6 +130,26 @@ public class ScriptingEvaluator {
 		return instances.get();
 	}
 
+	/**
+	 * @return the time spent evaluating scripts, all tasks together
+	 */
+	public static LatencyHistogram getEvaluationLatency() {
+		return evaluationLatency;
+	}
+
+	private interface Evaluation<T> {
+		T evaluate() throws LscServiceException;
+	}
+
+	private static <T> T timed(Evaluation<T> evaluation) throws LscServiceException {
+		long start = System.nanoTime();
+		try {
+			return evaluation.evaluate();
+		} finally {
+			evaluationLatency.record(System.nanoTime() - start);
+		}
+	}
+
 	public static void contribute(String implementationName,
 	        Class<? extends ScriptableEvaluator> implementationClass) {
 		implementationsCache.put(implementationName, implementationClass);
@@ -144,6 +167,23 @@ public class ScriptingEvaluator {
 		return defaultImplementation.orElseThrow(() -> new LscServiceException("Missing Script evaluator"));
 	}
 
+	/**
+	 * Resolve the scripting engine of a pre-parsed expression.
+	 *
+	 * @param expression the pre-parsed expression
+	 * @return the engine matching its prefix, or the default one
+	 * @throws LscServiceException if no engine is available
+	 */
+	private ScriptableEvaluator getScriptingEngine(ScriptExpression expression) throws LscServiceException {
+		if (!expression.getEngine().isEmpty()) {
+			ScriptableEvaluator se = instancesTypeCache.get(expression.getEngine());
+			if (se != null) {
+				return se;
+			}
+		}
+		return defaultImplementation.orElseThrow(() -> new LscServiceException("Missing Script evaluator"));
+	}
+
 	/**
 	 * Matches the prefix specifying the jscript evaluator.
 	 *
@@ -185,6 +225,19 @@ public class ScriptingEvaluator {
 		return expression;
 	}
 
+	/**
+	 * Identify the scripting engine and strip the prefix of an expression once,
+	 * so that it can be evaluated for each entry without any parsing.
+	 *
+	 * @param expression the expression as configured
+	 * @return the pre-parsed expression
+	 */
+	public static ScriptExpression parse(final String expression) {
+		ScriptingEvaluator instance = getInstance();
+		String engine = instance.matchJScriptEvaluator(expression.split(":")[0]);
+		return new ScriptExpression(expression, engine, instance.removePrefix(expression));
+	}
+
 	/**
 	 * Evaluate your Ecma script expression (manage pre-compiled expressions cache).
 	 * 
@@ -196,35 +249,58 @@ public class ScriptingEvaluator {
 	public static String evalToString(final Task task, final String expression, final Map<String, Object> params)
 			throws LscServiceException {
 		ScriptableEvaluator se = getInstance().identifyScriptingEngine(expression);
-		return se.evalToString(task, getInstance().removePrefix(expression), params);
+		return timed(() -> se.evalToString(task, getInstance().removePrefix(expression), params));
 	}
 
 	public static List<Object> evalToObjectList(final Task task, final String expression,
 			final Map<String, Object> params) throws LscServiceException {
 		ScriptableEvaluator se = getInstance().identifyScriptingEngine(expression);
-		return se.evalToObjectList(task, getInstance().removePrefix(expression), params);
+		return timed(() -> se.evalToObjectList(task, getInstance().removePrefix(expression), params));
 	}
 
 	public static List<byte[]> evalToByteArrayList(final Task task, final String expression,
 			final Map<String, Object> params) throws LscServiceException {
 		ScriptableEvaluator se = getInstance().identifyScriptingEngine(expression);
-		return se.evalToByteArrayList(task, getInstance().removePrefix(expression), params);
+		return timed(() -> se.evalToByteArrayList(task, getInstance().removePrefix(expression), params));
 	}
 
 	public static byte[] evalToByteArray(final Task task, final String expression, final Map<String, Object> params)
 			throws LscServiceException {
 		ScriptableEvaluator se = getInstance().identifyScriptingEngine(expression);
-		return se.evalToByteArray(task, getInstance().removePrefix(expression), params);
+		return timed(() -> se.evalToByteArray(task, getInstance().removePrefix(expression), params));
 	}
 
 	public static Boolean evalToBoolean(final Task task, final String expression, final Map<String, Object> params)
 			throws LscServiceException {
 		ScriptableEvaluator se = getInstance().identifyScriptingEngine(expression);
-		return se.evalToBoolean(task, getInstance().removePrefix(expression), params);
+		return timed(() -> se.evalToBoolean(task, getInstance().removePrefix(expression), params));
 	}
 
 	public static String evalFilter(Task task, String expression, Map<String, Object> params) throws LscServiceException {
 		ScriptableEvaluator se = getInstance().identifyScriptingEngine(expression);
-		return se.evalToFilter(task, getInstance().removePrefix(expression), params);
+		return timed(() -> se.evalToFilter(task, getInstance().removePrefix(expression), params));
+	}
+
+	public static String evalToString(final Task task, final ScriptExpression expression, final Map<String, Object> params)
+			throws LscServiceException {
+		return timed(() -> getInstance().getScriptingEngine(expression).evalToString(task, expression.getScript(), params));
+	}
+
+	public static List<Object> evalToObjectList(final Task task, final ScriptExpression expression,
+			final Map<String, Object> params) throws LscServiceException {
+		return timed(() -> getInstance().getScriptingEngine(expression).evalToObjectList(task, expression.getScript(), params));
+	}
+
+	public static List<byte[]> evalToByteArrayList(final Task task, final ScriptExpression expression,
+			final Map<String, Object> params) throws LscServiceException {
+		return timed(() -> getInstance().getScriptingEngine(expression).evalToByteArrayList(task, expression.getScript(), params));
+	}
+
+	public static Boolean evalToBoolean(final Task task, final ScriptExpression expression, final Map<String, Object> params)
+			throws LscServiceException {
+		if (expression.isConstant()) {
+			return expression.getConstant();
+		}
+		return timed(() -> getInstance().getScriptingEngine(expression).evalToBoolean(task, expression.getScript(), params));
 	}
 }
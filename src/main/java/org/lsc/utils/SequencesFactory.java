@@ -46,9 +46,12 @@
 package org.lsc.utils;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
@@ -57,6 +60,8 @@ import javax.naming.directory.DirContext;
 import javax.naming.directory.ModificationItem;
 import javax.naming.directory.SearchResult;
 
+import org.lsc.configuration.LscConfiguration;
+import org.lsc.configuration.SequencesType;
 import org.lsc.jndi.JndiModificationType;
 import org.lsc.jndi.JndiModifications;
 import org.lsc.jndi.JndiServices;
@@ -66,6 +71,28 @@ import org.slf4j.LoggerFactory;
 /**
  * This class is used to manage numeric sequences
  * via LDAP Directory entries storage
+ * <p>
+ * By default, each value is allocated by an update of the directory. With a
+ * block size greater than 1, set by the <code>sequences/blockSize</code>
+ * element of lsc.xml, a range of values is reserved by a single update, then
+ * handed out locally. The values reserved but not handed out are given back to
+ * the directory by {@link #release()}, called at shutdown, unless another
+ * client reserved values in the meantime, in which case they are only logged.
+ * </p>
+ * <p>
+ * The sequences are used from the scripts, through the directory services
+ * bound as <code>ldap</code> or <code>srcLdap</code>, for instance in
+ * JavaScript:
+ * </p>
+ * <pre>
+ * var sequences = org.lsc.utils.SequencesFactory.getInstance(ldap.getJndiServices());
+ * sequences.getNextValue("cn=uidNumber,ou=Sequences,dc=lsc-project,dc=org", "uidNumber");
+ * </pre>
+ * <p>
+ * The factory is shared by all the tasks, and so is the block size. The values
+ * handed out and the latency of the directory updates are published with the
+ * other metrics.
+ * </p>
  * @author Sebastien Bahloul &lt;sbahloul@linagora.com&gt;
  */
 public class SequencesFactory {
@@ -78,27 +105,53 @@ public class SequencesFactory {
 	private static final Logger LOGGER = LoggerFactory.getLogger(SequencesFactory.class);
 
 	private JndiServices jndiServices;
+
+	/** Number of values reserved by each update of the directory */
+	private final int blockSize;
 	
 	/**
 	 * The local constructor
+	 * @param jndiServices the directory storing the sequences
+	 * @param blockSize the number of values reserved by each update of the directory
 	 */
-	private SequencesFactory(JndiServices jndiServices) {
+	SequencesFactory(JndiServices jndiServices, int blockSize) {
 		this.jndiServices = jndiServices;
-		sequences = new HashMap<String, Sequence>();
+		this.blockSize = Math.max(blockSize, 1);
+		sequences = new ConcurrentHashMap<String, Sequence>();
 	}
 
 	/**
-	 * Get the factory instance (if needed create and initialize it)
+	 * Get the factory instance (if needed create and initialize it, with the
+	 * block size of the configuration)
 	 * @return the instance
 	 */
-	public static SequencesFactory getInstance(JndiServices services) {
+	public static synchronized SequencesFactory getInstance(JndiServices services) {
 		if (instance == null) {
-			LOGGER.info("Initializing the sequences factory.");
-			instance = new SequencesFactory(services);
+			SequencesType sequencesConf = LscConfiguration.getSequences();
+			int blockSize = (sequencesConf != null && sequencesConf.getBlockSize() != null ? sequencesConf.getBlockSize() : 1);
+			LOGGER.info("Initializing the sequences factory, reserving {} values at once.", blockSize);
+			instance = new SequencesFactory(services, blockSize);
+			if (instance.blockSize > 1) {
+				Runtime.getRuntime().addShutdownHook(new Thread(instance::release, "sequences-release"));
+			}
 		}
 		return instance;
 	}
 
+	/**
+	 * @return the factory instance, null if no script has used the sequences yet
+	 */
+	public static synchronized SequencesFactory getCreatedInstance() {
+		return instance;
+	}
+
+	/**
+	 * @return the number of values reserved by each update of the directory
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
 	/**
 	 * Get the next value for this sequence
 	 * 
@@ -116,7 +169,7 @@ public class SequencesFactory {
 			return -1;
 		}
 
-		return sq.getNextValue();
+		return sq.getNextValue(blockSize);
 	}
 
 	/**
@@ -139,6 +192,58 @@ public class SequencesFactory {
 		return sq.getCurrentValue();
 	}
 
+	/**
+	 * Give the reserved values not handed out yet back to the directory, or
+	 * log them if the sequence has been updated by another client since.
+	 */
+	public void release() {
+		for (Sequence sq : sequences.values()) {
+			sq.release();
+		}
+		if (LOGGER.isDebugEnabled() && !sequences.isEmpty()) {
+			LOGGER.debug("Sequences statistics: {}", getStatistics());
+		}
+	}
+
+	/**
+	 * Get the statistics of each sequence: the values handed out, the updates
+	 * of the directory and the time they took.
+	 * 
+	 * @return the statistics, as a human readable string
+	 */
+	public String getStatistics() {
+		StringBuilder statistics = new StringBuilder();
+		for (Map.Entry<String, Sequence> sequence : sequences.entrySet()) {
+			if (statistics.length() > 0) {
+				statistics.append("; ");
+			}
+			statistics.append(sequence.getKey()).append(": ").append(sequence.getValue().getStatistics());
+		}
+		return statistics.toString();
+	}
+
+	/**
+	 * @return the number of values handed out, by sequence name
+	 */
+	public Map<String, Long> getAllocatedCounts() {
+		Map<String, Long> allocatedCounts = new TreeMap<String, Long>();
+		for (Map.Entry<String, Sequence> sequence : sequences.entrySet()) {
+			allocatedCounts.put(sequence.getKey(), sequence.getValue().getAllocatedCount());
+		}
+		return allocatedCounts;
+	}
+
+	/**
+	 * @return the latency of the updates of the directory reserving values, by sequence name
+	 */
+	public Map<String, LatencyHistogram> getUpdateLatencies() {
+		Map<String, LatencyHistogram> updateLatencies = new TreeMap<String, LatencyHistogram>();
+		for (Map.Entry<String, Sequence> sequence : sequences.entrySet()) {
+			updateLatencies.put(sequence.getKey(), sequence.getValue().getUpdateLatency());
+		}
+		return updateLatencies;
+	}
+
 	/**
 	 * Private local method to get a sequence
 	 * @param dn DN where the sequence is stored in the directory
@@ -147,16 +252,16 @@ public class SequencesFactory {
 	 * @return Sequence A Sequence object representing this entry
 	 */
 	private Sequence getSequence(String dn, String attributeName, String hash) {
-		if (sequences.containsKey(hash)) {
-			return sequences.get(hash);
-		} else {
+		if (hash == null) {
+			return null;
+		}
+		return sequences.computeIfAbsent(hash, key -> {
 			Sequence seq = new Sequence(jndiServices);
 			if (!seq.load(dn, attributeName, 0)) {
 				return null;
 			}
-			sequences.put(hash, seq);
-			return seq;	
-		}
+			return seq;
+		});
 	}
 
 	private static String getHash(String dn, String attributeName) {
@@ -181,6 +286,29 @@ class Sequence {
 	
 	private JndiServices jndiServices;
 
+	/** The values reserved in the directory, null if none */
+	private volatile Block block;
+
+	private final AtomicLong allocatedCount = new AtomicLong();
+	private final LatencyHistogram updateLatency = new LatencyHistogram();
+
+	/**
+	 * A range of values reserved in the directory, handed out in turn
+	 */
+	private static final class Block {
+
+		/** The next value to hand out, beyond the last one once the block is exhausted */
+		private final AtomicInteger next;
+
+		/** The last reserved value, stored in the directory */
+		private final int last;
+
+		Block(int first, int last) {
+			this.next = new AtomicInteger(first);
+			this.last = last;
+		}
+	}
+
 	public Sequence(JndiServices jndiServices) {
 		this.jndiServices = jndiServices;
 	}
@@ -236,20 +364,58 @@ class Sequence {
 	 * Return the updated in directory new value
 	 * @return Next value to set, or -1 if an error occurred
 	 */
-	public synchronized int getNextValue() {
-		for (int i=0; i<INCREMENT_MAX_RETRY; i++) {
-			int newValue = incrementValue();
-			if (newValue != -1) {
-				return newValue;
-			} else {
-				LOGGER.warn("Failed to update the directory for the value of the sequence {}/{}, retrying: "+(i+1)+"/"+INCREMENT_MAX_RETRY, getDn(), getAttributeName());
+	public int getNextValue() {
+		return getNextValue(1);
+	}
+
+	/**
+	 * Return the next value, reserving a new block of values in the directory
+	 * once the current one is exhausted
+	 * @param blockSize the number of values to reserve at once
+	 * @return Next value to set, or -1 if an error occurred
+	 */
+	public int getNextValue(int blockSize) {
+		while (true) {
+			Block current = block;
+			if (current != null) {
+				int nextValue = current.next.getAndIncrement();
+				if (nextValue <= current.last) {
+					allocatedCount.incrementAndGet();
+					return nextValue;
+				}
+			}
+			synchronized (this) {
+				// Only the first thread finding the block exhausted reserves the next one
+				if (block == current) {
+					Block reserved = reserve(Math.max(blockSize, 1));
+					if (reserved == null) {
+						return -1;
+					}
+					block = reserved;
+				}
+			}
+		}
+	}
+
+	private synchronized Block reserve(int blockSize) {
+		long start = System.nanoTime();
+		try {
+			for (int i=0; i<INCREMENT_MAX_RETRY; i++) {
+				int last = incrementValue(blockSize);
+				if (last != -1) {
+					return new Block(last - blockSize + 1, last);
+				} else {
+					LOGGER.warn("Failed to update the directory for the value of the sequence {}/{}, retrying: "+(i+1)+"/"+INCREMENT_MAX_RETRY, getDn(), getAttributeName());
+				}
 			}
+			LOGGER.error("Maximum retry ("+INCREMENT_MAX_RETRY+") reached to increment sequence {}/{}", getDn(), getAttributeName());
+			return null;
+		} finally {
+			updateLatency.record(System.nanoTime() - start);
 		}
-		LOGGER.error("Maximum retry ("+INCREMENT_MAX_RETRY+") reached to increment sequence {}/{}", getDn(), getAttributeName());
-		return -1;
 	}
 	
-	private synchronized int incrementValue() {
+	private synchronized int incrementValue(int increment) {
 		int newValue = 0;
 		try {
 			if (!readValue()) {
@@ -257,25 +423,9 @@ class Sequence {
 			}
 			
 			int value = getCurrentValue();
-			newValue = value + 1;
+			newValue = value + increment;
 			
-			Attribute valueAttribute = new BasicAttribute(getAttributeName());
-			valueAttribute.clear();
-			valueAttribute.add("" + value);
-
-			Attribute newValueAttribute = new BasicAttribute(getAttributeName());
-			newValueAttribute.clear();
-			newValueAttribute.add("" + newValue);
-
-			// prepare modifications to be written to the directory
-			JndiModifications jm = new JndiModifications(JndiModificationType.MODIFY_ENTRY);
-			jm.setDistinguishName(getDn());
-			List<ModificationItem> mi = new ArrayList<ModificationItem>();
-			mi.add(new ModificationItem(DirContext.REMOVE_ATTRIBUTE, valueAttribute));
-			mi.add(new ModificationItem(DirContext.ADD_ATTRIBUTE, newValueAttribute));
-			jm.setModificationItems(mi);
-
-			if (!jndiServices.apply(jm)) {
+			if (!replaceValue(value, newValue)) {
 				return -1;
 			}
 		} catch (NamingException e) {
@@ -286,6 +436,83 @@ class Sequence {
 		return newValue;
 	}
 
+	/**
+	 * Replace the value in the directory, only if it has not been changed
+	 * @param value the expected value
+	 * @param newValue the value to store
+	 * @return true if the value has been replaced
+	 * @throws NamingException
+	 */
+	private boolean replaceValue(int value, int newValue) throws NamingException {
+		Attribute valueAttribute = new BasicAttribute(getAttributeName());
+		valueAttribute.clear();
+		valueAttribute.add("" + value);
+
+		Attribute newValueAttribute = new BasicAttribute(getAttributeName());
+		newValueAttribute.clear();
+		newValueAttribute.add("" + newValue);
+
+		// prepare modifications to be written to the directory
+		JndiModifications jm = new JndiModifications(JndiModificationType.MODIFY_ENTRY);
+		jm.setDistinguishName(getDn());
+		List<ModificationItem> mi = new ArrayList<ModificationItem>();
+		mi.add(new ModificationItem(DirContext.REMOVE_ATTRIBUTE, valueAttribute));
+		mi.add(new ModificationItem(DirContext.ADD_ATTRIBUTE, newValueAttribute));
+		jm.setModificationItems(mi);
+
+		return jndiServices.apply(jm);
+	}
+
+	/**
+	 * Give the reserved values not handed out back to the directory, if the
+	 * directory still holds the last reserved value, or log them
+	 */
+	public synchronized void release() {
+		Block current = block;
+		if (current == null) {
+			return;
+		}
+		block = null;
+		// Prevent any further value from being handed out of this block
+		int firstUnused = current.next.getAndSet(current.last + 1);
+		if (firstUnused > current.last) {
+			return;
+		}
+		try {
+			if (replaceValue(current.last, firstUnused - 1)) {
+				setValue(firstUnused - 1);
+				LOGGER.info("Released the unused values {} to {} of the sequence {}/{}", firstUnused, current.last, getDn(), getAttributeName());
+				return;
+			}
+		} catch (NamingException e) {
+			LOGGER.debug(e.toString(), e);
+		}
+		LOGGER.warn("The values {} to {} of the sequence {}/{} have been reserved but not used", firstUnused, current.last, getDn(), getAttributeName());
+	}
+
+	/**
+	 * @return the values handed out, the updates of the directory and their average time
+	 */
+	public String getStatistics() {
+		return "allocated values=" + allocatedCount.get()
+				+ ", directory updates=" + updateLatency.getCount()
+				+ ", average update time=" + updateLatency.getMean() + "us";
+	}
+
+	/**
+	 * @return the number of values handed out
+	 */
+	public long getAllocatedCount() {
+		return allocatedCount.get();
+	}
+
+	/**
+	 * @return the latency of the updates of the directory reserving values
+	 */
+	public LatencyHistogram getUpdateLatency() {
+		return updateLatency;
+	}
+
 	public String getDn() {
 		return dn;
 	}
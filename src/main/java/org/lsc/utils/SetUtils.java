@@ -43,9 +43,11 @@
 package org.lsc.utils;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 import javax.naming.NamingEnumeration;
@@ -69,16 +71,16 @@ public class SetUtils {
 	 * values.
 	 * 
 	 * @param attr An Attribute containing values to extract.
-	 * @return {@link HashSet}&lt;Object&gt; Values as a set. Never null.
+	 * @return {@link CompactSet}&lt;Object&gt; Values as a set. Never null.
 	 * @throws NamingException
 	 */
 	public static Set<Object> attributeToSet(Attribute attr)
 					throws NamingException {
 		if (attr == null || attr.size() == 0) {
-			return new HashSet<Object>();
+			return new CompactSet<Object>();
 		}
 
-		Set<Object> attrValues = new LinkedHashSet<Object>(attr.size());
+		Set<Object> attrValues = new CompactSet<Object>(attr.size());
 		NamingEnumeration<?> namingEnumeration = attr.getAll();
 
 		while (namingEnumeration.hasMore()) {
@@ -132,6 +134,23 @@ public class SetUtils {
 	 * @return {@link Set} of needles that are not in the haystack.
 	 */
 	public static Set<Object> findMissingNeedles(Set<?> haystack, Set<Object> needles) {
+		return findMissingNeedles(haystack, needles, false);
+	}
+
+	/**
+	 * Find missing needles from a haystack, see
+	 * {@link #findMissingNeedles(Set, Set)}. The haystack is indexed once,
+	 * so that the time taken grows linearly with the number of values.
+	 * 
+	 * @param haystack
+	 *            Set of Objects to find the needles in.
+	 * @param needles
+	 *            Set of Objects to search for in the haystack.
+	 * @param ignoreCase
+	 *            true to compare String values regardless of their case
+	 * @return {@link Set} of needles that are not in the haystack.
+	 */
+	public static Set<Object> findMissingNeedles(Set<?> haystack, Set<Object> needles, boolean ignoreCase) {
 		Set<Object> missingNeedles = new HashSet<Object>();
 
 		// no needles? they can't be missing then.
@@ -144,60 +163,10 @@ public class SetUtils {
 			return needles;
 		}
 
+		boolean binary = containsBinary(haystack) || containsBinary(needles);
+		Set<Object> index = new HashSet<Object>(normalize(haystack, binary, ignoreCase));
 		for (Object needle : needles) {
-			ByteBuffer needleBuff = null;
-
-			// use a byte buffer is needle is binary
-			if (needle.getClass().isAssignableFrom(byte[].class)) {
-				needleBuff = ByteBuffer.wrap((byte[]) needle);
-			}
-
-			boolean foundInHaystack = false;
-			for (Object haystackValue : haystack) {
-				ByteBuffer haystackValueBuff = null;
-
-				// use a byte buffer if haystack value is binary
-				if (haystackValue.getClass().isAssignableFrom(byte[].class)) {
-					haystackValueBuff = ByteBuffer.wrap((byte[]) haystackValue);
-
-					// make sure we have a byte buffer for the needle too
-					if (needleBuff == null) {
-						// if needle is binary, make this haystack value binary
-						if (needle.getClass().isAssignableFrom(String.class)) {
-							needleBuff = ByteBuffer.wrap(((String) needle).getBytes());
-						} else {
-							continue;
-						}
-					}
-				}
-
-				// needleBuff is set if either needle or haystack value are
-				// binary
-				// do a binary comparison
-				if (needleBuff != null) {
-					// make sure we have a byte buffer for haystack value too
-					if (haystackValueBuff == null) {
-						if (haystackValue.getClass().isAssignableFrom(String.class)) {
-							haystackValueBuff = ByteBuffer.wrap(((String) haystackValue).getBytes());
-						} else {
-							continue;
-						}
-					}
-
-					// binary comparison
-					if (haystackValueBuff.compareTo(needleBuff) == 0) {
-						foundInHaystack = true;
-					}
-				} else {
-					// fall back to standard compare (works well for String,
-					// int, boolean, etc)
-					if (haystackValue.equals(needle)) {
-						foundInHaystack = true;
-					}
-				}
-			}
-
-			if (!foundInHaystack) {
+			if (!index.contains(normalize(needle, binary, ignoreCase))) {
 				missingNeedles.add(needle);
 			}
 		}
@@ -219,61 +188,8 @@ public class SetUtils {
 			return false;
 		}
 
-		Iterator<Object> iterator = second.iterator();
-		for (Object element1: first) {
-			Object element2 = iterator.next(); 
-
-			ByteBuffer element1Buff = null;
-
-			// use a byte buffer is element1 is binary
-			if (element1.getClass().isAssignableFrom(byte[].class)) {
-				element1Buff = ByteBuffer.wrap((byte[]) element1);
-			}
-
-			ByteBuffer element2Buff = null;
-
-			// use a byte buffer if element2 value is binary
-			if (element2.getClass().isAssignableFrom(byte[].class)) {
-				element2Buff = ByteBuffer.wrap((byte[]) element2);
-
-				// make sure we have a byte buffer for element1 too
-				if (element1Buff == null) {
-					// if element1 is binary, make this element2 value binary
-					if (element1.getClass().isAssignableFrom(String.class)) {
-						element1Buff = ByteBuffer.wrap(((String) element1).getBytes());
-					} else {
-						return false;
-					}
-				}
-			}
-
-			// element1Buff is set if either element1 or element2 value are
-			// binary
-			// do a binary comparison
-			if (element1Buff != null) {
-				// make sure we have a byte buffer for element2 value too
-				if (element2Buff == null) {
-					if (element2.getClass().isAssignableFrom(String.class)) {
-						element2Buff = ByteBuffer.wrap(((String) element2).getBytes());
-					} else {
-						return false;
-					}
-				}
-
-				// binary comparison
-				if (element2Buff.compareTo(element1Buff) != 0) {
-					return false;
-				}
-			} else {
-				// fall back to standard compare (works well for String,
-				// int, boolean, etc)
-				if (!element2.equals(element1)) {
-					return false;
-				}
-			}
-		}
-
-		return true;
+		boolean binary = containsBinary(first) || containsBinary(second);
+		return normalize(first, binary, false).equals(normalize(second, binary, false));
 	}
 
 	/**
@@ -300,23 +216,28 @@ public class SetUtils {
 	 * @return true if all values of each set are present in the other set, false otherwise
 	 */
 	public static boolean doSetsMatch(Set<Object> srcAttrValues, Set<Object> dstAttrValues) {
+		return doSetsMatch(srcAttrValues, dstAttrValues, false);
+	}
+
+	/**
+	 * Compare two lists of values to see if they contain the same values, see
+	 * {@link #doSetsMatch(Set, Set)}.
+	 * 
+	 * @param srcAttrValues
+	 * @param dstAttrValues
+	 * @param ignoreCase true to compare String values regardless of their case
+	 * @return true if all values of each set are present in the other set, false otherwise
+	 */
+	public static boolean doSetsMatch(Set<Object> srcAttrValues, Set<Object> dstAttrValues, boolean ignoreCase) {
 		// make sure value counts are the same
 		if (srcAttrValues.size() != dstAttrValues.size()) {
 			return false;
 		}
 
-		// check if there are any values in srcAttr not in dstAttr
-		if (!SetUtils.setContainsAll(dstAttrValues, srcAttrValues)) {
-			return false;
-		}
-
-		// check if there are any values in dstAttr not in srcAttr
-		if (!SetUtils.setContainsAll(srcAttrValues, dstAttrValues)) {
-			return false;
-		}
-
-		// looks ok!
-		return true;
+		// each set must contain all the values of the other one
+		boolean binary = containsBinary(srcAttrValues) || containsBinary(dstAttrValues);
+		return new HashSet<Object>(normalize(srcAttrValues, binary, ignoreCase))
+						.equals(new HashSet<Object>(normalize(dstAttrValues, binary, ignoreCase)));
 	}
 
 	/**
@@ -328,14 +249,54 @@ public class SetUtils {
 	 * @return true if all values of each set are present in the other set and in the same order, false otherwise
 	 */
 	public static boolean doSetsMatchWithOrder(Set<Object> srcAttrValues, Set<Object> dstAttrValues) {
-		if (!doSetsMatch(srcAttrValues, dstAttrValues)) {
+		if (srcAttrValues.size() != dstAttrValues.size()) {
 			return false;
 		}
-		return checkOrder(srcAttrValues, dstAttrValues);
+
+		// the same values in the same order, once normalized
+		boolean binary = containsBinary(srcAttrValues) || containsBinary(dstAttrValues);
+		return normalize(srcAttrValues, binary, false).equals(normalize(dstAttrValues, binary, false));
 	}
 
 	public static void addAllIfNotPresent(Set<Object> set, Set<Object> values) {
 		Set<Object> valuesToAdd = findMissingNeedles(set, values);
 		set.addAll(valuesToAdd);
 	}
+
+	private static boolean containsBinary(Collection<?> values) {
+		for (Object value : values) {
+			if (value instanceof byte[]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static List<Object> normalize(Collection<?> values, boolean binary, boolean ignoreCase) {
+		List<Object> normalized = new ArrayList<Object>(values.size());
+		for (Object value : values) {
+			normalized.add(normalize(value, binary, ignoreCase));
+		}
+		return normalized;
+	}
+
+	/**
+	 * Return the form of a value that is equal to the forms of the values it
+	 * matches, with a consistent hash code. When binary values are compared,
+	 * String values are compared by their bytes too.
+	 * 
+	 * @param value the value
+	 * @param binary true if any of the values compared is a byte[]
+	 * @param ignoreCase true to compare String values regardless of their case
+	 * @return the normalized value
+	 */
+	private static Object normalize(Object value, boolean binary, boolean ignoreCase) {
+		if (value instanceof byte[]) {
+			return ByteBuffer.wrap((byte[]) value);
+		} else if (value instanceof String) {
+			String string = (ignoreCase ? ((String) value).toLowerCase(Locale.ROOT) : (String) value);
+			return (binary ? ByteBuffer.wrap(string.getBytes()) : string);
+		}
+		return value;
+	}
 }
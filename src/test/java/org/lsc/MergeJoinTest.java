@@ -0,0 +1,205 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.junit.jupiter.api.Test;
+import org.lsc.beans.IBean;
+import org.lsc.beans.InfoCounter;
+import org.lsc.beans.SimpleBean;
+import org.lsc.configuration.PivotTransformationType;
+import org.lsc.configuration.PropertiesBasedSyncOptionsType;
+import org.lsc.configuration.TaskType;
+import org.lsc.exception.LscServiceException;
+import org.lsc.jndi.SimpleJndiDstService;
+import org.lsc.jndi.SimpleJndiSrcService;
+import org.lsc.service.IScanService.BeanScanner;
+
+public class MergeJoinTest {
+
+	Task task = mock(Task.class);
+	SimpleJndiSrcService srcService = mock(SimpleJndiSrcService.class);
+	SimpleJndiDstService dstService = mock(SimpleJndiDstService.class);
+
+	private void setUp(List<IBean> srcBeans, List<IBean> dstBeans) throws LscServiceException {
+		when(task.getName()).thenReturn("mergeJoin");
+		when(task.getSourceService()).thenReturn(srcService);
+		when(task.getDestinationService()).thenReturn(dstService);
+		when(srcService.getPivotAttributes()).thenReturn(Collections.singletonList("uid"));
+		when(dstService.getPivotAttributes()).thenReturn(Collections.singletonList("UID"));
+		when(srcService.scanBeans(any())).thenReturn(new ListScanner(srcBeans));
+		when(dstService.scanBeans(any())).thenReturn(new ListScanner(dstBeans));
+	}
+
+	@Test
+	public void testJoin() throws LscServiceException {
+		IBean srcB = bean("uid=b,ou=src", "b");
+		IBean dstB = bean("uid=b,ou=dst", "B");
+		IBean srcD = bean("uid=d,ou=src", "d");
+		IBean dstD = bean("uid=d,ou=dst", "d");
+		setUp(Arrays.asList(bean("uid=a,ou=src", "a"), srcB, srcD),
+				Arrays.asList(dstB, bean("uid=c,ou=dst", "c"), dstD, bean("uid=e,ou=dst", "e")));
+
+		final List<IBean[]> pairs = new ArrayList<IBean[]>();
+		InfoCounter counter = new InfoCounter();
+		MergeJoin mergeJoin = new MergeJoin(task, counter);
+		mergeJoin.run((id, srcBean, dstBean) -> pairs.add(new IBean[] { srcBean, dstBean }));
+
+		assertEquals(3, pairs.size());
+		assertNull(pairs.get(0)[1]);
+		assertSame(srcB, pairs.get(1)[0]);
+		assertSame(dstB, pairs.get(1)[1]);
+		assertSame(srcD, pairs.get(2)[0]);
+		assertSame(dstD, pairs.get(2)[1]);
+
+		assertEquals(3, mergeJoin.getSourceCount());
+		assertEquals(4, mergeJoin.getDestinationCount());
+		List<String> destinationOnly = new ArrayList<String>();
+		for (Entry<String, LscDatasets> id : mergeJoin.getDestinationOnly()) {
+			destinationOnly.add(id.getKey());
+			assertEquals(1, id.getValue().getDatasets().size());
+		}
+		assertEquals(Arrays.asList("uid=c,ou=dst", "uid=e,ou=dst"), destinationOnly);
+		assertEquals(0, counter.getCountError());
+	}
+
+	@Test
+	public void testUnsorted() throws LscServiceException {
+		setUp(Arrays.asList(bean("uid=b,ou=src", "b"), bean("uid=a,ou=src", "a")),
+				Arrays.asList(bean("uid=a,ou=dst", "a")));
+
+		MergeJoin mergeJoin = new MergeJoin(task, new InfoCounter());
+		assertThrows(LscServiceException.class, () -> mergeJoin.run(null));
+	}
+
+	@Test
+	public void testDuplicate() throws LscServiceException {
+		setUp(Arrays.asList(bean("uid=a,ou=src", "a"), bean("uid=a2,ou=src", "A")),
+				Arrays.asList(bean("uid=a,ou=dst", "a")));
+
+		InfoCounter counter = new InfoCounter();
+		MergeJoin mergeJoin = new MergeJoin(task, counter);
+		mergeJoin.run(null);
+		assertTrue(mergeJoin.getDestinationOnly().isEmpty());
+		assertEquals(1, counter.getCountError());
+	}
+
+	@Test
+	public void testSupported() {
+		when(task.getSourceService()).thenReturn(srcService);
+		when(task.getDestinationService()).thenReturn(dstService);
+		when(srcService.getPivotAttributes()).thenReturn(Arrays.asList("uid", "mail"));
+		when(dstService.getPivotAttributes()).thenReturn(Collections.singletonList("uid"));
+		assertFalse(MergeJoin.isSupported(task));
+
+		when(srcService.getPivotAttributes()).thenReturn(Collections.singletonList("uid"));
+		assertTrue(MergeJoin.isSupported(task));
+	}
+
+	@Test
+	public void testNotSupportedWithPivotTransformation() {
+		when(task.getSourceService()).thenReturn(srcService);
+		when(task.getDestinationService()).thenReturn(dstService);
+		when(srcService.getPivotAttributes()).thenReturn(Collections.singletonList("uid"));
+		when(dstService.getPivotAttributes()).thenReturn(Collections.singletonList("uid"));
+
+		PivotTransformationType.Transformation transformation = new PivotTransformationType.Transformation();
+		transformation.setFromAttribute("uid");
+		transformation.setToAttribute("uid");
+		transformation.setValue("value.toLowerCase()");
+		PivotTransformationType pivotTransformation = new PivotTransformationType();
+		pivotTransformation.getTransformation().add(transformation);
+		PropertiesBasedSyncOptionsType syncOptions = new PropertiesBasedSyncOptionsType();
+		syncOptions.setPivotTransformation(pivotTransformation);
+		TaskType taskType = new TaskType();
+		taskType.setPropertiesBasedSyncOptions(syncOptions);
+		when(task.getTaskType()).thenReturn(taskType);
+		assertFalse(MergeJoin.isSupported(task));
+
+		pivotTransformation.getTransformation().clear();
+		assertTrue(MergeJoin.isSupported(task));
+	}
+
+	private static IBean bean(String dn, String uid) {
+		IBean bean = new SimpleBean();
+		bean.setMainIdentifier(dn);
+		bean.setDataset("uid", new HashSet<Object>(Collections.singletonList(uid)));
+		return bean;
+	}
+
+	private static class ListScanner implements BeanScanner {
+
+		private final Iterator<IBean> beans;
+
+		ListScanner(List<IBean> beans) {
+			this.beans = beans.iterator();
+		}
+
+		public IBean next() {
+			return beans.hasNext() ? beans.next() : null;
+		}
+
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SynchronizeThreadPoolExecutorTest {
+
+	private SynchronizeThreadPoolExecutor threadPool;
+
+	private CountDownLatch started = new CountDownLatch(1);
+
+	private CountDownLatch released = new CountDownLatch(1);
+
+	private AtomicInteger completed = new AtomicInteger();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		// A single thread, busy until released, and a single slot in the queue
+		threadPool = new SynchronizeThreadPoolExecutor(1, 1, "test");
+		threadPool.runTask(() -> {
+			started.countDown();
+			try {
+				released.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			completed.incrementAndGet();
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		released.countDown();
+		threadPool.shutdown();
+		assertTrue(threadPool.awaitTermination(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testSubmitBlocksWhenFull() throws Exception {
+		threadPool.runTask(completed::incrementAndGet);
+		assertEquals(1, threadPool.getQueueDepth());
+		assertEquals(1, threadPool.getQueueCapacity());
+		assertEquals(0, threadPool.getRejectedCount());
+
+		Thread submitter = new Thread(() -> threadPool.runTask(completed::incrementAndGet));
+		submitter.start();
+		submitter.join(200);
+
+		// The queue is full: the submitter waits for a free slot
+		assertTrue(submitter.isAlive());
+		assertEquals(1, threadPool.getRejectedCount());
+		assertEquals(3, threadPool.getSubmittedCount());
+
+		released.countDown();
+		submitter.join(5000);
+		assertFalse(submitter.isAlive());
+		threadPool.shutdown();
+		assertTrue(threadPool.awaitTermination(5, TimeUnit.SECONDS));
+
+		assertEquals(3, completed.get());
+		assertEquals(0, threadPool.getQueueDepth());
+		assertEquals(1, threadPool.getRejectedCount());
+		assertTrue(threadPool.getWaitTime() >= 100, "waited " + threadPool.getWaitTime() + " ms");
+		assertTrue(threadPool.getStatistics().contains("submitted: 3"), threadPool.getStatistics());
+	}
+
+	@Test
+	public void testTryExecute() throws Exception {
+		assertTrue(threadPool.tryExecute(completed::incrementAndGet));
+		assertEquals(1, threadPool.getQueueDepth());
+
+		// The queue is full: the task is refused without waiting
+		assertFalse(threadPool.tryExecute(completed::incrementAndGet));
+		assertEquals(0, threadPool.getRejectedCount());
+		// Not an entry of the synchronization
+		assertEquals(1, threadPool.getSubmittedCount());
+
+		released.countDown();
+		threadPool.shutdown();
+		assertTrue(threadPool.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(2, completed.get());
+
+		assertFalse(threadPool.tryExecute(completed::incrementAndGet));
+	}
+}
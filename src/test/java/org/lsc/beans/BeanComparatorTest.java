@@ -63,11 +63,13 @@ import java.util.Set;
 
 import javax.naming.NamingException;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.lsc.LscModificationType;
 import org.lsc.LscModifications;
 import org.lsc.Task;
 import org.lsc.beans.syncoptions.ISyncOptions;
+import org.lsc.beans.syncoptions.SyncPlan;
 import org.lsc.configuration.PolicyType;
 import org.lsc.exception.LscServiceException;
 import org.lsc.jndi.SimpleJndiDstService;
@@ -82,6 +84,14 @@ public class BeanComparatorTest {
 	Task task = mock(Task.class);
 	SimpleJndiDstService dstService = mock(SimpleJndiDstService.class);
 
+	@BeforeEach
+	public void setUp() {
+		when(task.getExpression((String) any())).thenCallRealMethod();
+		// The options are stubbed test by test, so resolve them on each call
+		when(task.getSyncPlan()).thenAnswer(invocation -> new SyncPlan(task.getSyncOptions(),
+				task.getDestinationService() != null ? task.getDestinationService().getWriteDatasetIds() : null));
+	}
+
 	/**
 	 * Test method for
 	 * {@link org.lsc.beans.BeanComparator#calculateModificationType(Task, IBean, IBean)}.
@@ -0,0 +1,127 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.beans;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.lsc.LscModificationType;
+import org.lsc.beans.InfoCounter.Phase;
+
+public class InfoCounterTest {
+
+	@Test
+	public void testConcurrentCounts() throws InterruptedException {
+		final InfoCounter counter = new InfoCounter();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			Thread thread = new Thread(() -> {
+				for (int j = 0; j < 1000; j++) {
+					counter.incrementCountAll();
+					counter.incrementCountModifiable();
+					counter.incrementCountCompleted(LscModificationType.UPDATE_OBJECT);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(4000, counter.getCountAll());
+		assertEquals(4000, counter.getCountModifiable());
+		assertEquals(4000, counter.getCountCompleted());
+		assertEquals(4000, counter.getCountOperation(LscModificationType.UPDATE_OBJECT));
+		assertEquals(0, counter.getCountOperation(LscModificationType.CREATE_OBJECT));
+		assertEquals(0, counter.getCountError());
+		assertTrue(counter.getThroughput(InfoCounter.THROUGHPUT_WINDOWS[0]) > 0);
+	}
+
+	@Test
+	public void testLatencies() {
+		InfoCounter counter = new InfoCounter();
+		assertEquals(0, counter.getLatencyPercentile(Phase.APPLY, 99));
+
+		for (int i = 0; i < 99; i++) {
+			counter.recordLatency(Phase.APPLY, TimeUnit.MICROSECONDS.toNanos(10));
+		}
+		counter.recordLatency(Phase.APPLY, TimeUnit.MILLISECONDS.toNanos(10));
+
+		assertEquals(100, counter.getLatencyCount(Phase.APPLY));
+		assertEquals(0, counter.getLatencyCount(Phase.HOOK));
+		assertEquals((99 * 10 + 10000) / 100, counter.getLatencyMean(Phase.APPLY));
+		// 10us is in the [8, 15] bucket, 10ms in the [8192, 16383] one
+		assertEquals(15, counter.getLatencyPercentile(Phase.APPLY, 50));
+		assertEquals(15, counter.getLatencyPercentile(Phase.APPLY, 99));
+		assertEquals(16383, counter.getLatencyPercentile(Phase.APPLY, 100));
+	}
+
+	@Test
+	public void testSlowEntries() throws InterruptedException {
+		InfoCounter counter = new InfoCounter();
+		for (int i = 0; i < InfoCounter.SLOW_ENTRIES * 2; i++) {
+			EntryTrace trace = new EntryTrace(counter);
+			if (i == 3) {
+				Thread.sleep(20);
+			}
+			trace.record(Phase.SOURCE_GET);
+			trace.finish("entry" + i);
+		}
+
+		List<EntryTrace> slowEntries = counter.getSlowEntries();
+		assertEquals(InfoCounter.SLOW_ENTRIES, slowEntries.size());
+		assertEquals("entry3", slowEntries.get(0).getIdentifier());
+		assertEquals(slowEntries.get(0).getTotal(), slowEntries.get(0).getTime(Phase.SOURCE_GET));
+		assertTrue(slowEntries.get(0).toString().startsWith("entry3: "));
+		assertEquals(InfoCounter.SLOW_ENTRIES * 2, counter.getLatencyCount(Phase.SOURCE_GET));
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.beans;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+import org.lsc.LscDatasets;
+
+public class LscBeanTest {
+
+	@Test
+	public void testCloneCopiesOnWrite() throws CloneNotSupportedException {
+		IBean bean = new SimpleBean();
+		bean.setMainIdentifier("uid=jdoe");
+		bean.setDataset("cn", new HashSet<Object>(Arrays.asList("John Doe")));
+
+		IBean clone = bean.clone();
+		assertEquals("uid=jdoe", clone.getMainIdentifier());
+		assertEquals(SimpleBean.class, clone.getClass());
+
+		clone.setDataset("sn", new HashSet<Object>(Arrays.asList("Doe")));
+		bean.setDataset("cn", new HashSet<Object>(Arrays.asList("Jane Doe")));
+
+		assertNull(bean.getDatasetById("sn"));
+		assertEquals(new HashSet<Object>(Arrays.asList("John Doe")), clone.getDatasetById("CN"));
+		assertEquals(new HashSet<Object>(Arrays.asList("Jane Doe")), bean.getDatasetById("cn"));
+	}
+
+	@Test
+	public void testDatasetsView() {
+		IBean bean = new SimpleBean();
+		bean.setDataset("givenName", new HashSet<Object>(Arrays.asList("John")));
+
+		LscDatasets datasets = bean.datasets();
+		assertSame(datasets, bean.datasets());
+		assertEquals("John", datasets.getStringValueAttribute("GIVENNAME"));
+
+		bean.setDataset("sn", new HashSet<Object>(Arrays.asList("Doe")));
+		assertEquals("Doe", bean.datasets().getStringValueAttribute("sn"));
+		assertEquals(2, bean.datasets().getAttributesNames().size());
+
+		assertThrows(UnsupportedOperationException.class, () -> bean.datasets().put("mail", "jdoe@example.com"));
+	}
+}
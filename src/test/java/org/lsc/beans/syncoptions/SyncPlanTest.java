@@ -0,0 +1,107 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.beans.syncoptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.lsc.beans.IBean;
+import org.lsc.beans.SimpleBean;
+import org.lsc.configuration.PolicyType;
+
+public class SyncPlanTest {
+
+	@Test
+	public void testAttributesAreResolvedOnce() {
+		ISyncOptions syncOptions = mock(ISyncOptions.class);
+		when(syncOptions.getStatus(any(), any())).thenReturn(PolicyType.MERGE);
+		when(syncOptions.getDefaultValues(any(), eq("description"))).thenReturn(Arrays.asList("\"none\""));
+		when(syncOptions.getDefaultValuedAttributeNames()).thenReturn(new HashSet<String>(Arrays.asList("description")));
+		when(syncOptions.getDelimiter(any())).thenReturn(";");
+
+		SyncPlan plan = new SyncPlan(syncOptions, null);
+
+		assertSame(plan.get("description"), plan.get("Description"));
+		assertEquals(PolicyType.MERGE, plan.get("DESCRIPTION").getPolicy());
+		assertEquals(Arrays.asList("\"none\""), plan.get("description").getDefaultValues());
+		assertEquals(";", plan.get("description").getDelimiter());
+		verify(syncOptions, times(1)).getStatus(null, "description");
+
+		plan.get("sn");
+		plan.get("SN");
+		verify(syncOptions, times(1)).getStatus(null, "sn");
+	}
+
+	@Test
+	public void testWriteAttributes() {
+		ISyncOptions syncOptions = mock(ISyncOptions.class);
+		when(syncOptions.getForceValuedAttributeNames()).thenReturn(new HashSet<String>(Arrays.asList("userPassword")));
+
+		IBean srcBean = new SimpleBean();
+		srcBean.setDataset("CN", new HashSet<Object>(Arrays.asList("cn")));
+		srcBean.setDataset("sn", new HashSet<Object>(Arrays.asList("sn")));
+
+		Set<String> explicit = new SyncPlan(syncOptions, Arrays.asList("cn", "Mail")).getWriteAttributes(srcBean);
+		assertEquals(new HashSet<String>(Arrays.asList("cn", "mail")), explicit);
+
+		Set<String> all = new SyncPlan(syncOptions, Arrays.asList("mail", "*")).getWriteAttributes(srcBean);
+		assertEquals(new HashSet<String>(Arrays.asList("cn", "sn", "mail", "userpassword")), all);
+
+		Set<String> none = new SyncPlan(syncOptions, null).getWriteAttributes(srcBean);
+		assertEquals(new HashSet<String>(Arrays.asList("cn", "sn", "userpassword")), none);
+	}
+}
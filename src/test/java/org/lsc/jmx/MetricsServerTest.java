@@ -0,0 +1,93 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.jmx;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.lsc.AbstractSynchronize;
+import org.lsc.LscModificationType;
+import org.lsc.Task;
+import org.lsc.beans.InfoCounter;
+import org.lsc.beans.InfoCounter.Phase;
+
+public class MetricsServerTest {
+
+	@Test
+	public void testMetrics() throws Exception {
+		InfoCounter counter = new InfoCounter();
+		counter.incrementCountAll();
+		counter.incrementCountModifiable();
+		counter.incrementCountCompleted(LscModificationType.CREATE_OBJECT);
+		counter.recordLatency(Phase.APPLY, TimeUnit.MICROSECONDS.toNanos(3));
+
+		AbstractSynchronize synchronize = mock(AbstractSynchronize.class);
+		when(synchronize.getCounters()).thenReturn(Collections.singletonMap("people", counter));
+		when(synchronize.getTasks()).thenReturn(new Task[0]);
+
+		MetricsServer server = new MetricsServer(synchronize, 0);
+		try {
+			String metrics = server.getMetrics();
+			assertTrue(metrics.contains("# TYPE lsc_entries_total counter\n"));
+			assertTrue(metrics.contains("lsc_entries_total{task=\"people\"} 1\n"));
+			assertTrue(metrics.contains("lsc_operations_total{task=\"people\",operation=\"create\"} 1\n"));
+			assertTrue(metrics.contains("lsc_operations_total{task=\"people\",operation=\"delete\"} 0\n"));
+			// 3us is in the bucket of the latencies lower than 4us
+			assertTrue(metrics.contains("lsc_phase_latency_seconds_bucket{task=\"people\",phase=\"apply\",le=\"0.000002\"} 0\n"));
+			assertTrue(metrics.contains("lsc_phase_latency_seconds_bucket{task=\"people\",phase=\"apply\",le=\"0.000004\"} 1\n"));
+			assertTrue(metrics.contains("lsc_phase_latency_seconds_bucket{task=\"people\",phase=\"apply\",le=\"+Inf\"} 1\n"));
+			assertTrue(metrics.contains("lsc_phase_latency_seconds_count{task=\"people\",phase=\"apply\"} 1\n"));
+			assertTrue(metrics.contains("# TYPE lsc_script_evaluation_seconds histogram\n"));
+		} finally {
+			server.stop();
+		}
+	}
+}
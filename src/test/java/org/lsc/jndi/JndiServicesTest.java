@@ -55,6 +55,7 @@ import java.net.URL;
 import java.util.Properties;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -65,6 +66,7 @@ import javax.naming.directory.BasicAttribute;
 import javax.naming.directory.DirContext;
 import javax.naming.directory.ModificationItem;
 import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
 import javax.naming.ldap.LdapContext;
 import javax.security.auth.login.LoginContext;
 import javax.security.auth.login.LoginException;
@@ -146,6 +148,29 @@ public class JndiServicesTest extends AbstractLdapTestUnit {
 		assertNotNull(dstJndiServices.getSchema(new String[] { "objectclasses" }));
 	}
 
+	@Test
+	public final void testStreamAttrList() throws NamingException {
+		List<String> attrsName = new ArrayList<String>();
+		attrsName.add("uid");
+		Map<String, LscDatasets> values = dstJndiServices.getAttrsList("ou=People", "objectclass=person",
+				SearchControls.SUBTREE_SCOPE, attrsName);
+		Map<String, LscDatasets> streamed = new LinkedHashMap<String, LscDatasets>();
+		long count = dstJndiServices.streamAttrsList("ou=People", "objectclass=person",
+				SearchControls.SUBTREE_SCOPE, attrsName, streamed::put);
+		assertEquals(values.size(), count);
+		assertEquals(values.keySet(), streamed.keySet());
+	}
+
+	@Test
+	public final void testGetEntries() throws NamingException {
+		List<SearchResult> entries = dstJndiServices.getEntries("ou=People", "(|(uid=00000001)(uid=unknown))",
+				new SearchControls(), SearchControls.SUBTREE_SCOPE);
+		assertEquals(1, entries.size());
+		assertEquals("uid=00000001", entries.get(0).getName());
+		assertEquals(0, dstJndiServices.getEntries("ou=People", "(uid=unknown)",
+				new SearchControls(), SearchControls.SUBTREE_SCOPE).size());
+	}
+
 	@Test
 	public final void testSup() throws NamingException {
 		assertEquals(null, dstJndiServices.sup("", -1));
@@ -344,6 +369,30 @@ public class JndiServicesTest extends AbstractLdapTestUnit {
         assertNull(freshInstance.getContext());
     }
 
+	/**
+	 * Test that the values of large attributes are sent in bounded requests
+	 */
+	@Test
+	public final void testSplitModifications() throws NamingException {
+		Attribute members = new BasicAttribute("member");
+		for (int i = 0; i < 25; i++) {
+			members.add("uid=user" + i + ",ou=people");
+		}
+		List<ModificationItem> mis = new ArrayList<ModificationItem>();
+		mis.add(new ModificationItem(DirContext.REPLACE_ATTRIBUTE, new BasicAttribute("description", "group")));
+		mis.add(new ModificationItem(DirContext.ADD_ATTRIBUTE, members));
+
+		List<ModificationItem[]> requests = JndiServices.splitModifications(mis, 10);
+		assertEquals(3, requests.size());
+		assertEquals(2, requests.get(0).length);
+		assertEquals(9, requests.get(0)[1].getAttribute().size());
+		assertEquals(10, requests.get(1)[0].getAttribute().size());
+		assertEquals(6, requests.get(2)[0].getAttribute().size());
+		assertEquals(DirContext.ADD_ATTRIBUTE, requests.get(2)[0].getModificationOp());
+
+		assertEquals(1, JndiServices.splitModifications(mis, 0).size());
+	}
+
 	public void testAuthenticationThroughJAAS() {
 		LoginContext lc = null;
 		String user = "";
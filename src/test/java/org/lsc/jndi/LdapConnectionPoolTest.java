@@ -0,0 +1,166 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.jndi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import javax.naming.NamingException;
+import javax.naming.ldap.LdapContext;
+
+import org.junit.jupiter.api.Test;
+
+public class LdapConnectionPoolTest {
+
+	private LdapConnectionPool newPool(int minSize, int maxSize, int idleTimeout) {
+		return new LdapConnectionPool(() -> new LdapConnectionPool.Connection(mock(LdapContext.class), null),
+				minSize, maxSize, idleTimeout, false);
+	}
+
+	@Test
+	public void testAffinity() throws Exception {
+		LdapConnectionPool pool = newPool(2, 2, 300);
+		pool.fill();
+		assertEquals(2, pool.getSize());
+
+		LdapConnectionPool.Connection first = pool.borrow();
+		pool.release(first);
+		assertSame(first, pool.borrow());
+		assertEquals(2, pool.getCreatedCount());
+	}
+
+	@Test
+	public void testSharedWhenFull() throws Exception {
+		LdapConnectionPool pool = newPool(1, 2, 300);
+		LdapConnectionPool.Connection first = pool.borrow();
+		LdapConnectionPool.Connection second = pool.borrow();
+		assertNotSame(first, second);
+		assertEquals(0, pool.getSharedCount());
+
+		LdapConnectionPool.Connection third = pool.borrow();
+		assertEquals(2, pool.getSize());
+		assertEquals(1, pool.getSharedCount());
+		assertEquals(2, pool.getBusyCount());
+
+		pool.release(third);
+		pool.release(second);
+		pool.release(first);
+		assertEquals(0, pool.getBusyCount());
+		assertEquals(3, pool.getBorrowedCount());
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		LdapConnectionPool pool = newPool(1, 1, 300);
+		LdapConnectionPool.Connection broken = pool.borrow();
+		pool.invalidate(broken);
+		verify(broken.getContext()).close();
+		assertEquals(0, pool.getSize());
+
+		LdapConnectionPool.Connection connection = pool.borrow();
+		assertNotSame(broken, connection);
+		assertEquals(2, pool.getCreatedCount());
+	}
+
+	@Test
+	public void testInvalidateShared() throws Exception {
+		LdapConnectionPool pool = newPool(1, 1, 300);
+		LdapConnectionPool.Connection broken = pool.borrow();
+		assertSame(broken, pool.borrow());
+
+		// Dropped from the pool, but still used by the other borrower
+		pool.invalidate(broken);
+		verify(broken.getContext(), never()).close();
+		assertEquals(0, pool.getSize());
+		LdapConnectionPool.Connection connection = pool.borrow();
+		assertNotSame(broken, connection);
+
+		pool.release(broken);
+		verify(broken.getContext()).close();
+		pool.release(connection);
+	}
+
+	@Test
+	public void testIdleEviction() throws Exception {
+		LdapConnectionPool pool = newPool(1, 3, 0);
+		LdapConnectionPool.Connection first = pool.borrow();
+		LdapConnectionPool.Connection second = pool.borrow();
+		LdapConnectionPool.Connection third = pool.borrow();
+		pool.release(first);
+		pool.release(second);
+		Thread.sleep(5);
+
+		// The unused connections are closed, down to the minimum size
+		pool.release(pool.borrow());
+		assertEquals(2, pool.getSize());
+		pool.release(third);
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		LdapConnectionPool pool = newPool(1, 1, 300);
+		pool.fill();
+		pool.close();
+		assertEquals(0, pool.getSize());
+		assertThrows(NamingException.class, () -> pool.borrow());
+	}
+
+	@Test
+	public void testCloseBorrowed() throws Exception {
+		LdapConnectionPool pool = newPool(1, 1, 300);
+		LdapConnectionPool.Connection connection = pool.borrow();
+		pool.close();
+		verify(connection.getContext(), never()).close();
+
+		pool.release(connection);
+		verify(connection.getContext()).close();
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.jndi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.ModificationItem;
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.ModifyRequest;
+import org.apache.directory.api.ldap.model.message.ModifyResponse;
+import org.apache.directory.api.ldap.model.message.ModifyResponseImpl;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.ldap.client.api.LdapAsyncConnection;
+import org.apache.directory.ldap.client.api.future.ModifyFuture;
+import org.junit.jupiter.api.Test;
+import org.lsc.exception.LscServiceException;
+
+public class PipelinedLdapWriterTest {
+
+	private static final long TIMEOUT = 5000;
+
+	/** The names of the entries modified by the requests sent, in order */
+	private final List<String> sent = Collections.synchronizedList(new ArrayList<String>());
+
+	/** The outcomes received by the callbacks, in order */
+	private final List<String> outcomes = Collections.synchronizedList(new ArrayList<String>());
+
+	/** The responses held back until the latch is released, by entry name */
+	private final Map<String, CountDownLatch> held = new ConcurrentHashMap<String, CountDownLatch>();
+
+	/** The result codes other than success, by entry name */
+	private final Map<String, ResultCodeEnum> results = new ConcurrentHashMap<String, ResultCodeEnum>();
+
+	/** The connections opened, in order */
+	private final List<LdapAsyncConnection> connections = new CopyOnWriteArrayList<LdapAsyncConnection>();
+
+	@Test
+	public void testSameEntryInOrder() throws Exception {
+		CountDownLatch first = new CountDownLatch(1);
+		held.put("cn=a", first);
+		PipelinedLdapWriter writer = newWriter(10, TIMEOUT);
+
+		writer.write(modify("cn=a"), success -> outcomes.add("cn=a#1 " + success));
+		Thread second = new Thread(() -> {
+			try {
+				writer.write(modify("cn=a"), success -> outcomes.add("cn=a#2 " + success));
+			} catch (LscServiceException e) {
+				outcomes.add(e.toString());
+			}
+		});
+		second.start();
+		writer.write(modify("cn=b"), success -> outcomes.add("cn=b " + success));
+
+		// The second modification of cn=a waits for the response to the first one
+		awaitWaiting(second);
+		assertEquals(Arrays.asList("cn=a", "cn=b"), sent);
+
+		first.countDown();
+		second.join(TIMEOUT);
+		writer.flush();
+		assertEquals(Arrays.asList("cn=a", "cn=b", "cn=a"), sent);
+		assertEquals(Arrays.asList("cn=a#1 true", "cn=b true", "cn=a#2 true"), outcomes);
+		writer.close();
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		results.put("cn=b", ResultCodeEnum.NO_SUCH_OBJECT);
+		PipelinedLdapWriter writer = newWriter(10, TIMEOUT);
+
+		writer.write(modify("cn=a"), success -> outcomes.add("cn=a " + success));
+		writer.write(modify("cn=b"), success -> outcomes.add("cn=b " + success));
+		writer.write(modify("cn=c"), success -> {
+			throw new IllegalStateException("Failing callback");
+		});
+		writer.write(modify("cn=d"), success -> outcomes.add("cn=d " + success));
+		writer.flush();
+
+		assertEquals(Arrays.asList("cn=a true", "cn=b false", "cn=d true"), outcomes);
+		writer.close();
+	}
+
+	@Test
+	public void testReconnect() throws Exception {
+		PipelinedLdapWriter writer = newWriter(10, TIMEOUT);
+		writer.write(modify("cn=a"), success -> outcomes.add("cn=a " + success));
+		writer.flush();
+
+		when(connections.get(0).isConnected()).thenReturn(false);
+		writer.write(modify("cn=b"), success -> outcomes.add("cn=b " + success));
+		writer.flush();
+
+		assertEquals(2, connections.size());
+		verify(connections.get(0), times(1)).modifyAsync(any(ModifyRequest.class));
+		verify(connections.get(1), times(1)).modifyAsync(any(ModifyRequest.class));
+		assertEquals(Arrays.asList("cn=a true", "cn=b true"), outcomes);
+		writer.close();
+	}
+
+	@Test
+	public void testFlushTimeout() throws Exception {
+		CountDownLatch stalled = new CountDownLatch(1);
+		held.put("cn=a", stalled);
+		PipelinedLdapWriter writer = newWriter(10, 200);
+
+		writer.write(modify("cn=a"), success -> outcomes.add("cn=a " + success));
+		writer.write(modify("cn=b"), success -> outcomes.add("cn=b " + success));
+		writer.flush();
+
+		// The modifications still waiting are failed, and the connection closed
+		assertEquals(Arrays.asList("cn=a false", "cn=b false"), outcomes);
+		verify(connections.get(0)).close();
+
+		// The late response is ignored, and the next modifications go on
+		stalled.countDown();
+		writer.write(modify("cn=a"), success -> outcomes.add("cn=a " + success));
+		writer.flush();
+		assertEquals(Arrays.asList("cn=a false", "cn=b false", "cn=a true"), outcomes);
+		writer.close();
+	}
+
+	@Test
+	public void testCallbackExecutor() throws Exception {
+		ExecutorService executor = Executors.newCachedThreadPool();
+		PipelinedLdapWriter writer = newWriter(10, TIMEOUT);
+		writer.setCallbackExecutor(executor);
+
+		// A slow callback does not delay the outcome of the next modification
+		CountDownLatch nextApplied = new CountDownLatch(1);
+		writer.write(modify("cn=a"), success -> {
+			try {
+				outcomes.add("cn=a next applied " + nextApplied.await(TIMEOUT, TimeUnit.MILLISECONDS));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		writer.write(modify("cn=b"), success -> {
+			outcomes.add("cn=b on reader " + Thread.currentThread().getName().endsWith("-responses"));
+			nextApplied.countDown();
+		});
+		writer.flush();
+
+		assertEquals(Arrays.asList("cn=b on reader false", "cn=a next applied true"), outcomes);
+		writer.close();
+		executor.shutdown();
+	}
+
+	private PipelinedLdapWriter newWriter(int maxOutstanding, long timeout) throws LscServiceException {
+		JndiServices jndiServices = mock(JndiServices.class);
+		when(jndiServices.completeDn(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+		return new PipelinedLdapWriter(this::newConnection, "ldap://localhost:33389/", jndiServices, maxOutstanding,
+				timeout, "test");
+	}
+
+	private LdapAsyncConnection newConnection() throws LscServiceException {
+		LdapAsyncConnection connection = mock(LdapAsyncConnection.class);
+		when(connection.isConnected()).thenReturn(true);
+		try {
+			when(connection.modifyAsync(any(ModifyRequest.class))).thenAnswer(invocation -> {
+				String name = invocation.<ModifyRequest> getArgument(0).getName().getName();
+				sent.add(name);
+				return newFuture(name);
+			});
+		} catch (LdapException e) {
+			throw new LscServiceException(e);
+		}
+		connections.add(connection);
+		return connection;
+	}
+
+	/**
+	 * A response held back as long as the latch of its entry is not released,
+	 * whatever the timeout
+	 */
+	private ModifyFuture newFuture(String name) throws Exception {
+		ModifyFuture future = mock(ModifyFuture.class);
+		when(future.get(anyLong(), any(TimeUnit.class))).thenAnswer(invocation -> {
+			CountDownLatch latch = held.get(name);
+			if (latch != null) {
+				latch.await();
+			}
+			ModifyResponse response = new ModifyResponseImpl();
+			response.getLdapResult().setResultCode(results.getOrDefault(name, ResultCodeEnum.SUCCESS));
+			return response;
+		});
+		return future;
+	}
+
+	private static JndiModifications modify(String name) {
+		JndiModifications jm = new JndiModifications(JndiModificationType.MODIFY_ENTRY);
+		jm.setDistinguishName(name);
+		jm.setModificationItems(Collections.singletonList(
+				new ModificationItem(DirContext.REPLACE_ATTRIBUTE, new BasicAttribute("description", "updated"))));
+		return jm;
+	}
+
+	private static void awaitWaiting(Thread thread) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(thread.getState() == Thread.State.WAITING);
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.jndi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.directory.server.annotations.CreateLdapServer;
+import org.apache.directory.server.annotations.CreateTransport;
+import org.apache.directory.server.core.annotations.ApplyLdifFiles;
+import org.apache.directory.server.core.annotations.ApplyLdifs;
+import org.apache.directory.server.core.annotations.ContextEntry;
+import org.apache.directory.server.core.annotations.CreateDS;
+import org.apache.directory.server.core.annotations.CreateIndex;
+import org.apache.directory.server.core.annotations.CreatePartition;
+import org.apache.directory.server.core.annotations.LoadSchema;
+import org.apache.directory.server.core.integ.AbstractLdapTestUnit;
+import org.apache.directory.server.core.integ.ApacheDSTestExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.lsc.LscDatasets;
+import org.lsc.beans.IBean;
+import org.lsc.beans.SimpleBean;
+import org.lsc.configuration.LdapDestinationServiceType;
+import org.lsc.configuration.LscConfiguration;
+import org.lsc.configuration.ServiceType.Connection;
+import org.lsc.configuration.ValuesType;
+import org.lsc.exception.LscServiceException;
+
+/**
+ * Check the entries read by batches are matched back to the right pivots.
+ */
+@ExtendWith({ ApacheDSTestExtension.class })
+@CreateDS(name = "DSWithPartitionAndServer", loadedSchemas = {
+		@LoadSchema(name = "other", enabled = true) }, partitions = {
+				@CreatePartition(name = "lsc-project", suffix = "dc=lsc-project,dc=org", contextEntry = @ContextEntry(entryLdif = "dn: dc=lsc-project,dc=org\n"
+						+ "dc: lsc-project\n" + "objectClass: top\n" + "objectClass: domain\n\n"), indexes = {
+								@CreateIndex(attribute = "objectClass"), @CreateIndex(attribute = "dc"),
+								@CreateIndex(attribute = "ou") }) })
+@CreateLdapServer(transports = { @CreateTransport(protocol = "LDAP", port = 33389) })
+@ApplyLdifs({
+		// Entry # 0
+		"dn: cn=Directory Manager,ou=system", "objectClass: person", "objectClass: top", "cn: Directory Manager",
+		"description: Directory Manager", "sn: Directory Manager", "userpassword: secret" })
+@ApplyLdifFiles({ "lsc-schema.ldif", "lsc-project.ldif" })
+public class SimpleJndiDstServiceTest extends AbstractLdapTestUnit {
+
+	private static final String BASE_DN = "ou=ldap2ldap2TestTaskDst,ou=Test Data,dc=lsc-project,dc=org";
+
+	@Test
+	public void testEqualityAttributes() {
+		assertEquals(new HashSet<String>(Arrays.asList("uid")), SimpleJndiDstService.getEqualityAttributes("(uid={uid})"));
+		assertEquals(new HashSet<String>(Arrays.asList("uid")), SimpleJndiDstService.getEqualityAttributes("uid={UID}"));
+		assertEquals(new HashSet<String>(Arrays.asList("uid", "ou")),
+				SimpleJndiDstService.getEqualityAttributes("(&(objectClass=person)(uid={uid})(ou={ou}))"));
+		assertEquals(new HashSet<String>(Arrays.asList("uid")),
+				SimpleJndiDstService.getEqualityAttributes("(&(|(objectClass=person)(objectClass=user))(uid={uid}))"));
+
+		assertNull(SimpleJndiDstService.getEqualityAttributes("(sAMAccountName={uid})"));
+		assertNull(SimpleJndiDstService.getEqualityAttributes("(uid={id})"));
+		assertNull(SimpleJndiDstService.getEqualityAttributes("(id={id})"));
+		assertNull(SimpleJndiDstService.getEqualityAttributes("(uid~={uid})"));
+		assertNull(SimpleJndiDstService.getEqualityAttributes("(uid={uid}*)"));
+		assertNull(SimpleJndiDstService.getEqualityAttributes("(|(uid={uid})(mail={mail}))"));
+		assertNull(SimpleJndiDstService.getEqualityAttributes("(&(objectClass=person)(!(uid={uid})))"));
+		assertNull(SimpleJndiDstService.getEqualityAttributes("(objectClass=person)"));
+		assertNull(SimpleJndiDstService.getEqualityAttributes("(uid={uid})(ou={ou})"));
+		assertNull(SimpleJndiDstService.getEqualityAttributes("(uid={uid}"));
+	}
+
+	@Test
+	public void testGetBeans() throws LscServiceException {
+		SimpleJndiDstService service = newService("(&(objectClass=person)(cn={cn}))", "cn");
+		assertEquals(10, service.getBatchSize());
+
+		Map<String, LscDatasets> pivots = new LinkedHashMap<String, LscDatasets>();
+		pivots.put("CN0001", pivot("cn", "CN0001"));
+		pivots.put("CN0004", pivot("cn", "cn0004"));
+		pivots.put("CN0003", pivot("cn", "CN0003"));
+		Map<String, IBean> beans = service.getBeans(null, pivots, false);
+
+		assertEquals(3, beans.size());
+		assertEquals("cn=CN0001," + BASE_DN, beans.get("CN0001").getMainIdentifier());
+		assertEquals("cn=CN0004," + BASE_DN, beans.get("CN0004").getMainIdentifier());
+		assertTrue(beans.containsKey("CN0003"));
+		assertNull(beans.get("CN0003"));
+	}
+
+	@Test
+	public void testGetBeansOnAnotherAttribute() throws LscServiceException {
+		// The entries found would have to be matched back with the value of sn
+		SimpleJndiDstService service = newService("(sn={cn})", "cn");
+		assertEquals(1, service.getBatchSize());
+
+		Map<String, LscDatasets> pivots = new LinkedHashMap<String, LscDatasets>();
+		pivots.put("SN0001", pivot("cn", "SN0001"));
+		assertTrue(service.getBeans(null, pivots, false).isEmpty());
+	}
+
+	@Test
+	public void testGetBeansWithUnmatchedEntry() throws LscServiceException {
+		// The directory ignores the spaces of telephone numbers, the pivot
+		// "123 456" finds an entry which values do not equal it
+		SimpleJndiDstService service = newService("(telephoneNumber={telephoneNumber})", "telephoneNumber");
+
+		Map<String, LscDatasets> pivots = new LinkedHashMap<String, LscDatasets>();
+		pivots.put("123 456", pivot("telephoneNumber", "123 456"));
+		pivots.put("000000", pivot("telephoneNumber", "000000"));
+		Map<String, IBean> beans = service.getBeans(null, pivots, false);
+
+		// Neither pivot is proven absent, both are read one by one
+		assertTrue(beans.isEmpty());
+		assertEquals("cn=CN0001," + BASE_DN,
+				service.getBean(null, "123 456", pivots.get("123 456"), false).getMainIdentifier());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static SimpleJndiDstService newService(String filter, String pivotAttribute) throws LscServiceException {
+		LdapDestinationServiceType ldapService = new LdapDestinationServiceType();
+		ldapService.setName("batch-dst");
+		ldapService.setBaseDn(BASE_DN);
+		ldapService.setPivotAttributes(values(pivotAttribute));
+		ldapService.setFetchedAttributes(values("cn", "sn", "objectClass", "telephoneNumber"));
+		ldapService.setGetAllFilter("(sn=*)");
+		ldapService.setGetOneFilter(filter);
+		ldapService.setBatchSize(10);
+		Connection connection = new Connection();
+		connection.setReference(LscConfiguration.getConnection("dst-ldap"));
+		ldapService.setConnection(connection);
+		return new SimpleJndiDstService(ldapService, ldapService.getFetchedAttributes().getString(),
+				(Class<IBean>) (Class<?>) SimpleBean.class);
+	}
+
+	private static ValuesType values(String... values) {
+		ValuesType valuesType = new ValuesType();
+		valuesType.getString().addAll(Arrays.asList(values));
+		return valuesType;
+	}
+
+	private static LscDatasets pivot(String attributeName, String value) {
+		LscDatasets pivot = new LscDatasets();
+		pivot.put(attributeName, value);
+		return pivot;
+	}
+}
@@ -46,6 +46,8 @@
 package org.lsc.persistence;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.sql.Connection;
@@ -64,6 +66,8 @@ import org.lsc.exception.LscServiceConfigurationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ibatis.sqlmap.client.SqlMapClient;
+
 /**
  * Public class to test the DAO engine loader
  * @author Sebastien Bahloul &lt;seb@lsc-project.org&gt;
@@ -101,6 +105,27 @@ public class DaoConfigTest {
 		assertNotNull(DaoConfig.getSqlMapClient((DatabaseConnectionType)LscConfiguration.getConnection("src-jdbc")));
 	}
 
+	@Test
+	public final void testPoolSettings() throws LscServiceConfigurationException, SQLException {
+		DatabaseConnectionType pc = (DatabaseConnectionType) LscConfiguration.getConnection("src-jdbc");
+		pc.setPoolMaxSize(7);
+		pc.setPoolMaxIdle(2);
+		pc.setPoolValidationQuery("VALUES 1");
+		try {
+			SqlMapClient sqlMapper = DaoConfig.getSqlMapClient(pc);
+			assertSame(sqlMapper, DaoConfig.getSqlMapClient(pc));
+
+			sqlMapper.getDataSource().getConnection().close();
+			String statistics = DaoConfig.getPoolStatistics(sqlMapper);
+			assertTrue(statistics.contains("max active=7"), statistics);
+			assertTrue(statistics.contains("requests=1"), statistics);
+		} finally {
+			pc.setPoolMaxSize(null);
+			pc.setPoolMaxIdle(null);
+			pc.setPoolValidationQuery(null);
+		}
+	}
+
 	/**
 	 * Close DB connection
 	 */
@@ -0,0 +1,145 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.lsc.beans.IBean;
+import org.lsc.beans.SimpleBean;
+
+public class FingerprintStoreTest {
+
+	private static final String CONFIGURATION = FingerprintStore.fingerprint(Arrays.asList("<syncOptions/>", "[mail, member]"));
+
+	@TempDir
+	File directory;
+
+	private IBean bean(String mail, String... members) {
+		IBean bean = new SimpleBean();
+		bean.setMainIdentifier("uid=jdoe,ou=People,dc=lsc-project,dc=org");
+		bean.setDataset("mail", new HashSet<Object>(Arrays.asList(mail)));
+		bean.setDataset("member", new LinkedHashSet<Object>(Arrays.asList((Object[]) members)));
+		return bean;
+	}
+
+	@Test
+	public void testFingerprint() {
+		String fingerprint = FingerprintStore.fingerprint(bean("jdoe@lsc-project.org", "a", "b"));
+
+		assertEquals(fingerprint, FingerprintStore.fingerprint(bean("jdoe@lsc-project.org", "b", "a")));
+		assertNotEquals(fingerprint, FingerprintStore.fingerprint(bean("john.doe@lsc-project.org", "a", "b")));
+		assertNotEquals(fingerprint, FingerprintStore.fingerprint(bean("jdoe@lsc-project.org", "ab")));
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		File file = new File(directory, "task.fingerprints");
+		String fingerprint = FingerprintStore.fingerprint(bean("jdoe@lsc-project.org", "a", "b"));
+
+		FingerprintStore store = new FingerprintStore(file, CONFIGURATION, false);
+		assertFalse(store.isUnchanged("jdoe", fingerprint));
+		store.store("jdoe", fingerprint);
+		store.store("removed", fingerprint);
+		store.remove("removed");
+		store.save();
+
+		store = new FingerprintStore(file, CONFIGURATION, false);
+		assertTrue(store.isUnchanged("jdoe", fingerprint));
+		assertFalse(store.isUnchanged("jdoe", FingerprintStore.fingerprint(bean("jdoe@lsc-project.org", "a"))));
+		assertFalse(store.isUnchanged("removed", fingerprint));
+
+		// Only the entries seen by the last synchronization are kept
+		store = new FingerprintStore(file, CONFIGURATION, false);
+		store.save();
+		assertFalse(new FingerprintStore(file, CONFIGURATION, false).isUnchanged("jdoe", fingerprint));
+	}
+
+	@Test
+	public void testVerify() throws IOException {
+		File file = new File(directory, "task.fingerprints");
+		String fingerprint = FingerprintStore.fingerprint(bean("jdoe@lsc-project.org", "a", "b"));
+
+		FingerprintStore store = new FingerprintStore(file, CONFIGURATION, false);
+		store.store("jdoe", fingerprint);
+		store.save();
+
+		assertFalse(new FingerprintStore(file, CONFIGURATION, true).isUnchanged("jdoe", fingerprint));
+	}
+
+	@Test
+	public void testConfigurationChange() throws IOException {
+		File file = new File(directory, "task.fingerprints");
+		String fingerprint = FingerprintStore.fingerprint(bean("jdoe@lsc-project.org", "a", "b"));
+		String otherConfiguration = FingerprintStore.fingerprint(Arrays.asList("<syncOptions/>", "[mail]"));
+		assertNotEquals(CONFIGURATION, otherConfiguration);
+
+		FingerprintStore store = new FingerprintStore(file, CONFIGURATION, false);
+		store.store("jdoe", fingerprint);
+		store.save();
+		assertEquals(1, store.size());
+
+		// The entries found in sync with other settings are compared again
+		store = new FingerprintStore(file, otherConfiguration, false);
+		assertFalse(store.isUnchanged("jdoe", fingerprint));
+		assertFalse(store.isUnchanged(FingerprintStore.CONFIGURATION_KEY, CONFIGURATION));
+		store.store("jdoe", fingerprint);
+		store.save();
+
+		assertTrue(new FingerprintStore(file, otherConfiguration, false).isUnchanged("jdoe", fingerprint));
+		assertFalse(new FingerprintStore(file, CONFIGURATION, false).isUnchanged("jdoe", fingerprint));
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SyncStateStoreTest {
+
+	@TempDir
+	File directory;
+
+	private static byte[] cookie(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testCheckpoints() throws IOException {
+		File file = new File(directory, "sync.state");
+		SyncStateStore store = new SyncStateStore(file);
+		assertNull(store.getCookie());
+
+		store.update(cookie("rid=001,csn=1"));
+		Runnable first = store.handOver();
+		store.checkpoint();
+		// The cookie is only saved once its changes are synchronized
+		assertFalse(file.exists());
+		assertArrayEquals(cookie("rid=001,csn=1"), store.getCookie());
+
+		store.update(cookie("rid=001,csn=2"));
+		store.update(null);
+		Runnable second = store.handOver();
+		assertArrayEquals(cookie("rid=001,csn=2"), store.getCookie());
+
+		// The changes handed over before are not synchronized yet
+		second.run();
+		store.checkpoint();
+		assertFalse(file.exists());
+
+		first.run();
+		store.checkpoint();
+		assertArrayEquals(cookie("rid=001,csn=2"), new SyncStateStore(file).getCookie());
+	}
+
+	@Test
+	public void testCheckpointInOrder() throws IOException {
+		File file = new File(directory, "sync.state");
+		SyncStateStore store = new SyncStateStore(file);
+		store.update(cookie("rid=001,csn=1"));
+		Runnable first = store.handOver();
+		store.update(cookie("rid=001,csn=2"));
+		Runnable second = store.handOver();
+		// A cookie received without changes is saved along with the previous ones
+		store.update(cookie("rid=001,csn=3"));
+		Runnable idle = store.handOver();
+
+		first.run();
+		idle.run();
+		store.checkpoint();
+		assertArrayEquals(cookie("rid=001,csn=1"), new SyncStateStore(file).getCookie());
+
+		second.run();
+		store.checkpoint();
+		assertArrayEquals(cookie("rid=001,csn=3"), new SyncStateStore(file).getCookie());
+	}
+
+	@Test
+	public void testReset() throws IOException {
+		File file = new File(directory, "sync.state");
+		SyncStateStore store = new SyncStateStore(file);
+		store.update(cookie("rid=001,csn=1"));
+		store.handOver().run();
+		store.checkpoint();
+		assertArrayEquals(cookie("rid=001,csn=1"), new SyncStateStore(file).getCookie());
+
+		store.update(cookie("rid=001,csn=2"));
+		Runnable pending = store.handOver();
+		store.reset();
+		assertNull(store.getCookie());
+		assertNull(new SyncStateStore(file).getCookie());
+
+		// The changes handed over before the reset do not bring their cookie back
+		pending.run();
+		store.checkpoint();
+		assertNull(new SyncStateStore(file).getCookie());
+	}
+}
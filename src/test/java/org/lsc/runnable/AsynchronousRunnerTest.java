@@ -0,0 +1,287 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.runnable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lsc.AbstractSynchronize;
+import org.lsc.LscDatasets;
+import org.lsc.SynchronizeThreadPoolExecutor;
+import org.lsc.Task;
+import org.lsc.beans.InfoCounter;
+import org.lsc.exception.LscServiceCommunicationException;
+import org.lsc.exception.LscServiceException;
+import org.lsc.service.IBatchService;
+import org.lsc.service.IPushAsynchronousService;
+import org.lsc.service.IPushAsynchronousService.ChangeHandler;
+import org.lsc.service.IWritableService;
+import org.mockito.stubbing.Answer;
+
+public class AsynchronousRunnerTest {
+
+	private Task task = mock(Task.class);
+	private AbstractSynchronize abstractSynchronize = mock(AbstractSynchronize.class);
+	private BatchPushService srcService = mock(BatchPushService.class);
+	private IWritableService dstService = mock(IWritableService.class);
+	/** The tasks submitted to the thread pool, run as soon as submitted */
+	private List<Runnable> submitted = Collections.synchronizedList(new ArrayList<Runnable>());
+	/** The number of hand overs completed */
+	private AtomicInteger done = new AtomicInteger();
+
+	@BeforeEach
+	public void setUp() throws LscServiceException {
+		when(task.getName()).thenReturn("async");
+		when(task.getSourceService()).thenReturn(srcService);
+		when(task.getDestinationService()).thenReturn(dstService);
+		when(srcService.getInterval()).thenReturn(10L);
+		when(srcService.getBatchSize()).thenReturn(2);
+		when(abstractSynchronize.newThreadPool(eq(task), any(InfoCounter.class))).thenAnswer(invocation -> new RecordingThreadPool());
+	}
+
+	@Test
+	public void testBatches() throws LscServiceException {
+		List<Entry<String, LscDatasets>> changes = Arrays.asList(id("a"), id("b"), id("c"));
+		listen(handOver(changes), interrupt());
+
+		AsynchronousRunner runner = new AsynchronousRunner(task, abstractSynchronize);
+		runner.run();
+
+		assertEquals(2, submitted.size());
+		for (Runnable submittedTask : submitted) {
+			assertTrue(submittedTask instanceof SynchronizeBatchRunner);
+		}
+		verify(abstractSynchronize).getBeans(eq(task), eq(srcService), eq(changes.subList(0, 2)), eq(true), eq(true));
+		verify(abstractSynchronize).getBeans(eq(task), eq(srcService), eq(changes.subList(2, 3)), eq(true), eq(true));
+		assertEquals(3, runner.getCounter().getCountAll());
+		// Told once all the batches are done
+		assertEquals(1, done.get());
+		verify(abstractSynchronize).awaitTermination(eq(task), any(SynchronizeThreadPoolExecutor.class));
+	}
+
+	@Test
+	public void testWithoutBatches() throws LscServiceException {
+		when(srcService.getBatchSize()).thenReturn(1);
+		listen(handOver(Arrays.asList(id("a"), id("b"), id("c"))), interrupt());
+
+		AsynchronousRunner runner = new AsynchronousRunner(task, abstractSynchronize);
+		runner.run();
+
+		assertEquals(3, submitted.size());
+		for (Runnable submittedTask : submitted) {
+			assertTrue(submittedTask instanceof SynchronizeEntryRunner);
+		}
+		verify(abstractSynchronize, never()).getBeans(any(), any(), any(), anyBoolean(), anyBoolean());
+		assertEquals(1, done.get());
+	}
+
+	@Test
+	public void testIdleHeartbeat() throws LscServiceException {
+		long[] beforeHeartbeat = new long[1];
+		listen(invocation -> {
+			Thread.sleep(20);
+			beforeHeartbeat[0] = System.currentTimeMillis();
+			invocation.<ChangeHandler> getArgument(1).handleChanges(Collections.<Entry<String, LscDatasets>>emptyList(), done::incrementAndGet);
+			Thread.currentThread().interrupt();
+			return null;
+		});
+
+		AsynchronousRunner runner = new AsynchronousRunner(task, abstractSynchronize);
+		runner.run();
+
+		// Nothing to synchronize, but the service is known to be alive
+		assertTrue(submitted.isEmpty());
+		assertEquals(1, done.get());
+		assertTrue(runner.getLastPollTime() >= beforeHeartbeat[0]);
+	}
+
+	@Test
+	public void testListenAgain() throws LscServiceException {
+		// The first stream of changes ends, the runner listens again after the interval
+		listen(handOver(Arrays.asList(id("a"))), handOver(Arrays.asList(id("b"))), interrupt());
+
+		AsynchronousRunner runner = new AsynchronousRunner(task, abstractSynchronize);
+		runner.run();
+
+		verify(srcService, times(3)).listen(eq(task), any(ChangeHandler.class));
+		assertEquals(2, submitted.size());
+		assertEquals(2, done.get());
+	}
+
+	@Test
+	public void testListenAgainAfterConnectionLoss() throws LscServiceException {
+		// The connection is lost, the runner listens again after the interval
+		listen(invocation -> {
+			throw new LscServiceCommunicationException("The search listening to the changes has been abandoned", null);
+		}, handOver(Arrays.asList(id("a"))), interrupt());
+
+		AsynchronousRunner runner = new AsynchronousRunner(task, abstractSynchronize);
+		runner.run();
+
+		verify(srcService, times(3)).listen(eq(task), any(ChangeHandler.class));
+		assertEquals(1, submitted.size());
+		assertEquals(1, done.get());
+		verify(abstractSynchronize).awaitTermination(eq(task), any(SynchronizeThreadPoolExecutor.class));
+	}
+
+	@Test
+	public void testInterruptedWhileListening() throws Exception {
+		CountDownLatch listening = new CountDownLatch(1);
+		listen(invocation -> {
+			listening.countDown();
+			try {
+				Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+			} catch (InterruptedException e) {
+				// As the services do: restore the interruption and return
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		});
+
+		Thread thread = new Thread(new AsynchronousRunner(task, abstractSynchronize));
+		thread.start();
+		assertTrue(listening.await(5, TimeUnit.SECONDS));
+		thread.interrupt();
+		thread.join(5000);
+
+		assertFalse(thread.isAlive());
+		verify(srcService, times(1)).listen(eq(task), any(ChangeHandler.class));
+		verify(abstractSynchronize).awaitTermination(eq(task), any(SynchronizeThreadPoolExecutor.class));
+	}
+
+	@Test
+	public void testInterruptedBetweenListens() throws Exception {
+		when(srcService.getInterval()).thenReturn(TimeUnit.MINUTES.toMillis(1));
+		CountDownLatch listened = new CountDownLatch(1);
+		listen(invocation -> {
+			listened.countDown();
+			return null;
+		});
+
+		Thread thread = new Thread(new AsynchronousRunner(task, abstractSynchronize));
+		thread.start();
+		assertTrue(listened.await(5, TimeUnit.SECONDS));
+		thread.interrupt();
+		thread.join(5000);
+
+		assertFalse(thread.isAlive());
+		verify(srcService, times(1)).listen(eq(task), any(ChangeHandler.class));
+		verify(abstractSynchronize).awaitTermination(eq(task), any(SynchronizeThreadPoolExecutor.class));
+	}
+
+	/**
+	 * Stub the successive calls to listen, the last one being repeated
+	 */
+	@SafeVarargs
+	private final void listen(Answer<Void>... answers) throws LscServiceException {
+		AtomicInteger calls = new AtomicInteger();
+		doAnswer(invocation -> answers[Math.min(calls.getAndIncrement(), answers.length - 1)].answer(invocation))
+				.when(srcService).listen(eq(task), any(ChangeHandler.class));
+	}
+
+	private Answer<Void> handOver(List<Entry<String, LscDatasets>> changes) {
+		return invocation -> {
+			invocation.<ChangeHandler> getArgument(1).handleChanges(changes, done::incrementAndGet);
+			return null;
+		};
+	}
+
+	private static Answer<Void> interrupt() {
+		return invocation -> {
+			Thread.currentThread().interrupt();
+			return null;
+		};
+	}
+
+	private static Entry<String, LscDatasets> id(String uid) {
+		Map<String, Object> values = new LinkedHashMap<String, Object>();
+		values.put("uid", uid);
+		return new SimpleEntry<String, LscDatasets>(uid, new LscDatasets(values));
+	}
+
+	/**
+	 * Record the submitted tasks and run them right away
+	 */
+	private class RecordingThreadPool extends SynchronizeThreadPoolExecutor {
+
+		RecordingThreadPool() {
+			super(1, 10, "async");
+		}
+
+		@Override
+		public void runTask(Runnable task) {
+			submitted.add(task);
+			task.run();
+		}
+	}
+
+	private interface BatchPushService extends IPushAsynchronousService, IBatchService {
+	}
+}
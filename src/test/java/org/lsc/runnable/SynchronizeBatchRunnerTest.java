@@ -0,0 +1,218 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.runnable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lsc.AbstractSynchronize;
+import org.lsc.LscDatasets;
+import org.lsc.Task;
+import org.lsc.beans.IBean;
+import org.lsc.beans.InfoCounter;
+import org.lsc.beans.SimpleBean;
+import org.lsc.exception.LscServiceException;
+import org.lsc.service.IBatchService;
+import org.lsc.service.IService;
+import org.lsc.service.IWritableService;
+
+public class SynchronizeBatchRunnerTest {
+
+	private Task task = mock(Task.class);
+	private AbstractSynchronize abstractSynchronize = mock(AbstractSynchronize.class);
+	private IService srcService = mock(IService.class);
+	private BatchDestinationService dstService = mock(BatchDestinationService.class);
+	private List<Entry<String, LscDatasets>> ids;
+	private List<RecordingRunner> runners = new ArrayList<RecordingRunner>();
+
+	@BeforeEach
+	public void setUp() {
+		when(task.getName()).thenReturn("batch");
+		when(task.getSourceService()).thenReturn(srcService);
+		when(task.getDestinationService()).thenReturn(dstService);
+		when(dstService.getBatchSize()).thenReturn(10);
+		ids = Arrays.<Entry<String, LscDatasets>>asList(id("a"), id("b"), id("c"));
+	}
+
+	@Test
+	public void testRun() throws LscServiceException {
+		IBean a = new SimpleBean();
+		Map<String, IBean> dstBeans = new HashMap<String, IBean>();
+		dstBeans.put("a", a);
+		dstBeans.put("b", null);
+		when(abstractSynchronize.getBeans(eq(task), eq(dstService), eq(ids), eq(false), eq(true))).thenReturn(dstBeans);
+
+		newRunner().run();
+
+		assertEquals(3, runners.size());
+		for (int i = 0; i < runners.size(); i++) {
+			assertSame(ids.get(i), runners.get(i).getId());
+			assertTrue(runners.get(i).ran);
+			// The source service reads the entries one by one
+			assertFalse(runners.get(i).sourceBeanSet);
+		}
+		assertTrue(runners.get(0).destinationBeanSet);
+		assertSame(a, runners.get(0).destinationBean);
+		// Proven absent: the entry will be created
+		assertTrue(runners.get(1).destinationBeanSet);
+		assertNull(runners.get(1).destinationBean);
+		// Not resolved by the batch: the entry searches the destination by itself
+		assertFalse(runners.get(2).destinationBeanSet);
+	}
+
+	@Test
+	public void testRunWithFailedBatch() throws LscServiceException {
+		when(abstractSynchronize.getBeans(eq(task), eq(dstService), eq(ids), anyBoolean(), anyBoolean()))
+				.thenThrow(new LscServiceException("Unavailable"));
+
+		newRunner().run();
+
+		assertEquals(3, runners.size());
+		for (RecordingRunner runner : runners) {
+			assertTrue(runner.ran);
+			assertFalse(runner.destinationBeanSet);
+		}
+	}
+
+	@Test
+	public void testRunWithoutBatches() throws LscServiceException {
+		when(dstService.getBatchSize()).thenReturn(1);
+
+		newRunner().run();
+
+		verify(abstractSynchronize, never()).getBeans(any(), any(), any(), anyBoolean(), anyBoolean());
+		assertEquals(3, runners.size());
+		for (RecordingRunner runner : runners) {
+			assertTrue(runner.ran);
+			assertFalse(runner.sourceBeanSet);
+			assertFalse(runner.destinationBeanSet);
+		}
+	}
+
+	@Test
+	public void testRunEmptyBatch() throws LscServiceException {
+		ids = new ArrayList<Entry<String, LscDatasets>>();
+		int[] completions = new int[1];
+		SynchronizeBatchRunner runner = newRunner();
+		runner.setCompletion(() -> completions[0]++);
+
+		runner.run();
+
+		// Completed at once, without reading anything
+		assertEquals(1, completions[0]);
+		verify(abstractSynchronize, never()).getBeans(any(), any(), any(), anyBoolean(), anyBoolean());
+		assertTrue(runners.isEmpty());
+	}
+
+	private SynchronizeBatchRunner newRunner() {
+		return new SynchronizeBatchRunner(task, new InfoCounter(), abstractSynchronize, ids) {
+			@Override
+			protected SynchronizeEntryRunner newEntryRunner(Entry<String, LscDatasets> id) {
+				RecordingRunner runner = new RecordingRunner(task, abstractSynchronize, id);
+				runners.add(runner);
+				return runner;
+			}
+		};
+	}
+
+	private static Entry<String, LscDatasets> id(String uid) {
+		Map<String, Object> values = new LinkedHashMap<String, Object>();
+		values.put("uid", uid);
+		return new SimpleEntry<String, LscDatasets>(uid, new LscDatasets(values));
+	}
+
+	private interface BatchDestinationService extends IWritableService, IBatchService {
+	}
+
+	private static class RecordingRunner extends SynchronizeEntryRunner {
+
+		boolean sourceBeanSet;
+		boolean destinationBeanSet;
+		IBean destinationBean;
+		boolean ran;
+
+		RecordingRunner(Task task, AbstractSynchronize abstractSynchronize, Entry<String, LscDatasets> id) {
+			super(task, new InfoCounter(), abstractSynchronize, id, true);
+		}
+
+		@Override
+		public void setSourceBean(IBean sourceBean) {
+			sourceBeanSet = true;
+		}
+
+		@Override
+		public void setDestinationBean(IBean destinationBean) {
+			this.destinationBean = destinationBean;
+			destinationBeanSet = true;
+		}
+
+		@Override
+		public void run() {
+			ran = true;
+		}
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.lsc.LscDatasetModification;
+import org.lsc.LscDatasetModification.LscDatasetModificationType;
+import org.lsc.LscModificationType;
+import org.lsc.LscModifications;
+import org.lsc.exception.LscServiceException;
+
+import com.ibatis.sqlmap.client.SqlMapClient;
+
+public class AbstractJdbcDstServiceTest {
+
+	private SqlMapClient sqlMapClient = mock(SqlMapClient.class);
+
+	private Map<String, Boolean> outcomes = new ConcurrentHashMap<String, Boolean>();
+
+	private AbstractJdbcDstService newService(int writeBatchSize, int writeBatchInterval) throws LscServiceException {
+		AbstractJdbcDstService service = new AbstractJdbcDstService("test", sqlMapClient, "org.lsc.beans.SimpleBean") {
+
+			@Override
+			public String getRequestNameForList() {
+				return "list";
+			}
+
+			@Override
+			public String getRequestNameForObject() {
+				return "object";
+			}
+
+			@Override
+			public String getRequestNameForNextId() {
+				return null;
+			}
+
+			@Override
+			public String getRequestNameForClean() {
+				return null;
+			}
+
+			@Override
+			public String getRequestNameForObjectOrClean(boolean fromSameService) {
+				return "object";
+			}
+
+			@Override
+			public List<String> getRequestsNameForInsert() {
+				return Arrays.asList("insert");
+			}
+
+			@Override
+			public List<String> getRequestsNameForUpdate() {
+				return Arrays.asList("update");
+			}
+
+			@Override
+			public List<String> getRequestsNameForDelete() {
+				return Arrays.asList("delete");
+			}
+		};
+		service.setWriteBatch(writeBatchSize, writeBatchInterval);
+		return service;
+	}
+
+	private void create(AbstractJdbcDstService service, final String id) throws LscServiceException {
+		create(service, id, id);
+	}
+
+	/**
+	 * Create an entry, writing the value as its id and recording the outcome under the value
+	 */
+	private void create(AbstractJdbcDstService service, String mainIdentifier, final String value) throws LscServiceException {
+		LscModifications lm = new LscModifications(LscModificationType.CREATE_OBJECT);
+		lm.setMainIdentifer(mainIdentifier);
+		lm.setLscAttributeModifications(Collections.singletonList(new LscDatasetModification(
+				LscDatasetModificationType.REPLACE_VALUES, "id", Collections.<Object>singletonList(value))));
+		service.applyPipelined(lm, success -> outcomes.put(value, success));
+	}
+
+	@Test
+	public void testBatchBySize() throws Exception {
+		AbstractJdbcDstService service = newService(3, 60000);
+		assertTrue(service.isPipelined());
+
+		create(service, "1");
+		create(service, "2");
+		assertTrue(outcomes.isEmpty());
+		create(service, "3");
+
+		assertEquals(3, outcomes.size());
+		assertTrue(outcomes.values().stream().allMatch(success -> success));
+		verify(sqlMapClient, times(1)).startBatch();
+		verify(sqlMapClient, times(1)).executeBatch();
+		verify(sqlMapClient, times(1)).commitTransaction();
+		verify(sqlMapClient, times(3)).insert(eq("insert"), any());
+	}
+
+	@Test
+	public void testBatchByFlush() throws Exception {
+		AbstractJdbcDstService service = newService(10, 60000);
+
+		create(service, "1");
+		create(service, "2");
+		service.flush();
+
+		assertEquals(2, outcomes.size());
+		verify(sqlMapClient, times(1)).executeBatch();
+	}
+
+	@Test
+	public void testBatchByInterval() throws Exception {
+		AbstractJdbcDstService service = newService(10, 50);
+
+		create(service, "1");
+		long deadline = System.currentTimeMillis() + 5000;
+		while (outcomes.isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+
+		assertTrue(outcomes.get("1"));
+	}
+
+	@Test
+	public void testBatchFailure() throws Exception {
+		when(sqlMapClient.insert(eq("insert"), argThat(map -> "2".equals(((Map<?, ?>) map).get("id")))))
+				.thenThrow(new SQLException("constraint violation"));
+		AbstractJdbcDstService service = newService(3, 60000);
+
+		create(service, "1");
+		create(service, "2");
+		create(service, "3");
+
+		// The batch is rolled back, then each modification is applied in its own transaction
+		assertTrue(outcomes.get("1"));
+		assertFalse(outcomes.get("2"));
+		assertTrue(outcomes.get("3"));
+		verify(sqlMapClient, times(2)).commitTransaction();
+	}
+
+	@Test
+	public void testSameEntryInOrder() throws Exception {
+		final List<Object> inserted = Collections.synchronizedList(new ArrayList<Object>());
+		final CountDownLatch firstStarted = new CountDownLatch(1);
+		final CountDownLatch firstReleased = new CountDownLatch(1);
+		when(sqlMapClient.insert(eq("insert"), any())).thenAnswer(invocation -> {
+			Object value = ((Map<?, ?>) invocation.getArgument(1)).get("id");
+			inserted.add(value);
+			if ("first".equals(value)) {
+				firstStarted.countDown();
+				firstReleased.await();
+			}
+			return null;
+		});
+		final AbstractJdbcDstService service = newService(2, 60000);
+
+		Thread firstBatch = new Thread(() -> {
+			try {
+				create(service, "1", "first");
+				create(service, "2", "second");
+			} catch (LscServiceException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		firstBatch.start();
+		assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+		Thread secondBatch = new Thread(() -> {
+			try {
+				create(service, "1", "third");
+				create(service, "3", "fourth");
+			} catch (LscServiceException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		secondBatch.start();
+
+		// The second batch modifies the entry 1 too: it waits for the first one
+		Thread.sleep(100);
+		assertEquals(Arrays.asList("first"), new ArrayList<Object>(inserted));
+		firstReleased.countDown();
+		firstBatch.join(5000);
+		secondBatch.join(5000);
+		service.flush();
+
+		assertEquals(Arrays.asList("first", "second", "third", "fourth"), inserted);
+		assertEquals(4, outcomes.size());
+	}
+
+	@Test
+	public void testNoBatch() throws Exception {
+		AbstractJdbcDstService service = newService(1, 0);
+		assertFalse(service.isPipelined());
+
+		create(service, "1");
+
+		assertTrue(outcomes.get("1"));
+		verify(sqlMapClient, times(0)).startBatch();
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.lsc.LscDatasets;
+import org.lsc.beans.IBean;
+import org.lsc.exception.LscServiceException;
+
+import com.ibatis.sqlmap.client.SqlMapClient;
+import com.ibatis.sqlmap.client.event.RowHandler;
+import com.ibatis.sqlmap.engine.impl.SqlMapClientImpl;
+import com.ibatis.sqlmap.engine.impl.SqlMapExecutorDelegate;
+import com.ibatis.sqlmap.engine.mapping.statement.MappedStatement;
+
+public class AbstractJdbcServiceTest {
+
+	private SqlMapClient sqlMapClient = mock(SqlMapClient.class);
+
+	private AbstractJdbcService newService() throws LscServiceException {
+		return newService(sqlMapClient);
+	}
+
+	private AbstractJdbcService newService(SqlMapClient sqlMapClient) throws LscServiceException {
+		return new AbstractJdbcService(sqlMapClient, "org.lsc.beans.SimpleBean") {
+
+			@Override
+			public String getRequestNameForList() {
+				return "list";
+			}
+
+			@Override
+			public String getRequestNameForObject() {
+				return "object";
+			}
+
+			@Override
+			public String getRequestNameForNextId() {
+				return null;
+			}
+
+			@Override
+			public String getRequestNameForClean() {
+				return null;
+			}
+
+			@Override
+			public String getRequestNameForObjectOrClean(boolean fromSameService) {
+				return "object";
+			}
+
+			@Override
+			public String getRequestNameForObjectBatch() {
+				return "batch";
+			}
+		};
+	}
+
+	@Test
+	public void testGetBeans() throws Exception {
+		Map<String, LscDatasets> pivots = new LinkedHashMap<String, LscDatasets>();
+		pivots.put("1", pivot("1"));
+		pivots.put("2", pivot("2"));
+		pivots.put("3", pivot("3"));
+		pivots.put("4", pivot("4"));
+		List<Map<String, Object>> records = Arrays.asList(record("1", "one"),
+				// A CHAR column padded with spaces: not the value of the list request
+				record("2   ", "two"),
+				record("4", "four"), record("4", "four again"));
+		doReturn(records).when(sqlMapClient).queryForList(eq("batch"), any());
+
+		Map<String, IBean> beans = newService().getBeans(null, pivots, true);
+
+		assertEquals(1, beans.size());
+		assertEquals("1", beans.get("1").getMainIdentifier());
+		assertEquals("one", beans.get("1").getDatasetFirstValueById("name"));
+		// Neither the mismatching record nor the missing and ambiguous ones
+		// are reported as absent: the single object request reads them
+		assertFalse(beans.containsKey("2"));
+		assertFalse(beans.containsKey("3"));
+		assertFalse(beans.containsKey("4"));
+	}
+
+	@Test
+	public void testGetListPivots() throws Exception {
+		listRows(row("id", "1"), row("id", "2"));
+
+		Map<String, LscDatasets> pivots = newService().getListPivots(null);
+
+		// The rows are kept in order, keyed by their single pivot value
+		assertEquals(Arrays.asList("1", "2"), new ArrayList<String>(pivots.keySet()));
+		assertEquals("2", pivots.get("2").getStringValueAttribute("id"));
+	}
+
+	@Test
+	public void testStreamPivots() throws Exception {
+		listRows(row("id", "1", "name", "one"), row("id", "2", "name", null));
+		final List<String> names = new ArrayList<String>();
+
+		long count = newService().streamPivots(null, (pivotName, pivotAttributes) -> names.add(pivotName));
+
+		// Several pivots are joined, along with the row number for unicity
+		assertEquals(2, count);
+		assertEquals(Arrays.asList("1, one (1)", "2,  (2)"), names);
+	}
+
+	@Test
+	public void testListFetchSize() throws Exception {
+		SqlMapClientImpl sqlMapClientImpl = mock(SqlMapClientImpl.class);
+		SqlMapExecutorDelegate delegate = mock(SqlMapExecutorDelegate.class);
+		MappedStatement statement = mock(MappedStatement.class);
+		when(sqlMapClientImpl.getDelegate()).thenReturn(delegate);
+		when(delegate.getMappedStatement("list")).thenReturn(statement);
+
+		newService(sqlMapClientImpl).setListFetchSize(100);
+
+		verify(statement).setFetchSize(100);
+	}
+
+	/**
+	 * Hand the rows over to the row handler of the list request
+	 */
+	private void listRows(final Map<?, ?>... rows) throws Exception {
+		doAnswer(invocation -> {
+			RowHandler rowHandler = invocation.getArgument(1);
+			for (Map<?, ?> row : rows) {
+				rowHandler.handleRow(row);
+			}
+			return null;
+		}).when(sqlMapClient).queryWithRowHandler(eq("list"), any(RowHandler.class));
+	}
+
+	private static Map<String, Object> row(Object... values) {
+		Map<String, Object> row = new LinkedHashMap<String, Object>();
+		for (int i = 0; i < values.length; i += 2) {
+			row.put((String) values[i], values[i + 1]);
+		}
+		return row;
+	}
+
+	private static LscDatasets pivot(String id) {
+		LscDatasets pivot = new LscDatasets();
+		pivot.put("id", id);
+		return pivot;
+	}
+
+	private static Map<String, Object> record(String id, String name) {
+		Map<String, Object> record = new HashMap<String, Object>();
+		record.put("id", id);
+		record.put("name", name);
+		return record;
+	}
+}
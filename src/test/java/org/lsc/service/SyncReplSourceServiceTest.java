@@ -0,0 +1,167 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.ldap.client.api.future.SearchFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lsc.LscDatasets;
+import org.lsc.Task;
+import org.lsc.exception.LscServiceCommunicationException;
+
+public class SyncReplSourceServiceTest {
+
+	private Task task = mock(Task.class);
+	private SearchFuture future = mock(SearchFuture.class);
+	private SyncReplSourceService service;
+	/** The names of the changes of each hand over */
+	private List<List<String>> handOvers = new ArrayList<List<String>>();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		// Without connection nor synchronization state: the search is stubbed
+		service = mock(SyncReplSourceService.class, CALLS_REAL_METHODS);
+		doReturn(future).when(service).startSearch(task);
+	}
+
+	@Test
+	public void testListen() throws Exception {
+		when(future.get(anyLong(), any(TimeUnit.class))).thenReturn(entry("uid=a"), entry("uid=b"), null, null, done(ResultCodeEnum.SUCCESS));
+
+		service.listen(task, this::handleChanges);
+
+		// The changes already received are handed over together, then an
+		// idle heartbeat, then the end of the stream
+		assertEquals(Arrays.asList(Arrays.asList("uid=a", "uid=b"), Collections.emptyList(), Collections.emptyList()), handOvers);
+	}
+
+	@Test
+	public void testListenError() throws Exception {
+		when(future.get(anyLong(), any(TimeUnit.class))).thenReturn(entry("uid=a"), done(ResultCodeEnum.BUSY));
+
+		assertThrows(LscServiceCommunicationException.class, () -> service.listen(task, this::handleChanges));
+		// The changes read before the error have been handed over
+		assertEquals(Arrays.asList(Arrays.asList("uid=a")), handOvers);
+	}
+
+	@Test
+	public void testSearchAbandoned() throws Exception {
+		SearchFuture restartedFuture = mock(SearchFuture.class);
+		doReturn(future, restartedFuture).when(service).startSearch(task);
+		when(future.get(anyLong(), any(TimeUnit.class))).thenReturn(null);
+		when(future.isCancelled()).thenReturn(true);
+		when(restartedFuture.get(anyLong(), any(TimeUnit.class))).thenReturn(entry("uid=a"), done(ResultCodeEnum.SUCCESS));
+
+		// The connection loss is reported, for the caller to listen again
+		assertThrows(LscServiceCommunicationException.class, () -> service.listen(task, this::handleChanges));
+		assertTrue(handOvers.isEmpty());
+		verify(future).cancel(true);
+
+		// Listening again starts a new search, which resumes the changes
+		service.listen(task, this::handleChanges);
+		verify(service, times(2)).startSearch(task);
+		assertEquals(Arrays.asList(Arrays.asList("uid=a")), handOvers);
+	}
+
+	@Test
+	public void testInterrupted() throws Exception {
+		when(future.get(anyLong(), any(TimeUnit.class))).thenReturn(entry("uid=a"), null).thenThrow(new InterruptedException());
+
+		service.listen(task, this::handleChanges);
+
+		// The interruption is kept for the caller, and the search abandoned
+		assertTrue(Thread.interrupted());
+		verify(future).cancel(true);
+		assertEquals(Arrays.asList(Arrays.asList("uid=a")), handOvers);
+	}
+
+	private void handleChanges(List<Entry<String, LscDatasets>> changes, Runnable done) {
+		List<String> names = new ArrayList<String>();
+		for (Entry<String, LscDatasets> change : changes) {
+			names.add(change.getKey());
+		}
+		handOvers.add(names);
+		done.run();
+	}
+
+	private static Response entry(String dn) throws Exception {
+		SearchResultEntry entry = new SearchResultEntryImpl();
+		entry.setEntry(new DefaultEntry(dn, dn.replaceFirst("=", ": ")));
+		return entry;
+	}
+
+	private static Response done(ResultCodeEnum resultCode) {
+		SearchResultDone done = new SearchResultDoneImpl();
+		done.getLdapResult().setResultCode(resultCode);
+		return done;
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.jupiter.api.Test;
+
+public class CompactSetTest {
+
+	@Test
+	public void testInsertionOrder() {
+		Set<Object> set = new CompactSet<Object>();
+		assertTrue(set.add("b"));
+		assertTrue(set.add("a"));
+		assertFalse(set.add("b"));
+		assertTrue(set.add("c"));
+
+		assertEquals(Arrays.asList("b", "a", "c"), new ArrayList<Object>(set));
+		assertEquals(new HashSet<Object>(Arrays.asList("a", "b", "c")), set);
+
+		assertTrue(set.remove("a"));
+		assertFalse(set.remove("a"));
+		assertEquals(Arrays.asList("b", "c"), new ArrayList<Object>(set));
+	}
+
+	@Test
+	public void testLargeSet() {
+		CompactSet<Object> set = new CompactSet<Object>(2);
+		for (int i = 0; i < 1000; i++) {
+			set.add("value" + i);
+		}
+		assertEquals(1000, set.size());
+		assertTrue(set.contains("value999"));
+		assertFalse(set.add("value500"));
+
+		Iterator<Object> iterator = set.iterator();
+		while (iterator.hasNext()) {
+			if (!"value0".equals(iterator.next())) {
+				iterator.remove();
+			}
+		}
+		assertEquals(1, set.size());
+		assertTrue(set.contains("value0"));
+		assertFalse(set.contains("value999"));
+	}
+
+	@Test
+	public void testSerialization() {
+		CompactSet<Object> set = new CompactSet<Object>(Arrays.asList("a", "b"));
+		List<Object> values = new ArrayList<Object>(SerializationUtils.clone(set));
+		assertEquals(Arrays.asList("a", "b"), values);
+	}
+}
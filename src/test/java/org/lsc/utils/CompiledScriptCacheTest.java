@@ -0,0 +1,111 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ * Copyright (c) 2008 - 2011 LSC Project
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test the compiled scripts cache.
+ */
+public class CompiledScriptCacheTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public final void testExpressions() throws Exception {
+		final AtomicInteger compilations = new AtomicInteger();
+		CompiledScriptCache<String> cache = new CompiledScriptCache<String>(2);
+		CompiledScriptCache.Compiler<String, String> compiler = source -> {
+			compilations.incrementAndGet();
+			return new String(source);
+		};
+
+		String a = cache.getExpression("a", compiler);
+		assertSame(a, cache.getExpression("a", compiler));
+		cache.getExpression("b", compiler);
+		// "a" has been used last, so "b" is dropped
+		cache.getExpression("a", compiler);
+		cache.getExpression("c", compiler);
+		assertSame(a, cache.getExpression("a", compiler));
+		assertEquals(3, compilations.get());
+		cache.getExpression("b", compiler);
+		assertEquals(4, compilations.get());
+	}
+
+	@Test
+	public final void testIncludes() throws Exception {
+		File include = tempDir.resolve("include.js").toFile();
+		Files.write(include.toPath(), "var a = 1;".getBytes());
+		CompiledScriptCache<String> cache = new CompiledScriptCache<String>();
+		CompiledScriptCache.Compiler<String, File> compiler = file -> new String(Files.readAllBytes(file.toPath()));
+
+		String compiled = cache.getInclude(include, compiler);
+		assertEquals("var a = 1;", compiled);
+		assertSame(compiled, cache.getInclude(include, compiler));
+
+		modify(include, "var a = 2;");
+		assertNotSame(compiled, cache.getInclude(include, compiler));
+		assertEquals("var a = 2;", cache.getInclude(include, compiler));
+	}
+
+	private void modify(File file, String content) throws IOException {
+		long lastModified = file.lastModified();
+		Files.write(file.toPath(), content.getBytes());
+		file.setLastModified(lastModified + 2000);
+	}
+}
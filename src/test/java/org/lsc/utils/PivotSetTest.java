@@ -0,0 +1,121 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.lsc.LscDatasets;
+
+public class PivotSetTest {
+
+	private static LscDatasets pivot(String name, Object value) {
+		LscDatasets pivot = new LscDatasets();
+		pivot.put(name, value);
+		return pivot;
+	}
+
+	@Test
+	public void testContains() {
+		PivotSet pivots = new PivotSet();
+		assertFalse(pivots.contains(pivot("uid", "user0")));
+
+		for (int i = 0; i < 100000; i++) {
+			pivots.add(pivot("uid", "user" + i));
+		}
+		pivots.add(pivot("uid", "user0"));
+		assertEquals(100000, pivots.size());
+
+		assertTrue(pivots.contains(pivot("UID", "user0")));
+		assertTrue(pivots.contains(pivot("uid", "user99999")));
+		assertFalse(pivots.contains(pivot("uid", "user100000")));
+		assertFalse(pivots.contains(pivot("uid", "USER0")));
+		assertFalse(pivots.contains(pivot("cn", "user0")));
+	}
+
+	@Test
+	public void testDifferentPivotNames() {
+		PivotSet pivots = new PivotSet();
+		LscDatasets first = pivot("uid", "user0");
+		first.put("mail", "user0@lsc-project.org");
+		assertTrue(pivots.add(first));
+		// Lacking one of the attributes of the first identifier
+		assertFalse(pivots.add(pivot("uid", "user1")));
+		assertEquals(1, pivots.size());
+		assertEquals(1, pivots.getSkippedCount());
+
+		assertTrue(pivots.contains(first));
+		assertFalse(pivots.contains(pivot("uid", "user0")));
+		assertFalse(pivots.contains(pivot("uid", "user1")));
+		assertFalse(pivots.contains(pivot("mail", "user0@lsc-project.org")));
+		// The attributes not hashed are ignored
+		LscDatasets more = pivot("uid", "user0");
+		more.put("mail", "user0@lsc-project.org");
+		more.put("cn", "User 0");
+		assertTrue(pivots.contains(more));
+	}
+
+	@Test
+	public void testMissingValue() {
+		PivotSet pivots = new PivotSet();
+		assertFalse(pivots.add(pivot("uid", null)));
+		assertTrue(pivots.add(pivot("uid", "user0")));
+		assertFalse(pivots.contains(pivot("uid", null)));
+		assertTrue(pivots.contains(pivot("uid", "user0")));
+	}
+
+	@Test
+	public void testBinaryValues() {
+		PivotSet pivots = new PivotSet();
+		pivots.add(pivot("objectGUID", new byte[] { 1, 2, 3 }));
+
+		assertTrue(pivots.contains(pivot("objectguid", new byte[] { 1, 2, 3 })));
+		assertFalse(pivots.contains(pivot("objectGUID", new byte[] { 1, 2 })));
+		assertFalse(pivots.contains(pivot("objectGUID", "\u0001\u0002\u0003")));
+	}
+}
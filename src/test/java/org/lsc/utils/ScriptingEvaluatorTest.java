@@ -14,17 +14,26 @@ import org.apache.directory.server.core.integ.ApacheDSTestExtension;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mozilla.javascript.EvaluatorException;
+import java.io.File;
 import java.lang.reflect.Method;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import org.lsc.utils.ScriptingEvaluator;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 
 import org.lsc.Task;
 import org.lsc.configuration.*;
@@ -49,6 +58,9 @@ public class ScriptingEvaluatorTest extends AbstractLdapTestUnit {
 
 	Task task = mock(Task.class);
 
+	@TempDir
+	Path tempDir;
+
 	@BeforeEach
 	public void setUp() throws LscServiceConfigurationException {
 		TaskType taskConf = LscConfiguration.getTask("ldap2ldapTestTask");
@@ -111,4 +123,36 @@ public class ScriptingEvaluatorTest extends AbstractLdapTestUnit {
 		String stringOutput = ScriptingEvaluator.evalToString(task, expression, new HashMap<>());
 		assertEquals("value", stringOutput);
 	}
+
+	@Test
+	public void testParsedExpression() throws LscServiceException {
+		ScriptExpression expression = ScriptingEvaluator.parse("rjs:'ou=' + 'people'");
+		assertEquals("rjs", expression.getEngine());
+		assertEquals("'ou=' + 'people'", expression.getScript());
+		assertFalse(expression.isConstant());
+		assertEquals("ou=people", ScriptingEvaluator.evalToString(task, expression, new HashMap<>()));
+
+		expression = ScriptingEvaluator.parse("false");
+		assertTrue(expression.isConstant());
+		assertFalse(ScriptingEvaluator.evalToBoolean(task, expression, new HashMap<>()));
+	}
+
+	@Test
+	public void testRhinoIncludes() throws Exception {
+		File include = tempDir.resolve("include.js").toFile();
+		Files.write(include.toPath(), ("String.prototype.initial = function() { return this.charAt(0); };\n"
+				+ "function greet() { return 'hello ' + name; }\n").getBytes());
+		when(task.getScriptIncludes()).thenReturn(Collections.singletonList(include));
+
+		// The includes extend the standard objects and see the variables of each evaluation
+		Map<String, Object> params = new HashMap<>();
+		params.put("name", "world");
+		assertEquals("w: hello world", ScriptingEvaluator.evalToString(task, "rjs:name.initial() + ': ' + greet()", params));
+		params.put("name", "lsc");
+		assertEquals("l: hello lsc", ScriptingEvaluator.evalToString(task, "rjs:name.initial() + ': ' + greet()", params));
+
+		// The shared objects can not be modified by an evaluation
+		assertThrows(EvaluatorException.class, () -> ScriptingEvaluator.evalToString(task, "rjs:String.prototype.initial = null", params));
+		assertEquals("l: hello lsc", ScriptingEvaluator.evalToString(task, "rjs:name.initial() + ': ' + greet()", params));
+	}
 }
@@ -0,0 +1,219 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.ModificationItem;
+import javax.naming.directory.SearchResult;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lsc.jndi.JndiModifications;
+import org.lsc.jndi.JndiServices;
+
+public class SequencesFactoryTest {
+
+	private static final String DN = "cn=uidNumber,ou=Sequences";
+
+	private static final String ATTRIBUTE = "uidNumber";
+
+	/** The value stored in the directory */
+	private final AtomicInteger stored = new AtomicInteger(1000);
+
+	private JndiServices jndiServices;
+
+	private Sequence sequence;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		jndiServices = mock(JndiServices.class);
+		when(jndiServices.readEntry(eq(DN), eq(false))).thenAnswer(invocation ->
+				new SearchResult(DN, null, new BasicAttributes(ATTRIBUTE, String.valueOf(stored.get()))));
+		// Replace the value only if it is still the one removed, as the directory does
+		when(jndiServices.apply(any(JndiModifications.class))).thenAnswer(invocation -> {
+			String removed = null;
+			String added = null;
+			for (ModificationItem mi : invocation.<JndiModifications> getArgument(0).getModificationItems()) {
+				if (mi.getModificationOp() == DirContext.REMOVE_ATTRIBUTE) {
+					removed = (String) mi.getAttribute().get();
+				} else {
+					added = (String) mi.getAttribute().get();
+				}
+			}
+			return stored.compareAndSet(Integer.parseInt(removed), Integer.parseInt(added));
+		});
+		sequence = new Sequence(jndiServices);
+		assertTrue(sequence.load(DN, ATTRIBUTE, 0));
+	}
+
+	@Test
+	public void testBlockExhaustion() throws Exception {
+		assertEquals(1001, sequence.getNextValue(3));
+		assertEquals(1003, stored.get());
+		assertEquals(1002, sequence.getNextValue(3));
+		assertEquals(1003, sequence.getNextValue(3));
+		verify(jndiServices, times(1)).apply(any(JndiModifications.class));
+
+		// The next block is reserved once the current one is exhausted
+		assertEquals(1004, sequence.getNextValue(3));
+		assertEquals(1006, stored.get());
+		verify(jndiServices, times(2)).apply(any(JndiModifications.class));
+		assertEquals(4, sequence.getAllocatedCount());
+		assertEquals(2, sequence.getUpdateLatency().getCount());
+	}
+
+	@Test
+	public void testBlockReservedByAnotherClient() throws Exception {
+		assertEquals(1001, sequence.getNextValue(2));
+		assertEquals(1002, sequence.getNextValue(2));
+		stored.set(1010);
+
+		// The new block starts from the value stored by the other client
+		assertEquals(1011, sequence.getNextValue(2));
+		assertEquals(1012, stored.get());
+	}
+
+	@Test
+	public void testConcurrentAllocation() throws Exception {
+		int threads = 8;
+		int valuesPerThread = 100;
+		Set<Integer> values = ConcurrentHashMap.newKeySet();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> allocators = new ArrayList<Thread>();
+		for (int i = 0; i < threads; i++) {
+			Thread allocator = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int j = 0; j < valuesPerThread; j++) {
+					values.add(sequence.getNextValue(10));
+				}
+			});
+			allocator.start();
+			allocators.add(allocator);
+		}
+		start.countDown();
+		for (Thread allocator : allocators) {
+			allocator.join();
+		}
+
+		// Each value is handed out once, and each block is reserved once
+		assertEquals(threads * valuesPerThread, values.size());
+		for (int value = 1001; value <= 1000 + threads * valuesPerThread; value++) {
+			assertTrue(values.contains(value));
+		}
+		assertEquals(1000 + threads * valuesPerThread, stored.get());
+		assertEquals(threads * valuesPerThread / 10, sequence.getUpdateLatency().getCount());
+	}
+
+	@Test
+	public void testRelease() throws Exception {
+		assertEquals(1001, sequence.getNextValue(10));
+		assertEquals(1010, stored.get());
+
+		sequence.release();
+		assertEquals(1001, stored.get());
+		assertEquals(1001, sequence.getCurrentValue());
+
+		// The values given back are handed out again
+		assertEquals(1002, sequence.getNextValue(10));
+	}
+
+	@Test
+	public void testReleaseAfterAnotherClient() throws Exception {
+		assertEquals(1001, sequence.getNextValue(10));
+		stored.set(1015);
+
+		// The values reserved are lost rather than given back over the other client's ones
+		sequence.release();
+		assertEquals(1015, stored.get());
+		assertEquals(1016, sequence.getNextValue(10));
+	}
+
+	@Test
+	public void testFactoryBlockSize() throws Exception {
+		SequencesFactory factory = new SequencesFactory(jndiServices, 5);
+		assertEquals(5, factory.getBlockSize());
+
+		assertEquals(1001, factory.getNextValue(DN, ATTRIBUTE));
+		assertEquals(1005, stored.get());
+		assertEquals(1002, factory.getNextValue(DN, ATTRIBUTE));
+		verify(jndiServices, times(1)).apply(any(JndiModifications.class));
+
+		factory.release();
+		assertEquals(1002, stored.get());
+	}
+
+	@Test
+	public void testReleaseUnusedBlock() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			sequence.getNextValue(10);
+		}
+		sequence.release();
+		// Nothing to give back
+		assertEquals(1010, stored.get());
+		verify(jndiServices, times(1)).apply(any(JndiModifications.class));
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ ****************************************************************************
+ * Ldap Synchronization Connector provides tools to synchronize
+ * electronic identities from a list of data sources including
+ * any database with a JDBC connector, another LDAP directory,
+ * flat files...
+ *
+ *                  ==LICENSE NOTICE==
+ * 
+ * Copyright (c) 2008 - 2011 LSC Project 
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ *    * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the LSC Project nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *                  ==LICENSE NOTICE==
+ *
+ *               (c) 2008 - 2011 LSC Project
+ *         Sebastien Bahloul &lt;seb@lsc-project.org&gt;
+ *         Thomas Chemineau &lt;thomas@lsc-project.org&gt;
+ *         Jonathan Clarke &lt;jon@lsc-project.org&gt;
+ *         Remy-Christophe Schermesser &lt;rcs@lsc-project.org&gt;
+ ****************************************************************************
+ */
+package org.lsc.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class SetUtilsTest {
+
+	@Test
+	public void testFindMissingNeedles() {
+		Set<Object> haystack = new HashSet<Object>(Arrays.asList("a", "b".getBytes(), "C"));
+		Set<Object> needles = new LinkedHashSet<Object>(Arrays.asList("a".getBytes(), "b", "c", "d"));
+
+		assertEquals(new HashSet<Object>(Arrays.asList("c", "d")), SetUtils.findMissingNeedles(haystack, needles));
+		assertEquals(new HashSet<Object>(Arrays.asList("d")), SetUtils.findMissingNeedles(haystack, needles, true));
+		assertEquals(needles, SetUtils.findMissingNeedles(null, needles));
+		assertTrue(SetUtils.findMissingNeedles(haystack, null).isEmpty());
+	}
+
+	@Test
+	public void testLargeSets() {
+		Set<Object> src = new HashSet<Object>();
+		Set<Object> dst = new HashSet<Object>();
+		for (int i = 0; i < 100000; i++) {
+			src.add("uid=user" + i + ",ou=people");
+			dst.add("uid=user" + (i + 10) + ",ou=people");
+		}
+
+		assertEquals(10, SetUtils.findMissingNeedles(dst, src).size());
+		assertEquals(10, SetUtils.findMissingNeedles(src, dst).size());
+		assertFalse(SetUtils.doSetsMatch(src, dst));
+	}
+
+	@Test
+	public void testDoSetsMatch() {
+		Set<Object> src = new LinkedHashSet<Object>(Arrays.asList("a", "B".getBytes()));
+		Set<Object> dst = new LinkedHashSet<Object>(Arrays.asList("B", "a".getBytes()));
+
+		assertTrue(SetUtils.doSetsMatch(src, dst));
+		assertFalse(SetUtils.doSetsMatchWithOrder(src, dst));
+		assertFalse(SetUtils.doSetsMatch(src, new HashSet<Object>(Arrays.asList("a", "b"))));
+		assertTrue(SetUtils.doSetsMatch(new HashSet<Object>(Arrays.asList("a", "B")),
+				new HashSet<Object>(Arrays.asList("A", "b")), true));
+
+		Set<Object> ordered = new LinkedHashSet<Object>(Arrays.asList("a".getBytes(), "B"));
+		assertTrue(SetUtils.checkOrder(src, ordered));
+		assertTrue(SetUtils.doSetsMatchWithOrder(src, ordered));
+	}
+}